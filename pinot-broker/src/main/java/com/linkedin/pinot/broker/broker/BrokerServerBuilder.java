@@ -19,6 +19,9 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.HashedWheelTimer;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -45,6 +48,7 @@ import com.linkedin.pinot.routing.CfgBasedRouting;
 import com.linkedin.pinot.routing.HelixExternalViewBasedRouting;
 import com.linkedin.pinot.routing.RoutingTable;
 import com.linkedin.pinot.routing.TimeBoundaryService;
+import com.linkedin.pinot.transport.common.AdaptiveReplicaSelection;
 import com.linkedin.pinot.transport.conf.TransportClientConf;
 import com.linkedin.pinot.transport.conf.TransportClientConf.RoutingMode;
 import com.linkedin.pinot.transport.config.ConnectionPoolConfig;
@@ -66,7 +70,14 @@ public class BrokerServerBuilder {
   private static final String CLIENT_CONFIG_PREFIX = "pinot.broker.client";
   private static final String METRICS_CONFIG_PREFIX = "pinot.broker.metrics";
   private static final String BROKER_TIME_OUT_CONFIG = "pinot.broker.time.out";
-
+  private static final String BROKER_INCREMENTAL_REDUCE_CONFIG = "pinot.broker.reduce.incremental";
+  private static final String SPECULATIVE_REQUEST_COUNT_CONFIG = "pinot.broker.speculative.request.count";
+  private static final String SPECULATIVE_REQUEST_DELAY_CONFIG = "pinot.broker.speculative.request.delayMs";
+  private static final String SPECULATIVE_REQUEST_TABLE_DELAY_CONFIG_PREFIX =
+      "pinot.broker.speculative.request.tableDelayMs";
+
+  private static final String REPLICA_SELECTION_CONFIG = "pinot.broker.replica.selection";
+  private static final String ADAPTIVE_REPLICA_SELECTION = "adaptive";
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerServerBuilder.class);
   private static final long DEFAULT_BROKER_TIME_OUT = 10 * 1000L;
 
@@ -114,6 +125,39 @@ public class BrokerServerBuilder {
     this.listener = listener;
   }
 
+  /**
+   * Speculative (hedged) requests are disabled unless a count is configured. The delay can be set per table, a
+   * non-positive delay means the 95th percentile of the server latency is used.
+   */
+  private void initSpeculativeRequests() {
+    int numSpeculativeRequests = _config.getInt(SPECULATIVE_REQUEST_COUNT_CONFIG, 0);
+    if (numSpeculativeRequests <= 0) {
+      return;
+    }
+    long delayMs = _config.getLong(SPECULATIVE_REQUEST_DELAY_CONFIG, -1L);
+    Map<String, Long> tableDelayMs = new HashMap<String, Long>();
+    Configuration tableDelayConfig = _config.subset(SPECULATIVE_REQUEST_TABLE_DELAY_CONFIG_PREFIX);
+    Iterator<String> tableNames = tableDelayConfig.getKeys();
+    while (tableNames.hasNext()) {
+      String tableName = tableNames.next();
+      tableDelayMs.put(tableName, tableDelayConfig.getLong(tableName));
+    }
+    LOGGER.info("Speculative requests enabled, count: " + numSpeculativeRequests + ", delay: " + delayMs
+        + " ms, per table delays: " + tableDelayMs);
+    _requestHandler.setSpeculativeRequests(numSpeculativeRequests, delayMs, tableDelayMs);
+  }
+
+  /**
+   * Replicas are selected round robin unless the latency-aware adaptive selection is configured.
+   */
+  private void initReplicaSelection() {
+    String replicaSelection = _config.getString(REPLICA_SELECTION_CONFIG, null);
+    if (ADAPTIVE_REPLICA_SELECTION.equalsIgnoreCase(replicaSelection)) {
+      LOGGER.info("Using adaptive replica selection");
+      _requestHandler.setReplicaSelection(new AdaptiveReplicaSelection());
+    }
+  }
+
   public void buildNetwork() throws ConfigurationException {
     // build transport
     Configuration transportConfigs = _config.subset(TRANSPORT_CONFIG_PREFIX);
@@ -161,7 +205,7 @@ public class BrokerServerBuilder {
     }
 
     // Setup ScatterGather
-    _scatterGather = new ScatterGatherImpl(_connPool, _requestSenderPool);
+    _scatterGather = new ScatterGatherImpl(_connPool, _requestSenderPool, _poolTimeoutExecutor, _brokerMetrics);
 
     // Setup Broker Request Handler
     long brokerTimeOut = DEFAULT_BROKER_TIME_OUT;
@@ -173,10 +217,14 @@ public class BrokerServerBuilder {
       }
     }
     LOGGER.info("Broker timeout is - " + brokerTimeOut + " ms");
+    boolean incrementalReduce = _config.getBoolean(BROKER_INCREMENTAL_REDUCE_CONFIG, false);
+    LOGGER.info("Incremental reduce of server responses is " + (incrementalReduce ? "enabled" : "disabled"));
 
     _requestHandler =
         new BrokerRequestHandler(_routingTable, _timeBoundaryService, _scatterGather, new DefaultReduceService(),
-            _brokerMetrics, brokerTimeOut);
+            _brokerMetrics, brokerTimeOut, incrementalReduce);
+    initSpeculativeRequests();
+    initReplicaSelection();
 
     //TODO: Start Broker Server : Code goes here. Broker Server part should use request handler to submit requests
 
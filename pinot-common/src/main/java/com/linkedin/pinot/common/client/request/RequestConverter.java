@@ -27,8 +27,10 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.linkedin.pinot.common.client.request.filter.FilterQueryTreeConstructor;
+import com.linkedin.pinot.common.client.request.filter.QueryFilterQueryTreeConstructor;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.request.QuerySource;
 import com.linkedin.pinot.common.request.Selection;
@@ -286,9 +288,25 @@ public class RequestConverter {
       req.setAggregationsInfo(aggInfos);
     }
 
+    FilterQueryTree filterQuery = null;
     if (requestJSON.has("filter")) {
-      final FilterQueryTree filterQuery =
-          FilterQueryTreeConstructor.constructFilter(requestJSON.getJSONObject("filter"));
+      filterQuery = FilterQueryTreeConstructor.constructFilter(requestJSON.getJSONObject("filter"));
+    }
+    // A single LIKE predicate is hoisted by the compiler from the where clause into the top level query.
+    final JSONObject query = requestJSON.optJSONObject(QueryFilterQueryTreeConstructor.FILTER_TYPE);
+    if (QueryFilterQueryTreeConstructor.isSupported(query)) {
+      final FilterQueryTree queryFilter = FilterQueryTreeConstructor.constructFilter(
+          new JSONObject().put(QueryFilterQueryTreeConstructor.FILTER_TYPE, query));
+      if (filterQuery == null) {
+        filterQuery = queryFilter;
+      } else if (queryFilter != null) {
+        final List<FilterQueryTree> children = new ArrayList<FilterQueryTree>();
+        children.add(queryFilter);
+        children.add(filterQuery);
+        filterQuery = new FilterQueryTree(null, null, FilterOperator.AND, children);
+      }
+    }
+    if (filterQuery != null) {
       RequestUtils.generateFilterFromTree(filterQuery, req);
     }
     // System.out.println(requestJSON);
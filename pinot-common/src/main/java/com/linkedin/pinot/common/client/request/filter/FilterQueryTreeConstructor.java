@@ -59,6 +59,7 @@ public abstract class FilterQueryTreeConstructor {
     FILTER_CONSTRUCTOR_MAP.put(OrFilterQueryTreeConstructor.FILTER_TYPE, new OrFilterQueryTreeConstructor());
     FILTER_CONSTRUCTOR_MAP.put(RangeFilterQueryTreeConstructor.FILTER_TYPE, new RangeFilterQueryTreeConstructor());
     FILTER_CONSTRUCTOR_MAP.put(TermsFilterQueryTreeConstructor.FILTER_TYPE, new TermsFilterQueryTreeConstructor());
+    FILTER_CONSTRUCTOR_MAP.put(QueryFilterQueryTreeConstructor.FILTER_TYPE, new QueryFilterQueryTreeConstructor());
   }
 
   public static FilterQueryTreeConstructor getFilterConstructor(String type) {
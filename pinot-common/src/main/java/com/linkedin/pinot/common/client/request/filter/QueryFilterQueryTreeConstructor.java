@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.client.request.filter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.json.JSONObject;
+
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+
+
+/**
+ * Constructs filters for the "query" clauses emitted by the PQL compiler. Only the "wildcard" query produced for
+ * LIKE predicates is supported; it is turned into a REGEX filter so that it can be evaluated against the dictionary.
+ */
+public class QueryFilterQueryTreeConstructor extends FilterQueryTreeConstructor {
+  public static final String FILTER_TYPE = "query";
+  public static final String WILDCARD_QUERY_TYPE = "wildcard";
+
+  private static final String REGEX_META_CHARACTERS = "\\.[]{}()^$|+*?";
+
+  @Override
+  protected FilterQueryTree doConstructFilter(Object obj) throws Exception {
+    final JSONObject json = (JSONObject) obj;
+
+    final Iterator<String> iter = json.keys();
+    if (!iter.hasNext()) {
+      throw new IllegalArgumentException("Query type not specified: " + json);
+    }
+
+    final String type = iter.next();
+    if (!WILDCARD_QUERY_TYPE.equals(type)) {
+      throw new IllegalArgumentException("Query type '" + type + "' not supported");
+    }
+
+    final JSONObject wildcard = json.getJSONObject(type);
+    final Iterator<String> fields = wildcard.keys();
+    if (!fields.hasNext()) {
+      return null;
+    }
+
+    final String field = fields.next();
+    final List<String> rhs = new ArrayList<String>();
+    rhs.add(wildcardToRegex(wildcard.getString(field)));
+    return new FilterQueryTree(field, rhs, FilterOperator.REGEX, null);
+  }
+
+  /**
+   * Returns true if the given top level query clause can be turned into a filter.
+   */
+  public static boolean isSupported(JSONObject query) {
+    return query != null && query.has(WILDCARD_QUERY_TYPE);
+  }
+
+  /**
+   * Converts a wildcard pattern ('*' for any sequence, '?' for any single character) into an equivalent regex.
+   */
+  public static String wildcardToRegex(String wildcard) {
+    final StringBuilder regex = new StringBuilder(wildcard.length() + 8);
+    for (int i = 0; i < wildcard.length(); i++) {
+      final char c = wildcard.charAt(i);
+      if (c == '*') {
+        regex.append(".*");
+      } else if (c == '?') {
+        regex.append('.');
+      } else {
+        if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+          regex.append('\\');
+        }
+        regex.append(c);
+      }
+    }
+    return regex.toString();
+  }
+}
@@ -29,6 +29,8 @@ public class IndexingConfig {
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexingConfig.class);
 
   private List<String> invertedIndexColumns;
+  private List<String> rangeIndexColumns = new ArrayList<String>();
+  private List<String> varLengthDictionaryColumns = new ArrayList<String>();
   private List<String> sortedColumn = new ArrayList<String>();
   private String loadMode;
   private String lazyLoad;
@@ -62,6 +64,30 @@ public class IndexingConfig {
     this.invertedIndexColumns = invertedIndexColumns;
   }
 
+  /**
+   * Single value columns to create a range index for, typically high cardinality numeric and time columns filtered
+   * with range predicates.
+   */
+  public List<String> getRangeIndexColumns() {
+    return rangeIndexColumns;
+  }
+
+  public void setRangeIndexColumns(List<String> rangeIndexColumns) {
+    this.rangeIndexColumns = rangeIndexColumns;
+  }
+
+  /**
+   * String columns to store with a variable length dictionary instead of one padded to the longest value, typically
+   * columns with a few very long values such as urls or user agents.
+   */
+  public List<String> getVarLengthDictionaryColumns() {
+    return varLengthDictionaryColumns;
+  }
+
+  public void setVarLengthDictionaryColumns(List<String> varLengthDictionaryColumns) {
+    this.varLengthDictionaryColumns = varLengthDictionaryColumns;
+  }
+
   public String getLoadMode() {
     return loadMode;
   }
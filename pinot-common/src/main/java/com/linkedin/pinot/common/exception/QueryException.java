@@ -28,6 +28,7 @@ public class QueryException {
   public static final ProcessingException PQL_PARSING_ERROR = new ProcessingException(150);
   public static final ProcessingException QUERY_EXECUTION_ERROR = new ProcessingException(200);
   public static final ProcessingException EXECUTION_TIMEOUT_ERROR = new ProcessingException(250);
+  public static final ProcessingException SERVER_OUT_OF_CAPACITY_ERROR = new ProcessingException(260);
   public static final ProcessingException BROKER_GATHER_ERROR = new ProcessingException(300);
   public static final ProcessingException FUTURE_CALL_ERROR = new ProcessingException(350);
   public static final ProcessingException BROKER_TIMEOUT_ERROR = new ProcessingException(400);
@@ -45,6 +46,7 @@ public class QueryException {
     PQL_PARSING_ERROR.setMessage(" PQLParsingError");
     QUERY_EXECUTION_ERROR.setMessage("QueryExecutionError");
     EXECUTION_TIMEOUT_ERROR.setMessage("ExecutionTimeout");
+    SERVER_OUT_OF_CAPACITY_ERROR.setMessage("ServerOutOfCapacity");
     BROKER_GATHER_ERROR.setMessage("BrokerGatherError");
     FUTURE_CALL_ERROR.setMessage("FutureCallError");
     BROKER_TIMEOUT_ERROR.setMessage("BrokerTimeout");
@@ -58,7 +60,7 @@ public class QueryException {
   }
 
   public static ProcessingException getException(ProcessingException processingException, Exception exception, int sizeOfStackTraceToTruncate) {
-    ProcessingException retProcessingException = QueryException.FUTURE_CALL_ERROR.deepCopy();
+    ProcessingException retProcessingException = processingException.deepCopy();
     StringWriter sw = new StringWriter(sizeOfStackTraceToTruncate);
     exception.printStackTrace(new PrintWriter(sw));
     retProcessingException.setMessage(sw.toString());
@@ -30,13 +30,19 @@ import org.apache.commons.configuration.Configuration;
 public class IndexLoadingConfigMetadata {
 
   private final static String KEY_OF_LOADING_INVERTED_INDEX = "metadata.loading.inverted.index.columns";
+  public final static String KEY_OF_LAZY_LOADING = "metadata.loading.lazy";
+  public final static String KEY_OF_LAZY_LOADING_IDLE_UNLOAD_MS = "metadata.loading.lazy.idle.unload.ms";
   private final Set<String> _loadingInvertedIndexColumnSet = new HashSet<String>();
+  private boolean _lazyLoading;
+  private long _lazyLoadingIdleUnloadMs;
 
   public IndexLoadingConfigMetadata(Configuration tableDataManagerConfig) {
     List<String> valueOfLoadingInvertedIndexConfig = tableDataManagerConfig.getList(KEY_OF_LOADING_INVERTED_INDEX, null);
     if ((valueOfLoadingInvertedIndexConfig != null) && (!valueOfLoadingInvertedIndexConfig.isEmpty())) {
       initLoadingInvertedIndexColumnSet(valueOfLoadingInvertedIndexConfig.toArray(new String[0]));
     }
+    _lazyLoading = tableDataManagerConfig.getBoolean(KEY_OF_LAZY_LOADING, false);
+    _lazyLoadingIdleUnloadMs = tableDataManagerConfig.getLong(KEY_OF_LAZY_LOADING_IDLE_UNLOAD_MS, 0L);
   }
 
   public void initLoadingInvertedIndexColumnSet(String[] columnCollections) {
@@ -51,4 +57,28 @@ public class IndexLoadingConfigMetadata {
     return _loadingInvertedIndexColumnSet.contains(columnName);
   }
 
+  /**
+   * Whether the indexes of a column are only opened when the column is first accessed, instead of when the segment is
+   * loaded.
+   */
+  public boolean isLazyLoading() {
+    return _lazyLoading;
+  }
+
+  public void setLazyLoading(boolean lazyLoading) {
+    _lazyLoading = lazyLoading;
+  }
+
+  /**
+   * With lazy loading, how long a column can go without being accessed before its indexes are closed again, or 0 to
+   * keep them open until the segment is destroyed. The indexes of a segment are never closed while a query uses it.
+   */
+  public long getLazyLoadingIdleUnloadMs() {
+    return _lazyLoadingIdleUnloadMs;
+  }
+
+  public void setLazyLoadingIdleUnloadMs(long lazyLoadingIdleUnloadMs) {
+    _lazyLoadingIdleUnloadMs = lazyLoadingIdleUnloadMs;
+  }
+
 }
@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.yammer.metrics.core.Gauge;
 import com.yammer.metrics.core.MetricName;
 import com.yammer.metrics.core.MetricsRegistry;
 
@@ -128,6 +129,52 @@ public abstract class AbstractMetrics<QP extends AbstractMetrics.QueryPhase, M e
     MetricsHelper.newMeter(_metricsRegistry, metricName, meter.getUnit(), TimeUnit.SECONDS).mark(unitCount);
   }
 
+  /**
+   * Logs a duration to a global timer, for work that is not attached to a query, e.g. a background task.
+   *
+   * @param metricName The metric name to register
+   * @param duration The duration to log
+   * @param timeUnit The unit of the duration
+   */
+  public void addTimedValue(final String metricName, final long duration, final TimeUnit timeUnit) {
+    final MetricName fullMetricName = new MetricName(_clazz, _metricPrefix + metricName);
+
+    MetricsHelper.newTimer(_metricsRegistry, fullMetricName, TimeUnit.MILLISECONDS, TimeUnit.SECONDS).update(duration,
+        timeUnit);
+  }
+
+  /**
+   * Registers a gauge whose value is computed by the given callable every time the gauge is read,
+   * e.g. the current depth of a queue.
+   *
+   * @param metricName The metric name to register
+   * @param valueCallback The callable returning the current value of the gauge
+   */
+  public void addCallbackGauge(final String metricName, final Callable<Long> valueCallback) {
+    final MetricName fullMetricName = new MetricName(_clazz, _metricPrefix + metricName);
+    MetricsHelper.newGauge(_metricsRegistry, fullMetricName, new Gauge<Long>() {
+      @Override
+      public Long value() {
+        try {
+          return valueCallback.call();
+        } catch (Exception e) {
+          LOGGER.error("Caught exception while computing gauge {}", metricName, e);
+          return 0L;
+        }
+      }
+    });
+  }
+
+  /**
+   * Removes a gauge registered with {@link #addCallbackGauge(String, Callable)}, e.g. when the entity it tracks goes
+   * away.
+   *
+   * @param metricName The metric name to remove
+   */
+  public void removeGauge(final String metricName) {
+    _metricsRegistry.removeMetric(new MetricName(_clazz, _metricPrefix + metricName));
+  }
+
   /**
    * Initializes all global meters (such as exceptions count) to zero.
    */
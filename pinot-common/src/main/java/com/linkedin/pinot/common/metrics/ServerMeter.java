@@ -26,7 +26,13 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   QUERIES("queries", true),
   UNCAUGHT_EXCEPTIONS("exceptions", true),
   RESPONSE_SERIALIZATION_EXCEPTIONS("exceptions", true),
-  QUERY_EXECUTION_EXCEPTIONS("exceptions", false);
+  QUERY_EXECUTION_EXCEPTIONS("exceptions", false),
+  SCHEDULER_REJECTED_QUERIES("queries", false),
+  QUERIES_CANCELLED("queries", false),
+  SEGMENTS_CANCELLED("segments", false),
+  REALTIME_ROWS_CONSUMED("rows", true),
+  REALTIME_DECODE_TIME("microseconds", true),
+  REALTIME_INDEX_TIME("microseconds", true);
 
   private final String meterName;
   private final String unit;
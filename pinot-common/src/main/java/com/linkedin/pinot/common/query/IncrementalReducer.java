@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.query;
+
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+
+
+/**
+ * Reduces the responses of one broker request as they arrive, keeping a running result instead of all the
+ * DataTables. Implementations should be thread safe, responses may be added concurrently.
+ *
+ */
+public interface IncrementalReducer {
+
+  /**
+   * Merges the response of one server into the running result.
+   *
+   * @param serverInstance
+   * @param instanceResponse
+   */
+  public void reduce(ServerInstance serverInstance, DataTable instanceResponse);
+
+  /**
+   * Returns true if the rows of responses that have not been reduced yet can no longer change the result (e.g. a
+   * selection without ordering that already has enough rows). Such responses still have to be reduced, for their
+   * statistics and exceptions.
+   */
+  public boolean isComplete();
+
+  /**
+   * Builds the broker response from the responses merged so far.
+   */
+  public BrokerResponse getBrokerResponse();
+}
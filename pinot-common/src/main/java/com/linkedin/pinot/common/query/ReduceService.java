@@ -50,4 +50,13 @@ public interface ReduceService {
   public BrokerResponse reduceOnDataTable(BrokerRequest brokerRequest,
       Map<ServerInstance, DataTable> instanceResponseMap);
 
+  /**
+   * Returns a reducer that merges the DataTables of the given request one at a time, as they are received.
+   * The resulting broker response is the same as {@link #reduceOnDataTable(BrokerRequest, Map)} on all of them.
+   *
+   * @param brokerRequest
+   * @return IncrementalReducer
+   */
+  public IncrementalReducer newIncrementalReducer(BrokerRequest brokerRequest);
+
 }
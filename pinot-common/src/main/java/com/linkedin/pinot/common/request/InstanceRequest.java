@@ -47,6 +47,7 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   private static final org.apache.thrift.protocol.TField QUERY_FIELD_DESC = new org.apache.thrift.protocol.TField("query", org.apache.thrift.protocol.TType.STRUCT, (short)2);
   private static final org.apache.thrift.protocol.TField SEARCH_SEGMENTS_FIELD_DESC = new org.apache.thrift.protocol.TField("searchSegments", org.apache.thrift.protocol.TType.LIST, (short)3);
   private static final org.apache.thrift.protocol.TField ENABLE_TRACE_FIELD_DESC = new org.apache.thrift.protocol.TField("enableTrace", org.apache.thrift.protocol.TType.BOOL, (short)4);
+  private static final org.apache.thrift.protocol.TField TIMEOUT_MS_FIELD_DESC = new org.apache.thrift.protocol.TField("timeoutMs", org.apache.thrift.protocol.TType.I64, (short)5);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -58,13 +59,15 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   private BrokerRequest query; // required
   private List<String> searchSegments; // optional
   private boolean enableTrace; // optional
+  private long timeoutMs; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
     REQUEST_ID((short)1, "requestId"),
     QUERY((short)2, "query"),
     SEARCH_SEGMENTS((short)3, "searchSegments"),
-    ENABLE_TRACE((short)4, "enableTrace");
+    ENABLE_TRACE((short)4, "enableTrace"),
+    TIMEOUT_MS((short)5, "timeoutMs");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -87,6 +90,8 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
           return SEARCH_SEGMENTS;
         case 4: // ENABLE_TRACE
           return ENABLE_TRACE;
+        case 5: // TIMEOUT_MS
+          return TIMEOUT_MS;
         default:
           return null;
       }
@@ -129,8 +134,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   // isset id assignments
   private static final int __REQUESTID_ISSET_ID = 0;
   private static final int __ENABLETRACE_ISSET_ID = 1;
+  private static final int __TIMEOUTMS_ISSET_ID = 2;
   private byte __isset_bitfield = 0;
-  private static final _Fields optionals[] = {_Fields.SEARCH_SEGMENTS,_Fields.ENABLE_TRACE};
+  private static final _Fields optionals[] = {_Fields.SEARCH_SEGMENTS,_Fields.ENABLE_TRACE,_Fields.TIMEOUT_MS};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -143,6 +149,8 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
             new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
     tmpMap.put(_Fields.ENABLE_TRACE, new org.apache.thrift.meta_data.FieldMetaData("enableTrace", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
+    tmpMap.put(_Fields.TIMEOUT_MS, new org.apache.thrift.meta_data.FieldMetaData("timeoutMs", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(InstanceRequest.class, metaDataMap);
   }
@@ -174,6 +182,7 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       this.searchSegments = __this__searchSegments;
     }
     this.enableTrace = other.enableTrace;
+    this.timeoutMs = other.timeoutMs;
   }
 
   public InstanceRequest deepCopy() {
@@ -188,6 +197,8 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     this.searchSegments = null;
     setEnableTraceIsSet(false);
     this.enableTrace = false;
+    setTimeoutMsIsSet(false);
+    this.timeoutMs = 0;
   }
 
   public long getRequestId() {
@@ -295,6 +306,28 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __ENABLETRACE_ISSET_ID, value);
   }
 
+  public long getTimeoutMs() {
+    return this.timeoutMs;
+  }
+
+  public void setTimeoutMs(long timeoutMs) {
+    this.timeoutMs = timeoutMs;
+    setTimeoutMsIsSet(true);
+  }
+
+  public void unsetTimeoutMs() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __TIMEOUTMS_ISSET_ID);
+  }
+
+  /** Returns true if field timeoutMs is set (has been assigned a value) and false otherwise */
+  public boolean isSetTimeoutMs() {
+    return EncodingUtils.testBit(__isset_bitfield, __TIMEOUTMS_ISSET_ID);
+  }
+
+  public void setTimeoutMsIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __TIMEOUTMS_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case REQUEST_ID:
@@ -329,6 +362,14 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       }
       break;
 
+    case TIMEOUT_MS:
+      if (value == null) {
+        unsetTimeoutMs();
+      } else {
+        setTimeoutMs((Long)value);
+      }
+      break;
+
     }
   }
 
@@ -346,6 +387,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     case ENABLE_TRACE:
       return Boolean.valueOf(isEnableTrace());
 
+    case TIMEOUT_MS:
+      return Long.valueOf(getTimeoutMs());
+
     }
     throw new IllegalStateException();
   }
@@ -365,6 +409,8 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       return isSetSearchSegments();
     case ENABLE_TRACE:
       return isSetEnableTrace();
+    case TIMEOUT_MS:
+      return isSetTimeoutMs();
     }
     throw new IllegalStateException();
   }
@@ -418,6 +464,15 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         return false;
     }
 
+    boolean this_present_timeoutMs = true && this.isSetTimeoutMs();
+    boolean that_present_timeoutMs = true && that.isSetTimeoutMs();
+    if (this_present_timeoutMs || that_present_timeoutMs) {
+      if (!(this_present_timeoutMs && that_present_timeoutMs))
+        return false;
+      if (this.timeoutMs != that.timeoutMs)
+        return false;
+    }
+
     return true;
   }
 
@@ -445,6 +500,11 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     if (present_enableTrace)
       list.add(enableTrace);
 
+    boolean present_timeoutMs = true && (isSetTimeoutMs());
+    list.add(present_timeoutMs);
+    if (present_timeoutMs)
+      list.add(timeoutMs);
+
     return list.hashCode();
   }
 
@@ -496,6 +556,16 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetTimeoutMs()).compareTo(other.isSetTimeoutMs());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetTimeoutMs()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.timeoutMs, other.timeoutMs);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -543,6 +613,12 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       sb.append(this.enableTrace);
       first = false;
     }
+    if (isSetTimeoutMs()) {
+      if (!first) sb.append(", ");
+      sb.append("timeoutMs:");
+      sb.append(this.timeoutMs);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -642,6 +718,14 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 5: // TIMEOUT_MS
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.timeoutMs = iprot.readI64();
+              struct.setTimeoutMsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -682,6 +766,11 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         oprot.writeBool(struct.enableTrace);
         oprot.writeFieldEnd();
       }
+      if (struct.isSetTimeoutMs()) {
+        oprot.writeFieldBegin(TIMEOUT_MS_FIELD_DESC);
+        oprot.writeI64(struct.timeoutMs);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -708,7 +797,10 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       if (struct.isSetEnableTrace()) {
         optionals.set(1);
       }
-      oprot.writeBitSet(optionals, 2);
+      if (struct.isSetTimeoutMs()) {
+        optionals.set(2);
+      }
+      oprot.writeBitSet(optionals, 3);
       if (struct.isSetSearchSegments()) {
         {
           oprot.writeI32(struct.searchSegments.size());
@@ -721,6 +813,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       if (struct.isSetEnableTrace()) {
         oprot.writeBool(struct.enableTrace);
       }
+      if (struct.isSetTimeoutMs()) {
+        oprot.writeI64(struct.timeoutMs);
+      }
     }
 
     @Override
@@ -731,7 +826,7 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       struct.query = new BrokerRequest();
       struct.query.read(iprot);
       struct.setQueryIsSet(true);
-      BitSet incoming = iprot.readBitSet(2);
+      BitSet incoming = iprot.readBitSet(3);
       if (incoming.get(0)) {
         {
           org.apache.thrift.protocol.TList _list73 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
@@ -749,6 +844,10 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         struct.enableTrace = iprot.readBool();
         struct.setEnableTraceIsSet(true);
       }
+      if (incoming.get(2)) {
+        struct.timeoutMs = iprot.readI64();
+        struct.setTimeoutMsIsSet(true);
+      }
     }
   }
 
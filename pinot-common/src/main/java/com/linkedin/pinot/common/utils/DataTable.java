@@ -58,6 +58,9 @@ public class DataTable {
 
   static int VERSION = 1;
 
+  // ObjectStreamConstants.STREAM_MAGIC, the first two bytes of every java serialization stream.
+  private static final byte[] JAVA_SERIALIZATION_MAGIC = new byte[] { (byte) 0xAC, (byte) 0xED };
+
   private Map<String, Map<Integer, String>> dictionary;
 
   private Map<String, String> metadata;
@@ -709,6 +712,41 @@ public class DataTable {
     return (T) deserialize(serData);
   }
 
+  /**
+   * Returns the raw bytes stored in an OBJECT column, without deserializing them.
+   *
+   * @param rowId
+   * @param colId
+   * @return
+   */
+  public byte[] getObjectBytes(int rowId, int colId) {
+    final int length = positionCursorInVariableBuffer(rowId, colId);
+    final byte[] serData = new byte[length];
+    variableSizeData.get(serData);
+    return serData;
+  }
+
+  /**
+   * Returns true if the given bytes are a java serialization stream, i.e. were written by
+   * {@link DataTableBuilder#setColumn(int, Object)}.
+   *
+   * @param bytes
+   * @return
+   */
+  public static boolean isJavaSerialized(byte[] bytes) {
+    return bytes.length >= 2 && bytes[0] == JAVA_SERIALIZATION_MAGIC[0] && bytes[1] == JAVA_SERIALIZATION_MAGIC[1];
+  }
+
+  /**
+   * Deserializes bytes written by {@link DataTableBuilder#setColumn(int, Object)}.
+   *
+   * @param bytes
+   * @return
+   */
+  public <T extends Serializable> T deserializeObject(byte[] bytes) {
+    return deserialize(bytes);
+  }
+
   /**
    *
    * @return
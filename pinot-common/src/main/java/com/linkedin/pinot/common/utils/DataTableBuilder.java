@@ -335,6 +335,22 @@ public class DataTableBuilder {
     currentRowData.putInt(bytes.length);
   }
 
+  /**
+   * Set an OBJECT column from bytes that were already serialized by the caller. Unlike
+   * {@link #setColumn(int, Object)} this does not go through java serialization, so callers can
+   * ship a compact, schema-aware encoding and read it back with {@link DataTable#getObjectBytes(int, int)}.
+   *
+   * @param columnIndex
+   * @param serializedBytes
+   * @throws Exception
+   */
+  public void setObjectBytes(int columnIndex, byte[] serializedBytes) throws Exception {
+    currentRowData.position(columnOffsets[columnIndex]);
+    currentRowData.putInt(variableSizeDataHolder.position());
+    variableSizeDataHolder.add(serializedBytes);
+    currentRowData.putInt(serializedBytes.length);
+  }
+
   // ARRAY TYPE support
   /**
    *
@@ -58,5 +58,9 @@ public class SegmentNameBuilder {
       return segmentId.split("__")[3];
     }
 
+    public static String extractSequenceNumber(String segmentId) {
+      return segmentId.split("__")[4];
+    }
+
   }
 }
@@ -115,7 +115,31 @@ public class PinotRealtimeSegmentsManager implements HelixPropertyListener {
             instancesToAssignRealtimeSegment.remove(instanceName);
           }
         }
+        // Servers start consuming into the next segment as soon as a segment is complete, add the latest one if any
+        Map<String, String> consumingSegmentNotInIdealStateByInstance = new HashMap<String, String>();
+        if (!instancesToAssignRealtimeSegment.isEmpty()) {
+          for (RealtimeSegmentZKMetadata realtimeSegmentZKMetadata : ZKMetadataProvider
+              .getRealtimeSegmentZKMetadataListForTable(pinotClusterManager.getPropertyStore(), resource)) {
+            String segmentId = realtimeSegmentZKMetadata.getSegmentName();
+            if (realtimeSegmentZKMetadata.getStatus() != Status.IN_PROGRESS
+                || state.getPartitionSet().contains(segmentId)) {
+              continue;
+            }
+            String instanceName = SegmentNameBuilder.Realtime.extractInstanceName(segmentId);
+            String otherSegmentId = consumingSegmentNotInIdealStateByInstance.get(instanceName);
+            if (otherSegmentId == null
+                || Long.parseLong(SegmentNameBuilder.Realtime.extractSequenceNumber(otherSegmentId)) < Long
+                    .parseLong(SegmentNameBuilder.Realtime.extractSequenceNumber(segmentId))) {
+              consumingSegmentNotInIdealStateByInstance.put(instanceName, segmentId);
+            }
+          }
+        }
         for (String instanceId : instancesToAssignRealtimeSegment) {
+          String consumingSegmentId = consumingSegmentNotInIdealStateByInstance.get(instanceId);
+          if (consumingSegmentId != null) {
+            listOfSegmentsToAdd.add(consumingSegmentId);
+            continue;
+          }
           InstanceZKMetadata instanceZKMetadata = pinotClusterManager.getInstanceZKMetadata(instanceId);
           String groupId = instanceZKMetadata.getGroupId(resource);
           String partitionId = instanceZKMetadata.getPartition(resource);
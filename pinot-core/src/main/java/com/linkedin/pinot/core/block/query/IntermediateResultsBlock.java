@@ -36,6 +36,7 @@ import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResultSerDe;
 import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
 
 
@@ -201,7 +202,13 @@ public class IntermediateResultsBlock implements Block {
     for (int i = 0; i < _aggregationGroupByOperatorResult.size(); ++i) {
       dataTableBuilder.startRow();
       dataTableBuilder.setColumn(0, _aggregationFunctionList.get(i).getFunctionName());
-      dataTableBuilder.setColumn(1, _aggregationGroupByOperatorResult.get(i));
+      AggregationFunction aggregationFunction = _aggregationFunctionList.get(i);
+      if (AggregationGroupByResultSerDe.isSupported(aggregationFunction)) {
+        dataTableBuilder.setObjectBytes(1,
+            AggregationGroupByResultSerDe.serialize(aggregationFunction, _aggregationGroupByOperatorResult.get(i)));
+      } else {
+        dataTableBuilder.setColumn(1, _aggregationGroupByOperatorResult.get(i));
+      }
       dataTableBuilder.finishRow();
     }
     dataTableBuilder.seal();
@@ -26,6 +26,12 @@ public interface BlockValSet {
   BlockValIterator iterator();
 
   DataType getValueType();
+
+  /**
+   * Bulk read of a single value column: sets values[i] to the value (the dictionary id for columns with a
+   * dictionary) of docIds[i] for the first length documents.
+   */
+  void readIntValues(int[] docIds, int length, int[] values);
 /*
   int getDictionaryId(int docId);
 
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.common;
 
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.RangeIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 public interface DataSource extends Operator {
@@ -25,6 +26,11 @@ public interface DataSource extends Operator {
   DataSourceMetadata getDataSourceMetadata();
   
   InvertedIndexReader getInvertedIndex();
+
+  /**
+   * Returns the range index of the column, or null if it has none.
+   */
+  RangeIndexReader getRangeIndex();
   
   Dictionary getDictionary();
 }
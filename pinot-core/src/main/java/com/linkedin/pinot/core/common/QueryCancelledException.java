@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.common;
+
+/**
+ * Thrown by operators at block boundaries once the thread running them has been interrupted. This is how the
+ * combine phase stops the segments of a query that timed out or whose broker went away.
+ */
+public class QueryCancelledException extends RuntimeException {
+
+  public QueryCancelledException(String message) {
+    super(message);
+  }
+
+  /**
+   * Throws if the current thread has been interrupted. The interrupt status is left set so that the callers of the
+   * operator see it as well.
+   */
+  public static void checkInterrupted() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new QueryCancelledException("Query has been cancelled");
+    }
+  }
+}
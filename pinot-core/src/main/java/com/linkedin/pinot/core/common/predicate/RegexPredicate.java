@@ -33,4 +33,11 @@ public class RegexPredicate extends Predicate {
     return "Predicate: type: " + getType() + ", left : " + getLhs() + ", right : " + Arrays.toString(getRhs().toArray(new String[0])) + "\n";
   }
 
+  /**
+   * Returns the regular expression, which has to match the whole value.
+   */
+  public String getRegex() {
+    return getRhs().get(0);
+  }
+
 }
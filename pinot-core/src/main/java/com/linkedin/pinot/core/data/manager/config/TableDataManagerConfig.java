@@ -24,6 +24,7 @@ import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 
 
 /**
@@ -34,10 +35,14 @@ import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
 public class TableDataManagerConfig {
 
   private static final String TABLE_DATA_MANAGER_NUM_QUERY_EXECUTOR_THREADS = "numQueryExecutorThreads";
+  private static final String MAX_THREADS_PER_QUERY = "maxThreadsPerQuery";
+  private static final String MIN_DOCS_PER_QUERY_THREAD = "minDocsPerQueryThread";
   private static final String TABLE_DATA_MANAGER_TYPE = "dataManagerType";
   private static final String READ_MODE = "readMode";
   private static final String TABLE_DATA_MANAGER_DATA_DIRECTORY = "directory";
   private static final String TABLE_DATA_MANAGER_NAME = "name";
+  public static final String REALTIME_OFF_HEAP_ALLOCATION = "realtime.offHeapAllocation";
+  public static final String DEFAULT_REALTIME_OFF_HEAP_ALLOCATION = "direct";
 
   private final Configuration _tableDataManagerConfig;
 
@@ -69,6 +74,24 @@ public class TableDataManagerConfig {
     return _tableDataManagerConfig.getInt(TABLE_DATA_MANAGER_NUM_QUERY_EXECUTOR_THREADS, 10);
   }
 
+  /**
+   * Returns how many of the query executor threads a single query may use, by default up to the number of cores and
+   * one thread per {@link QueryParallelismConfig#DEFAULT_MIN_DOCS_PER_THREAD} docs to process.
+   */
+  public QueryParallelismConfig getQueryParallelismConfig() {
+    return new QueryParallelismConfig(
+        _tableDataManagerConfig.getInt(MAX_THREADS_PER_QUERY, QueryParallelismConfig.DEFAULT_MAX_THREADS_PER_QUERY),
+        _tableDataManagerConfig.getLong(MIN_DOCS_PER_QUERY_THREAD, QueryParallelismConfig.DEFAULT_MIN_DOCS_PER_THREAD));
+  }
+
+  /**
+   * Returns how the indexes of consuming realtime segments are allocated: "direct" for direct memory, or "mmap" for
+   * memory mapped files under the table data directory.
+   */
+  public String getRealtimeOffHeapAllocation() {
+    return _tableDataManagerConfig.getString(REALTIME_OFF_HEAP_ALLOCATION, DEFAULT_REALTIME_OFF_HEAP_ALLOCATION);
+  }
+
   public static TableDataManagerConfig getDefaultHelixTableDataManagerConfig(
       InstanceDataManagerConfig _instanceDataManagerConfig, String tableName) throws ConfigurationException {
     TableType tableType = TableNameBuilder.getTableTypeFromTableName(tableName);
@@ -83,6 +106,25 @@ public class TableDataManagerConfig {
       defaultConfig.addProperty(READ_MODE, ReadMode.heap);
     }
     defaultConfig.addProperty(TABLE_DATA_MANAGER_NUM_QUERY_EXECUTOR_THREADS, 20);
+    Configuration instanceConfig = _instanceDataManagerConfig.getConfig();
+    if (instanceConfig != null && instanceConfig.containsKey(REALTIME_OFF_HEAP_ALLOCATION)) {
+      defaultConfig.addProperty(REALTIME_OFF_HEAP_ALLOCATION, instanceConfig.getString(REALTIME_OFF_HEAP_ALLOCATION));
+    }
+    if (instanceConfig != null && instanceConfig.containsKey(MAX_THREADS_PER_QUERY)) {
+      defaultConfig.addProperty(MAX_THREADS_PER_QUERY, instanceConfig.getInt(MAX_THREADS_PER_QUERY));
+    }
+    if (instanceConfig != null && instanceConfig.containsKey(MIN_DOCS_PER_QUERY_THREAD)) {
+      defaultConfig.addProperty(MIN_DOCS_PER_QUERY_THREAD, instanceConfig.getLong(MIN_DOCS_PER_QUERY_THREAD));
+    }
+    if (instanceConfig != null && instanceConfig.containsKey(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING)) {
+      defaultConfig.addProperty(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING,
+          instanceConfig.getBoolean(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING));
+    }
+    if (instanceConfig != null
+        && instanceConfig.containsKey(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING_IDLE_UNLOAD_MS)) {
+      defaultConfig.addProperty(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING_IDLE_UNLOAD_MS,
+          instanceConfig.getLong(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING_IDLE_UNLOAD_MS));
+    }
     TableDataManagerConfig tableDataManagerConfig = new TableDataManagerConfig(defaultConfig);
 
     switch (tableType) {
@@ -102,6 +144,10 @@ public class TableDataManagerConfig {
   public void overrideConfigs(AbstractTableConfig tableConfig) {
     _tableDataManagerConfig.setProperty(READ_MODE, tableConfig.getIndexingConfig().getLoadMode().toLowerCase());
     _tableDataManagerConfig.setProperty(TABLE_DATA_MANAGER_NAME, tableConfig.getTableName());
+    // The table can turn lazy loading on, the idle unload period stays an instance setting
+    if (Boolean.parseBoolean(tableConfig.getIndexingConfig().getLazyLoad())) {
+      _tableDataManagerConfig.setProperty(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING, true);
+    }
   }
 
   public IndexLoadingConfigMetadata getIndexLoadingConfigMetadata() {
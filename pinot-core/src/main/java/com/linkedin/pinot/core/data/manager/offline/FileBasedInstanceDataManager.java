@@ -16,8 +16,10 @@
 package com.linkedin.pinot.core.data.manager.offline;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.configuration.Configuration;
@@ -126,7 +128,9 @@ public class FileBasedInstanceDataManager implements InstanceDataManager {
     for (String tableName : _tableDataManagerMap.keySet()) {
       sb.append("\n\t{\n\t\tTable : [" + tableName + "];\n\t\tSegments : [");
       boolean isFirstSegment = true;
+      List<String> segmentNames = new ArrayList<String>();
       for (SegmentDataManager segmentDataManager : _tableDataManagerMap.get(tableName).getAllSegments()) {
+        segmentNames.add(segmentDataManager.getSegmentName());
         if (isFirstSegment) {
           sb.append(segmentDataManager.getSegment().getSegmentName());
           isFirstSegment = false;
@@ -134,6 +138,7 @@ public class FileBasedInstanceDataManager implements InstanceDataManager {
           sb.append(", " + segmentDataManager.getSegment().getSegmentName());
         }
       }
+      _tableDataManagerMap.get(tableName).returnSegmentReaders(segmentNames);
       sb.append("]\n\t}");
     }
     return sb.toString();
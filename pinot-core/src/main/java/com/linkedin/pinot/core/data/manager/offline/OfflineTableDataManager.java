@@ -42,6 +42,8 @@ import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
+import com.linkedin.pinot.core.segment.index.LazyIndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
@@ -68,6 +70,7 @@ public class OfflineTableDataManager implements TableDataManager {
       .newSingleThreadExecutor(new NamedThreadFactory("SegmentAsyncExecutorService"));
   private String _tableDataDir;
   private int _numberOfTableQueryExecutorThreads;
+  private QueryParallelismConfig _queryParallelismConfig;
   private IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
 
   private final Map<String, OfflineSegmentDataManager> _segmentsMap = new ConcurrentHashMap<String, OfflineSegmentDataManager>();
@@ -106,6 +109,7 @@ public class OfflineTableDataManager implements TableDataManager {
       new File(_tableDataDir).mkdirs();
     }
     _numberOfTableQueryExecutorThreads = _tableDataManagerConfig.getNumberOfTableQueryExecutorThreads();
+    _queryParallelismConfig = _tableDataManagerConfig.getQueryParallelismConfig();
     //_numberOfTableQueryExecutorThreads = 1;
     if (_numberOfTableQueryExecutorThreads > 0) {
       _queryExecutorService =
@@ -179,6 +183,11 @@ public class OfflineTableDataManager implements TableDataManager {
           segment.getSegment().destroy();
         }
       }
+      if (indexSegmentToAdd instanceof LazyIndexSegmentImpl) {
+        // Lets the segment check that no query uses it before unloading its idle columns
+        ((LazyIndexSegmentImpl) indexSegmentToAdd)
+            .setReferenceCount(_referenceCounts.get(indexSegmentToAdd.getSegmentName()));
+      }
     }
   }
 
@@ -292,6 +301,11 @@ public class OfflineTableDataManager implements TableDataManager {
     return _queryExecutorService;
   }
 
+  @Override
+  public QueryParallelismConfig getQueryParallelismConfig() {
+    return _queryParallelismConfig;
+  }
+
   @Override
   public List<SegmentDataManager> getSegments(List<String> segmentList) {
     List<SegmentDataManager> ret = new ArrayList<SegmentDataManager>();
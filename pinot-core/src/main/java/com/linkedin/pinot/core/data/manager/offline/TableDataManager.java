@@ -27,6 +27,7 @@ import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 
 
 /**
@@ -120,4 +121,9 @@ public interface TableDataManager {
    */
   public ExecutorService getExecutorService();
 
+  /**
+   * @return how many threads of the query ExecutorService a single query may use.
+   */
+  public QueryParallelismConfig getQueryParallelismConfig();
+
 }
@@ -18,6 +18,7 @@ package com.linkedin.pinot.core.data.manager.offline;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.data.manager.realtime.RealtimeTableDataManager;
 
@@ -36,6 +37,22 @@ public class TableDataManagerProvider {
     keyToFunction.put("realtime", RealtimeTableDataManager.class);
   }
 
+  private static volatile ServerMetrics serverMetrics;
+
+  /**
+   * Sets the server metrics that table data managers report to, e.g. the memory used by consuming segments.
+   */
+  public static void setServerMetrics(ServerMetrics metrics) {
+    serverMetrics = metrics;
+  }
+
+  /**
+   * Returns the server metrics, or null if they have not been set (e.g. in tests).
+   */
+  public static ServerMetrics getServerMetrics() {
+    return serverMetrics;
+  }
+
   public static TableDataManager getTableDataManager(TableDataManagerConfig tableDataManagerConfig) {
     try {
       Class<? extends TableDataManager> cls =
@@ -16,7 +16,13 @@
 package com.linkedin.pinot.core.data.manager.realtime;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
@@ -27,10 +33,16 @@ import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.instance.InstanceZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
 import com.linkedin.pinot.common.utils.CommonConstants.Segment.SegmentType;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+import com.linkedin.pinot.common.utils.SegmentNameBuilder;
+import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.realtime.StreamProvider;
 import com.linkedin.pinot.core.realtime.StreamProviderConfig;
@@ -53,17 +65,44 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
   private final static long DEFAULT_TIME_IN_MILLIS_TO_STOP_INDEXING = ONE_MINUTE_IN_MILLSEC * 60;
   private final static long DEFAULT_NUM_INDEXED_EVENTS_TO_STOP_INDEXING = 5000000;
 
+  // Rows are decoded on the consumer thread and indexed in batches on the indexing thread
+  private final static int BATCH_SIZE = 1000;
+  private final static int MAX_PENDING_BATCHES = 16;
+  private final static long POLL_TIMEOUT_MILLIS = 100;
+
+  // Completed segments are converted on a pool shared by all realtime tables of the server, which bounds the CPU and
+  // memory spent on conversions. Once the queue is full, the indexing thread of the segment converts it itself.
+  private final static int MAX_CONCURRENT_CONVERSIONS = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+  private final static int MAX_QUEUED_CONVERSIONS = 16;
+  private final static ThreadPoolExecutor CONVERSION_EXECUTOR = createConversionExecutor();
+
   private final String segmentName;
   private final Schema schema;
   private final ReadMode mode;
   private final RealtimeSegmentZKMetadata segmentMetatdaZk;
 
-  private final StreamProviderConfig kafkaStreamProviderConfig;
-  private final StreamProvider kafkaStreamProvider;
+  private final AbstractTableConfig tableConfig;
+  private final InstanceZKMetadata instanceMetadata;
+  // Consumes the stream for this segment, then for the segments consuming after it
+  private final RealtimeStreamConsumer stream;
+  // Whether this segment still consumes the stream, only accessed by the indexing thread
+  private boolean ownsStream = true;
+  // Position of the stream right after the last row indexed, only accessed by the indexing thread
+  private Map<Integer, Long> indexedOffsets = Collections.emptyMap();
   private final File resourceDir;
   private final File resourceTmpDir;
   private final Object lock = new Object();
-  private IndexSegment realtimeSegment;
+  // Swapped from the consuming segment to its converted version under lock, read by queries without it
+  private volatile IndexSegment realtimeSegment;
+  // Consuming segment replaced by its converted version, released once no query uses it anymore
+  private RealtimeSegmentImpl retiredRealtimeSegment;
+  // Whether the indexing thread or the conversion still use the consuming segment, guarded by lock
+  private boolean consumingSegmentInUse = true;
+  // Whether this segment has been destroyed, guarded by lock
+  private boolean destroyed = false;
+  private final ServerMetrics serverMetrics;
+  private final String offHeapMemoryGaugeName;
+  private final String freshnessLagGaugeName;
 
   private final long start = System.currentTimeMillis();
   private long segmentEndTimeThreshold;
@@ -75,11 +114,38 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
   private long timeInMillisToStopIndexing = DEFAULT_TIME_IN_MILLIS_TO_STOP_INDEXING;
   private long numIndexedEventsToStopIndexing = DEFAULT_NUM_INDEXED_EVENTS_TO_STOP_INDEXING;
   private final String sortedColumn;
+  private final List<String> rangeIndexColumns;
+  private final List<String> varLengthDictionaryColumns;
 
   public RealtimeSegmentDataManager(final RealtimeSegmentZKMetadata segmentMetadata,
       final AbstractTableConfig tableConfig, InstanceZKMetadata instanceMetadata,
       RealtimeTableDataManager realtimeResourceManager, final String resourceDataDir, final ReadMode mode,
       final Schema schema) throws Exception {
+    this(segmentMetadata, tableConfig, instanceMetadata, realtimeResourceManager, resourceDataDir, mode, schema,
+        null, null);
+  }
+
+  /**
+   * @param memoryManager allocates the indexes of the consuming segment, or null to use direct memory
+   * @param serverMetrics metrics to report the memory used by the consuming segment to, or null
+   */
+  public RealtimeSegmentDataManager(final RealtimeSegmentZKMetadata segmentMetadata,
+      final AbstractTableConfig tableConfig, InstanceZKMetadata instanceMetadata,
+      RealtimeTableDataManager realtimeResourceManager, final String resourceDataDir, final ReadMode mode,
+      final Schema schema, RealtimeIndexOffHeapMemoryManager memoryManager, ServerMetrics serverMetrics)
+      throws Exception {
+    this(segmentMetadata, tableConfig, instanceMetadata, realtimeResourceManager, resourceDataDir, mode, schema,
+        memoryManager, serverMetrics, createStream(tableConfig, instanceMetadata, schema, serverMetrics));
+  }
+
+  /**
+   * @param stream started consumer of the stream, which this segment consumes from until it is complete
+   */
+  RealtimeSegmentDataManager(final RealtimeSegmentZKMetadata segmentMetadata, final AbstractTableConfig tableConfig,
+      InstanceZKMetadata instanceMetadata, RealtimeTableDataManager realtimeResourceManager,
+      final String resourceDataDir, final ReadMode mode, final Schema schema,
+      RealtimeIndexOffHeapMemoryManager memoryManager, ServerMetrics serverMetrics, RealtimeStreamConsumer stream)
+      throws Exception {
     this.timeInMillisToStopIndexing = DEFAULT_TIME_IN_MILLIS_TO_STOP_INDEXING;
     segmentEndTimeThreshold = start + this.timeInMillisToStopIndexing;
     this.numIndexedEventsToStopIndexing = DEFAULT_NUM_INDEXED_EVENTS_TO_STOP_INDEXING;
@@ -98,25 +164,50 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
         this.sortedColumn = null;
       }
     }
+    this.rangeIndexColumns = tableConfig.getIndexingConfig().getRangeIndexColumns();
+    this.varLengthDictionaryColumns = tableConfig.getIndexingConfig().getVarLengthDictionaryColumns();
     this.segmentMetatdaZk = segmentMetadata;
     this.segmentName = segmentMetadata.getSegmentName();
-
-    // create and init stream provider config
-    // TODO : ideally resourceMetatda should create and give back a streamProviderConfig
-    this.kafkaStreamProviderConfig = new KafkaHighLevelStreamProviderConfig();
-    this.kafkaStreamProviderConfig.init(tableConfig, instanceMetadata, schema);
+    this.tableConfig = tableConfig;
+    this.instanceMetadata = instanceMetadata;
+    this.stream = stream;
     this.resourceDir = new File(resourceDataDir);
     this.resourceTmpDir = new File(resourceDataDir, "_tmp");
     if (!resourceTmpDir.exists()) {
       resourceTmpDir.mkdirs();
     }
     this.mode = mode;
-    // create and init stream provider
-    this.kafkaStreamProvider = new KafkaHighLevelConsumerStreamProvider();
-    this.kafkaStreamProvider.init(kafkaStreamProviderConfig);
-    this.kafkaStreamProvider.start();
     // lets create a new realtime segment
-    realtimeSegment = new RealtimeSegmentImpl(schema, FIVE_MILLION);
+    if (memoryManager == null) {
+      realtimeSegment = new RealtimeSegmentImpl(schema, FIVE_MILLION);
+    } else {
+      realtimeSegment = new RealtimeSegmentImpl(schema, FIVE_MILLION, memoryManager);
+    }
+    this.serverMetrics = serverMetrics;
+    this.offHeapMemoryGaugeName = "realtime.offHeapMemoryUsed." + segmentName;
+    if (serverMetrics != null) {
+      final RealtimeSegmentImpl consumingSegment = (RealtimeSegmentImpl) realtimeSegment;
+      serverMetrics.addCallbackGauge(offHeapMemoryGaugeName, new Callable<Long>() {
+        @Override
+        public Long call() throws Exception {
+          return consumingSegment.getOffHeapMemoryUsed();
+        }
+      });
+    }
+    this.freshnessLagGaugeName = "realtime.freshnessLagMillis." + segmentName;
+    if (serverMetrics != null) {
+      final RealtimeSegmentImpl consumingSegment = (RealtimeSegmentImpl) realtimeSegment;
+      final TimeUnit timeUnit = schema.getTimeFieldSpec().getOutgoingGranularitySpec().getTimeType();
+      serverMetrics.addCallbackGauge(freshnessLagGaugeName, new Callable<Long>() {
+        @Override
+        public Long call() throws Exception {
+          if (consumingSegment.getRawDocumentCount() == 0) {
+            return 0L;
+          }
+          return System.currentTimeMillis() - timeUnit.toMillis(consumingSegment.getMaxTime());
+        }
+      });
+    }
     ((RealtimeSegmentImpl) (realtimeSegment)).setSegmentName(segmentMetadata.getSegmentName());
     ((RealtimeSegmentImpl) (realtimeSegment)).setSegmentMetadata(segmentMetadata, this.schema);
     notifier = realtimeResourceManager;
@@ -133,52 +224,52 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
       @Override
       public void run() {
         // continue indexing until critertia is met
-        while (((RealtimeSegmentImpl) realtimeSegment).index(kafkaStreamProvider.next()) && keepIndexing) {
+        boolean segmentComplete;
+        try {
+          segmentComplete = indexBatches();
+        } catch (InterruptedException e) {
+          LOGGER.warn("Interrupted while indexing realtime segment {}", segmentName);
+          Thread.currentThread().interrupt();
+          abort();
+          return;
+        } catch (Exception e) {
+          LOGGER.error("Caught exception while indexing realtime segment {}", segmentName, e);
+          abort();
+          return;
+        }
+        if (isDestroyed()) {
+          LOGGER.info("Realtime segment {} was destroyed, skipping index conversion", segmentName);
+          abort();
+          return;
+        }
+        // the offsets of the segment get committed once it is converted, so it must not miss any consumed row
+        if (!segmentComplete) {
+          LOGGER.error("Stopped consuming realtime segment {}{}, aborting without committing the consumed offsets",
+              segmentName, stream.hasFailed() ? " after a failure" : "");
+          abort();
+          return;
         }
 
         LOGGER.info("Indexing threshold reached, proceeding with index conversion");
         // kill the timer first
         segmentStatusTask.cancel();
-        LOGGER.info("Trying to persist a realtimeSegment - " + realtimeSegment.getSegmentName());
-        LOGGER.info("Indexed " + ((RealtimeSegmentImpl) realtimeSegment).getRawDocumentCount()
-            + " raw events, current number of docs = " + ((RealtimeSegmentImpl) realtimeSegment).getTotalDocs());
-        File tempSegmentFolder = new File(resourceTmpDir, "tmp-" + String.valueOf(System.currentTimeMillis()));
-
-        // lets convert the segment now
-        RealtimeSegmentConverter conveter =
-            new RealtimeSegmentConverter((RealtimeSegmentImpl) realtimeSegment, tempSegmentFolder.getAbsolutePath(),
-                schema, segmentMetadata.getTableName(), segmentMetadata.getSegmentName(), sortedColumn);
-        try {
-          LOGGER.info("Trying to build segment!");
-          conveter.build();
-          File destDir = new File(resourceDataDir, segmentMetadata.getSegmentName());
-          FileUtils.deleteQuietly(destDir);
-          FileUtils.moveDirectory(tempSegmentFolder.listFiles()[0], destDir);
-
-          FileUtils.deleteQuietly(tempSegmentFolder);
-          long startTime = ((RealtimeSegmentImpl) realtimeSegment).getMinTime();
-          long endTime = ((RealtimeSegmentImpl) realtimeSegment).getMaxTime();
-
-          TimeUnit timeUnit = schema.getTimeFieldSpec().getOutgoingGranularitySpec().getTimeType();
-          swap();
-          RealtimeSegmentZKMetadata metadaToOverrite = new RealtimeSegmentZKMetadata();
-          metadaToOverrite.setTableName(segmentMetadata.getTableName());
-          metadaToOverrite.setSegmentName(segmentMetadata.getSegmentName());
-          metadaToOverrite.setSegmentType(SegmentType.OFFLINE);
-          metadaToOverrite.setStatus(Status.DONE);
-          metadaToOverrite.setStartTime(startTime);
-          metadaToOverrite.setEndTime(endTime);
-          metadaToOverrite.setTotalDocs(realtimeSegment.getTotalDocs());
-          metadaToOverrite.setTimeUnit(timeUnit);
-          notifier.notify(metadaToOverrite);
-
-          kafkaStreamProvider.commit();
-          kafkaStreamProvider.shutdown();
-        } catch (Exception e) {
-          LOGGER.error("Caught exception in the realtime indexing thread", e);
-        }
+        // keep consuming into the next segment while this one is converted
+        stream.segmentCompleted(segmentName, indexedOffsets);
+        startNextSegment();
+        // the consuming segment keeps serving queries until its converted version is swapped in
+        final long conversionSubmitTime = System.currentTimeMillis();
+        CONVERSION_EXECUTOR.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              convertAndCommit(segmentMetadata, resourceDataDir, conversionSubmitTime);
+            } finally {
+              releaseConsumingSegment();
+            }
+          }
+        });
       }
-    });
+    }, "realtime-indexing-" + segmentName);
 
     indexingThread.start();
 
@@ -189,13 +280,268 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
 
   }
 
+  /**
+   * Converts the completed consuming segment, swaps the converted version in, then commits the consumed offsets.
+   */
+  private void convertAndCommit(RealtimeSegmentZKMetadata segmentMetadata, String resourceDataDir,
+      long conversionSubmitTime) {
+    RealtimeSegmentImpl consumingSegment = (RealtimeSegmentImpl) realtimeSegment;
+    LOGGER.info("Trying to persist a realtimeSegment - " + consumingSegment.getSegmentName());
+    LOGGER.info("Indexed " + consumingSegment.getRawDocumentCount() + " raw events, current number of docs = "
+        + consumingSegment.getTotalDocs());
+    File tempSegmentFolder = new File(resourceTmpDir, "tmp-" + String.valueOf(System.currentTimeMillis()));
+
+    // lets convert the segment now
+    RealtimeSegmentConverter conveter =
+        new RealtimeSegmentConverter(consumingSegment, tempSegmentFolder.getAbsolutePath(), schema,
+            segmentMetadata.getTableName(), segmentMetadata.getSegmentName(), sortedColumn);
+    if (rangeIndexColumns != null) {
+      conveter.setRangeIndexColumns(rangeIndexColumns);
+    }
+    if (varLengthDictionaryColumns != null) {
+      conveter.setVarLengthDictionaryColumns(varLengthDictionaryColumns);
+    }
+    try {
+      LOGGER.info("Trying to build segment!");
+      conveter.build();
+      File destDir = new File(resourceDataDir, segmentMetadata.getSegmentName());
+      FileUtils.deleteQuietly(destDir);
+      FileUtils.moveDirectory(tempSegmentFolder.listFiles()[0], destDir);
+
+      FileUtils.deleteQuietly(tempSegmentFolder);
+      long startTime = consumingSegment.getMinTime();
+      long endTime = consumingSegment.getMaxTime();
+
+      TimeUnit timeUnit = schema.getTimeFieldSpec().getOutgoingGranularitySpec().getTimeType();
+      swap();
+      long conversionTime = System.currentTimeMillis() - conversionSubmitTime;
+      LOGGER.info("Swapped in converted segment {} after {} ms", segmentName, conversionTime);
+      if (serverMetrics != null) {
+        serverMetrics.addTimedValue("realtime.segmentConversionTime", conversionTime, TimeUnit.MILLISECONDS);
+        serverMetrics.removeGauge(freshnessLagGaugeName);
+      }
+      RealtimeSegmentZKMetadata metadaToOverrite = new RealtimeSegmentZKMetadata();
+      metadaToOverrite.setTableName(segmentMetadata.getTableName());
+      metadaToOverrite.setSegmentName(segmentMetadata.getSegmentName());
+      metadaToOverrite.setSegmentType(SegmentType.OFFLINE);
+      metadaToOverrite.setStatus(Status.DONE);
+      metadaToOverrite.setStartTime(startTime);
+      metadaToOverrite.setEndTime(endTime);
+      metadaToOverrite.setTotalDocs(realtimeSegment.getTotalDocs());
+      metadaToOverrite.setTimeUnit(timeUnit);
+      notifier.notify(metadaToOverrite);
+
+      stream.segmentPersisted(segmentName);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while converting realtime segment {}", segmentName, e);
+    }
+  }
+
+  private static ThreadPoolExecutor createConversionExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(MAX_CONCURRENT_CONVERSIONS, MAX_CONCURRENT_CONVERSIONS, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(MAX_QUEUED_CONVERSIONS),
+            new NamedThreadFactory("realtime-segment-conversion"), new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static RealtimeStreamConsumer createStream(AbstractTableConfig tableConfig,
+      InstanceZKMetadata instanceMetadata, Schema schema, ServerMetrics serverMetrics) throws Exception {
+    // create and init stream provider config
+    // TODO : ideally resourceMetatda should create and give back a streamProviderConfig
+    StreamProviderConfig kafkaStreamProviderConfig = new KafkaHighLevelStreamProviderConfig();
+    kafkaStreamProviderConfig.init(tableConfig, instanceMetadata, schema);
+    // create and init stream provider
+    StreamProvider kafkaStreamProvider = new KafkaHighLevelConsumerStreamProvider();
+    kafkaStreamProvider.init(kafkaStreamProviderConfig);
+    kafkaStreamProvider.start();
+    RealtimeStreamConsumer stream =
+        new RealtimeStreamConsumer(tableConfig.getTableName(), kafkaStreamProvider, BATCH_SIZE, MAX_PENDING_BATCHES,
+            serverMetrics);
+    stream.start();
+    return stream;
+  }
+
+  /**
+   * Indexes the consumed batches until indexing is stopped or the next batch does not fit in the segment, which then
+   * goes to the next segment. Batches are never split, so that the segment ends at a known position of the stream.
+   *
+   * @return false if the stream ended before, in which case the segment may miss some consumed rows
+   */
+  private boolean indexBatches() throws InterruptedException {
+    while (keepIndexing) {
+      boolean consuming = stream.isConsuming();
+      RealtimeStreamConsumer.Batch batch = stream.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      if (batch == null) {
+        if (!consuming) {
+          return false;
+        }
+        continue;
+      }
+      if (((RealtimeSegmentImpl) realtimeSegment).getRawDocumentCount() + batch.getRows().size() > FIVE_MILLION) {
+        LOGGER.info("Realtime segment {} is full", segmentName);
+        stream.pushBack(batch);
+        return true;
+      }
+      if (!indexBatch(batch.getRows())) {
+        throw new IllegalStateException("Failed to index a whole batch in realtime segment " + segmentName);
+      }
+      indexedOffsets = batch.getOffsets();
+    }
+    return true;
+  }
+
+  /**
+   * Starts consuming into the next segment. Consumption stops if it cannot be started, the offsets of this segment
+   * still get committed once it is converted.
+   */
+  private void startNextSegment() {
+    RealtimeSegmentZKMetadata nextSegmentMetadata = new RealtimeSegmentZKMetadata();
+    nextSegmentMetadata.setTableName(segmentMetatdaZk.getTableName());
+    nextSegmentMetadata.setSegmentName(SegmentNameBuilder.Realtime.build(
+        SegmentNameBuilder.Realtime.extractTableName(segmentName),
+        SegmentNameBuilder.Realtime.extractInstanceName(segmentName),
+        SegmentNameBuilder.Realtime.extractGroupIdName(segmentName),
+        SegmentNameBuilder.Realtime.extractPartitionName(segmentName), String.valueOf(System.currentTimeMillis())));
+    nextSegmentMetadata.setSegmentType(SegmentType.REALTIME);
+    nextSegmentMetadata.setStatus(Status.IN_PROGRESS);
+    try {
+      notifier.startConsumingSegment(nextSegmentMetadata, this);
+      LOGGER.info("Realtime segment {} is consumed after {}", nextSegmentMetadata.getSegmentName(), segmentName);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while starting the realtime segment consumed after {}, stopping consumption",
+          segmentName, e);
+      stream.shutdown();
+    }
+    ownsStream = false;
+  }
+
+  /**
+   * Creates the data manager of the segment consuming the stream right after this one.
+   */
+  RealtimeSegmentDataManager createNextSegmentDataManager(RealtimeSegmentZKMetadata nextSegmentMetadata,
+      RealtimeIndexOffHeapMemoryManager memoryManager) throws Exception {
+    return new RealtimeSegmentDataManager(nextSegmentMetadata, tableConfig, instanceMetadata, notifier,
+        resourceDir.getAbsolutePath(), mode, schema, memoryManager, serverMetrics, stream);
+  }
+
+  /**
+   * Stops indexing without converting the segment nor committing its offsets, so that its rows are consumed again
+   * once the segment is reassigned. Consumption stops as well if this segment still consumes the stream.
+   */
+  private void abort() {
+    keepIndexing = false;
+    segmentStatusTask.cancel();
+    if (ownsStream) {
+      stream.shutdown();
+      ownsStream = false;
+    }
+    releaseConsumingSegment();
+  }
+
+  /**
+   * Indexes a batch of consumed rows.
+   *
+   * @return false if the segment is full and could not index the whole batch
+   */
+  private boolean indexBatch(List<GenericRow> batch) {
+    long startNanos = System.nanoTime();
+    int numRowsIndexed = ((RealtimeSegmentImpl) realtimeSegment).index(batch);
+    addMeteredValue(ServerMeter.REALTIME_INDEX_TIME, (System.nanoTime() - startNanos) / 1000);
+    addMeteredValue(ServerMeter.REALTIME_ROWS_CONSUMED, numRowsIndexed);
+    return numRowsIndexed == batch.size();
+  }
+
+  private void addMeteredValue(ServerMeter meter, long unitCount) {
+    if (serverMetrics != null) {
+      serverMetrics.addMeteredValue(null, meter, unitCount);
+    }
+  }
+
   public void swap() throws Exception {
     IndexSegment segment = Loaders.IndexSegment.load(new File(resourceDir, segmentMetatdaZk.getSegmentName()), mode);
     synchronized (lock) {
+      retiredRealtimeSegment = (RealtimeSegmentImpl) this.realtimeSegment;
       this.realtimeSegment = segment;
     }
   }
 
+  /**
+   * Releases the memory of the consuming segment once it has been replaced by its converted version. Must only be
+   * called when no query that could have picked up the consuming segment is still running.
+   */
+  public void releaseRetiredSegment() {
+    RealtimeSegmentImpl segment;
+    synchronized (lock) {
+      segment = retiredRealtimeSegment;
+      retiredRealtimeSegment = null;
+    }
+    if (segment != null) {
+      segment.destroy();
+      if (serverMetrics != null) {
+        serverMetrics.removeGauge(offHeapMemoryGaugeName);
+      }
+      LOGGER.info("Released consuming segment {} after conversion", segmentName);
+    }
+  }
+
+  /**
+   * Stops indexing and releases the segment. A segment that is still consuming is released by the indexing thread or
+   * the conversion once they stop using it, since they may still be writing to or reading from its buffers.
+   */
+  public void destroy() {
+    keepIndexing = false;
+    releaseRetiredSegment();
+    IndexSegment segment;
+    boolean inUse;
+    synchronized (lock) {
+      destroyed = true;
+      segment = realtimeSegment;
+      inUse = consumingSegmentInUse;
+    }
+    if (!(segment instanceof RealtimeSegmentImpl)) {
+      segment.destroy();
+    } else {
+      if (!inUse) {
+        destroyConsumingSegment((RealtimeSegmentImpl) segment);
+      }
+      if (serverMetrics != null) {
+        serverMetrics.removeGauge(offHeapMemoryGaugeName);
+        serverMetrics.removeGauge(freshnessLagGaugeName);
+      }
+    }
+  }
+
+  private boolean isDestroyed() {
+    synchronized (lock) {
+      return destroyed;
+    }
+  }
+
+  /**
+   * Called by the indexing thread or the conversion once they no longer use the consuming segment. Releases it if the
+   * segment was destroyed in the meantime, which for mmap'ed indexes also deletes their files.
+   */
+  private void releaseConsumingSegment() {
+    IndexSegment segment;
+    synchronized (lock) {
+      consumingSegmentInUse = false;
+      if (!destroyed) {
+        return;
+      }
+      segment = realtimeSegment;
+    }
+    if (segment instanceof RealtimeSegmentImpl) {
+      destroyConsumingSegment((RealtimeSegmentImpl) segment);
+    }
+  }
+
+  private void destroyConsumingSegment(RealtimeSegmentImpl segment) {
+    segment.destroy();
+    LOGGER.info("Released consuming segment {}", segmentName);
+  }
+
   @Override
   public IndexSegment getSegment() {
     return realtimeSegment;
@@ -206,6 +552,13 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
     return segmentName;
   }
 
+  /**
+   * Completes the consuming segment right away, as if it had reached its time or size threshold.
+   */
+  void completeSegment() {
+    keepIndexing = false;
+  }
+
   private void computeKeepIndexing() {
     if (keepIndexing) {
       LOGGER.info("Current indexed " + ((RealtimeSegmentImpl) realtimeSegment).getRawDocumentCount()
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.data.manager.realtime;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.realtime.StreamProvider;
+
+
+/**
+ * Consumes a stream for the successive consuming segments of a server, so that consumption goes on while a
+ * completed segment is converted. Rows are fetched and decoded in batches on a dedicated thread, ahead of the
+ * indexing thread of the current consuming segment.
+ *
+ * The offsets of a completed segment are committed once it and all the segments completed before it are persisted,
+ * so that the rows of a segment which is not persisted yet are consumed again if the server goes down.
+ */
+public class RealtimeStreamConsumer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RealtimeStreamConsumer.class);
+
+  /**
+   * Batch of consumed rows, along with the position of the stream right after its last row.
+   */
+  public static class Batch {
+    private final List<GenericRow> _rows;
+    private final Map<Integer, Long> _offsets;
+
+    public Batch(List<GenericRow> rows, Map<Integer, Long> offsets) {
+      _rows = rows;
+      _offsets = offsets;
+    }
+
+    public List<GenericRow> getRows() {
+      return _rows;
+    }
+
+    public Map<Integer, Long> getOffsets() {
+      return _offsets;
+    }
+  }
+
+  private static class CompletedSegment {
+    private final String _segmentName;
+    private final Map<Integer, Long> _offsets;
+    private boolean _persisted = false;
+
+    private CompletedSegment(String segmentName, Map<Integer, Long> offsets) {
+      _segmentName = segmentName;
+      _offsets = offsets;
+    }
+  }
+
+  private final String _name;
+  private final StreamProvider _streamProvider;
+  private final int _batchSize;
+  private final ServerMetrics _serverMetrics;
+  private final BlockingQueue<Batch> _pendingBatches;
+  private final Thread _consumerThread;
+  private volatile boolean _keepConsuming = true;
+  private volatile boolean _failed = false;
+  // Batch handed back by a segment it did not fit in, returned first to the next segment, guarded by this
+  private Batch _pushedBackBatch = null;
+  // Completed segments whose offsets are not committed yet, in consumption order, guarded by itself
+  private final LinkedList<CompletedSegment> _uncommittedSegments = new LinkedList<CompletedSegment>();
+
+  /**
+   * @param name name of the consumer, used for logging
+   * @param streamProvider started stream provider to consume from, shut down with the consumer
+   * @param batchSize maximum number of rows of a batch
+   * @param maxPendingBatches maximum number of batches fetched ahead of the indexing thread
+   * @param serverMetrics metrics to report the decoding time to, or null
+   */
+  public RealtimeStreamConsumer(String name, StreamProvider streamProvider, int batchSize, int maxPendingBatches,
+      ServerMetrics serverMetrics) {
+    _name = name;
+    _streamProvider = streamProvider;
+    _batchSize = batchSize;
+    _serverMetrics = serverMetrics;
+    _pendingBatches = new ArrayBlockingQueue<Batch>(maxPendingBatches);
+    _consumerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          consumeBatches();
+        } catch (InterruptedException e) {
+          LOGGER.warn("Interrupted while consuming {}", _name);
+          Thread.currentThread().interrupt();
+        } catch (Exception e) {
+          LOGGER.error("Caught exception in the realtime consumer thread of {}", _name, e);
+          _failed = true;
+        }
+      }
+    }, "realtime-consumer-" + name);
+  }
+
+  public void start() {
+    _consumerThread.start();
+  }
+
+  private void consumeBatches() throws InterruptedException {
+    while (_keepConsuming) {
+      List<GenericRow> rows = new ArrayList<GenericRow>(_batchSize);
+      long startNanos = System.nanoTime();
+      _streamProvider.nextBatch(rows, _batchSize);
+      if (_serverMetrics != null) {
+        _serverMetrics.addMeteredValue(null, ServerMeter.REALTIME_DECODE_TIME, (System.nanoTime() - startNanos) / 1000);
+      }
+      if (rows.isEmpty()) {
+        continue;
+      }
+      Batch batch = new Batch(rows, _streamProvider.currentOffsets());
+      while (!_pendingBatches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        if (!_keepConsuming) {
+          // The offsets of the batch are never committed, its rows are consumed again after a restart
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns whether the consumer thread is still running. Once it is not, the batches it fetched can still be
+   * polled, and the stream is exhausted when poll returns null.
+   */
+  public boolean isConsuming() {
+    return _consumerThread.isAlive();
+  }
+
+  /**
+   * Returns whether consumption stopped because of an error.
+   */
+  public boolean hasFailed() {
+    return _failed;
+  }
+
+  /**
+   * Returns the next batch, or null if none was fetched within the timeout.
+   */
+  public Batch poll(long timeout, TimeUnit unit) throws InterruptedException {
+    synchronized (this) {
+      if (_pushedBackBatch != null) {
+        Batch batch = _pushedBackBatch;
+        _pushedBackBatch = null;
+        return batch;
+      }
+    }
+    return _pendingBatches.poll(timeout, unit);
+  }
+
+  /**
+   * Hands back a polled batch which did not fit in the current consuming segment, so that the next one gets it.
+   */
+  public synchronized void pushBack(Batch batch) {
+    Preconditions.checkState(_pushedBackBatch == null, "A batch was already pushed back to %s", _name);
+    _pushedBackBatch = batch;
+  }
+
+  /**
+   * Records that a consuming segment is complete.
+   *
+   * @param segmentName name of the completed segment
+   * @param offsets position of the stream right after the last row of the segment
+   */
+  public void segmentCompleted(String segmentName, Map<Integer, Long> offsets) {
+    synchronized (_uncommittedSegments) {
+      _uncommittedSegments.add(new CompletedSegment(segmentName, offsets));
+    }
+  }
+
+  /**
+   * Records that a completed segment is persisted, and commits the offsets of the latest segment persisted along with
+   * all the segments completed before it.
+   */
+  public void segmentPersisted(String segmentName) {
+    synchronized (_uncommittedSegments) {
+      for (CompletedSegment segment : _uncommittedSegments) {
+        if (segment._segmentName.equals(segmentName)) {
+          segment._persisted = true;
+        }
+      }
+      Map<Integer, Long> offsets = null;
+      while (!_uncommittedSegments.isEmpty() && _uncommittedSegments.getFirst()._persisted) {
+        offsets = _uncommittedSegments.removeFirst()._offsets;
+      }
+      if (offsets == null) {
+        LOGGER.info("Not committing the offsets of segment {} of {}, a segment completed before is not persisted yet",
+            segmentName, _name);
+        return;
+      }
+      _streamProvider.commit(offsets);
+      LOGGER.info("Committed offsets {} of {}", offsets, _name);
+    }
+  }
+
+  /**
+   * Stops consuming and shuts down the stream provider. The offsets of segments persisted later on are still committed.
+   */
+  public void shutdown() {
+    _keepConsuming = false;
+    try {
+      _consumerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    _pendingBatches.clear();
+    try {
+      _streamProvider.shutdown();
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while shutting down the stream provider of {}", _name, e);
+    }
+  }
+}
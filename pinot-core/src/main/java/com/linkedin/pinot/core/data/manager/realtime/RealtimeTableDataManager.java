@@ -47,8 +47,13 @@ import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.data.manager.offline.OfflineSegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.TableDataManager;
+import com.linkedin.pinot.core.data.manager.offline.TableDataManagerProvider;
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
+import com.linkedin.pinot.core.index.readerwriter.impl.DirectMemoryManager;
+import com.linkedin.pinot.core.index.readerwriter.impl.MmapMemoryManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
 
@@ -63,6 +68,7 @@ public class RealtimeTableDataManager implements TableDataManager {
   private TableDataManagerConfig _tableDataManagerConfig;
   private String _tableDataDir;
   private int _numberOfTableQueryExecutorThreads;
+  private QueryParallelismConfig _queryParallelismConfig;
   private IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
   private ExecutorService _queryExecutorService;
 
@@ -105,6 +111,7 @@ public class RealtimeTableDataManager implements TableDataManager {
       new File(_tableDataDir).mkdirs();
     }
     _numberOfTableQueryExecutorThreads = _tableDataManagerConfig.getNumberOfTableQueryExecutorThreads();
+    _queryParallelismConfig = _tableDataManagerConfig.getQueryParallelismConfig();
     if (_numberOfTableQueryExecutorThreads > 0) {
       _queryExecutorService =
           Executors.newFixedThreadPool(_numberOfTableQueryExecutorThreads, new NamedThreadFactory(
@@ -152,6 +159,21 @@ public class RealtimeTableDataManager implements TableDataManager {
   public void notify(RealtimeSegmentZKMetadata metadata) {
     ZKMetadataProvider.setRealtimeSegmentZKMetadata(_helixPropertyStore, metadata);
     markSegmentAsLoaded(metadata.getSegmentName());
+    // The consuming segment can be released right away if no query is using the segment
+    AtomicInteger count = _referenceCounts.get(metadata.getSegmentName());
+    if (count != null && count.get() == 1) {
+      releaseRetiredSegment(metadata.getSegmentName());
+    }
+  }
+
+  private void releaseRetiredSegment(String segmentId) {
+    SegmentDataManager segmentDataManager;
+    synchronized (getGlobalLock()) {
+      segmentDataManager = _segmentsMap.get(segmentId);
+    }
+    if (segmentDataManager instanceof RealtimeSegmentDataManager) {
+      ((RealtimeSegmentDataManager) segmentDataManager).releaseRetiredSegment();
+    }
   }
 
   @Override
@@ -195,7 +217,8 @@ public class RealtimeTableDataManager implements TableDataManager {
               LOGGER.info("found schema {} ", tableConfig.getValidationConfig().getSchemaName());
               SegmentDataManager manager =
                   new RealtimeSegmentDataManager((RealtimeSegmentZKMetadata) segmentZKMetadata, tableConfig,
-                      instanceZKMetadata, this, _indexDir.getAbsolutePath(), _readMode, Schema.fromZNRecord(record));
+                      instanceZKMetadata, this, _indexDir.getAbsolutePath(), _readMode, Schema.fromZNRecord(record),
+                      createMemoryManager(segmentId), TableDataManagerProvider.getServerMetrics());
               LOGGER.info("Initialize RealtimeSegmentDataManager - " + segmentId);
               _segmentsMap.put(segmentId, manager);
               _loadingSegments.add(segmentId);
@@ -208,6 +231,32 @@ public class RealtimeTableDataManager implements TableDataManager {
 
   }
 
+  /**
+   * Starts consuming into a new segment right after the given one completed, without waiting for the controller to
+   * assign it, so that consumption goes on while the completed segment is converted. The controller adds the new
+   * segment to the ideal state once the completed one is DONE.
+   */
+  public void startConsumingSegment(RealtimeSegmentZKMetadata segmentMetadata,
+      RealtimeSegmentDataManager previousSegment) throws Exception {
+    String segmentId = segmentMetadata.getSegmentName();
+    ZKMetadataProvider.setRealtimeSegmentZKMetadata(_helixPropertyStore, segmentMetadata);
+    synchronized (getGlobalLock()) {
+      SegmentDataManager manager =
+          previousSegment.createNextSegmentDataManager(segmentMetadata, createMemoryManager(segmentId));
+      LOGGER.info("Initialize RealtimeSegmentDataManager - " + segmentId);
+      _segmentsMap.put(segmentId, manager);
+      _loadingSegments.add(segmentId);
+      _referenceCounts.put(segmentId, new AtomicInteger(1));
+    }
+  }
+
+  private RealtimeIndexOffHeapMemoryManager createMemoryManager(String segmentName) {
+    if ("mmap".equalsIgnoreCase(_tableDataManagerConfig.getRealtimeOffHeapAllocation())) {
+      return new MmapMemoryManager(new File(_tableDataDir, "_offheap"), segmentName);
+    }
+    return new DirectMemoryManager(segmentName);
+  }
+
   public void updateStatus() {
 
   }
@@ -263,7 +312,11 @@ public class RealtimeTableDataManager implements TableDataManager {
         _currentNumberOfSegments.dec();
         _currentNumberOfDocuments.dec(segment.getSegment().getTotalDocs());
         _numDeletedSegments.inc();
-        segment.getSegment().destroy();
+        if (segment instanceof RealtimeSegmentDataManager) {
+          ((RealtimeSegmentDataManager) segment).destroy();
+        } else {
+          segment.getSegment().destroy();
+        }
       }
       LOGGER.info("Segment " + segmentId + " has been deleted");
       _segmentAsyncExecutorService.execute(new Runnable() {
@@ -274,8 +327,9 @@ public class RealtimeTableDataManager implements TableDataManager {
         }
       });
 
-    } else {
-      count.decrementAndGet();
+    } else if (count.decrementAndGet() == 1) {
+      // Queries that started before a consuming segment was swapped with its converted version are done
+      releaseRetiredSegment(segmentId);
     }
   }
 
@@ -329,6 +383,11 @@ public class RealtimeTableDataManager implements TableDataManager {
     return _queryExecutorService;
   }
 
+  @Override
+  public QueryParallelismConfig getQueryParallelismConfig() {
+    return _queryParallelismConfig;
+  }
+
   public Object getGlobalLock() {
     return _globalLock;
   }
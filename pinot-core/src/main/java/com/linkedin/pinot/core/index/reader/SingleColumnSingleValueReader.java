@@ -74,4 +74,13 @@ public interface SingleColumnSingleValueReader extends DataFileReader{
    * @return
    */
   byte[] getBytes(int row);
+
+  /**
+   * Bulk version of {@link #getInt(int)}: sets values[i] to the int value of rows[i] for the first length rows.
+   *
+   * @param rows
+   * @param length
+   * @param values
+   */
+  void readIntValues(int[] rows, int length, int[] values);
 }
@@ -268,6 +268,28 @@ public class FixedBitWidthRowColDataFileReader {
 
   }
 
+  /**
+   * Reads the values of the given column for the first length rows, in bulk.
+   *
+   * @param rows Row ids
+   * @param col Column
+   * @param length Number of rows to read
+   * @param values Output, values[i] is set to the value of rows[i]
+   */
+  public void readInts(int[] rows, int col, int length, int[] values) {
+    final int numBits = colSizesInBits[col];
+    final int colBitOffset = colBitOffSets[col];
+    final int offset = offsets[col];
+    for (int i = 0; i < length; i++) {
+      final int row = rows[i];
+      if (row >= this.rows) {
+        throw new IndexOutOfBoundsException(String.format(
+            "Input (%d,%d) is not with in expected range (%d,%d)", row, col, this.rows, cols));
+      }
+      values[i] = customBitSet.readBits(row * rowSizeInBits + colBitOffset, numBits) - offset;
+    }
+  }
+
   public int getNumberOfRows() {
     return rows;
   }
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.index.readerwriter;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.utils.MmapUtils;
+
+
+/**
+ * Allocates the off-heap buffers backing the indexes of a consuming realtime segment.
+ *
+ * All buffers allocated through a manager are released together when it is closed, typically once the segment has
+ * been converted, instead of waiting for the garbage collector to run the buffer cleaners.
+ */
+public abstract class RealtimeIndexOffHeapMemoryManager implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RealtimeIndexOffHeapMemoryManager.class);
+  private static final AtomicLong TOTAL_ALLOCATED_BYTES = new AtomicLong();
+
+  private final String _segmentName;
+  private final List<ByteBuffer> _buffers = new ArrayList<ByteBuffer>();
+  private final AtomicLong _allocatedBytes = new AtomicLong();
+  private boolean _closed = false;
+
+  protected RealtimeIndexOffHeapMemoryManager(String segmentName) {
+    _segmentName = segmentName;
+  }
+
+  /**
+   * Allocates a zeroed buffer of the given size in native byte order.
+   *
+   * @param size size of the buffer in bytes
+   * @param context description of what the buffer is used for, e.g. the column name
+   */
+  public synchronized ByteBuffer allocate(int size, String context) {
+    Preconditions.checkState(!_closed, "Memory manager for segment %s is closed", _segmentName);
+    ByteBuffer buffer = allocateInternal(size, context);
+    buffer.order(ByteOrder.nativeOrder());
+    _buffers.add(buffer);
+    _allocatedBytes.addAndGet(size);
+    TOTAL_ALLOCATED_BYTES.addAndGet(size);
+    return buffer;
+  }
+
+  protected abstract ByteBuffer allocateInternal(int size, String context);
+
+  /**
+   * Hook for implementations to release resources other than the buffers themselves.
+   */
+  protected void closeInternal() {
+  }
+
+  public String getSegmentName() {
+    return _segmentName;
+  }
+
+  /**
+   * Returns the number of bytes currently allocated by this manager.
+   */
+  public long getAllocatedBytes() {
+    return _allocatedBytes.get();
+  }
+
+  /**
+   * Returns the number of bytes currently allocated by all the managers of this process.
+   */
+  public static long getTotalAllocatedBytes() {
+    return TOTAL_ALLOCATED_BYTES.get();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (_closed) {
+      return;
+    }
+    _closed = true;
+    for (ByteBuffer buffer : _buffers) {
+      MmapUtils.unloadByteBuffer(buffer);
+    }
+    _buffers.clear();
+    long allocatedBytes = _allocatedBytes.getAndSet(0);
+    TOTAL_ALLOCATED_BYTES.addAndGet(-allocatedBytes);
+    closeInternal();
+    LOGGER.info("Released {} bytes of off-heap memory for segment {}", allocatedBytes, _segmentName);
+  }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.index.readerwriter.impl;
+
+import java.nio.ByteBuffer;
+
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
+
+
+/**
+ * Allocates realtime index buffers from direct memory.
+ */
+public class DirectMemoryManager extends RealtimeIndexOffHeapMemoryManager {
+
+  public DirectMemoryManager(String segmentName) {
+    super(segmentName);
+  }
+
+  @Override
+  protected ByteBuffer allocateInternal(int size, String context) {
+    return ByteBuffer.allocateDirect(size);
+  }
+}
@@ -17,13 +17,12 @@ package com.linkedin.pinot.core.index.readerwriter.impl;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
-import com.linkedin.pinot.common.utils.MmapUtils;
+import com.google.common.base.Preconditions;
 import com.linkedin.pinot.core.index.reader.DataFileMetadata;
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
 import com.linkedin.pinot.core.index.readerwriter.SingleColumnMultiValueReaderWriter;
 import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWriter;
 
@@ -33,13 +32,13 @@ import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWri
  * Writes must be strictly sequential, while reads can be random <br>
  * It is very similar to the SingleColumnMultiValue format representation <br>
  * except that the variable size data buffer size is not known up front in case FixedByteSingleColumnMultiValueReaderWriter
- * This class allocates extra memory in chunks as needed.
+ * This class allocates extra memory in chunks as needed, for both the header and the data sections.
  * Data format
  * <code>
- *  HEADER SECTION
- *    bufferId startIndex EndIndex
- *    bufferId startIndex EndIndex
- *    bufferId startIndex EndIndex
+ *  HEADER SECTION (chunks of a fixed number of rows)
+ *    bufferId startIndex length
+ *    bufferId startIndex length
+ *    bufferId startIndex length
  *  Data BUFFER SECTION 0
  *    [set of values of row 0] [set of values of row 1]
  *     .....
@@ -54,127 +53,157 @@ import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWri
  *     [set of values of row n]
  * </code>
  *
+ * New chunks are published through volatile arrays, so concurrent readers of already written rows never lock.
  */
 
 public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumnMultiValueReaderWriter {
 
   public static final int DEFAULT_MAX_NUMBER_OF_MULTIVALUES = 1000;
-  /**
-   * number of columns is 1, column size is variable but less than maxNumberOfMultiValuesPerRow
-   * @param rows
-   */
+  public static final int DEFAULT_NUM_ROWS_PER_CHUNK = 1 << 16;
 
-  private static int SIZE_OF_INT = 4;
-  private static int NUM_COLS_IN_HEADER = 3;
+  private static final int SIZE_OF_INT = 4;
+  private static final int NUM_COLS_IN_HEADER = 3;
+  private static final int HEADER_ROW_SIZE = SIZE_OF_INT * NUM_COLS_IN_HEADER;
 
   private static int AVERAGE_NUM_VALUES_PER_ROW = 10;//used to compute the initial size
   private static int INCREMENT_PERCENTAGE = 100;//Increments the Initial size by 100% of initial capacity every time we runs out of capacity
 
-  private ByteBuffer headerBuffer;
-  private List<ByteBuffer> dataBuffers = new ArrayList<ByteBuffer>();
-  private FixedByteWidthRowColDataFileWriter headerWriter;
-  private FixedByteWidthRowColDataFileReader headerReader;
-  private List<FixedByteWidthRowColDataFileWriter> dataWriters = new ArrayList<FixedByteWidthRowColDataFileWriter>();
-  private List<FixedByteWidthRowColDataFileReader> dataReaders = new ArrayList<FixedByteWidthRowColDataFileReader>();
-  private FixedByteWidthRowColDataFileWriter currentDataWriter;
-  private int currentDataWriterIndex = -1;
-  private int currentCapacity = 0;
-  private int headerSize;
-  private int incrementalCapacity;
-  private int columnSizeInBytes;
-  private int maxNumberOfMultiValuesPerRow;
+  private final RealtimeIndexOffHeapMemoryManager _memoryManager;
+  private final boolean _ownsMemoryManager;
+  private final String _context;
+  private final int _columnSizeInBytes;
+  private final int _maxNumberOfMultiValuesPerRow;
+  private final int _incrementalCapacity;
+  private final int _numHeaderRowsPerChunk;
+  private final int _headerChunkShift;
+  private final int _headerRowMask;
+
+  private volatile ByteBuffer[] _headerChunks = new ByteBuffer[0];
+  private volatile FixedByteWidthRowColDataFileReader[] _dataReaders = new FixedByteWidthRowColDataFileReader[0];
+
+  // Only accessed by the writing thread
+  private FixedByteWidthRowColDataFileWriter _currentDataWriter;
+  private int _currentDataWriterIndex = -1;
+  private int _currentCapacity = 0;
+  private int _currentDataOffset = 0;
 
   public FixedByteSingleColumnMultiValueReaderWriter(int rows, int columnSizeInBytes, int maxNumberOfMultiValuesPerRow)
       throws IOException {
-    int initialCapacity = Math.max(maxNumberOfMultiValuesPerRow, rows * AVERAGE_NUM_VALUES_PER_ROW);
-    int incrementalCapacity =
-        Math.max(maxNumberOfMultiValuesPerRow, (int) (initialCapacity * 1.0f * INCREMENT_PERCENTAGE / 100));
-    init(rows, columnSizeInBytes, maxNumberOfMultiValuesPerRow, initialCapacity, incrementalCapacity);
+    this(rows, columnSizeInBytes, maxNumberOfMultiValuesPerRow,
+        Math.max(maxNumberOfMultiValuesPerRow, rows * AVERAGE_NUM_VALUES_PER_ROW),
+        Math.max(maxNumberOfMultiValuesPerRow, rows * AVERAGE_NUM_VALUES_PER_ROW * INCREMENT_PERCENTAGE / 100));
   }
 
+  /**
+   * Creates a reader/writer backed by direct memory that is released on {@link #close()}.
+   */
   public FixedByteSingleColumnMultiValueReaderWriter(int rows, int columnSizeInBytes, int maxNumberOfMultiValuesPerRow,
       int initialCapacity, int incrementalCapacity) throws IOException {
-    init(rows, columnSizeInBytes, maxNumberOfMultiValuesPerRow, initialCapacity, incrementalCapacity);
+    this(Math.min(DEFAULT_NUM_ROWS_PER_CHUNK, Integer.highestOneBit(Math.max(rows - 1, 1)) << 1), columnSizeInBytes,
+        maxNumberOfMultiValuesPerRow, initialCapacity, incrementalCapacity, new DirectMemoryManager("unknown"), true,
+        "column");
+  }
 
+  /**
+   * Creates a reader/writer whose chunks are allocated on demand from the given memory manager, which owns and
+   * releases them.
+   *
+   * @param numRowsPerChunk number of rows per header chunk, must be a power of 2
+   * @param columnSizeInBytes
+   * @param maxNumberOfMultiValuesPerRow
+   * @param numValuesPerDataChunk number of values per data chunk
+   * @param memoryManager
+   * @param context description of the buffers for the memory manager, e.g. the column name
+   */
+  public FixedByteSingleColumnMultiValueReaderWriter(int numRowsPerChunk, int columnSizeInBytes,
+      int maxNumberOfMultiValuesPerRow, int numValuesPerDataChunk, RealtimeIndexOffHeapMemoryManager memoryManager,
+      String context) {
+    this(numRowsPerChunk, columnSizeInBytes, maxNumberOfMultiValuesPerRow, numValuesPerDataChunk,
+        numValuesPerDataChunk, memoryManager, false, context);
   }
 
-  private void init(int rows, int columnSizeInBytes, int maxNumberOfMultiValuesPerRow, int initialCapacity,
-      int incrementalCapacity) throws IOException {
-    this.columnSizeInBytes = columnSizeInBytes;
-    this.maxNumberOfMultiValuesPerRow = maxNumberOfMultiValuesPerRow;
-    headerSize = rows * SIZE_OF_INT * NUM_COLS_IN_HEADER;
-    headerBuffer = ByteBuffer.allocateDirect(headerSize);
-    headerBuffer.order(ByteOrder.nativeOrder());
-    //dataBufferId, startIndex, length
-    headerWriter =
-        new FixedByteWidthRowColDataFileWriter(headerBuffer, rows, 3,
-            new int[] { SIZE_OF_INT, SIZE_OF_INT, SIZE_OF_INT });
-    headerReader =
-        new FixedByteWidthRowColDataFileReader(headerBuffer, rows, 3,
-            new int[] { SIZE_OF_INT, SIZE_OF_INT, SIZE_OF_INT });
-    //at least create space for million entries, which for INT translates into 4mb buffer
-    this.incrementalCapacity = incrementalCapacity;
-    addCapacity(initialCapacity);
+  private FixedByteSingleColumnMultiValueReaderWriter(int numRowsPerChunk, int columnSizeInBytes,
+      int maxNumberOfMultiValuesPerRow, int initialCapacity, int incrementalCapacity,
+      RealtimeIndexOffHeapMemoryManager memoryManager, boolean ownsMemoryManager, String context) {
+    Preconditions.checkArgument(numRowsPerChunk > 0 && Integer.bitCount(numRowsPerChunk) == 1,
+        "Number of rows per chunk must be a power of 2: %s", numRowsPerChunk);
+    _memoryManager = memoryManager;
+    _ownsMemoryManager = ownsMemoryManager;
+    _context = context;
+    _columnSizeInBytes = columnSizeInBytes;
+    _maxNumberOfMultiValuesPerRow = maxNumberOfMultiValuesPerRow;
+    _incrementalCapacity = Math.max(maxNumberOfMultiValuesPerRow, incrementalCapacity);
+    _numHeaderRowsPerChunk = numRowsPerChunk;
+    _headerChunkShift = Integer.numberOfTrailingZeros(numRowsPerChunk);
+    _headerRowMask = numRowsPerChunk - 1;
+    addCapacity(Math.max(maxNumberOfMultiValuesPerRow, initialCapacity));
   }
 
   /**
    * This method automatically computes the space needed based on the columnSizeInBytes
-   * @param rowCapacity Additional capacity to be added in terms of number of rows
+   * @param rowCapacity Additional capacity to be added in terms of number of values
    * @throws RuntimeException
    */
   private void addCapacity(int rowCapacity) throws RuntimeException {
-    ByteBuffer dataBuffer;
     try {
-      dataBuffer = ByteBuffer.allocateDirect(rowCapacity * columnSizeInBytes);
-      dataBuffer.order(ByteOrder.nativeOrder());
-      dataBuffers.add(dataBuffer);
-      currentDataWriter =
-          new FixedByteWidthRowColDataFileWriter(dataBuffer, rowCapacity, 1, new int[] { columnSizeInBytes });
-      dataWriters.add(currentDataWriter);
-
+      ByteBuffer dataBuffer = _memoryManager.allocate(rowCapacity * _columnSizeInBytes, _context + ".data");
+      _currentDataWriter =
+          new FixedByteWidthRowColDataFileWriter(dataBuffer, rowCapacity, 1, new int[] { _columnSizeInBytes });
       FixedByteWidthRowColDataFileReader dataFileReader =
-          new FixedByteWidthRowColDataFileReader(dataBuffer, rowCapacity, 1, new int[] { columnSizeInBytes });
-      dataReaders.add(dataFileReader);
+          new FixedByteWidthRowColDataFileReader(dataBuffer.duplicate().order(dataBuffer.order()), rowCapacity, 1,
+              new int[] { _columnSizeInBytes });
+      FixedByteWidthRowColDataFileReader[] dataReaders = Arrays.copyOf(_dataReaders, _dataReaders.length + 1);
+      dataReaders[dataReaders.length - 1] = dataFileReader;
+      _dataReaders = dataReaders;
       //update the capacity
-      currentCapacity = rowCapacity;
-      currentDataWriterIndex = currentDataWriterIndex + 1;
+      _currentCapacity = rowCapacity;
+      _currentDataOffset = 0;
+      _currentDataWriterIndex = _currentDataWriterIndex + 1;
     } catch (Exception e) {
       throw new RuntimeException("Error while expanding the capacity by allocating additional buffer with capacity:"
           + rowCapacity, e);
     }
   }
 
+  private ByteBuffer getHeaderChunkForWrite(int row) {
+    int chunkId = row >>> _headerChunkShift;
+    while (chunkId >= _headerChunks.length) {
+      ByteBuffer headerChunk = _memoryManager.allocate(_numHeaderRowsPerChunk * HEADER_ROW_SIZE, _context + ".header");
+      ByteBuffer[] headerChunks = Arrays.copyOf(_headerChunks, _headerChunks.length + 1);
+      headerChunks[headerChunks.length - 1] = headerChunk;
+      _headerChunks = headerChunks;
+    }
+    return _headerChunks[chunkId];
+  }
+
   @Override
   public boolean setMetadata(DataFileMetadata metadata) {
     return false;
   }
 
+  /**
+   * Releases the chunks if they were allocated from a private memory manager; chunks allocated from a shared memory
+   * manager are released when that manager is closed.
+   */
   @Override
   public void close() {
-    for (ByteBuffer dataBuffer : dataBuffers) {
-      MmapUtils.unloadByteBuffer(dataBuffer);
+    if (_ownsMemoryManager) {
+      _memoryManager.close();
     }
-    MmapUtils.unloadByteBuffer(headerBuffer);
   }
 
   private int updateHeader(int row, int length) {
-    assert (length < maxNumberOfMultiValuesPerRow);
-    int prevRowStartIndex = 0;
-    int prevRowLength = 0;
-    if (row > 0) {
-      prevRowStartIndex = headerReader.getInt(row - 1, 1);
-      prevRowLength = headerReader.getInt(row - 1, 2);
-    }
-    int newStartIndex = prevRowStartIndex + prevRowLength;
-    if (newStartIndex + length > currentCapacity) {
-      addCapacity(incrementalCapacity);
-      prevRowStartIndex = 0;
-      prevRowLength = 0;
-      newStartIndex = prevRowStartIndex + prevRowLength;
+    assert (length <= _maxNumberOfMultiValuesPerRow);
+    if (_currentDataOffset + length > _currentCapacity) {
+      addCapacity(Math.max(_incrementalCapacity, length));
     }
-    headerWriter.setInt(row, 0, currentDataWriterIndex);
-    headerWriter.setInt(row, 1, newStartIndex);
-    headerWriter.setInt(row, 2, length);
+    int newStartIndex = _currentDataOffset;
+    _currentDataOffset += length;
+    ByteBuffer header = getHeaderChunkForWrite(row);
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    header.putInt(offset, _currentDataWriterIndex);
+    header.putInt(offset + SIZE_OF_INT, newStartIndex);
+    header.putInt(offset + 2 * SIZE_OF_INT, length);
     return newStartIndex;
   }
 
@@ -182,16 +211,15 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   public void setCharArray(int row, char[] charArray) {
     int newStartIndex = updateHeader(row, charArray.length);
     for (int i = 0; i < charArray.length; i++) {
-      currentDataWriter.setChar(newStartIndex + i, 0, charArray[i]);
+      _currentDataWriter.setChar(newStartIndex + i, 0, charArray[i]);
     }
   }
 
   @Override
   public void setShortArray(int row, short[] shortsArray) {
-
     int newStartIndex = updateHeader(row, shortsArray.length);
     for (int i = 0; i < shortsArray.length; i++) {
-      currentDataWriter.setShort(newStartIndex + i, 0, shortsArray[i]);
+      _currentDataWriter.setShort(newStartIndex + i, 0, shortsArray[i]);
     }
   }
 
@@ -199,7 +227,7 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   public void setIntArray(int row, int[] intArray) {
     int newStartIndex = updateHeader(row, intArray.length);
     for (int i = 0; i < intArray.length; i++) {
-      currentDataWriter.setInt(newStartIndex + i, 0, intArray[i]);
+      _currentDataWriter.setInt(newStartIndex + i, 0, intArray[i]);
     }
   }
 
@@ -207,7 +235,7 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   public void setLongArray(int row, long[] longArray) {
     int newStartIndex = updateHeader(row, longArray.length);
     for (int i = 0; i < longArray.length; i++) {
-      currentDataWriter.setLong(newStartIndex + i, 0, longArray[i]);
+      _currentDataWriter.setLong(newStartIndex + i, 0, longArray[i]);
     }
   }
 
@@ -215,7 +243,7 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   public void setFloatArray(int row, float[] floatArray) {
     int newStartIndex = updateHeader(row, floatArray.length);
     for (int i = 0; i < floatArray.length; i++) {
-      currentDataWriter.setFloat(newStartIndex + i, 0, floatArray[i]);
+      _currentDataWriter.setFloat(newStartIndex + i, 0, floatArray[i]);
     }
   }
 
@@ -223,7 +251,7 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   public void setDoubleArray(int row, double[] doubleArray) {
     int newStartIndex = updateHeader(row, doubleArray.length);
     for (int i = 0; i < doubleArray.length; i++) {
-      currentDataWriter.setDouble(newStartIndex + i, 0, doubleArray[i]);
+      _currentDataWriter.setDouble(newStartIndex + i, 0, doubleArray[i]);
     }
   }
 
@@ -231,7 +259,7 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   public void setStringArray(int row, String[] stringArray) {
     int newStartIndex = updateHeader(row, stringArray.length);
     for (int i = 0; i < stringArray.length; i++) {
-      currentDataWriter.setString(newStartIndex + i, 0, stringArray[i]);
+      _currentDataWriter.setString(newStartIndex + i, 0, stringArray[i]);
     }
   }
 
@@ -239,16 +267,17 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   public void setBytesArray(int row, byte[][] bytesArray) {
     int newStartIndex = updateHeader(row, bytesArray.length);
     for (int i = 0; i < bytesArray.length; i++) {
-      currentDataWriter.setBytes(newStartIndex + i, 0, bytesArray[i]);
+      _currentDataWriter.setBytes(newStartIndex + i, 0, bytesArray[i]);
     }
   }
 
   @Override
   public int getCharArray(int row, char[] charArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       charArray[i] = dataReader.getChar(startIndex + i, 0);
     }
@@ -257,10 +286,11 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getShortArray(int row, short[] shortsArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       shortsArray[i] = dataReader.getShort(startIndex + i, 0);
     }
@@ -269,10 +299,11 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getIntArray(int row, int[] intArray) {
-    int bufferIndex = headerReader.getInt(row, 0);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       intArray[i] = dataReader.getInt(startIndex + i, 0);
     }
@@ -281,10 +312,11 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getLongArray(int row, long[] longArray) {
-    int bufferIndex = headerReader.getInt(row, 0);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       longArray[i] = dataReader.getLong(startIndex + i, 0);
     }
@@ -293,10 +325,11 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getFloatArray(int row, float[] floatArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       floatArray[i] = dataReader.getFloat(startIndex + i, 0);
     }
@@ -305,10 +338,11 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getDoubleArray(int row, double[] doubleArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       doubleArray[i] = dataReader.getDouble(startIndex + i, 0);
     }
@@ -317,10 +351,11 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getStringArray(int row, String[] stringArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       stringArray[i] = dataReader.getString(startIndex + i, 0);
     }
@@ -329,10 +364,11 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getBytesArray(int row, byte[][] bytesArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    ByteBuffer header = _headerChunks[row >>> _headerChunkShift];
+    int offset = (row & _headerRowMask) * HEADER_ROW_SIZE;
+    FixedByteWidthRowColDataFileReader dataReader = _dataReaders[header.getInt(offset)];
+    int startIndex = header.getInt(offset + SIZE_OF_INT);
+    int length = header.getInt(offset + 2 * SIZE_OF_INT);
     for (int i = 0; i < length; i++) {
       bytesArray[i] = dataReader.getBytes(startIndex + i, 0);
     }
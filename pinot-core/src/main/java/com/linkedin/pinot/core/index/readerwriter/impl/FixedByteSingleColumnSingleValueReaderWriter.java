@@ -16,47 +16,115 @@
 package com.linkedin.pinot.core.index.readerwriter.impl;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 
+import com.google.common.base.Preconditions;
 import com.linkedin.pinot.core.index.reader.DataFileMetadata;
 import com.linkedin.pinot.core.index.reader.SingleColumnSingleValueReader;
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
 import com.linkedin.pinot.core.index.writer.SingleColumnSingleValueWriter;
 import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWriter;
 
 
+/**
+ * Fixed width single value reader/writer backed by off-heap chunks of a fixed number of rows.
+ *
+ * Chunks are allocated on demand as rows are written, so memory grows with the number of rows instead of being sized
+ * for the worst case up front. Writes come from a single thread; new chunks are published through a volatile array so
+ * that concurrent readers of already written rows never need to lock.
+ */
 public class FixedByteSingleColumnSingleValueReaderWriter implements SingleColumnSingleValueReader,
     SingleColumnSingleValueWriter {
+  public static final int DEFAULT_NUM_ROWS_PER_CHUNK = 1 << 16;
+
+  private final RealtimeIndexOffHeapMemoryManager _memoryManager;
+  private final boolean _ownsMemoryManager;
+  private final String _context;
+  private final int[] _columnSizesInBytes;
+  private final int _chunkSizeInBytes;
+  private final int _numRowsPerChunk;
+  private final int _chunkShift;
+  private final int _rowMask;
 
-  FixedByteWidthRowColDataFileReader reader;
-  FixedByteWidthRowColDataFileWriter writer;
-  private int cols;
-  private int[] colOffSets;
-  private int rowSize;
+  private volatile FixedByteWidthRowColDataFileReader[] _readers = new FixedByteWidthRowColDataFileReader[0];
+  private FixedByteWidthRowColDataFileWriter[] _writers = new FixedByteWidthRowColDataFileWriter[0];
 
   public FixedByteSingleColumnSingleValueReaderWriter(int rows, int columnSizesInBytes) throws IOException {
     this(rows, new int[]{columnSizesInBytes});
   }
+
   /**
+   * Creates a reader/writer backed by direct memory that is released on {@link #close()}.
    *
-   * @param rows
+   * @param rows expected number of rows, used to size the chunks
    * @param columnSizesInBytes
    */
   public FixedByteSingleColumnSingleValueReaderWriter(int rows, int[] columnSizesInBytes) throws IOException {
-    this.cols = 1;
-    colOffSets = new int[columnSizesInBytes.length];
-    rowSize = 0;
-    for (int i = 0; i < columnSizesInBytes.length; i++) {
-      colOffSets[i] = rowSize;
-      rowSize += columnSizesInBytes[i];
+    this(Math.min(DEFAULT_NUM_ROWS_PER_CHUNK, Integer.highestOneBit(Math.max(rows - 1, 1)) << 1),
+        columnSizesInBytes, new DirectMemoryManager("unknown"), true, "column");
+  }
+
+  /**
+   * Creates a reader/writer whose chunks are allocated from the given memory manager, which owns and releases them.
+   *
+   * @param numRowsPerChunk number of rows per chunk, must be a power of 2
+   * @param columnSizeInBytes
+   * @param memoryManager
+   * @param context description of the buffers for the memory manager, e.g. the column name
+   */
+  public FixedByteSingleColumnSingleValueReaderWriter(int numRowsPerChunk, int columnSizeInBytes,
+      RealtimeIndexOffHeapMemoryManager memoryManager, String context) {
+    this(numRowsPerChunk, new int[] { columnSizeInBytes }, memoryManager, false, context);
+  }
+
+  private FixedByteSingleColumnSingleValueReaderWriter(int numRowsPerChunk, int[] columnSizesInBytes,
+      RealtimeIndexOffHeapMemoryManager memoryManager, boolean ownsMemoryManager, String context) {
+    Preconditions.checkArgument(numRowsPerChunk > 0 && Integer.bitCount(numRowsPerChunk) == 1,
+        "Number of rows per chunk must be a power of 2: %s", numRowsPerChunk);
+    _memoryManager = memoryManager;
+    _ownsMemoryManager = ownsMemoryManager;
+    _context = context;
+    _columnSizesInBytes = columnSizesInBytes;
+    int rowSize = 0;
+    for (int columnSizeInBytes : columnSizesInBytes) {
+      rowSize += columnSizeInBytes;
+    }
+    _numRowsPerChunk = numRowsPerChunk;
+    _chunkSizeInBytes = rowSize * numRowsPerChunk;
+    _chunkShift = Integer.numberOfTrailingZeros(numRowsPerChunk);
+    _rowMask = numRowsPerChunk - 1;
+  }
+
+  private FixedByteWidthRowColDataFileWriter getWriter(int row) {
+    int chunkId = row >>> _chunkShift;
+    while (chunkId >= _writers.length) {
+      addChunk();
+    }
+    return _writers[chunkId];
+  }
+
+  private void addChunk() {
+    ByteBuffer buffer = _memoryManager.allocate(_chunkSizeInBytes, _context);
+    try {
+      FixedByteWidthRowColDataFileWriter writer =
+          new FixedByteWidthRowColDataFileWriter(buffer, _numRowsPerChunk, 1, _columnSizesInBytes);
+      // Readers get their own view of the buffer so that their position does not interfere with the writer
+      FixedByteWidthRowColDataFileReader reader = new FixedByteWidthRowColDataFileReader(
+          buffer.duplicate().order(buffer.order()), _numRowsPerChunk, 1, _columnSizesInBytes);
+      _writers = Arrays.copyOf(_writers, _writers.length + 1);
+      _writers[_writers.length - 1] = writer;
+      FixedByteWidthRowColDataFileReader[] readers = Arrays.copyOf(_readers, _readers.length + 1);
+      readers[readers.length - 1] = reader;
+      _readers = readers;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to add a chunk for " + _context, e);
     }
-    final int totalSize = rowSize * rows;
-    ByteBuffer buffer = ByteBuffer.allocateDirect(totalSize);
-    buffer.order(ByteOrder.nativeOrder());
-    reader = new FixedByteWidthRowColDataFileReader(buffer, rows, cols, columnSizesInBytes);
-    writer = new FixedByteWidthRowColDataFileWriter(buffer, rows, cols, columnSizesInBytes);
+  }
+
+  private FixedByteWidthRowColDataFileReader getReader(int row) {
+    return _readers[row >>> _chunkShift];
   }
 
   @Override
@@ -64,10 +132,15 @@ public class FixedByteSingleColumnSingleValueReaderWriter implements SingleColum
     return null;
   }
 
+  /**
+   * Releases the chunks if they were allocated from a private memory manager; chunks allocated from a shared memory
+   * manager are released when that manager is closed.
+   */
   @Override
   public void close() throws IOException {
-    reader.close();
-    writer.close();
+    if (_ownsMemoryManager) {
+      _memoryManager.close();
+    }
   }
 
   @Override
@@ -77,87 +150,91 @@ public class FixedByteSingleColumnSingleValueReaderWriter implements SingleColum
 
   @Override
   public void setChar(int row, char ch) {
-    writer.setChar(row, 0, ch);
+    getWriter(row).setChar(row & _rowMask, 0, ch);
   }
 
   @Override
   public void setInt(int row, int i) {
-    writer.setInt(row, 0, i);
-
+    getWriter(row).setInt(row & _rowMask, 0, i);
   }
 
   @Override
   public void setShort(int row, short s) {
-    writer.setShort(row, 0, s);
-
+    getWriter(row).setShort(row & _rowMask, 0, s);
   }
 
   @Override
   public void setLong(int row, long l) {
-    writer.setLong(row, 0, l);
-
+    getWriter(row).setLong(row & _rowMask, 0, l);
   }
 
   @Override
   public void setFloat(int row, float f) {
-    writer.setFloat(row, 0, f);
-
+    getWriter(row).setFloat(row & _rowMask, 0, f);
   }
 
   @Override
   public void setDouble(int row, double d) {
-    writer.setDouble(row, 0, d);
-
+    getWriter(row).setDouble(row & _rowMask, 0, d);
   }
 
   @Override
   public void setString(int row, String string) throws Exception {
-    writer.setString(row, 0, string);
+    getWriter(row).setString(row & _rowMask, 0, string);
   }
 
   @Override
   public void setBytes(int row, byte[] bytes) {
-    writer.setBytes(row, 0, bytes);
+    getWriter(row).setBytes(row & _rowMask, 0, bytes);
   }
 
   @Override
   public char getChar(int row) {
-    return reader.getChar(row, 0);
+    return getReader(row).getChar(row & _rowMask, 0);
   }
 
   @Override
   public short getShort(int row) {
-    return reader.getShort(row, 0);
+    return getReader(row).getShort(row & _rowMask, 0);
   }
 
   @Override
   public int getInt(int row) {
-    return reader.getInt(row, 0);
+    return getReader(row).getInt(row & _rowMask, 0);
+  }
+
+  @Override
+  public void readIntValues(int[] rows, int length, int[] values) {
+    FixedByteWidthRowColDataFileReader[] readers = _readers;
+    for (int i = 0; i < length; i++) {
+      int row = rows[i];
+      values[i] = readers[row >>> _chunkShift].getInt(row & _rowMask, 0);
+    }
   }
 
   @Override
   public long getLong(int row) {
-    return reader.getLong(row, 0);
+    return getReader(row).getLong(row & _rowMask, 0);
   }
 
   @Override
   public float getFloat(int row) {
-    return reader.getFloat(row, 0);
+    return getReader(row).getFloat(row & _rowMask, 0);
   }
 
   @Override
   public double getDouble(int row) {
-    return reader.getDouble(row, 0);
+    return getReader(row).getDouble(row & _rowMask, 0);
   }
 
   @Override
   public String getString(int row) {
-    return reader.getString(row, 0);
+    return getReader(row).getString(row & _rowMask, 0);
   }
 
   @Override
   public byte[] getBytes(int row) {
-    return reader.getBytes(row, 0);
+    return getReader(row).getBytes(row & _rowMask, 0);
   }
 
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.index.readerwriter.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
+
+
+/**
+ * Allocates realtime index buffers from memory mapped files under a per-segment directory, so that the operating
+ * system can page them out under memory pressure. The files are deleted when the manager is closed.
+ */
+public class MmapMemoryManager extends RealtimeIndexOffHeapMemoryManager {
+  private final File _dir;
+  private final List<File> _files = new ArrayList<File>();
+
+  public MmapMemoryManager(File baseDir, String segmentName) {
+    super(segmentName);
+    _dir = new File(baseDir, segmentName + ".offheap");
+    FileUtils.deleteQuietly(_dir);
+    if (!_dir.mkdirs()) {
+      throw new IllegalStateException("Failed to create directory " + _dir);
+    }
+  }
+
+  @Override
+  protected ByteBuffer allocateInternal(int size, String context) {
+    File file = new File(_dir, context + "." + _files.size() + ".buf");
+    RandomAccessFile randomAccessFile = null;
+    try {
+      randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(size);
+      ByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      _files.add(file);
+      return buffer;
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(file);
+      throw new RuntimeException("Failed to map " + size + " bytes for " + context + " in file " + file, e);
+    } finally {
+      // The mapping stays valid after the file is closed
+      IOUtils.closeQuietly(randomAccessFile);
+    }
+  }
+
+  @Override
+  protected void closeInternal() {
+    _files.clear();
+    FileUtils.deleteQuietly(_dir);
+  }
+}
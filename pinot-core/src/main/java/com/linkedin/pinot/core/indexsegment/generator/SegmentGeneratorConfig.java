@@ -67,6 +67,9 @@ public class SegmentGeneratorConfig {
   private RecordReaderConfig recordReaderConfig;
 
   private boolean createInvertedIndex = false;
+  private List<String> rangeIndexColumns = new ArrayList<String>();
+  private List<String> varLengthDictionaryColumns = new ArrayList<String>();
+  private int numCreationThreads = 1;
 
   /*
    *
@@ -98,6 +101,40 @@ public class SegmentGeneratorConfig {
     return this.createInvertedIndex;
   }
 
+  /**
+   * Single value columns to create a range index for. Sorted columns are skipped, their ranges are already contiguous.
+   */
+  public void setRangeIndexColumns(List<String> rangeIndexColumns) {
+    this.rangeIndexColumns = rangeIndexColumns;
+  }
+
+  public List<String> getRangeIndexColumns() {
+    return this.rangeIndexColumns;
+  }
+
+  /**
+   * String columns whose dictionary stores each value with its own length rather than padded to the longest one.
+   */
+  public void setVarLengthDictionaryColumns(List<String> varLengthDictionaryColumns) {
+    this.varLengthDictionaryColumns = varLengthDictionaryColumns;
+  }
+
+  public List<String> getVarLengthDictionaryColumns() {
+    return this.varLengthDictionaryColumns;
+  }
+
+  /**
+   * Number of threads used to create the segment. With more than one thread, the input is read once and buffered in
+   * memory, then the columns are indexed in parallel.
+   */
+  public void setNumCreationThreads(int numThreads) {
+    this.numCreationThreads = numThreads;
+  }
+
+  public int getNumCreationThreads() {
+    return this.numCreationThreads;
+  }
+
   public void setSegmentName(String segmentName) {
     properties.put(SEGMENT_NAME, segmentName);
   }
@@ -20,6 +20,7 @@ import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.QueryCancelledException;
 
 
 /**
@@ -62,6 +63,7 @@ public class BReusableFilteredDocIdSetOperator implements Operator {
     if (_currentDoc == Constants.EOF) {
       return null;
     }
+    QueryCancelledException.checkInterrupted();
     if (!inited) {
       inited = true;
       _currentDoc = 0;
@@ -16,33 +16,36 @@
 package com.linkedin.pinot.core.operator;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.helix.manager.zk.ZKHelixManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.QueryCancelledException;
 import com.linkedin.pinot.core.operator.query.MAggregationGroupByOperator;
 import com.linkedin.pinot.core.operator.query.MAggregationOperator;
 import com.linkedin.pinot.core.operator.query.MSelectionOnlyOperator;
 import com.linkedin.pinot.core.operator.query.MSelectionOrderByOperator;
 import com.linkedin.pinot.core.query.aggregation.CombineService;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 
 
 /**
@@ -67,11 +70,9 @@ public class MCombineOperator implements Operator {
   private final boolean _isParallel;
   private final BrokerRequest _brokerRequest;
   private final ExecutorService _executorService;
+  private final ServerMetrics _serverMetrics;
   private long _timeOutMs;
-  //Make this configurable
-  //These two control the parallelism on a per query basis, depending on the number of segments to process
-  private static int MAX_THREADS_PER_QUERY = 5;
-  private static int MIN_SEGMENTS_PER_THREAD = 10;
+  private final int _numThreads;
 
   private IntermediateResultsBlock _mergedBlock;
 
@@ -80,19 +81,50 @@ public class MCombineOperator implements Operator {
     _isParallel = false;
     _brokerRequest = brokerRequest;
     _executorService = null;
+    _serverMetrics = null;
+    _numThreads = 1;
+    shareSelectionOnlyRowCount();
   }
 
   public MCombineOperator(List<Operator> retOperators, ExecutorService executorService, long timeOutMs,
       BrokerRequest brokerRequest) {
+    this(retOperators, executorService, timeOutMs, -1, brokerRequest, null);
+  }
+
+  /**
+   * @param numThreads number of threads to process the segments with, or a non positive value to use up to
+   *                   {@link QueryParallelismConfig#DEFAULT_MAX_THREADS_PER_QUERY}.
+   * @param serverMetrics used to report the queries and segments cancelled on timeout or interruption, may be null.
+   */
+  public MCombineOperator(List<Operator> retOperators, ExecutorService executorService, long timeOutMs,
+      int numThreads, BrokerRequest brokerRequest, ServerMetrics serverMetrics) {
     _operators = retOperators;
     _executorService = executorService;
     _brokerRequest = brokerRequest;
     _timeOutMs = timeOutMs;
+    _serverMetrics = serverMetrics;
+    _numThreads = Math.min((numThreads > 0) ? numThreads : QueryParallelismConfig.DEFAULT_MAX_THREADS_PER_QUERY,
+        retOperators.size());
     if (_executorService != null) {
       _isParallel = true;
     } else {
       _isParallel = false;
     }
+    shareSelectionOnlyRowCount();
+  }
+
+  /**
+   * A selection query without ordering only needs its first LIMIT rows from any segments. Let the segment operators
+   * share their count of collected rows, so that once the limit is reached the running ones stop scanning and the
+   * remaining ones return right away with no docs scanned.
+   */
+  private void shareSelectionOnlyRowCount() {
+    AtomicInteger numRowsCollected = new AtomicInteger();
+    for (Operator operator : _operators) {
+      if (operator instanceof MSelectionOnlyOperator) {
+        ((MSelectionOnlyOperator) operator).setNumRowsCollected(numRowsCollected);
+      }
+    }
   }
 
   @Override
@@ -109,119 +141,92 @@ public class MCombineOperator implements Operator {
     final long startTime = System.currentTimeMillis();
     if (_isParallel) {
       final long queryEndTime = System.currentTimeMillis() + _timeOutMs;
-      int numGroups = Math.min(MAX_THREADS_PER_QUERY, (_operators.size() + MIN_SEGMENTS_PER_THREAD - 1) / MIN_SEGMENTS_PER_THREAD);
-
-      final List<List<Operator>> operatorGroups = new ArrayList<List<Operator>>(numGroups);
-      for (int i = 0; i < numGroups; i++) {
-        operatorGroups.add(new ArrayList<Operator>());
-      }
-      for (int i = 0; i < _operators.size(); i++) {
-        operatorGroups.get(i % numGroups).add(_operators.get(i));
-      }
-      final BlockingQueue<Block> blockingQueue = new ArrayBlockingQueue<Block>(operatorGroups.size());
-      // Submit operators.
-      for (final List<Operator> operatorGroup : operatorGroups) {
-        _executorService.submit(new Runnable() {
+      // The threads take the next segment off a shared index whenever they are done with one, rather than each
+      // getting a fixed share of the segments, so that a thread busy with a large segment does not hold up the query
+      // while others sit idle.
+      final AtomicInteger nextOperatorIndex = new AtomicInteger();
+      final AtomicInteger numSegmentsProcessed = new AtomicInteger();
+      // Results of the threads done so far that no other thread merged yet, closed once the results are collected.
+      final ResultsQueue unmergedResults = new ResultsQueue();
+      final CountDownLatch threadsDone = new CountDownLatch(_numThreads);
+      final List<Future<?>> threadFutures = new ArrayList<Future<?>>(_numThreads);
+      for (int i = 0; i < _numThreads; i++) {
+        threadFutures.add(_executorService.submit(new Runnable() {
           @Override
           public void run() {
-            IntermediateResultsBlock mergedBlock = null;
             try {
-              for (Operator operator : operatorGroup) {
-                IntermediateResultsBlock blockToMerge = (IntermediateResultsBlock) operator.nextBlock();
-                if (mergedBlock == null) {
-                  mergedBlock = blockToMerge;
-                } else {
-                  CombineService.mergeTwoBlocks(_brokerRequest, mergedBlock, blockToMerge);
+              IntermediateResultsBlock mergedBlock = null;
+              int numSegmentsMerged = 0;
+              int operatorIndex;
+              while ((operatorIndex = nextOperatorIndex.getAndIncrement()) < _operators.size()) {
+                // Don't start on another segment once the query got cancelled or ran out of time.
+                if (Thread.currentThread().isInterrupted() || System.currentTimeMillis() >= queryEndTime) {
+                  break;
                 }
+                IntermediateResultsBlock blockToMerge;
+                try {
+                  blockToMerge = (IntermediateResultsBlock) _operators.get(operatorIndex).nextBlock();
+                } catch (QueryCancelledException e) {
+                  break;
+                } catch (Exception e) {
+                  LOGGER.error("exception in the MCombine operator ", e);
+                  blockToMerge = new IntermediateResultsBlock(e);
+                  addException(blockToMerge, QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+                }
+                numSegmentsProcessed.incrementAndGet();
+                mergedBlock = mergeBlocks(mergedBlock, blockToMerge);
+                numSegmentsMerged++;
               }
-            } catch (Exception e) {
-              LOGGER.error("exception in the MCombine operator ", e);
-              mergedBlock = new IntermediateResultsBlock(e);
-            }
-            if (blockingQueue != null) {
-              blockingQueue.offer(mergedBlock);
-            }
-          }
-        });
-      }
-      LOGGER
-          .debug("Submitting operators to be run in parallel and it took:" + (System.currentTimeMillis() - startTime));
-
-      // Submit merger job:
-      Future<IntermediateResultsBlock> mergedBlockFuture =
-          _executorService.submit(new Callable<IntermediateResultsBlock>() {
-            @Override
-            public IntermediateResultsBlock call() throws Exception {
-              int mergedBlocksNumber = 0;
-              IntermediateResultsBlock mergedBlock = null;
-              while ((queryEndTime > System.currentTimeMillis()) && (mergedBlocksNumber < operatorGroups.size())) {
-                if (mergedBlock == null) {
-                  mergedBlock =
-                      (IntermediateResultsBlock) blockingQueue.poll(queryEndTime - System.currentTimeMillis(),
-                          TimeUnit.MILLISECONDS);
-                  if (mergedBlock != null) {
-                    mergedBlocksNumber++;
-                  }
-                  LOGGER.debug("Got response from operator 0 after: {}", (System.currentTimeMillis() - startTime));
-                } else {
-                  IntermediateResultsBlock blockToMerge =
-                      (IntermediateResultsBlock) blockingQueue.poll(queryEndTime - System.currentTimeMillis(),
-                          TimeUnit.MILLISECONDS);
-                  if (blockToMerge != null) {
-                    try {
-                      LOGGER.debug("Got response from operator {} after: {}", mergedBlocksNumber,
-                          (System.currentTimeMillis() - startTime));
-                      CombineService.mergeTwoBlocks(_brokerRequest, mergedBlock, blockToMerge);
-                      LOGGER.debug("Merged response from operator {} after: {}", mergedBlocksNumber,
-                          (System.currentTimeMillis() - startTime));
-                    } catch (Exception e) {
-                      mergedBlock.getExceptions().add(
-                          QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
-                    }
-                    mergedBlocksNumber++;
-                  }
+              // Merge in the results of the threads done before this one, so that results get merged pairwise on the
+              // threads as they finish rather than one by one on a single thread once all of them are done.
+              if (mergedBlock != null) {
+                MergedResult resultToMerge;
+                while ((resultToMerge = unmergedResults.poll()) != null) {
+                  mergedBlock = mergeBlocks(mergedBlock, resultToMerge._block);
+                  numSegmentsMerged += resultToMerge._numSegments;
+                }
+                if (!unmergedResults.offer(new MergedResult(mergedBlock, numSegmentsMerged))) {
+                  LOGGER.warn("Dropping the results of {} segments done after the query timed out", numSegmentsMerged);
                 }
               }
-              return mergedBlock;
+            } finally {
+              threadsDone.countDown();
             }
-          });
+          }
+        }));
+      }
+      LOGGER.debug("Submitting {} segments to {} threads took: {}", _operators.size(), _numThreads,
+          (System.currentTimeMillis() - startTime));
 
-      // Get merge results.
+      InterruptedException interruptedException = null;
       try {
-        _mergedBlock = mergedBlockFuture.get(queryEndTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        threadsDone.await(queryEndTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
       } catch (InterruptedException e) {
         LOGGER.error("InterruptedException ", e);
-        if (_mergedBlock == null) {
-          _mergedBlock = new IntermediateResultsBlock(e);
-        }
-        List<ProcessingException> exceptions = _mergedBlock.getExceptions();
-        if (exceptions == null) {
-          exceptions = new ArrayList<ProcessingException>();
-        }
-        exceptions.add(QueryException.getException(QueryException.FUTURE_CALL_ERROR, e));
-        _mergedBlock.setExceptionsList(exceptions);
-      } catch (ExecutionException e) {
-        LOGGER.error("Execution Exception", e);
-        if (_mergedBlock == null) {
-          _mergedBlock = new IntermediateResultsBlock(e);
-        }
-        List<ProcessingException> exceptions = _mergedBlock.getExceptions();
-        if (exceptions == null) {
-          exceptions = new ArrayList<ProcessingException>();
-        }
-        exceptions.add(QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
-        _mergedBlock.setExceptionsList(exceptions);
-      } catch (TimeoutException e) {
+        Thread.currentThread().interrupt();
+        interruptedException = e;
+      }
+      cancelSegmentTasks(threadFutures, numSegmentsProcessed.get());
+
+      // Typically one result is left, more if threads finished at the same time or on timeout. Threads still running
+      // at this point can no longer add theirs, the response tells how many segments it misses instead.
+      int numSegmentsMerged = 0;
+      for (MergedResult result : unmergedResults.close()) {
+        _mergedBlock = mergeBlocks(_mergedBlock, result._block);
+        numSegmentsMerged += result._numSegments;
+      }
+      if (_mergedBlock == null) {
+        _mergedBlock = new IntermediateResultsBlock();
+      }
+      if (interruptedException != null) {
+        addException(_mergedBlock, QueryException.getException(QueryException.FUTURE_CALL_ERROR, interruptedException));
+      } else if (numSegmentsMerged < _operators.size()) {
+        // Told from the results rather than from the wait: the threads stop taking segments at the deadline, so they
+        // may all be done right before the wait times out.
+        TimeoutException e = new TimeoutException("Segments not processed within " + _timeOutMs + "ms, results of "
+            + (_operators.size() - numSegmentsMerged) + " out of " + _operators.size() + " segments are missing");
         LOGGER.error("TimeoutException ", e);
-        if (_mergedBlock == null) {
-          _mergedBlock = new IntermediateResultsBlock(e);
-        }
-        List<ProcessingException> exceptions = _mergedBlock.getExceptions();
-        if (exceptions == null) {
-          exceptions = new ArrayList<ProcessingException>();
-        }
-        exceptions.add(QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR, e));
-        _mergedBlock.setExceptionsList(exceptions);
+        addException(_mergedBlock, QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR, e));
       }
 
     } else {
@@ -242,7 +247,7 @@ public class MCombineOperator implements Operator {
       }
     }
     if ((_brokerRequest.getAggregationsInfoSize() > 0) && (_brokerRequest.getGroupBy() != null)
-        && (_brokerRequest.getGroupBy().getColumnsSize() > 0)) {
+        && (_brokerRequest.getGroupBy().getColumnsSize() > 0) && (_mergedBlock.getAggregationGroupByOperatorResult() != null)) {
       trimToSize(_brokerRequest, _mergedBlock);
     }
     long end = System.currentTimeMillis();
@@ -251,6 +256,95 @@ public class MCombineOperator implements Operator {
     return _mergedBlock;
   }
 
+  private IntermediateResultsBlock mergeBlocks(IntermediateResultsBlock mergedBlock,
+      IntermediateResultsBlock blockToMerge) {
+    if (mergedBlock == null) {
+      return blockToMerge;
+    }
+    try {
+      CombineService.mergeTwoBlocks(_brokerRequest, mergedBlock, blockToMerge);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while merging results", e);
+      addException(mergedBlock, QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
+    }
+    return mergedBlock;
+  }
+
+  private static void addException(IntermediateResultsBlock block, ProcessingException processingException) {
+    List<ProcessingException> exceptions = block.getExceptions();
+    if (exceptions == null) {
+      exceptions = new ArrayList<ProcessingException>();
+    }
+    exceptions.add(processingException);
+    block.setExceptionsList(exceptions);
+  }
+
+  /**
+   * Cancels the segment tasks still queued or running, e.g. once the query timed out or this thread got interrupted
+   * because the broker went away, so that they no longer hold on to the executor. Running segment operators see the
+   * interrupt at their next block boundary. Cancelling tasks that already completed is a no-op.
+   */
+  private void cancelSegmentTasks(List<Future<?>> threadFutures, int numSegmentsProcessed) {
+    for (Future<?> threadFuture : threadFutures) {
+      threadFuture.cancel(true);
+    }
+
+    int numSegmentsCancelled = _operators.size() - numSegmentsProcessed;
+    if (numSegmentsCancelled > 0) {
+      LOGGER.warn("Cancelled {} out of {} segments", numSegmentsCancelled, _operators.size());
+      if (_serverMetrics != null) {
+        _serverMetrics.addMeteredValue(_brokerRequest, ServerMeter.QUERIES_CANCELLED, 1);
+        _serverMetrics.addMeteredValue(_brokerRequest, ServerMeter.SEGMENTS_CANCELLED, numSegmentsCancelled);
+      }
+    }
+  }
+
+  /**
+   * Results merged by a thread, with the number of segments they cover.
+   */
+  private static class MergedResult {
+    private final IntermediateResultsBlock _block;
+    private final int _numSegments;
+
+    private MergedResult(IntermediateResultsBlock block, int numSegments) {
+      _block = block;
+      _numSegments = numSegments;
+    }
+  }
+
+  /**
+   * Results the threads hand over to each other, until the query thread collects them.
+   */
+  private static class ResultsQueue {
+    private final LinkedList<MergedResult> _results = new LinkedList<MergedResult>();
+    private boolean _closed = false;
+
+    private synchronized MergedResult poll() {
+      return _results.poll();
+    }
+
+    /**
+     * @return false if the results were collected already, in which case the given result is dropped
+     */
+    private synchronized boolean offer(MergedResult result) {
+      if (_closed) {
+        return false;
+      }
+      _results.add(result);
+      return true;
+    }
+
+    /**
+     * Returns the results left and rejects any further one.
+     */
+    private synchronized List<MergedResult> close() {
+      _closed = true;
+      List<MergedResult> results = new ArrayList<MergedResult>(_results);
+      _results.clear();
+      return results;
+    }
+  }
+
   private void trimToSize(BrokerRequest brokerRequest, IntermediateResultsBlock mergedBlock) {
     AggregationGroupByOperatorService aggregationGroupByOperatorService =
         new AggregationGroupByOperatorService(brokerRequest.getAggregationsInfo(), brokerRequest.getGroupBy());
@@ -25,6 +25,7 @@ import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.QueryCancelledException;
 
 
 /**
@@ -65,6 +66,7 @@ public class MProjectionOperator implements Operator {
 
   @Override
   public Block nextBlock() {
+    QueryCancelledException.checkInterrupted();
     long start = System.currentTimeMillis();
     _currentBlock = new ProjectionBlock(_docIdSetOperator, _columnToDataSourceMap);
     if (_currentBlock.getDocIdSetBlock() == null) {
@@ -30,7 +30,7 @@ import com.linkedin.pinot.core.operator.docidsets.AndBlockDocIdSet;
 public class AndBlock extends BaseFilterBlock {
 
   final List<FilterBlockDocIdSet> blockDocIdSets;
-  public AndBlockDocIdSet andBlockDocIdSet;
+  public FilterBlockDocIdSet andBlockDocIdSet;
 
   public AndBlock(List<FilterBlockDocIdSet> blockDocIdSets) {
     this.blockDocIdSets = blockDocIdSets;
@@ -48,7 +48,7 @@ public class AndBlock extends BaseFilterBlock {
 
   @Override
   public FilterBlockDocIdSet getFilteredBlockDocIdSet() {
-    andBlockDocIdSet = new AndBlockDocIdSet(blockDocIdSets);
+    andBlockDocIdSet = AndBlockDocIdSet.intersect(blockDocIdSets);
     return andBlockDocIdSet;
   }
 
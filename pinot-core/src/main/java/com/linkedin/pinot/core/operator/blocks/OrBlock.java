@@ -30,7 +30,7 @@ import com.linkedin.pinot.core.operator.docidsets.OrBlockDocIdSet;
 public class OrBlock extends BaseFilterBlock {
 
   final List<FilterBlockDocIdSet> blockDocIdSets;
-  public OrBlockDocIdSet orBlockDocIdSet;
+  public FilterBlockDocIdSet orBlockDocIdSet;
 
   public OrBlock(List<FilterBlockDocIdSet> blockDocIdSets) {
     this.blockDocIdSets = blockDocIdSets;
@@ -48,7 +48,7 @@ public class OrBlock extends BaseFilterBlock {
 
   @Override
   public FilterBlockDocIdSet getFilteredBlockDocIdSet() {
-    orBlockDocIdSet = new OrBlockDocIdSet(blockDocIdSets);
+    orBlockDocIdSet = OrBlockDocIdSet.union(blockDocIdSets);
     return orBlockDocIdSet;
   }
 
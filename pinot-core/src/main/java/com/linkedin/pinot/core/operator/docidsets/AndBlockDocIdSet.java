@@ -15,44 +15,65 @@
  */
 package com.linkedin.pinot.core.operator.docidsets;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
-import com.linkedin.pinot.core.operator.filter.AndOperator;
+import com.linkedin.pinot.core.operator.filter.utils.BitmapUtils;
 
 
+/**
+ * Intersection of doc id sets, evaluated cheapest first:
+ * <ul>
+ *   <li>the bitmap backed sets are intersected natively into one bitmap,</li>
+ *   <li>that bitmap and the other index based sets are leapfrogged to find candidate docs,</li>
+ *   <li>the scan based sets, in the order the filter planner put them, only check the candidate docs instead of
+ *   scanning the rows in between.</li>
+ * </ul>
+ * When there are no index based sets, the first scan based set produces the candidates.
+ */
 public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
-  /**
-   * 
-   */
-  private final BlockDocIdIterator[] docIdIterators;
-  private final int[] docIdPointers;
-  private static final Logger LOGGER = LoggerFactory.getLogger(AndOperator.class);
-  boolean reachedEnd = false;
-  int currentDocId = -1;
-  public final AtomicLong timeMeasure = new AtomicLong(0);
-  private List<FilterBlockDocIdSet> blockDocIdSets;
+  private final List<FilterBlockDocIdSet> blockDocIdSets;
+  private final List<FilterBlockDocIdSet> bitmapDocIdSets = new ArrayList<FilterBlockDocIdSet>();
+  private final List<FilterBlockDocIdSet> otherDocIdSets = new ArrayList<FilterBlockDocIdSet>();
+  private BitmapDocIdSet intersectedBitmapDocIdSet;
+  private BlockDocIdIterator iterator;
   private int minDocId = Integer.MIN_VALUE;
   private int maxDocId = Integer.MAX_VALUE;
 
   public AndBlockDocIdSet(List<FilterBlockDocIdSet> blockDocIdSets) {
     this.blockDocIdSets = blockDocIdSets;
-    final int[] docIdPointers = new int[blockDocIdSets.size()];
-    final BlockDocIdIterator[] docIdIterators = new BlockDocIdIterator[blockDocIdSets.size()];
-    for (int srcId = 0; srcId < blockDocIdSets.size(); srcId++) {
-      docIdIterators[srcId] = blockDocIdSets.get(srcId).iterator();
+    for (FilterBlockDocIdSet blockDocIdSet : blockDocIdSets) {
+      if (blockDocIdSet instanceof BitmapDocIdSet) {
+        bitmapDocIdSets.add(blockDocIdSet);
+      } else {
+        otherDocIdSets.add(blockDocIdSet);
+      }
     }
-    Arrays.fill(docIdPointers, -1);
-    this.docIdIterators = docIdIterators;
-    this.docIdPointers = docIdPointers;
     updateMinMaxRange();
+    if (!bitmapDocIdSets.isEmpty()) {
+      ImmutableRoaringBitmap[] bitmaps = new ImmutableRoaringBitmap[bitmapDocIdSets.size()];
+      for (int i = 0; i < bitmaps.length; i++) {
+        bitmaps[i] = ((BitmapDocIdSet) bitmapDocIdSets.get(i)).getBitmap();
+      }
+      intersectedBitmapDocIdSet = new BitmapDocIdSet(minDocId, maxDocId, BitmapUtils.fastBitmapsAnd(bitmaps));
+    }
+  }
+
+  /**
+   * Returns the intersection as a single bitmap backed set when all the given sets are bitmap backed, so that an
+   * enclosing filter can keep combining it natively.
+   */
+  public static FilterBlockDocIdSet intersect(List<FilterBlockDocIdSet> blockDocIdSets) {
+    AndBlockDocIdSet andBlockDocIdSet = new AndBlockDocIdSet(blockDocIdSets);
+    if (andBlockDocIdSet.otherDocIdSets.isEmpty() && andBlockDocIdSet.intersectedBitmapDocIdSet != null) {
+      return andBlockDocIdSet.intersectedBitmapDocIdSet;
+    }
+    return andBlockDocIdSet;
   }
 
   private void updateMinMaxRange() {
@@ -64,66 +85,102 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
       blockDocIdSet.setStartDocId(minDocId);
       blockDocIdSet.setEndDocId(maxDocId);
     }
+    if (intersectedBitmapDocIdSet != null) {
+      intersectedBitmapDocIdSet.setStartDocId(minDocId);
+      intersectedBitmapDocIdSet.setEndDocId(maxDocId);
+    }
   }
 
   @Override
   public BlockDocIdIterator iterator() {
-    return new BlockDocIdIterator() {
-      int currentMax = -1;
-
-      @Override
-      public int advance(int targetDocId) {
-        if (currentDocId == Constants.EOF) {
-          return currentDocId;
-        }
-        if (currentDocId >= targetDocId) {
-          return currentDocId;
+    if (iterator == null) {
+      List<BlockDocIdIterator> indexBasedIterators = new ArrayList<BlockDocIdIterator>();
+      List<ScanBasedDocIdIterator> scanBasedIterators = new ArrayList<ScanBasedDocIdIterator>();
+      if (intersectedBitmapDocIdSet != null) {
+        indexBasedIterators.add(intersectedBitmapDocIdSet.iterator());
+      }
+      for (FilterBlockDocIdSet blockDocIdSet : otherDocIdSets) {
+        BlockDocIdIterator docIdIterator = blockDocIdSet.iterator();
+        if (docIdIterator instanceof ScanBasedDocIdIterator) {
+          scanBasedIterators.add((ScanBasedDocIdIterator) docIdIterator);
+        } else {
+          indexBasedIterators.add(docIdIterator);
         }
-        // next() method will always increment currentMax by 1.
-        currentMax = targetDocId - 1;
-        return next();
       }
+      if (indexBasedIterators.isEmpty()) {
+        indexBasedIterators.add(scanBasedIterators.remove(0));
+      }
+      iterator = new AndBlockDocIdIterator(indexBasedIterators.toArray(new BlockDocIdIterator[indexBasedIterators.size()]),
+          scanBasedIterators.toArray(new ScanBasedDocIdIterator[scanBasedIterators.size()]));
+    }
+    return iterator;
+  }
 
-      @Override
-      public int next() {
-        long start = System.currentTimeMillis();
-        if (currentDocId == Constants.EOF) {
-          return currentDocId;
-        }
-        currentMax = currentMax + 1;
-        //always increment the pointer to current max, when this is called first time, every one will be set to start of posting list.
-        for (int i = 0; i < docIdIterators.length; i++) {
-          docIdPointers[i] = docIdIterators[i].advance(currentMax);
-          if (docIdPointers[i] == Constants.EOF) {
-            reachedEnd = true;
-            currentMax = Constants.EOF;
-            break;
+  private static final class AndBlockDocIdIterator implements BlockDocIdIterator {
+    private final BlockDocIdIterator[] candidateIterators;
+    private final ScanBasedDocIdIterator[] scanBasedIterators;
+    private int currentDocId = -1;
+
+    AndBlockDocIdIterator(BlockDocIdIterator[] candidateIterators, ScanBasedDocIdIterator[] scanBasedIterators) {
+      this.candidateIterators = candidateIterators;
+      this.scanBasedIterators = scanBasedIterators;
+    }
+
+    @Override
+    public int advance(int targetDocId) {
+      if (currentDocId == Constants.EOF) {
+        return currentDocId;
+      }
+      if (currentDocId >= targetDocId) {
+        return currentDocId;
+      }
+      currentDocId = nextMatch(targetDocId);
+      return currentDocId;
+    }
+
+    @Override
+    public int next() {
+      if (currentDocId == Constants.EOF) {
+        return currentDocId;
+      }
+      currentDocId = nextMatch(currentDocId + 1);
+      return currentDocId;
+    }
+
+    private int nextMatch(int targetDocId) {
+      int candidateDocId = targetDocId;
+      while (true) {
+        // Leapfrog the candidate iterators until they all agree on a doc.
+        for (int i = 0; i < candidateIterators.length; i++) {
+          int docId = candidateIterators[i].advance(candidateDocId);
+          if (docId == Constants.EOF) {
+            return Constants.EOF;
           }
-          if (docIdPointers[i] > currentMax) {
-            currentMax = docIdPointers[i];
+          if (docId > candidateDocId) {
+            candidateDocId = docId;
             if (i > 0) {
               i = -1;
             }
-          } else if (docIdPointers[i] < currentMax) {
-            LOGGER.warn("Should never happen, {} returns docIdPointer : {} should always >= currentMax : {}", docIdIterators[i], docIdPointers[i], currentMax);
-            throw new IllegalStateException("Should never happen, docIdPointer should always >= currentMax");
           }
         }
-        currentDocId = currentMax;
-        long end = System.currentTimeMillis();
-        timeMeasure.addAndGet(end - start);
-        //Remove this after tracing is added
-//      if (currentDocId == Constants.EOF) {
-//        LOGGER.debug("AND operator took:" + timeMeasure.get());
-//      }
-        return currentDocId;
+        boolean isMatch = true;
+        for (ScanBasedDocIdIterator scanBasedIterator : scanBasedIterators) {
+          if (!scanBasedIterator.isMatch(candidateDocId)) {
+            isMatch = false;
+            break;
+          }
+        }
+        if (isMatch) {
+          return candidateDocId;
+        }
+        candidateDocId++;
       }
+    }
 
-      @Override
-      public int currentDocId() {
-        return currentDocId;
-      }
-    };
+    @Override
+    public int currentDocId() {
+      return currentDocId;
+    }
   }
 
   @SuppressWarnings("unchecked")
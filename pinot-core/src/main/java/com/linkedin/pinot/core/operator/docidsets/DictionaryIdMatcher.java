@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.docidsets;
+
+import java.util.Arrays;
+
+
+/**
+ * Tests dictionary ids read from a forward index against the dictionary ids matched by a predicate, without
+ * boxing. The implementation is picked from the shape of the matching ids: a single id (equality), a contiguous
+ * range of ids (range predicates on sorted dictionaries) or a bitset (arbitrary in/not in lists).
+ *
+ */
+public abstract class DictionaryIdMatcher {
+
+  public abstract boolean matches(int dictId);
+
+  /**
+   * Returns true if any of the first length values matches.
+   */
+  public boolean matchesAny(int[] dictIds, int length) {
+    for (int i = 0; i < length; i++) {
+      if (matches(dictIds[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param dictIds Matching dictionary ids, must not be empty
+   */
+  public static DictionaryIdMatcher create(int[] dictIds) {
+    if (dictIds.length == 1) {
+      return new SingleDictionaryIdMatcher(dictIds[0]);
+    }
+    int[] sortedDictIds = Arrays.copyOf(dictIds, dictIds.length);
+    Arrays.sort(sortedDictIds);
+    int min = sortedDictIds[0];
+    int max = sortedDictIds[sortedDictIds.length - 1];
+    if (min == max) {
+      return new SingleDictionaryIdMatcher(min);
+    }
+    boolean isContiguous = true;
+    for (int i = 1; i < sortedDictIds.length; i++) {
+      if (sortedDictIds[i] - sortedDictIds[i - 1] > 1) {
+        isContiguous = false;
+        break;
+      }
+    }
+    if (isContiguous) {
+      return new RangeDictionaryIdMatcher(min, max);
+    }
+    return new BitSetDictionaryIdMatcher(sortedDictIds);
+  }
+
+  public static final class SingleDictionaryIdMatcher extends DictionaryIdMatcher {
+    private final int _dictId;
+
+    public SingleDictionaryIdMatcher(int dictId) {
+      _dictId = dictId;
+    }
+
+    @Override
+    public boolean matches(int dictId) {
+      return dictId == _dictId;
+    }
+  }
+
+  /**
+   * Matches the dictionary ids in [min, max].
+   */
+  public static final class RangeDictionaryIdMatcher extends DictionaryIdMatcher {
+    private final int _min;
+    private final int _max;
+
+    public RangeDictionaryIdMatcher(int min, int max) {
+      _min = min;
+      _max = max;
+    }
+
+    @Override
+    public boolean matches(int dictId) {
+      return dictId >= _min && dictId <= _max;
+    }
+  }
+
+  public static final class BitSetDictionaryIdMatcher extends DictionaryIdMatcher {
+    private final long[] _words;
+
+    public BitSetDictionaryIdMatcher(int[] dictIds) {
+      int max = -1;
+      for (int dictId : dictIds) {
+        max = Math.max(max, dictId);
+      }
+      _words = new long[(max >>> 6) + 1];
+      for (int dictId : dictIds) {
+        _words[dictId >>> 6] |= 1L << dictId;
+      }
+    }
+
+    @Override
+    public boolean matches(int dictId) {
+      int wordIndex = dictId >>> 6;
+      return wordIndex < _words.length && (_words[wordIndex] & (1L << dictId)) != 0;
+    }
+  }
+}
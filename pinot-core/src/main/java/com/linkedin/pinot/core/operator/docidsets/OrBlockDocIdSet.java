@@ -15,36 +15,56 @@
  */
 package com.linkedin.pinot.core.operator.docidsets;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.concurrent.atomic.AtomicLong;
 
-import com.linkedin.pinot.common.utils.Pairs;
-import com.linkedin.pinot.common.utils.Pairs.IntPair;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
 
 
+/**
+ * Union of doc id sets. The bitmap backed sets are unioned natively into one bitmap, the remaining sets are merged
+ * by always returning the smallest current doc id among their iterators.
+ */
 public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
-  /**
-   * 
-   */
-  private final BlockDocIdIterator[] docIdIterators;
-  final public AtomicLong timeMeasure = new AtomicLong(0);
-  private List<FilterBlockDocIdSet> docIdSets;
+  private final List<FilterBlockDocIdSet> docIdSets;
+  private final List<FilterBlockDocIdSet> iteratedDocIdSets = new ArrayList<FilterBlockDocIdSet>();
+  private BitmapDocIdSet unionedBitmapDocIdSet;
   private int maxDocId = Integer.MIN_VALUE;
   private int minDocId = Integer.MAX_VALUE;
 
   public OrBlockDocIdSet(List<FilterBlockDocIdSet> blockDocIdSets) {
     this.docIdSets = blockDocIdSets;
-    final BlockDocIdIterator[] docIdIterators = new BlockDocIdIterator[blockDocIdSets.size()];
-    for (int srcId = 0; srcId < blockDocIdSets.size(); srcId++) {
-      docIdIterators[srcId] = blockDocIdSets.get(srcId).iterator();
+    List<ImmutableRoaringBitmap> bitmaps = new ArrayList<ImmutableRoaringBitmap>();
+    for (FilterBlockDocIdSet blockDocIdSet : blockDocIdSets) {
+      if (blockDocIdSet instanceof BitmapDocIdSet) {
+        bitmaps.add(((BitmapDocIdSet) blockDocIdSet).getBitmap());
+      } else {
+        iteratedDocIdSets.add(blockDocIdSet);
+      }
     }
-    this.docIdIterators = docIdIterators;
     updateMinMaxRange();
+    if (!bitmaps.isEmpty()) {
+      unionedBitmapDocIdSet =
+          new BitmapDocIdSet(minDocId, maxDocId, bitmaps.toArray(new ImmutableRoaringBitmap[bitmaps.size()]));
+      iteratedDocIdSets.add(0, unionedBitmapDocIdSet);
+    }
+  }
+
+  /**
+   * Returns the union as a single bitmap backed set when all the given sets are bitmap backed, so that an enclosing
+   * filter can keep combining it natively.
+   */
+  public static FilterBlockDocIdSet union(List<FilterBlockDocIdSet> blockDocIdSets) {
+    OrBlockDocIdSet orBlockDocIdSet = new OrBlockDocIdSet(blockDocIdSets);
+    if (orBlockDocIdSet.iteratedDocIdSets.size() == 1 && orBlockDocIdSet.unionedBitmapDocIdSet != null) {
+      return orBlockDocIdSet.unionedBitmapDocIdSet;
+    }
+    return orBlockDocIdSet;
   }
 
   private void updateMinMaxRange() {
@@ -56,6 +76,10 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
       blockDocIdSet.setStartDocId(minDocId);
       blockDocIdSet.setEndDocId(maxDocId);
     }
+    if (unionedBitmapDocIdSet != null) {
+      unionedBitmapDocIdSet.setStartDocId(minDocId);
+      unionedBitmapDocIdSet.setEndDocId(maxDocId);
+    }
   }
 
   @Override
@@ -70,11 +94,14 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
 
   @Override
   public BlockDocIdIterator iterator() {
+    final BlockDocIdIterator[] docIdIterators = new BlockDocIdIterator[iteratedDocIdSets.size()];
+    for (int i = 0; i < docIdIterators.length; i++) {
+      docIdIterators[i] = iteratedDocIdSets.get(i).iterator();
+    }
 
     return new BlockDocIdIterator() {
-      final PriorityQueue<IntPair> queue = new PriorityQueue<IntPair>(docIdIterators.length,
-          new Pairs.AscendingIntPairComparator());
-      final boolean[] iteratorIsInQueue = new boolean[docIdIterators.length];
+      // Current doc id of each iterator, EOF once the iterator is exhausted.
+      final int[] docIds = initDocIds(docIdIterators.length);
       int currentDocId = -1;
 
       @Override
@@ -88,80 +115,37 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
           currentDocId = Constants.EOF;
           return currentDocId;
         }
-        long start = System.nanoTime();
-
-        // Remove iterators that are before the target document id from the queue
-        Iterator<IntPair> iterator = queue.iterator();
-        while (iterator.hasNext()) {
-          IntPair pair = iterator.next();
-          if (pair.getA() < targetDocId) {
-            iterator.remove();
-            iteratorIsInQueue[pair.getB()] = false;
-          }
+        if (currentDocId >= targetDocId) {
+          return currentDocId;
         }
 
-        // Advance all iterators that are not in the queue to the target document id
+        int minDocId = Constants.EOF;
         for (int i = 0; i < docIdIterators.length; i++) {
-          if (!iteratorIsInQueue[i]) {
-            int nextDocId = docIdIterators[i].advance(targetDocId);
-            if (nextDocId != Constants.EOF) {
-              queue.add(new IntPair(nextDocId, i));
+          int docId = docIds[i];
+          if (docId == Constants.EOF) {
+            continue;
+          }
+          if (docId < targetDocId) {
+            docId = docIdIterators[i].advance(targetDocId);
+            docIds[i] = docId;
+            if (docId == Constants.EOF) {
+              continue;
             }
-            iteratorIsInQueue[i] = true;
+          }
+          if (minDocId == Constants.EOF || docId < minDocId) {
+            minDocId = docId;
           }
         }
-
-        // Return the first element
-        if (queue.size() > 0) {
-          currentDocId = queue.peek().getA();
-        } else {
-          currentDocId = Constants.EOF;
-        }
-
-        long end = System.nanoTime();
-        timeMeasure.addAndGet(end - start);
+        currentDocId = minDocId;
         return currentDocId;
       }
 
       @Override
       public int next() {
-        long start = System.currentTimeMillis();
-
         if (currentDocId == Constants.EOF) {
           return currentDocId;
         }
-        while (queue.size() > 0 && queue.peek().getA() <= currentDocId) {
-          IntPair pair = queue.remove();
-          iteratorIsInQueue[pair.getB()] = false;
-        }
-        currentDocId++;
-        // Grab the next value from each iterator, if it's not in the queue
-        for (int i = 0; i < docIdIterators.length; i++) {
-          if (!iteratorIsInQueue[i]) {
-            int nextDocId = docIdIterators[i].advance(currentDocId);
-            if (nextDocId != Constants.EOF) {
-              if (!(nextDocId <= getMaxDocId() && nextDocId >= getMinDocId() && nextDocId >= currentDocId)) {
-                throw new RuntimeException("next Doc : " + nextDocId + " should never crossing the range : [ " + getMinDocId() + ", " + getMaxDocId() + " ]");
-              }
-              queue.add(new IntPair(nextDocId, i));
-            }
-            iteratorIsInQueue[i] = true;
-          }
-        }
-
-        if (queue.size() > 0) {
-          currentDocId = queue.peek().getA();
-        } else {
-          currentDocId = Constants.EOF;
-        }
-        long end = System.currentTimeMillis();
-        timeMeasure.addAndGet(end - start);
-        //Remove this after tracing is added
-//      if (currentDocId == Constants.EOF) {
-//        LOGGER.debug("OR took:" + timeMeasure.get());
-//      }
-
-        return currentDocId;
+        return advance(currentDocId + 1);
       }
 
       @Override
@@ -171,6 +155,12 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
     };
   }
 
+  private static int[] initDocIds(int numIterators) {
+    int[] docIds = new int[numIterators];
+    Arrays.fill(docIds, -1);
+    return docIds;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public <T> T getRaw() {
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.docidsets;
+
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+
+
+/**
+ * Iterator of a doc id set that is evaluated by scanning the values of a column. Besides scanning forward, it can
+ * check single docs, so that an AND filter only evaluates it on the docs its other predicates already matched.
+ */
+public interface ScanBasedDocIdIterator extends BlockDocIdIterator {
+
+  /**
+   * Returns whether the given doc matches the predicate. Moves the underlying value iterator, so it is not to be mixed
+   * with {@link #next()} and {@link #advance(int)} on the same iterator.
+   *
+   * @param docId Doc id to check, within the start and end doc ids of the set
+   */
+  boolean isMatch(int docId);
+}
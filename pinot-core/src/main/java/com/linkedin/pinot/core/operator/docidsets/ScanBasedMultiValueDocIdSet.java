@@ -16,8 +16,6 @@
 package com.linkedin.pinot.core.operator.docidsets;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockMetadata;
@@ -69,26 +67,23 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
     return blockValSetBlockDocIdIterator;
   }
 
-  public static class BlockValSetBlockDocIdIterator implements BlockDocIdIterator {
+  public static class BlockValSetBlockDocIdIterator implements ScanBasedDocIdIterator {
     BlockMultiValIterator valueIterator;
     int currentDocId = -1;
-    private Set<Integer> dictIdSet;
+    private DictionaryIdMatcher dictIdMatcher;
     final int[] intArray;
     private int startDocId;
     private int endDocId;
 
     public BlockValSetBlockDocIdIterator(BlockValSet blockValSet, BlockMetadata blockMetadata, int[] dictIds) {
       if (dictIds.length > 0) {
-        this.dictIdSet = new HashSet<Integer>(dictIds.length);
-        for (int dictId : dictIds) {
-          dictIdSet.add(dictId);
-        }
+        this.dictIdMatcher = DictionaryIdMatcher.create(dictIds);
         this.intArray = new int[blockMetadata.getMaxNumberOfMultiValues()];
         Arrays.fill(intArray, 0);
         setStartDocId(blockMetadata.getStartDocId());
         setEndDocId(blockMetadata.getEndDocId());
       } else {
-        this.dictIdSet = null;
+        this.dictIdMatcher = null;
         this.intArray = new int[0];
         setStartDocId(Constants.EOF);
         setEndDocId(Constants.EOF);
@@ -137,17 +132,11 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
       if (currentDocId == Constants.EOF) {
         return currentDocId;
       }
+      final DictionaryIdMatcher matcher = dictIdMatcher;
       while (valueIterator.hasNext() && currentDocId <= endDocId) {
         currentDocId = currentDocId + 1;
         int length = valueIterator.nextIntVal(intArray);
-        boolean found = false;
-        for (int i = 0; i < length; i++) {
-          if (dictIdSet.contains(intArray[i])) {
-            found = true;
-            break;
-          }
-        }
-        if (found) {
+        if (matcher.matchesAny(intArray, length)) {
           return currentDocId;
         }
       }
@@ -155,6 +144,16 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
       return Constants.EOF;
     }
 
+    @Override
+    public boolean isMatch(int docId) {
+      if (dictIdMatcher == null) {
+        return false;
+      }
+      valueIterator.skipTo(docId);
+      int length = valueIterator.nextIntVal(intArray);
+      return dictIdMatcher.matchesAny(intArray, length);
+    }
+
     @Override
     public int currentDocId() {
       return currentDocId;
@@ -15,9 +15,6 @@
  */
 package com.linkedin.pinot.core.operator.docidsets;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockMetadata;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
@@ -66,24 +63,21 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
     return blockValSetBlockDocIdIterator;
   }
 
-  public static class BlockValSetBasedDocIdIterator implements BlockDocIdIterator {
+  public static class BlockValSetBasedDocIdIterator implements ScanBasedDocIdIterator {
     int currentDocId = -1;
     BlockSingleValIterator valueIterator;
-    private Set<Integer> dictIdSet;
+    private DictionaryIdMatcher dictIdMatcher;
     private int startDocId;
     private int endDocId;
 
     public BlockValSetBasedDocIdIterator(BlockValSet blockValSet, BlockMetadata blockMetadata, int[] dictIds) {
       if (dictIds.length < 1) {
-        this.dictIdSet = null;
+        this.dictIdMatcher = null;
         currentDocId = Constants.EOF;
         setStartDocId(Constants.EOF);
         setEndDocId(Constants.EOF);
       } else {
-        this.dictIdSet = new HashSet<Integer>(dictIds.length);
-        for (int dictId : dictIds) {
-          dictIdSet.add(dictId);
-        }
+        this.dictIdMatcher = DictionaryIdMatcher.create(dictIds);
         setStartDocId(blockMetadata.getStartDocId());
         setEndDocId(blockMetadata.getEndDocId());
       }
@@ -130,10 +124,10 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
       if (currentDocId == Constants.EOF) {
         return currentDocId;
       }
+      final DictionaryIdMatcher matcher = dictIdMatcher;
       while (valueIterator.hasNext() && currentDocId <= endDocId) {
         currentDocId = currentDocId + 1;
-        int dictIdForCurrentDoc = valueIterator.nextIntVal();
-        if (dictIdSet.contains(dictIdForCurrentDoc)) {
+        if (matcher.matches(valueIterator.nextIntVal())) {
           return currentDocId;
         }
       }
@@ -141,6 +135,15 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
       return Constants.EOF;
     }
 
+    @Override
+    public boolean isMatch(int docId) {
+      if (dictIdMatcher == null) {
+        return false;
+      }
+      valueIterator.skipTo(docId);
+      return dictIdMatcher.matches(valueIterator.nextIntVal());
+    }
+
     @Override
     public int currentDocId() {
       return currentDocId;
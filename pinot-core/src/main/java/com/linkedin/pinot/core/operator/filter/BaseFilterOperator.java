@@ -20,6 +20,9 @@ import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.common.Predicate;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
 /**
@@ -30,6 +33,7 @@ public abstract class BaseFilterOperator implements Operator {
 
   private FilterResultBlock resultBlock;
   private Predicate predicate;
+  private PredicateEvaluator predicateEvaluator;
   private int nextBlockCallCounter = 0;
 
   public void setInputBlock(FilterResultBlock block) {
@@ -48,6 +52,24 @@ public abstract class BaseFilterOperator implements Operator {
     return predicate;
   }
 
+  /**
+   * Sets an evaluator that was already built for the predicate during planning, so that it is not built twice.
+   * Only valid while the dictionary it was built against does not change.
+   */
+  public void setPredicateEvaluator(PredicateEvaluator predicateEvaluator) {
+    this.predicateEvaluator = predicateEvaluator;
+  }
+
+  /**
+   * Returns the evaluator set during planning, or builds one for the predicate against the given dictionary.
+   */
+  protected PredicateEvaluator getPredicateEvaluator(Dictionary dictionary) {
+    if (predicateEvaluator == null) {
+      predicateEvaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
+    }
+    return predicateEvaluator;
+  }
+
   @Override
   public final BaseFilterBlock nextBlock() {
     return nextBlock(new BlockId(0));
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import com.linkedin.pinot.core.common.BaseFilterBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.operator.filter.BitmapBasedFilterOperator.BitmapBlock;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.segment.index.RangeIndexReader;
+
+
+/**
+ * Filter operator for range predicates on columns with a range index. The matching dictionary ids of a range
+ * predicate are contiguous since dictionaries are sorted, so the range index resolves them with a few bitmap
+ * operations instead of unioning one inverted index bitmap per dictionary id.
+ */
+public class RangeIndexBasedFilterOperator extends BaseFilterOperator {
+  private final DataSource dataSource;
+
+  public RangeIndexBasedFilterOperator(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public boolean open() {
+    return true;
+  }
+
+  @Override
+  public BaseFilterBlock nextFilterBlock(BlockId BlockId) {
+    RangeIndexReader rangeIndex = dataSource.getRangeIndex();
+    Block dataSourceBlock = dataSource.nextBlock();
+    PredicateEvaluator evaluator = getPredicateEvaluator(dataSource.getDictionary());
+    int[] dictionaryIds = evaluator.getDictionaryIds();
+    ImmutableRoaringBitmap bitmap;
+    if (dictionaryIds.length == 0) {
+      bitmap = new MutableRoaringBitmap();
+    } else {
+      bitmap = rangeIndex.getMatchingDocIds(dictionaryIds[0], dictionaryIds[dictionaryIds.length - 1]);
+    }
+    return new BitmapBlock(dataSourceBlock.getMetadata(), new ImmutableRoaringBitmap[] { bitmap });
+  }
+
+  @Override
+  public boolean close() {
+    return true;
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter.predicate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+import com.linkedin.pinot.core.common.predicate.RegexPredicate;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
+
+
+/**
+ * Evaluates a regex predicate once per distinct value of the dictionary, instead of once per doc.
+ *
+ * When the regex starts with a literal prefix, only the values of a string dictionary having that prefix are matched,
+ * found by binary search on the values the dictionary is sorted on (padded ones for the padded format); a regex that
+ * is just a prefix followed by ".*" (e.g. from LIKE 'abc%') matches them all without evaluating the regex. The
+ * matching ids of immutable dictionaries are cached per dictionary and regex, since segments keep being queried with
+ * the same patterns.
+ */
+public class RegexPredicateEvaluator extends AbstractPredicateEvaluator {
+  private static final int MAX_CACHED_REGEXES_PER_DICTIONARY = 64;
+  private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+  private static final Map<Dictionary, Map<String, int[]>> MATCHING_IDS_CACHE =
+      Collections.synchronizedMap(new WeakHashMap<Dictionary, Map<String, int[]>>());
+
+  public RegexPredicateEvaluator(RegexPredicate predicate, Dictionary dictionary) {
+    final String regex = predicate.getRegex();
+    if (!(dictionary instanceof ImmutableDictionaryReader)) {
+      // Realtime dictionaries keep growing, so their matching ids cannot be cached
+      matchingIds = getMatchingIds(regex, dictionary);
+      return;
+    }
+
+    Map<String, int[]> cachedMatchingIds;
+    synchronized (MATCHING_IDS_CACHE) {
+      cachedMatchingIds = MATCHING_IDS_CACHE.get(dictionary);
+      if (cachedMatchingIds == null) {
+        cachedMatchingIds = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size() > MAX_CACHED_REGEXES_PER_DICTIONARY;
+          }
+        };
+        MATCHING_IDS_CACHE.put(dictionary, cachedMatchingIds);
+      }
+    }
+    int[] ids;
+    synchronized (cachedMatchingIds) {
+      ids = cachedMatchingIds.get(regex);
+    }
+    if (ids == null) {
+      ids = getMatchingIds(regex, dictionary);
+      synchronized (cachedMatchingIds) {
+        cachedMatchingIds.put(regex, ids);
+      }
+    }
+    matchingIds = ids;
+  }
+
+  private static int[] getMatchingIds(String regex, Dictionary dictionary) {
+    final Pattern pattern = Pattern.compile(regex);
+    int start = 0;
+    int end = dictionary.length();
+    boolean isPrefixOnly = false;
+
+    final String prefix = getLiteralPrefix(regex);
+    if (!prefix.isEmpty() && dictionary instanceof VarLengthStringDictionary) {
+      // The values having the prefix follow its insertion point
+      final int index = dictionary.indexOf(prefix);
+      start = index >= 0 ? index : -index - 1;
+      end = prefixUpperBound(dictionary, prefix, start);
+      isPrefixOnly = regex.equals(quote(prefix) + ".*") || regex.equals(prefix + ".*");
+    } else if (!prefix.isEmpty() && dictionary instanceof StringDictionary) {
+      start = lowerBound(dictionary, prefix);
+      end = prefixUpperBound(dictionary, prefix, start);
+      // A prefix with the padding character also matches the padding of shorter values
+      isPrefixOnly = prefix.indexOf(V1Constants.Str.STRING_PAD_CHAR) < 0
+          && (regex.equals(quote(prefix) + ".*") || regex.equals(prefix + ".*"));
+    }
+
+    int[] ids = new int[end - start];
+    int numIds = 0;
+    for (int dictId = start; dictId < end; dictId++) {
+      if (isPrefixOnly || pattern.matcher(getValue(dictionary, dictId)).matches()) {
+        ids[numIds++] = dictId;
+      }
+    }
+    if (numIds < ids.length) {
+      int[] matchingIds = new int[numIds];
+      System.arraycopy(ids, 0, matchingIds, 0, numIds);
+      return matchingIds;
+    }
+    return ids;
+  }
+
+  private static String getValue(Dictionary dictionary, int dictId) {
+    return String.valueOf(dictionary.get(dictId));
+  }
+
+  /**
+   * Returns the value the string dictionary is sorted on: the value itself for the variable length format, the value
+   * padded to the longest one for the padded format. Padded values are not in order themselves ("new york city" comes
+   * before "new%%%%%%%%%%"), but in either format the ones having a prefix are contiguous.
+   */
+  private static String getSortedValue(Dictionary dictionary, int dictId) {
+    return dictionary.getStringValue(dictId);
+  }
+
+  /**
+   * Returns the first dictionary id whose padded value is not less than the given one.
+   */
+  private static int lowerBound(Dictionary dictionary, String value) {
+    int low = 0;
+    int high = dictionary.length();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (getSortedValue(dictionary, mid).compareTo(value) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the first dictionary id from start on whose sorted value does not start with the prefix. The values having
+   * the prefix are contiguous in the dictionary and start at the lower bound of the prefix.
+   */
+  private static int prefixUpperBound(Dictionary dictionary, String prefix, int start) {
+    int low = start;
+    int high = dictionary.length();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (getSortedValue(dictionary, mid).startsWith(prefix)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the literal text every value matched by the regex starts with, or an empty string if there is none or the
+   * regex is too complex to tell (e.g. it has alternations).
+   */
+  static String getLiteralPrefix(String regex) {
+    if (regex.indexOf('|') >= 0) {
+      return "";
+    }
+    final StringBuilder prefix = new StringBuilder();
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      int next;
+      if (c == '\\') {
+        if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+          // Character classes like \d and escapes like \Q are not literals
+          break;
+        }
+        c = regex.charAt(i + 1);
+        next = i + 2;
+      } else if (META_CHARACTERS.indexOf(c) >= 0) {
+        break;
+      } else {
+        next = i + 1;
+      }
+      if (next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0) {
+        // The character is optional or repeated, so it cannot be part of the prefix
+        break;
+      }
+      prefix.append(c);
+      i = next;
+    }
+    return prefix.toString();
+  }
+
+  private static String quote(String literal) {
+    final StringBuilder quoted = new StringBuilder();
+    for (int i = 0; i < literal.length(); i++) {
+      char c = literal.charAt(i);
+      if (META_CHARACTERS.indexOf(c) >= 0) {
+        quoted.append('\\');
+      }
+      quoted.append(c);
+    }
+    return quoted.toString();
+  }
+}
@@ -35,9 +35,11 @@ public class BitmapUtils {
     long start = System.currentTimeMillis();
     MutableRoaringBitmap answer;
 
-    if (bitmaps.length == 1) {
+    if (bitmaps.length == 0) {
       answer = new MutableRoaringBitmap();
-      answer.and(bitmaps[0]);
+    } else if (bitmaps.length == 1) {
+      answer = new MutableRoaringBitmap();
+      answer.or(bitmaps[0]);
     } else if (bitmaps.length == 2) {
       answer = ImmutableRoaringBitmap.and(bitmaps[0], bitmaps[1]);
     } else {
@@ -52,9 +54,9 @@ public class BitmapUtils {
           return bitmaps[o1].getSizeInBytes() - bitmaps[o2].getSizeInBytes();
         }
       });
-      answer = ImmutableRoaringBitmap.and(bitmaps[0], bitmaps[1]);
-      for (int srcId = 2; srcId < bitmaps.length; srcId++) {
-        answer.and(bitmaps[srcId]);
+      answer = ImmutableRoaringBitmap.and(bitmaps[array[0]], bitmaps[array[1]]);
+      for (int i = 2; i < array.length && answer.getCardinality() > 0; i++) {
+        answer.and(bitmaps[array[i]]);
       }
     }
     boolean validate = false;
@@ -70,7 +72,7 @@ public class BitmapUtils {
       }
     }
     long end = System.currentTimeMillis();
-    LOGGER.info("And operator took: " + (end - start));
+    LOGGER.debug("And operator took: {}", (end - start));
 
     return answer;
   }
@@ -78,7 +80,9 @@ public class BitmapUtils {
   public static MutableRoaringBitmap fastBitmapOr(final ImmutableRoaringBitmap[] bitmaps) {
     long start = System.currentTimeMillis();
     MutableRoaringBitmap answer;
-    if (bitmaps.length == 1) {
+    if (bitmaps.length == 0) {
+      answer = new MutableRoaringBitmap();
+    } else if (bitmaps.length == 1) {
       answer = new MutableRoaringBitmap();
       answer.or(bitmaps[0]);
     } else if (bitmaps.length == 2) {
@@ -114,7 +118,7 @@ public class BitmapUtils {
     }
     long end = System.currentTimeMillis();
 
-    LOGGER.info("time taken for fast Or : " + (end - start));
+    LOGGER.debug("time taken for fast Or : {}", (end - start));
     return answer;
   }
 
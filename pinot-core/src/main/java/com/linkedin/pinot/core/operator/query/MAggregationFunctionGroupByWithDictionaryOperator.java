@@ -18,8 +18,7 @@ package com.linkedin.pinot.core.operator.query;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
 
 import com.linkedin.pinot.common.request.AggregationInfo;
@@ -28,8 +27,6 @@ import com.linkedin.pinot.core.block.query.ProjectionBlock;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockId;
-import com.linkedin.pinot.core.common.BlockMultiValIterator;
-import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.BlockValIterator;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Constants;
@@ -37,8 +34,10 @@ import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
-import com.linkedin.pinot.core.query.aggregation.groupby.BitHacks;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByAccumulator;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupIdGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.MultiValueGroupKeyGenerator;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 
@@ -48,43 +47,81 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
  * it creates a long value as group key instead of a String.
  * This will make the algorithm performs better.
  *
+ * The group key is the mixed radix number formed by the dictionary ids of the group by columns, so the number
+ * of possible keys is the product of the column cardinalities. For count/sum/min/max/avg, results are aggregated
+ * into primitive arrays indexed by group id (see {@link GroupByAccumulator} and {@link GroupIdGenerator});
+ * other functions go through the generic, boxed {@link com.linkedin.pinot.core.query.aggregation.AggregationFunction}
+ * interface.
+ *
  * GetAggregationGroupByResult will return the results.
  *
  *
  */
 public class MAggregationFunctionGroupByWithDictionaryOperator extends AggregationFunctionGroupByOperator {
 
-  private int[] _groupKeyBitSize;
+  private final int[] _cardinalities;
   private final String[] _stringArray;
 
   private final Dictionary[] _dictionaries;
   private final BlockValIterator[] _groupByBlockValIterators;
+  private final MultiValueGroupKeyGenerator _multiValueGroupKeyGenerator;
+
+  // Primitive path, null if the aggregation function has no primitive accumulator
+  private final GroupByAccumulator _accumulator;
+  private final GroupIdGenerator _groupIdGenerator;
+  private int[] _groupIdBuffer = new int[16];
+
+  // Buffers for the bulk read of single value group by columns
+  private int[] _dictIdBuffer = new int[0];
+  private long[] _groupKeyBuffer = new long[0];
 
-  private final Long2ObjectOpenHashMap<Serializable> _tempAggregationResults =
-      new Long2ObjectOpenHashMap<Serializable>();
+  // Generic path
+  private final Long2ObjectOpenHashMap<Serializable> _tempAggregationResults;
 
   public MAggregationFunctionGroupByWithDictionaryOperator(AggregationInfo aggregationInfo, GroupBy groupBy,
       Operator projectionOperator, boolean hasDictionary) {
     super(aggregationInfo, groupBy, projectionOperator, hasDictionary);
     _dictionaries = new Dictionary[_groupBy.getColumnsSize()];
     _groupByBlockValIterators = new BlockValIterator[_groupBy.getColumnsSize()];
-    setGroupKeyOffset();
-    _stringArray = new String[_groupKeyBitSize.length];
+    _cardinalities = new int[_groupBy.getColumnsSize()];
+    long maxNumGroupKeys = initCardinalities();
+    _stringArray = new String[_cardinalities.length];
+    _multiValueGroupKeyGenerator = _isGroupByColumnsContainMultiValueColumn ? createMultiValueGroupKeyGenerator() : null;
+
+    _accumulator = GroupByAccumulator.create(_aggregationFunction, _aggregationFunctionBlocks);
+    if (_accumulator != null) {
+      _groupIdGenerator = new GroupIdGenerator(maxNumGroupKeys);
+      _tempAggregationResults = null;
+    } else {
+      _groupIdGenerator = null;
+      _tempAggregationResults = new Long2ObjectOpenHashMap<Serializable>();
+    }
   }
 
-  private void setGroupKeyOffset() {
+  /**
+   * Returns the number of possible group keys.
+   */
+  private long initCardinalities() {
+    long maxNumGroupKeys = 1L;
     for (int i = 0; i < _groupBy.getColumnsSize(); ++i) {
       _dictionaries[i] = _groupByBlocks[i].getMetadata().getDictionary();
+      _cardinalities[i] = Math.max(_dictionaries[i].length(), 1);
+      if (maxNumGroupKeys > Long.MAX_VALUE / _cardinalities[i]) {
+        throw new IllegalArgumentException("Too many columns for an efficient group by");
+      }
+      maxNumGroupKeys *= _cardinalities[i];
     }
-    _groupKeyBitSize = new int[_groupBy.getColumnsSize()];
-    int totalBitSet = 0;
-    for (int i = 0; i < _groupBy.getColumnsSize(); i++) {
-      _groupKeyBitSize[i] = BitHacks.findLogBase2(_dictionaries[i].length()) + 1;
-      totalBitSet += _groupKeyBitSize[i];
-    }
-    if (totalBitSet > 64) {
-      throw new IllegalArgumentException("Too many columns for an efficient group by");
+    return maxNumGroupKeys;
+  }
+
+  private MultiValueGroupKeyGenerator createMultiValueGroupKeyGenerator() {
+    int[] maxNumMultiValues = new int[_cardinalities.length];
+    for (int i = 0; i < _cardinalities.length; ++i) {
+      if (!_isSingleValueGroupByColumn[i]) {
+        maxNumMultiValues[i] = _groupByBlocks[i].getMetadata().getMaxNumberOfMultiValues();
+      }
     }
+    return new MultiValueGroupKeyGenerator(_cardinalities, _isSingleValueGroupByColumn, maxNumMultiValues);
   }
 
   @Override
@@ -94,75 +131,86 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
       return null;
     }
     DocIdSetBlock docIdSetBlock = (DocIdSetBlock) block.getDocIdSetBlock();
-    BlockDocIdIterator blockDocIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
-    int docId = 0;
 
+    if (!_isGroupByColumnsContainMultiValueColumn) {
+      aggregateSingleValueGroupBy(block, docIdSetBlock.getDocIdSet(), docIdSetBlock.getSearchableLength());
+      return null;
+    }
+
+    BlockDocIdIterator blockDocIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
     for (int i = 0; i < _groupBy.getColumnsSize(); ++i) {
       _groupByBlockValIterators[i] = block.getBlock(_groupBy.getColumns().get(i)).getBlockValueSet().iterator();
     }
+    if (_accumulator != null) {
+      aggregateMultiValueGroupByPrimitive(blockDocIdIterator);
+      return null;
+    }
 
+    int docId;
     while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
-      if (!_isGroupByColumnsContainMultiValueColumn) {
-        final long groupKey = getGroupKey(docId);
+      int numGroupKeys = _multiValueGroupKeyGenerator.generateKeys(_groupByBlockValIterators, docId);
+      long[] groupKeys = _multiValueGroupKeyGenerator.getKeyBuffer();
+      for (int i = 0; i < numGroupKeys; i++) {
+        final long groupKey = groupKeys[i];
         _tempAggregationResults.put(groupKey,
             _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks));
-
-      } else {
-        for (long groupKey : getGroupKeys(docId)) {
-          _tempAggregationResults.put(groupKey,
-              _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks));
-        }
       }
     }
     return null;
   }
 
-  private Long[] getGroupKeys(int docId) {
-    List<Long> groupKeysList = new ArrayList<Long>();
-    groupKeysList.add(0L);
-    int i = 0;
-    for (final int element : _groupKeyBitSize) {
-      if (_isSingleValueGroupByColumn[i]) {
-        BlockSingleValIterator blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i];
-        blockValIterator.skipTo(docId);
-        int dictId = blockValIterator.nextIntVal();
-        for (int j = 0; j < groupKeysList.size(); ++j) {
-          groupKeysList.set(j, (groupKeysList.get(j) << element) | dictId);
-        }
-      } else {
-        BlockMultiValIterator blockValIterator = (BlockMultiValIterator) _groupByBlockValIterators[i];
-        blockValIterator.skipTo(docId);
-        final int maxValue = _groupByBlocks[i].getMetadata().getMaxNumberOfMultiValues();
-        final int[] entries = new int[maxValue];
-        int group = blockValIterator.nextIntVal(entries);
-        int originSize = groupKeysList.size();
-        for (int j = 0; j < group - 1; ++j) {
-          for (int k = 0; k < originSize; ++k) {
-            groupKeysList.add(groupKeysList.get(k));
-          }
-        }
-        for (int j = 0; j < group; ++j) {
-          for (int k = 0; k < originSize; ++k) {
-            groupKeysList.set(j * originSize + k, (groupKeysList.get(j * originSize + k) << element) | entries[j]);
-          }
-        }
+  /**
+   * Reads the group by columns for the whole block at once, then aggregates.
+   */
+  private void aggregateSingleValueGroupBy(ProjectionBlock block, int[] docIds, int length) {
+    if (_groupKeyBuffer.length < length) {
+      _groupKeyBuffer = new long[length];
+      _dictIdBuffer = new int[length];
+    }
+    final long[] groupKeys = _groupKeyBuffer;
+    final int[] dictIds = _dictIdBuffer;
+    Arrays.fill(groupKeys, 0, length, 0L);
+    for (int i = 0; i < _cardinalities.length; ++i) {
+      block.getBlock(_groupBy.getColumns().get(i)).getBlockValueSet().readIntValues(docIds, length, dictIds);
+      final long cardinality = _cardinalities[i];
+      for (int j = 0; j < length; j++) {
+        groupKeys[j] = groupKeys[j] * cardinality + dictIds[j];
       }
-      i++;
     }
-    return groupKeysList.toArray(new Long[0]);
+
+    if (_accumulator == null) {
+      for (int i = 0; i < length; i++) {
+        final long groupKey = groupKeys[i];
+        _tempAggregationResults.put(groupKey,
+            _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docIds[i], _aggregationFunctionBlocks));
+      }
+      return;
+    }
+
+    if (_groupIdBuffer.length < length) {
+      _groupIdBuffer = new int[length];
+    }
+    for (int i = 0; i < length; i++) {
+      _groupIdBuffer[i] = _groupIdGenerator.getGroupId(groupKeys[i]);
+    }
+    _accumulator.ensureCapacity(_groupIdGenerator.getNumGroupIds());
+    _accumulator.aggregate(docIds, _groupIdBuffer, length);
   }
 
-  private long getGroupKey(int docId) {
-    long ret = 0L;
-    int i = 0;
-    BlockSingleValIterator blockValIterator;
-    for (final int element : _groupKeyBitSize) {
-      blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i++];
-      blockValIterator.skipTo(docId);
-      ret = ret << element;
-      ret |= blockValIterator.nextIntVal();
-    }
-    return ret;
+  private void aggregateMultiValueGroupByPrimitive(BlockDocIdIterator blockDocIdIterator) {
+    int docId;
+    while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
+      int numGroupKeys = _multiValueGroupKeyGenerator.generateKeys(_groupByBlockValIterators, docId);
+      long[] groupKeys = _multiValueGroupKeyGenerator.getKeyBuffer();
+      if (_groupIdBuffer.length < numGroupKeys) {
+        _groupIdBuffer = new int[Math.max(numGroupKeys, _groupIdBuffer.length << 1)];
+      }
+      for (int i = 0; i < numGroupKeys; i++) {
+        _groupIdBuffer[i] = _groupIdGenerator.getGroupId(groupKeys[i]);
+      }
+      _accumulator.ensureCapacity(_groupIdGenerator.getNumGroupIds());
+      _accumulator.aggregate(docId, _groupIdBuffer, numGroupKeys);
+    }
   }
 
   @Override
@@ -174,6 +222,16 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
   @Override
   public Map<String, Serializable> getAggregationGroupByResult() {
     _aggregateGroupedValue.clear();
+    if (_accumulator != null) {
+      int numGroupIds = _groupIdGenerator.getNumGroupIds();
+      for (int groupId = 0; groupId < numGroupIds; groupId++) {
+        if (_groupIdGenerator.isGroupIdUsed(groupId)) {
+          _aggregateGroupedValue.put(decodeGroupedKeyFromLong(_groupIdGenerator.getGroupKey(groupId)),
+              _accumulator.getResult(groupId));
+        }
+      }
+      return _aggregateGroupedValue;
+    }
     for (final long key : _tempAggregationResults.keySet()) {
       _aggregateGroupedValue.put(decodeGroupedKeyFromLong(key), _tempAggregationResults.get(key));
     }
@@ -181,11 +239,11 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
   }
 
   private String decodeGroupedKeyFromLong(long key) {
-    int i = _groupKeyBitSize.length - 1;
+    int i = _cardinalities.length - 1;
     while (i >= 0) {
-      final long number = key & (-1L >>> (64 - _groupKeyBitSize[i]));
+      final long number = key % _cardinalities[i];
       _stringArray[i] = _dictionaries[i].get((int) number).toString();
-      key >>>= _groupKeyBitSize[i];
+      key /= _cardinalities[i];
       i--;
     }
 
@@ -18,6 +18,7 @@ package com.linkedin.pinot.core.operator.query;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +53,8 @@ public class MSelectionOnlyOperator implements Operator {
   private final String[] _selectionColumns;
   private final int _limitDocs;
   private final Collection<Serializable[]> _rowEvents;
+  // Rows collected for the query so far, by this operator alone unless shared through setNumRowsCollected().
+  private AtomicInteger _numRowsCollected = new AtomicInteger();
 
   public MSelectionOnlyOperator(IndexSegment indexSegment, Selection selection, Operator projectionOperator) {
     _indexSegment = indexSegment;
@@ -78,19 +81,18 @@ public class MSelectionOnlyOperator implements Operator {
 
     long numDocsScanned = 0;
     ProjectionBlock projectionBlock = null;
-    while ((projectionBlock = (ProjectionBlock) _projectionOperator.nextBlock()) != null) {
+    while (_numRowsCollected.get() < _limitDocs
+        && (projectionBlock = (ProjectionBlock) _projectionOperator.nextBlock()) != null) {
       int j = 0;
       for (int i = 0; i < _dataSchema.size(); ++i) {
         _blocks[j++] = projectionBlock.getBlock(_dataSchema.getColumnName(i));
       }
       BlockDocIdIterator blockDocIdIterator = projectionBlock.getDocIdSetBlock().getBlockDocIdSet().iterator();
       int docId;
-      while ((docId = blockDocIdIterator.next()) != Constants.EOF && _rowEvents.size() < _limitDocs) {
+      while (_numRowsCollected.get() < _limitDocs && (docId = blockDocIdIterator.next()) != Constants.EOF) {
         numDocsScanned++;
         _rowEvents.add(SelectionOperatorUtils.collectRowFromBlockValSets(docId, _blocks, _dataSchema));
-      }
-      if (_rowEvents.size() == _limitDocs) {
-        break;
+        _numRowsCollected.incrementAndGet();
       }
     }
 
@@ -106,6 +108,15 @@ public class MSelectionOnlyOperator implements Operator {
 
   }
 
+  /**
+   * Shares the count of collected rows with the selection only operators of the other segments of the query. As
+   * rows need no ordering, this operator stops scanning (or does not start) once the limit has been reached by all of
+   * them together.
+   */
+  public void setNumRowsCollected(AtomicInteger numRowsCollected) {
+    _numRowsCollected = numRowsCollected;
+  }
+
   @Override
   public Block nextBlock(BlockId BlockId) {
     throw new UnsupportedOperationException();
@@ -34,6 +34,7 @@ import com.linkedin.pinot.core.block.query.ProjectionBlock;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.QueryCancelledException;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.operator.DocIdSetBlock;
 import com.linkedin.pinot.core.query.selection.SelectionOperatorService;
@@ -103,7 +104,12 @@ public class MSelectionOrderByOperator implements Operator {
         _selectionOperatorService.iterateOnBlock(projectionBlock.getDocIdSetBlock().getBlockDocIdSet().iterator(),
             _blocks);
         numDocsScanned += ((DocIdSetBlock) (projectionBlock.getDocIdSetBlock())).getSearchableLength();
+        if (_selectionOperatorService.canTerminate()) {
+          break;
+        }
       }
+      // Column blocks cover the whole segment, so the rows of the top doc ids can be read from the last ones.
+      _selectionOperatorService.mergeToRowEventsSet(_blocks);
 
       final IntermediateResultsBlock resultBlock = new IntermediateResultsBlock();
       resultBlock.setSelectionResult(_selectionOperatorService.getRowEventsSet());
@@ -114,6 +120,9 @@ public class MSelectionOrderByOperator implements Operator {
       resultBlock.setTimeUsedMs(endTime - startTime);
       LOGGER.info("Time spent in MSelectionOperator:" + (endTime - startTime));
       return resultBlock;
+    } catch (QueryCancelledException e) {
+      // Not an error of this segment, the combine operator stops the query
+      throw e;
     } catch (Exception e) {
       LOGGER.warn("Caught exception while processing selection operator", e);
       final IntermediateResultsBlock resultBlock = new IntermediateResultsBlock();
@@ -17,7 +17,6 @@ package com.linkedin.pinot.core.plan;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.MCombineOperator;
@@ -42,12 +42,24 @@ public class CombinePlanNode implements PlanNode {
   private final BrokerRequest _brokerRequest;
   private final ExecutorService _executorService;
   private final long _timeOutMs;
+  private final int _numThreads;
+  private final ServerMetrics _serverMetrics;
 
   public CombinePlanNode(BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs) {
+    this(brokerRequest, executorService, timeOutMs, -1, null);
+  }
+
+  /**
+   * @param numThreads number of threads to process the segments with, or a non positive value for the default.
+   * @param serverMetrics used to report cancelled queries and segments, may be null.
+   */
+  public CombinePlanNode(BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs, int numThreads,
+      ServerMetrics serverMetrics) {
     _brokerRequest = brokerRequest;
     _executorService = executorService;
     _timeOutMs = timeOutMs;
-
+    _numThreads = numThreads;
+    _serverMetrics = serverMetrics;
   }
 
   public void addPlanNode(PlanNode planNode) {
@@ -68,14 +80,16 @@ public class CombinePlanNode implements PlanNode {
       }
     } else {
       final CountDownLatch latch = new CountDownLatch(_planNodeList.size());
-      final ConcurrentLinkedQueue<Operator> queue = new ConcurrentLinkedQueue<Operator>();
-      for (final PlanNode planNode : _planNodeList) {
+      // Keep the operators in plan order, the combine operator processes them in that order.
+      final Operator[] operators = new Operator[_planNodeList.size()];
+      for (int i = 0; i < _planNodeList.size(); i++) {
+        final int index = i;
+        final PlanNode planNode = _planNodeList.get(i);
         _executorService.execute(new Runnable() {
           @Override
           public void run() {
             try {
-              Operator operator = planNode.run();
-              queue.add(operator);
+              operators[index] = planNode.run();
             } catch (Exception e) {
               LOGGER.error("Getting exception when trying to run a planNode", e);
             } finally {
@@ -86,14 +100,18 @@ public class CombinePlanNode implements PlanNode {
       }
       try {
         latch.await(60, TimeUnit.SECONDS);
-        retOperators.addAll(queue);
+        for (Operator operator : operators) {
+          if (operator != null) {
+            retOperators.add(operator);
+          }
+        }
       } catch (InterruptedException e) {
         LOGGER.error("Interupted exception. Planning each segment took more than 60 seconds: ", e);
         throw new RuntimeException(QueryException.COMBINE_SEGMENT_PLAN_TIMEOUT_ERROR);
       }
     }
     MCombineOperator mCombineOperator =
-        new MCombineOperator(retOperators, _executorService, _timeOutMs, _brokerRequest);
+        new MCombineOperator(retOperators, _executorService, _timeOutMs, _numThreads, _brokerRequest, _serverMetrics);
     long end = System.currentTimeMillis();
     LOGGER.info("CombinePlanNode.run took: " + (end - start));
     return mCombineOperator;
@@ -45,14 +45,20 @@ import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
 import com.linkedin.pinot.core.operator.filter.BitmapBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.InvertedIndexBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.OrOperator;
+import com.linkedin.pinot.core.operator.filter.RangeIndexBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.ScanBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.SortedInvertedIndexBasedFilterOperator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
 public class FilterPlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(FilterPlanNode.class);
   private final BrokerRequest _brokerRequest;
   private final IndexSegment _segment;
+  // Estimated fraction of the docs matched by each leaf operator, used to order the children of AND/OR operators.
+  private final Map<Operator, Double> _selectivityMap = new HashMap<Operator, Double>();
 
   public FilterPlanNode(IndexSegment segment, BrokerRequest brokerRequest) {
     _segment = segment;
@@ -132,7 +138,10 @@ public class FilterPlanNode implements PlanNode {
       DataSourceMetadata dataSourceMetadata = ds.getDataSourceMetadata();
       BaseFilterOperator baseFilterOperator;
 
-      if (dataSourceMetadata.hasInvertedIndex()) {
+      if (filterType == FilterOperator.RANGE && ds.getRangeIndex() != null && !dataSourceMetadata.isSorted()) {
+        // A range index resolves any range with a few bitmap operations, instead of one bitmap per matching value
+        baseFilterOperator = new RangeIndexBasedFilterOperator(ds);
+      } else if (dataSourceMetadata.hasInvertedIndex()) {
         if (dataSourceMetadata.isSingleValue() && dataSourceMetadata.isSorted()) {
           //if the column is sorted use sorted inverted index based implementation
           baseFilterOperator = new SortedInvertedIndexBasedFilterOperator(ds);
@@ -144,13 +153,24 @@ public class FilterPlanNode implements PlanNode {
         baseFilterOperator = new ScanBasedFilterOperator(ds);
       }
       baseFilterOperator.setPredicate(predicate);
+      if (dataSourceMetadata.hasDictionary()) {
+        Dictionary dictionary = ds.getDictionary();
+        PredicateEvaluator evaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
+        int cardinality = dictionary.length();
+        _selectivityMap.put(baseFilterOperator,
+            cardinality > 0 ? (double) evaluator.getDictionaryIds().length / cardinality : 0.0);
+        // On realtime segments the data source only exposes docs indexed before it was fetched, and their values were
+        // added to the dictionary before that, so the evaluator built here still covers every doc the operator scans.
+        baseFilterOperator.setPredicateEvaluator(evaluator);
+      }
       ret = baseFilterOperator;
     }
     return ret;
   }
 
   /**
-   * Re orders operators, puts Sorted -> Inverted and then Raw scan. TODO: With Inverted, we can further optimize based on cardinality
+   * Re orders operators, puts Sorted -> Inverted and then Raw scan. Operators of the same kind are ordered by their
+   * estimated selectivity, so that the most selective predicates produce the candidate docs the others are checked on.
    * @param operators
    */
   private void reorder(List<Operator> operators) {
@@ -162,7 +182,8 @@ public class FilterPlanNode implements PlanNode {
         priority = 0;
       } else if (operator instanceof AndOperator) {
         priority = 1;
-      } else if (operator instanceof InvertedIndexBasedFilterOperator) {
+      } else if (operator instanceof BitmapBasedFilterOperator || operator instanceof RangeIndexBasedFilterOperator
+          || operator instanceof InvertedIndexBasedFilterOperator) {
         priority = 2;
       } else if (operator instanceof ScanBasedFilterOperator) {
         priority = 3;
@@ -175,12 +196,22 @@ public class FilterPlanNode implements PlanNode {
     Comparator<? super Operator> comparator = new Comparator<Operator>() {
       @Override
       public int compare(Operator o1, Operator o2) {
-        return Integer.compare(operatorPriorityMap.get(o1), operatorPriorityMap.get(o2));
+        int priority1 = operatorPriorityMap.get(o1);
+        int priority2 = operatorPriorityMap.get(o2);
+        if (priority1 != priority2) {
+          return priority1 < priority2 ? -1 : 1;
+        }
+        return Double.compare(getSelectivity(o1), getSelectivity(o2));
       }
     };
     Collections.sort(operators, comparator);
   }
 
+  private double getSelectivity(Operator operator) {
+    Double selectivity = _selectivityMap.get(operator);
+    return selectivity == null ? 1.0 : selectivity;
+  }
+
   @Override
   public void showTree(String prefix) {
     final String treeStructure =
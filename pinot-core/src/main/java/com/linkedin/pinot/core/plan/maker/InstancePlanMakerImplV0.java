@@ -31,6 +31,7 @@ import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 
 
 /**
@@ -77,4 +78,10 @@ public class InstancePlanMakerImplV0 implements PlanMaker {
     return new GlobalPlanImplV0(rootNode);
   }
 
+  @Override
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, QueryParallelismConfig queryParallelismConfig) {
+    return makeInterSegmentPlan(indexSegmentList, brokerRequest, executorService, timeOutMs);
+  }
+
 }
@@ -15,11 +15,14 @@
  */
 package com.linkedin.pinot.core.plan.maker;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
+import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode;
@@ -31,6 +34,7 @@ import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 import com.linkedin.pinot.core.query.aggregation.groupby.BitHacks;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 
@@ -42,6 +46,18 @@ import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
  *
  */
 public class InstancePlanMakerImplV2 implements PlanMaker {
+  private final ServerMetrics _serverMetrics;
+
+  public InstancePlanMakerImplV2() {
+    this(null);
+  }
+
+  /**
+   * @param serverMetrics used by the combine operator to report cancelled queries and segments, may be null.
+   */
+  public InstancePlanMakerImplV2(ServerMetrics serverMetrics) {
+    _serverMetrics = serverMetrics;
+  }
 
   @Override
   public PlanNode makeInnerSegmentPlan(IndexSegment indexSegment, BrokerRequest brokerRequest) {
@@ -79,11 +95,37 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
 
   @Override
   public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs) {
+    return makeInterSegmentPlan(indexSegmentList, brokerRequest, executorService, timeOutMs,
+        QueryParallelismConfig.DEFAULT);
+  }
+
+  @Override
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, QueryParallelismConfig queryParallelismConfig) {
+    // Plan the largest segments first: the combine threads take segments in plan order, so a big segment picked up
+    // last cannot hold up the whole query while the other threads sit idle. Consuming segments keep growing, so sort
+    // on a snapshot of the doc counts.
+    final int[] segmentNumDocs = new int[indexSegmentList.size()];
+    Integer[] segmentOrder = new Integer[indexSegmentList.size()];
+    long numDocs = 0;
+    for (int i = 0; i < segmentNumDocs.length; i++) {
+      segmentNumDocs[i] = indexSegmentList.get(i).getTotalDocs();
+      segmentOrder[i] = i;
+      numDocs += segmentNumDocs[i];
+    }
+    Arrays.sort(segmentOrder, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return (segmentNumDocs[o1] > segmentNumDocs[o2]) ? -1 : ((segmentNumDocs[o1] < segmentNumDocs[o2]) ? 1 : 0);
+      }
+    });
+
     final InstanceResponsePlanNode rootNode = new InstanceResponsePlanNode();
-    final CombinePlanNode combinePlanNode = new CombinePlanNode(brokerRequest, executorService, timeOutMs);
+    final CombinePlanNode combinePlanNode = new CombinePlanNode(brokerRequest, executorService, timeOutMs,
+        queryParallelismConfig.getNumThreads(indexSegmentList.size(), numDocs), _serverMetrics);
     rootNode.setPlanNode(combinePlanNode);
-    for (final IndexSegment indexSegment : indexSegmentList) {
-      combinePlanNode.addPlanNode(makeInnerSegmentPlan(indexSegment, brokerRequest));
+    for (final Integer segmentIndex : segmentOrder) {
+      combinePlanNode.addPlanNode(makeInnerSegmentPlan(indexSegmentList.get(segmentIndex), brokerRequest));
     }
     return new GlobalPlanImplV0(rootNode);
   }
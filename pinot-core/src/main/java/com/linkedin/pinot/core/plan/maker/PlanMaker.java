@@ -22,6 +22,7 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 
 
 public interface PlanMaker {
@@ -30,4 +31,7 @@ public interface PlanMaker {
 
   public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
       ExecutorService executorService, long timeOutMs);
+
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, QueryParallelismConfig queryParallelismConfig);
 }
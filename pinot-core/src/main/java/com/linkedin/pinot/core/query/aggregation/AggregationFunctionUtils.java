@@ -15,11 +15,17 @@
  */
 package com.linkedin.pinot.core.query.aggregation;
 
+import java.util.Arrays;
 import java.util.List;
 
+import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.utils.DataTableBuilder.DataSchema;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.operator.DocIdSetBlock;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
@@ -58,4 +64,57 @@ public class AggregationFunctionUtils {
     }
     return hasDictionary;
   }
+
+  /**
+   * Reads the values of a single value column with a dictionary for all documents of a doc id set block, in bulk.
+   * Null values are read as {@link Double#NaN}.
+   *
+   * The buffers grow to the largest block read and are reused for the next blocks, so a reader must not be shared
+   * between threads. Aggregation functions are created per operator and each own one.
+   *
+   * Multi value blocks do not support bulk reads and are rejected.
+   */
+  public static class DoubleValueReader {
+    private int[] _docIds = new int[0];
+    private int[] _dictIds = new int[0];
+    private double[] _values = new double[0];
+
+    /**
+     * Reads the values of the documents of the given block, returns their number. The values are at the
+     * beginning of {@link #getValues()}.
+     */
+    public int read(Block docIdSetBlock, Block valueBlock) {
+      Preconditions.checkArgument(valueBlock.getMetadata().isSingleValue(),
+          "Bulk reads are not supported on multi value columns");
+      int[] docIds;
+      int length;
+      if (docIdSetBlock instanceof DocIdSetBlock) {
+        docIds = ((DocIdSetBlock) docIdSetBlock).getDocIdSet();
+        length = ((DocIdSetBlock) docIdSetBlock).getSearchableLength();
+      } else {
+        docIds = _docIds;
+        length = 0;
+        BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
+        int docId;
+        while ((docId = docIdIterator.next()) != Constants.EOF) {
+          if (length == docIds.length) {
+            docIds = Arrays.copyOf(docIds, Math.max(length << 1, 1024));
+          }
+          docIds[length++] = docId;
+        }
+        _docIds = docIds;
+      }
+      if (_values.length < length) {
+        _dictIds = new int[length];
+        _values = new double[length];
+      }
+      valueBlock.getBlockValueSet().readIntValues(docIds, length, _dictIds);
+      valueBlock.getMetadata().getDictionary().readDoubleValues(_dictIds, length, _values);
+      return length;
+    }
+
+    public double[] getValues() {
+      return _values;
+    }
+  }
 }
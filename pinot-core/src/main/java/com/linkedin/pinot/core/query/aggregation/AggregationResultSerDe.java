@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Binary serializer for the intermediate results of an aggregation function, used to ship
+ * group-by results from server to broker without java serialization.
+ *
+ * Implementations must be stateless and are registered in {@link AggregationResultSerDeRegistry}
+ * under an id that is written on the wire, so the id of a serde must never change once released.
+ *
+ */
+public interface AggregationResultSerDe<T extends Serializable> {
+
+  /**
+   * Return the id written on the wire to identify this serde.
+   *
+   * @return serDeId
+   */
+  byte getId();
+
+  /**
+   * Append the given (non-null) intermediate result to the output.
+   *
+   * @param value
+   * @param out
+   * @throws IOException
+   */
+  void serialize(T value, DataOutputStream out) throws IOException;
+
+  /**
+   * Read one intermediate result from the buffer, advancing its position.
+   *
+   * @param buffer
+   * @return intermediate result
+   */
+  T deserialize(ByteBuffer buffer);
+}
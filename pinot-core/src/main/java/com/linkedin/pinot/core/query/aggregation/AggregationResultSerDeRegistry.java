@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction.AvgPair;
+import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.DistinctCountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MaxAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MinAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.SumAggregationFunction;
+
+
+/**
+ * Registry of binary serializers for aggregation intermediate results.
+ *
+ * Serializers are looked up by aggregation function class when writing (walking up the class hierarchy, so that
+ * e.g. the no-dictionary variants share the serializer of their parent), and by serde id when reading.
+ * Functions without a registered serializer fall back to java serialization.
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class AggregationResultSerDeRegistry {
+  public static final AggregationResultSerDe<Long> LONG_SERDE = new LongSerDe();
+  public static final AggregationResultSerDe<Double> DOUBLE_SERDE = new DoubleSerDe();
+  public static final AggregationResultSerDe<AvgPair> AVG_PAIR_SERDE = new AvgPairSerDe();
+  public static final AggregationResultSerDe<IntOpenHashSet> INT_SET_SERDE = new IntOpenHashSetSerDe();
+
+  private static Map<Class<? extends AggregationFunction>, AggregationResultSerDe> functionToSerDe =
+      new ConcurrentHashMap<Class<? extends AggregationFunction>, AggregationResultSerDe>();
+
+  private static Map<Byte, AggregationResultSerDe> idToSerDe = new ConcurrentHashMap<Byte, AggregationResultSerDe>();
+
+  static {
+    register(CountAggregationFunction.class, LONG_SERDE);
+    register(SumAggregationFunction.class, DOUBLE_SERDE);
+    register(MinAggregationFunction.class, DOUBLE_SERDE);
+    register(MaxAggregationFunction.class, DOUBLE_SERDE);
+    register(AvgAggregationFunction.class, AVG_PAIR_SERDE);
+    register(DistinctCountAggregationFunction.class, INT_SET_SERDE);
+  }
+
+  public static void register(Class<? extends AggregationFunction> aggregationFunction, AggregationResultSerDe serDe) {
+    AggregationResultSerDe existing = idToSerDe.get(serDe.getId());
+    if (existing != null && existing.getClass() != serDe.getClass()) {
+      throw new IllegalArgumentException("SerDe id " + serDe.getId() + " is already registered to "
+          + existing.getClass().getName());
+    }
+    idToSerDe.put(serDe.getId(), serDe);
+    functionToSerDe.put(aggregationFunction, serDe);
+  }
+
+  /**
+   * Return the serializer for the given function, or null if the function has none.
+   */
+  @SuppressWarnings("unchecked")
+  public static AggregationResultSerDe get(AggregationFunction aggregationFunction) {
+    Class<?> cls = aggregationFunction.getClass();
+    while (cls != null && AggregationFunction.class.isAssignableFrom(cls)) {
+      AggregationResultSerDe serDe = functionToSerDe.get(cls);
+      if (serDe != null) {
+        return serDe;
+      }
+      cls = cls.getSuperclass();
+    }
+    return null;
+  }
+
+  public static AggregationResultSerDe get(byte serDeId) {
+    AggregationResultSerDe serDe = idToSerDe.get(serDeId);
+    if (serDe == null) {
+      throw new IllegalStateException("No aggregation result serde registered with id " + serDeId);
+    }
+    return serDe;
+  }
+
+  private static class LongSerDe implements AggregationResultSerDe<Long> {
+    @Override
+    public byte getId() {
+      return 1;
+    }
+
+    @Override
+    public void serialize(Long value, DataOutputStream out) throws IOException {
+      out.writeLong(value);
+    }
+
+    @Override
+    public Long deserialize(ByteBuffer buffer) {
+      return buffer.getLong();
+    }
+  }
+
+  private static class DoubleSerDe implements AggregationResultSerDe<Double> {
+    @Override
+    public byte getId() {
+      return 2;
+    }
+
+    @Override
+    public void serialize(Double value, DataOutputStream out) throws IOException {
+      out.writeDouble(value);
+    }
+
+    @Override
+    public Double deserialize(ByteBuffer buffer) {
+      return buffer.getDouble();
+    }
+  }
+
+  private static class AvgPairSerDe implements AggregationResultSerDe<AvgPair> {
+    // AvgPair is an inner class, so it needs an enclosing instance to be created.
+    private final AvgAggregationFunction _pairFactory = new AvgAggregationFunction();
+
+    @Override
+    public byte getId() {
+      return 3;
+    }
+
+    @Override
+    public void serialize(AvgPair value, DataOutputStream out) throws IOException {
+      out.writeDouble(value.getFirst());
+      out.writeLong(value.getSecond());
+    }
+
+    @Override
+    public AvgPair deserialize(ByteBuffer buffer) {
+      double sum = buffer.getDouble();
+      long count = buffer.getLong();
+      return _pairFactory.getAvgPair(sum, count);
+    }
+  }
+
+  private static class IntOpenHashSetSerDe implements AggregationResultSerDe<IntOpenHashSet> {
+    @Override
+    public byte getId() {
+      return 4;
+    }
+
+    @Override
+    public void serialize(IntOpenHashSet value, DataOutputStream out) throws IOException {
+      out.writeInt(value.size());
+      IntIterator iterator = value.iterator();
+      while (iterator.hasNext()) {
+        out.writeInt(iterator.nextInt());
+      }
+    }
+
+    @Override
+    public IntOpenHashSet deserialize(ByteBuffer buffer) {
+      int size = buffer.getInt();
+      IntOpenHashSet set = new IntOpenHashSet(size);
+      for (int i = 0; i < size; i++) {
+        set.add(buffer.getInt());
+      }
+      return set;
+    }
+  }
+}
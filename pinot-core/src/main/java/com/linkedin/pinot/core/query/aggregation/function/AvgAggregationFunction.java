@@ -28,10 +28,9 @@ import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.core.common.Block;
-import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
-import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionUtils;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction.AvgPair;
 import com.linkedin.pinot.core.query.utils.Pair;
@@ -46,6 +45,8 @@ public class AvgAggregationFunction implements AggregationFunction<AvgPair, Doub
   private static final Logger LOGGER = LoggerFactory.getLogger(AvgAggregationFunction.class);
 
   private String _avgByColumn;
+  private final transient AggregationFunctionUtils.DoubleValueReader _valueReader =
+      new AggregationFunctionUtils.DoubleValueReader();
 
   public AvgAggregationFunction() {
 
@@ -61,18 +62,13 @@ public class AvgAggregationFunction implements AggregationFunction<AvgPair, Doub
   public AvgPair aggregate(Block docIdSetBlock, Block[] block) {
     double ret = 0;
     long cnt = 0;
-    int docId = 0;
-    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
-    BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
-    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
-
-    while ((docId = docIdIterator.next()) != Constants.EOF) {
-      if (blockValIterator.skipTo(docId)) {
-        int dictionaryIndex = blockValIterator.nextIntVal();
-        if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-          ret += dictionaryReader.getDoubleValue(dictionaryIndex);
-          cnt++;
-        }
+    int length = _valueReader.read(docIdSetBlock, block[0]);
+    double[] values = _valueReader.getValues();
+    for (int i = 0; i < length; i++) {
+      double value = values[i];
+      if (value == value) {
+        ret += value;
+        cnt++;
       }
     }
     return new AvgPair(ret, cnt);
@@ -26,10 +26,9 @@ import org.json.JSONObject;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.core.common.Block;
-import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
-import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionUtils;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import org.slf4j.Logger;
@@ -41,6 +40,8 @@ public class MaxAggregationFunction implements AggregationFunction<Double, Doubl
   private static final Logger LOGGER = LoggerFactory.getLogger(MaxAggregationFunction.class);
 
   private String _maxColumnName;
+  private final transient AggregationFunctionUtils.DoubleValueReader _valueReader =
+      new AggregationFunctionUtils.DoubleValueReader();
 
   public MaxAggregationFunction() {
 
@@ -54,21 +55,13 @@ public class MaxAggregationFunction implements AggregationFunction<Double, Doubl
   @Override
   public Double aggregate(Block docIdSetBlock, Block[] block) {
     double ret = DEFAULT_VALUE;
-    double tmp = 0;
-    int docId = 0;
-    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
-    BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
-    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
-
-    while ((docId = docIdIterator.next()) != Constants.EOF) {
-      if (blockValIterator.skipTo(docId)) {
-        int dictionaryIndex = blockValIterator.nextIntVal();
-        if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-          tmp = dictionaryReader.getDoubleValue(dictionaryIndex);
-          if (tmp > ret) {
-            ret = tmp;
-          }
-        }
+    // NaN (null) never compares greater
+    int length = _valueReader.read(docIdSetBlock, block[0]);
+    double[] values = _valueReader.getValues();
+    for (int i = 0; i < length; i++) {
+      double value = values[i];
+      if (value > ret) {
+        ret = value;
       }
     }
     return ret;
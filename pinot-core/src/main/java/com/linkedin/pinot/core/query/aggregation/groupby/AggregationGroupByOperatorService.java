@@ -72,9 +72,14 @@ public class AggregationGroupByOperatorService {
   public static List<Map<String, Serializable>> transformDataTableToGroupByResult(DataTable dataTable) {
     List<Map<String, Serializable>> aggregationGroupByResults = new ArrayList<Map<String, Serializable>>();
     for (int i = 0; i < dataTable.getNumberOfRows(); i++) {
-      String key = dataTable.getString(i, 0);
-      Map<String, Serializable> hashMap = (Map<String, Serializable>) dataTable.getObject(i, 1);
-      aggregationGroupByResults.add(hashMap);
+      byte[] groupByResultBytes = dataTable.getObjectBytes(i, 1);
+      if (AggregationGroupByResultSerDe.isBinaryGroupByResult(groupByResultBytes)) {
+        aggregationGroupByResults.add(AggregationGroupByResultSerDe.deserialize(groupByResultBytes));
+      } else {
+        // Results from servers that still use java serialization.
+        Map<String, Serializable> hashMap = (Map<String, Serializable>) dataTable.deserializeObject(groupByResultBytes);
+        aggregationGroupByResults.add(hashMap);
+      }
     }
     return aggregationGroupByResults;
   }
@@ -89,27 +94,50 @@ public class AggregationGroupByOperatorService {
     }
     List<Map<String, Serializable>> reducedResult = null;
     for (DataTable toBeReducedGroupByResults : instanceResponseMap.values()) {
-      if (reducedResult == null) {
-        if (toBeReducedGroupByResults != null) {
-          reducedResult = transformDataTableToGroupByResult(toBeReducedGroupByResults);
-        }
-      } else {
-        List<Map<String, Serializable>> toBeReducedResult =
-            transformDataTableToGroupByResult(toBeReducedGroupByResults);
-        for (int i = 0; i < reducedResult.size(); ++i) {
-          for (String key : toBeReducedResult.get(i).keySet()) {
-            if (reducedResult.get(i).containsKey(key)) {
-              reducedResult.get(i).put(
-                  key,
-                  _aggregationFunctionList.get(i).combineTwoValues(reducedResult.get(i).get(key),
-                      toBeReducedResult.get(i).get(key)));
-            } else {
-              reducedResult.get(i).put(key, toBeReducedResult.get(i).get(key));
-            }
-          }
+      reducedResult = mergeGroupByOperators(reducedResult, toBeReducedGroupByResults);
+    }
+    return finalizeGroupByOperators(reducedResult);
+  }
+
+  /**
+   * Combines the group by results of one DataTable into the results merged so far. The values stay intermediate
+   * until {@link #finalizeGroupByOperators(List)} is called.
+   *
+   * @param reducedResult results merged so far, may be null
+   * @param toBeReducedGroupByResults
+   * @return merged results
+   */
+  public List<Map<String, Serializable>> mergeGroupByOperators(List<Map<String, Serializable>> reducedResult,
+      DataTable toBeReducedGroupByResults) {
+    if (toBeReducedGroupByResults == null) {
+      return reducedResult;
+    }
+    if (reducedResult == null) {
+      return transformDataTableToGroupByResult(toBeReducedGroupByResults);
+    }
+    List<Map<String, Serializable>> toBeReducedResult = transformDataTableToGroupByResult(toBeReducedGroupByResults);
+    for (int i = 0; i < reducedResult.size(); ++i) {
+      for (String key : toBeReducedResult.get(i).keySet()) {
+        if (reducedResult.get(i).containsKey(key)) {
+          reducedResult.get(i).put(
+              key,
+              _aggregationFunctionList.get(i).combineTwoValues(reducedResult.get(i).get(key),
+                  toBeReducedResult.get(i).get(key)));
+        } else {
+          reducedResult.get(i).put(key, toBeReducedResult.get(i).get(key));
         }
       }
     }
+    return reducedResult;
+  }
+
+  /**
+   * Turns the merged intermediate values into the final values of each aggregation function.
+   *
+   * @param reducedResult
+   * @return reducedResult, with final values
+   */
+  public List<Map<String, Serializable>> finalizeGroupByOperators(List<Map<String, Serializable>> reducedResult) {
     if (reducedResult != null) {
       for (int i = 0; i < reducedResult.size(); ++i) {
         Map<String, Serializable> functionLevelReducedResult = reducedResult.get(i);
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.AggregationResultSerDe;
+import com.linkedin.pinot.core.query.aggregation.AggregationResultSerDeRegistry;
+
+
+/**
+ * Binary encoding of the group-by result map of one aggregation function.
+ *
+ * Format:
+ * |MAGIC(int)|FORMAT_VERSION(byte)|SERDE_ID(byte)|NUM_GROUPS(int)|
+ * |KEY_LENGTH(int)|KEY_UTF8_BYTES| ... one per group
+ * |IS_NULL(byte)|VALUE| ... one per group, in key order, VALUE absent when null
+ *
+ * The magic never collides with a java serialization stream (0xACED...), so readers can tell
+ * results of older servers apart and still deserialize them.
+ *
+ */
+public class AggregationGroupByResultSerDe {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  static final int MAGIC = 0x50474252; // "PGBR"
+  static final byte FORMAT_VERSION = 1;
+
+  /**
+   * Return true if the given function has a binary serializer, false if its results must be java serialized.
+   */
+  public static boolean isSupported(AggregationFunction aggregationFunction) {
+    return AggregationResultSerDeRegistry.get(aggregationFunction) != null;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static byte[] serialize(AggregationFunction aggregationFunction, Map<String, Serializable> groupByResult)
+      throws IOException {
+    AggregationResultSerDe serDe = AggregationResultSerDeRegistry.get(aggregationFunction);
+    if (serDe == null) {
+      throw new UnsupportedOperationException("No binary serializer for " + aggregationFunction.getFunctionName());
+    }
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    out.writeInt(MAGIC);
+    out.writeByte(FORMAT_VERSION);
+    out.writeByte(serDe.getId());
+    out.writeInt(groupByResult.size());
+
+    Serializable[] values = new Serializable[groupByResult.size()];
+    int i = 0;
+    for (Entry<String, Serializable> entry : groupByResult.entrySet()) {
+      byte[] keyBytes = entry.getKey().getBytes(UTF8);
+      out.writeInt(keyBytes.length);
+      out.write(keyBytes);
+      values[i++] = entry.getValue();
+    }
+    for (Serializable value : values) {
+      if (value == null) {
+        out.writeByte(1);
+      } else {
+        out.writeByte(0);
+        serDe.serialize(value, out);
+      }
+    }
+    out.flush();
+    return baos.toByteArray();
+  }
+
+  /**
+   * Return true if the given bytes were written by {@link #serialize(AggregationFunction, Map)}.
+   */
+  public static boolean isBinaryGroupByResult(byte[] bytes) {
+    return bytes.length >= 4 && ByteBuffer.wrap(bytes).getInt() == MAGIC;
+  }
+
+  public static Map<String, Serializable> deserialize(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a binary group by result");
+    }
+    byte version = buffer.get();
+    if (version != FORMAT_VERSION) {
+      throw new IllegalStateException("Unsupported group by result format version " + version);
+    }
+    AggregationResultSerDe serDe = AggregationResultSerDeRegistry.get(buffer.get());
+    int numGroups = buffer.getInt();
+
+    String[] keys = new String[numGroups];
+    for (int i = 0; i < numGroups; i++) {
+      int keyLength = buffer.getInt();
+      keys[i] = new String(bytes, buffer.position(), keyLength, UTF8);
+      buffer.position(buffer.position() + keyLength);
+    }
+    Map<String, Serializable> groupByResult =
+        new HashMap<String, Serializable>(Math.max(16, (int) (numGroups / .75f) + 1));
+    for (int i = 0; i < numGroups; i++) {
+      if (buffer.get() == 1) {
+        groupByResult.put(keys[i], null);
+      } else {
+        groupByResult.put(keys[i], serDe.deserialize(buffer));
+      }
+    }
+    return groupByResult;
+  }
+}
@@ -0,0 +1,422 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationNoDictionaryFunction;
+import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MaxAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MaxAggregationNoDictionaryFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MinAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MinAggregationNoDictionaryFunction;
+import com.linkedin.pinot.core.query.aggregation.function.SumAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.SumAggregationNoDictionaryFunction;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+/**
+ * Primitive, array backed group by aggregation for the simple aggregation functions.
+ * Results are kept in double[]/long[] indexed by group id, and only boxed into the intermediate result
+ * type of the matching {@link AggregationFunction} when the group by result is extracted, so aggregating
+ * a document allocates nothing.
+ *
+ * Documents whose aggregation column is null (dictionary id {@link Dictionary#NULL_VALUE_INDEX}) are skipped;
+ * like the generic path, a group having only null values gets a null result.
+ *
+ */
+public abstract class GroupByAccumulator {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final BlockValSet _valueSet;
+  private final BlockSingleValIterator _valueIterator;
+  private final Dictionary _dictionary;
+  private int[] _dictIdBuffer = new int[0];
+  private double[] _valueBuffer = new double[0];
+  protected int _capacity = 0;
+
+  protected GroupByAccumulator(Block valueBlock, boolean hasDictionary) {
+    if (valueBlock == null) {
+      _valueSet = null;
+      _valueIterator = null;
+      _dictionary = null;
+    } else {
+      _valueSet = valueBlock.getBlockValueSet();
+      _valueIterator = (BlockSingleValIterator) _valueSet.iterator();
+      _dictionary = hasDictionary ? valueBlock.getMetadata().getDictionary() : null;
+    }
+  }
+
+  /**
+   * Returns a primitive accumulator for the given function, or null if the function has none and must go
+   * through the generic {@link AggregationFunction#aggregate(Serializable, int, Block[])}.
+   */
+  public static GroupByAccumulator create(AggregationFunction aggregationFunction, Block[] aggregationBlocks) {
+    Class<?> cls = aggregationFunction.getClass();
+    if (cls == CountAggregationFunction.class) {
+      return new CountAccumulator();
+    }
+    if (aggregationBlocks.length != 1 || !aggregationBlocks[0].getMetadata().isSingleValue()) {
+      return null;
+    }
+    Block valueBlock = aggregationBlocks[0];
+    if (cls == SumAggregationFunction.class) {
+      return new SumAccumulator(valueBlock, true);
+    } else if (cls == SumAggregationNoDictionaryFunction.class) {
+      return new SumAccumulator(valueBlock, false);
+    } else if (cls == MinAggregationFunction.class) {
+      return new MinAccumulator(valueBlock, true);
+    } else if (cls == MinAggregationNoDictionaryFunction.class) {
+      return new MinAccumulator(valueBlock, false);
+    } else if (cls == MaxAggregationFunction.class) {
+      return new MaxAccumulator(valueBlock, true);
+    } else if (cls == MaxAggregationNoDictionaryFunction.class) {
+      return new MaxAccumulator(valueBlock, false);
+    } else if (cls == AvgAggregationFunction.class) {
+      return new AvgAccumulator((AvgAggregationFunction) aggregationFunction, valueBlock, true);
+    } else if (cls == AvgAggregationNoDictionaryFunction.class) {
+      return new AvgAccumulator((AvgAggregationFunction) aggregationFunction, valueBlock, false);
+    }
+    return null;
+  }
+
+  /**
+   * Reads the value of the aggregation column for the given document, NaN if it is null.
+   */
+  protected final double readValue(int docId) {
+    _valueIterator.skipTo(docId);
+    if (_dictionary == null) {
+      return _valueIterator.nextDoubleVal();
+    }
+    int dictId = _valueIterator.nextIntVal();
+    if (dictId == Dictionary.NULL_VALUE_INDEX) {
+      return Double.NaN;
+    }
+    return _dictionary.getDoubleValue(dictId);
+  }
+
+  /**
+   * Reads the values of the aggregation column for the first length documents, NaN for nulls. The returned
+   * buffer is reused across calls.
+   */
+  protected final double[] readValues(int[] docIds, int length) {
+    if (_valueBuffer.length < length) {
+      _valueBuffer = new double[length];
+      _dictIdBuffer = new int[length];
+    }
+    if (_dictionary == null) {
+      for (int i = 0; i < length; i++) {
+        _valueBuffer[i] = readValue(docIds[i]);
+      }
+    } else {
+      _valueSet.readIntValues(docIds, length, _dictIdBuffer);
+      _dictionary.readDoubleValues(_dictIdBuffer, length, _valueBuffer);
+    }
+    return _valueBuffer;
+  }
+
+  /**
+   * Makes sure group ids up to (excluding) the given number can be aggregated.
+   */
+  public void ensureCapacity(int numGroupIds) {
+    if (numGroupIds <= _capacity) {
+      return;
+    }
+    int newCapacity = Math.max(INITIAL_CAPACITY, _capacity);
+    while (newCapacity < numGroupIds) {
+      newCapacity = newCapacity << 1 > 0 ? newCapacity << 1 : Integer.MAX_VALUE;
+    }
+    resize(newCapacity);
+    _capacity = newCapacity;
+  }
+
+  protected abstract void resize(int newCapacity);
+
+  /**
+   * Aggregates the given document into the given group.
+   */
+  public abstract void aggregate(int docId, int groupId);
+
+  /**
+   * Aggregates the given document into each of the first numGroups group ids. The value is read once.
+   */
+  public abstract void aggregate(int docId, int[] groupIds, int numGroups);
+
+  /**
+   * Aggregates the first length documents, docIds[i] going into group groupIds[i]. Values are read in bulk.
+   */
+  public abstract void aggregate(int[] docIds, int[] groupIds, int length);
+
+  /**
+   * Returns the intermediate result of the group, of the same type as the matching aggregation function.
+   */
+  public abstract Serializable getResult(int groupId);
+
+  private static class CountAccumulator extends GroupByAccumulator {
+    private long[] _counts = new long[0];
+
+    public CountAccumulator() {
+      super(null, false);
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+      _counts = Arrays.copyOf(_counts, newCapacity);
+    }
+
+    @Override
+    public void aggregate(int docId, int groupId) {
+      _counts[groupId]++;
+    }
+
+    @Override
+    public void aggregate(int docId, int[] groupIds, int numGroups) {
+      for (int i = 0; i < numGroups; i++) {
+        _counts[groupIds[i]]++;
+      }
+    }
+
+    @Override
+    public void aggregate(int[] docIds, int[] groupIds, int length) {
+      for (int i = 0; i < length; i++) {
+        _counts[groupIds[i]]++;
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _counts[groupId];
+    }
+  }
+
+  private static class SumAccumulator extends GroupByAccumulator {
+    private double[] _sums = new double[0];
+    private boolean[] _hasValue = new boolean[0];
+
+    public SumAccumulator(Block valueBlock, boolean hasDictionary) {
+      super(valueBlock, hasDictionary);
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+      _sums = Arrays.copyOf(_sums, newCapacity);
+      _hasValue = Arrays.copyOf(_hasValue, newCapacity);
+    }
+
+    @Override
+    public void aggregate(int docId, int groupId) {
+      double value = readValue(docId);
+      if (value == value) {
+        _sums[groupId] += value;
+        _hasValue[groupId] = true;
+      }
+    }
+
+    @Override
+    public void aggregate(int docId, int[] groupIds, int numGroups) {
+      double value = readValue(docId);
+      if (value == value) {
+        for (int i = 0; i < numGroups; i++) {
+          _sums[groupIds[i]] += value;
+          _hasValue[groupIds[i]] = true;
+        }
+      }
+    }
+
+    @Override
+    public void aggregate(int[] docIds, int[] groupIds, int length) {
+      double[] values = readValues(docIds, length);
+      for (int i = 0; i < length; i++) {
+        double value = values[i];
+        if (value == value) {
+          _sums[groupIds[i]] += value;
+          _hasValue[groupIds[i]] = true;
+        }
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _hasValue[groupId] ? _sums[groupId] : null;
+    }
+  }
+
+  private static class MinAccumulator extends GroupByAccumulator {
+    private double[] _mins = new double[0];
+    private boolean[] _hasValue = new boolean[0];
+
+    public MinAccumulator(Block valueBlock, boolean hasDictionary) {
+      super(valueBlock, hasDictionary);
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+      int oldCapacity = _mins.length;
+      _mins = Arrays.copyOf(_mins, newCapacity);
+      Arrays.fill(_mins, oldCapacity, newCapacity, Double.POSITIVE_INFINITY);
+      _hasValue = Arrays.copyOf(_hasValue, newCapacity);
+    }
+
+    private void aggregateValue(double value, int groupId) {
+      // NaN (null) is skipped
+      if (value == value) {
+        _hasValue[groupId] = true;
+        if (value < _mins[groupId]) {
+          _mins[groupId] = value;
+        }
+      }
+    }
+
+    @Override
+    public void aggregate(int docId, int groupId) {
+      aggregateValue(readValue(docId), groupId);
+    }
+
+    @Override
+    public void aggregate(int docId, int[] groupIds, int numGroups) {
+      double value = readValue(docId);
+      for (int i = 0; i < numGroups; i++) {
+        aggregateValue(value, groupIds[i]);
+      }
+    }
+
+    @Override
+    public void aggregate(int[] docIds, int[] groupIds, int length) {
+      double[] values = readValues(docIds, length);
+      for (int i = 0; i < length; i++) {
+        aggregateValue(values[i], groupIds[i]);
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _hasValue[groupId] ? _mins[groupId] : null;
+    }
+  }
+
+  private static class MaxAccumulator extends GroupByAccumulator {
+    private double[] _maxs = new double[0];
+    private boolean[] _hasValue = new boolean[0];
+
+    public MaxAccumulator(Block valueBlock, boolean hasDictionary) {
+      super(valueBlock, hasDictionary);
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+      int oldCapacity = _maxs.length;
+      _maxs = Arrays.copyOf(_maxs, newCapacity);
+      Arrays.fill(_maxs, oldCapacity, newCapacity, Double.NEGATIVE_INFINITY);
+      _hasValue = Arrays.copyOf(_hasValue, newCapacity);
+    }
+
+    private void aggregateValue(double value, int groupId) {
+      // NaN (null) is skipped
+      if (value == value) {
+        _hasValue[groupId] = true;
+        if (value > _maxs[groupId]) {
+          _maxs[groupId] = value;
+        }
+      }
+    }
+
+    @Override
+    public void aggregate(int docId, int groupId) {
+      aggregateValue(readValue(docId), groupId);
+    }
+
+    @Override
+    public void aggregate(int docId, int[] groupIds, int numGroups) {
+      double value = readValue(docId);
+      for (int i = 0; i < numGroups; i++) {
+        aggregateValue(value, groupIds[i]);
+      }
+    }
+
+    @Override
+    public void aggregate(int[] docIds, int[] groupIds, int length) {
+      double[] values = readValues(docIds, length);
+      for (int i = 0; i < length; i++) {
+        aggregateValue(values[i], groupIds[i]);
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _hasValue[groupId] ? _maxs[groupId] : null;
+    }
+  }
+
+  private static class AvgAccumulator extends GroupByAccumulator {
+    private final AvgAggregationFunction _avgFunction;
+    private double[] _sums = new double[0];
+    private long[] _counts = new long[0];
+
+    public AvgAccumulator(AvgAggregationFunction avgFunction, Block valueBlock, boolean hasDictionary) {
+      super(valueBlock, hasDictionary);
+      _avgFunction = avgFunction;
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+      _sums = Arrays.copyOf(_sums, newCapacity);
+      _counts = Arrays.copyOf(_counts, newCapacity);
+    }
+
+    @Override
+    public void aggregate(int docId, int groupId) {
+      double value = readValue(docId);
+      if (value == value) {
+        _sums[groupId] += value;
+        _counts[groupId]++;
+      }
+    }
+
+    @Override
+    public void aggregate(int docId, int[] groupIds, int numGroups) {
+      double value = readValue(docId);
+      if (value == value) {
+        for (int i = 0; i < numGroups; i++) {
+          _sums[groupIds[i]] += value;
+          _counts[groupIds[i]]++;
+        }
+      }
+    }
+
+    @Override
+    public void aggregate(int[] docIds, int[] groupIds, int length) {
+      double[] values = readValues(docIds, length);
+      for (int i = 0; i < length; i++) {
+        double value = values[i];
+        if (value == value) {
+          _sums[groupIds[i]] += value;
+          _counts[groupIds[i]]++;
+        }
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _counts[groupId] > 0 ? _avgFunction.getAvgPair(_sums[groupId], _counts[groupId]) : null;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+
+
+/**
+ * Maps group keys (dictionary ids of the group by columns packed into a long) to dense int group ids
+ * that index the arrays of a {@link GroupByAccumulator}.
+ *
+ * When the number of possible keys is small enough, the key itself is the group id and no lookup is
+ * needed; only a seen flag is kept so that groups without documents are not reported. Otherwise keys are
+ * numbered in order of appearance through a primitive open addressing map.
+ *
+ * In both modes, {@link #getNumGroupIds()} only covers the group ids handed out so far, so that
+ * accumulators grow with the groups actually present instead of being sized to the key space.
+ *
+ */
+public class GroupIdGenerator {
+  /**
+   * Largest number of possible group keys for which the key is used as group id.
+   */
+  public static final int MAX_DENSE_GROUPS = 1 << 20;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final boolean _isDense;
+  private final long _maxNumGroupKeys;
+
+  // Exclusive upper bound of the group ids handed out
+  private int _numGroups;
+
+  // Dense mode
+  private boolean[] _isGroupSeen;
+
+  // Sparse mode
+  private final Long2IntOpenHashMap _groupKeyToId;
+  private long[] _groupIdToKey;
+
+  /**
+   * @param maxNumGroupKeys Number of possible group keys, i.e. the product of the group by column cardinalities
+   */
+  public GroupIdGenerator(long maxNumGroupKeys) {
+    _isDense = maxNumGroupKeys <= MAX_DENSE_GROUPS;
+    _maxNumGroupKeys = maxNumGroupKeys;
+    if (_isDense) {
+      _isGroupSeen = new boolean[(int) Math.min(maxNumGroupKeys, INITIAL_CAPACITY)];
+      _groupKeyToId = null;
+    } else {
+      _isGroupSeen = null;
+      _groupKeyToId = new Long2IntOpenHashMap();
+      _groupKeyToId.defaultReturnValue(-1);
+      _groupIdToKey = new long[INITIAL_CAPACITY];
+    }
+  }
+
+  public boolean isDense() {
+    return _isDense;
+  }
+
+  /**
+   * Returns the group id of the given key, assigning a new one if the key was not seen before.
+   */
+  public int getGroupId(long groupKey) {
+    if (_isDense) {
+      int groupId = (int) groupKey;
+      if (groupId >= _numGroups) {
+        if (groupId >= _isGroupSeen.length) {
+          growGroupSeen(groupId);
+        }
+        _numGroups = groupId + 1;
+      }
+      _isGroupSeen[groupId] = true;
+      return groupId;
+    }
+    int groupId = _groupKeyToId.get(groupKey);
+    if (groupId == -1) {
+      groupId = _numGroups++;
+      _groupKeyToId.put(groupKey, groupId);
+      if (groupId == _groupIdToKey.length) {
+        _groupIdToKey = Arrays.copyOf(_groupIdToKey, groupId << 1);
+      }
+      _groupIdToKey[groupId] = groupKey;
+    }
+    return groupId;
+  }
+
+  private void growGroupSeen(int groupId) {
+    long newLength = _isGroupSeen.length;
+    while (newLength <= groupId) {
+      newLength <<= 1;
+    }
+    _isGroupSeen = Arrays.copyOf(_isGroupSeen, (int) Math.min(newLength, _maxNumGroupKeys));
+  }
+
+  /**
+   * Returns an upper bound (exclusive) of the group ids handed out so far.
+   */
+  public int getNumGroupIds() {
+    return _numGroups;
+  }
+
+  /**
+   * Returns true if the given group id, lower than {@link #getNumGroupIds()}, was handed out.
+   */
+  public boolean isGroupIdUsed(int groupId) {
+    return !_isDense || _isGroupSeen[groupId];
+  }
+
+  public long getGroupKey(int groupId) {
+    return _isDense ? groupId : _groupIdToKey[groupId];
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import java.util.Arrays;
+
+import com.linkedin.pinot.core.common.BlockMultiValIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.BlockValIterator;
+
+
+/**
+ * Generates the group keys of a document when some of the group by columns are multi-valued, i.e. the cartesian
+ * product of the dictionary ids of all group by columns, each key being the mixed radix number formed by the
+ * dictionary ids.
+ *
+ * All buffers are allocated up front (the key buffer grows on demand), so generating keys does not allocate in
+ * steady state. Keys are written into the buffer returned by {@link #getKeyBuffer()}, which is reused across
+ * documents and must be fetched again after each call as it may have grown.
+ *
+ */
+public class MultiValueGroupKeyGenerator {
+  private final int[] _cardinalities;
+  private final boolean[] _isSingleValue;
+  private final int[][] _dictIdBuffers;
+  private final int[] _numValues;
+  private long[] _keyBuffer;
+
+  /**
+   * @param cardinalities Cardinality of each group by column
+   * @param isSingleValue Whether each group by column is single-valued
+   * @param maxNumMultiValues Maximum number of values per document of each group by column (ignored for single
+   *                          value columns)
+   */
+  public MultiValueGroupKeyGenerator(int[] cardinalities, boolean[] isSingleValue, int[] maxNumMultiValues) {
+    _cardinalities = cardinalities;
+    _isSingleValue = isSingleValue;
+    _dictIdBuffers = new int[cardinalities.length][];
+    _numValues = new int[cardinalities.length];
+    long maxNumKeys = 1L;
+    for (int i = 0; i < cardinalities.length; i++) {
+      int maxNumValues = isSingleValue[i] ? 1 : Math.max(maxNumMultiValues[i], 1);
+      _dictIdBuffers[i] = new int[maxNumValues];
+      maxNumKeys *= maxNumValues;
+    }
+    // Size for the common case, grow on demand
+    _keyBuffer = new long[(int) Math.min(maxNumKeys, 1024)];
+  }
+
+  /**
+   * Reads the dictionary ids of the given document from the group by column iterators and generates its group
+   * keys.
+   *
+   * @return Number of keys written into {@link #getKeyBuffer()}
+   */
+  public int generateKeys(BlockValIterator[] iterators, int docId) {
+    for (int i = 0; i < iterators.length; i++) {
+      if (_isSingleValue[i]) {
+        BlockSingleValIterator blockValIterator = (BlockSingleValIterator) iterators[i];
+        blockValIterator.skipTo(docId);
+        _dictIdBuffers[i][0] = blockValIterator.nextIntVal();
+        _numValues[i] = 1;
+      } else {
+        BlockMultiValIterator blockValIterator = (BlockMultiValIterator) iterators[i];
+        blockValIterator.skipTo(docId);
+        _numValues[i] = blockValIterator.nextIntVal(_dictIdBuffers[i]);
+      }
+    }
+    return generateKeys(_dictIdBuffers, _numValues);
+  }
+
+  /**
+   * Generates the cartesian product of the given dictionary ids.
+   *
+   * @param dictIds Dictionary ids of each group by column, only the first numValues[i] entries of dictIds[i] are
+   *                used
+   * @param numValues Number of values of each group by column
+   * @return Number of keys written into {@link #getKeyBuffer()}
+   */
+  public int generateKeys(int[][] dictIds, int[] numValues) {
+    int numKeys = 1;
+    for (int i = 0; i < numValues.length; i++) {
+      numKeys *= numValues[i];
+    }
+    if (numKeys == 0) {
+      return 0;
+    }
+    if (numKeys > _keyBuffer.length) {
+      _keyBuffer = Arrays.copyOf(_keyBuffer, Math.max(numKeys, _keyBuffer.length << 1));
+    }
+
+    final long[] keys = _keyBuffer;
+    keys[0] = 0L;
+    int size = 1;
+    for (int i = 0; i < numValues.length; i++) {
+      final long cardinality = _cardinalities[i];
+      final int[] values = dictIds[i];
+      // Fill the copies from the last one so that the first block, which is the source, is overwritten last
+      for (int j = numValues[i] - 1; j >= 0; j--) {
+        final int offset = j * size;
+        final int value = values[j];
+        for (int k = 0; k < size; k++) {
+          keys[offset + k] = keys[k] * cardinality + value;
+        }
+      }
+      size *= numValues[i];
+    }
+    return size;
+  }
+
+  public long[] getKeyBuffer() {
+    return _keyBuffer;
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.config;
+
+/**
+ * Controls how many threads a query may use to process the segments of a table.
+ *
+ *
+ */
+public class QueryParallelismConfig {
+
+  public static final int DEFAULT_MAX_THREADS_PER_QUERY = Runtime.getRuntime().availableProcessors();
+  public static final long DEFAULT_MIN_DOCS_PER_THREAD = 100000L;
+
+  public static final QueryParallelismConfig DEFAULT =
+      new QueryParallelismConfig(DEFAULT_MAX_THREADS_PER_QUERY, DEFAULT_MIN_DOCS_PER_THREAD);
+
+  private final int _maxThreadsPerQuery;
+  private final long _minDocsPerThread;
+
+  public QueryParallelismConfig(int maxThreadsPerQuery, long minDocsPerThread) {
+    _maxThreadsPerQuery = (maxThreadsPerQuery > 0) ? maxThreadsPerQuery : DEFAULT_MAX_THREADS_PER_QUERY;
+    _minDocsPerThread = (minDocsPerThread > 0) ? minDocsPerThread : 1L;
+  }
+
+  public int getMaxThreadsPerQuery() {
+    return _maxThreadsPerQuery;
+  }
+
+  public long getMinDocsPerThread() {
+    return _minDocsPerThread;
+  }
+
+  /**
+   * Returns the number of threads to process the given segments with: at most one per segment and no more than the
+   * configured maximum, and only as many as keep each thread busy with at least minDocsPerThread docs, so that small
+   * queries do not pay for handing work over to other threads.
+   *
+   * @param numSegments Number of segments to process
+   * @param numDocs Total number of docs in those segments
+   */
+  public int getNumThreads(int numSegments, long numDocs) {
+    long numThreads = Math.min(_maxThreadsPerQuery, numSegments);
+    numThreads = Math.min(numThreads, (numDocs + _minDocsPerThread - 1) / _minDocsPerThread);
+    return (int) Math.max(numThreads, 1L);
+  }
+}
@@ -89,7 +89,7 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       _segmentPrunerService = new SegmentPrunerServiceImpl(_queryExecutorConfig.getPrunerConfig());
     }
     LOGGER.info("Trying to build QueryPlanMaker");
-    _planMaker = new InstancePlanMakerImplV2();
+    _planMaker = new InstancePlanMakerImplV2(_serverMetrics);
     LOGGER.info("Trying to build QueryExecutorTimer");
     if (_queryExecutorTimer == null) {
       _queryExecutorTimer =
@@ -114,12 +114,14 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
         return null;
       }
       long startPlanTime = System.nanoTime();
+      final TableDataManager tableDataManager =
+          _instanceDataManager.getTableDataManager(brokerRequest.getQuerySource().getTableName());
       final Plan globalQueryPlan = _planMaker.makeInterSegmentPlan(
           queryableSegmentDataManagerList,
           brokerRequest,
-          _instanceDataManager.getTableDataManager(brokerRequest.getQuerySource().getTableName())
-              .getExecutorService(),
-          getResourceTimeOut(instanceRequest.getQuery()));
+          tableDataManager.getExecutorService(),
+          getQueryTimeOut(instanceRequest),
+          tableDataManager.getQueryParallelismConfig());
       long planTime = System.nanoTime() - startPlanTime;
       _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.BUILD_QUERY_PLAN, planTime);
 
@@ -206,11 +208,23 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     _resourceTimeOutMsMap.put(resource, timeOutMs);
   }
 
+  /**
+   * The query gets the table timeout, capped by whatever is left of the deadline the broker sent along, so that
+   * segment tasks stop once nobody waits for their results anymore.
+   */
+  private long getQueryTimeOut(InstanceRequest instanceRequest) {
+    long timeOutMs = getResourceTimeOut(instanceRequest.getQuery());
+    if (instanceRequest.isSetTimeoutMs() && instanceRequest.getTimeoutMs() > 0) {
+      timeOutMs = Math.min(timeOutMs, instanceRequest.getTimeoutMs());
+    }
+    return timeOutMs;
+  }
+
   private long getResourceTimeOut(BrokerRequest brokerRequest) {
     try {
       String resourceName = brokerRequest.getQuerySource().getTableName();
       if (_resourceTimeOutMsMap.containsKey(resourceName)) {
-        return _resourceTimeOutMsMap.get(brokerRequest);
+        return _resourceTimeOutMsMap.get(resourceName);
       }
     } catch (Exception e) {
       // Return the default timeout value
@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.reduce;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.query.IncrementalReducer;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
+import com.linkedin.pinot.core.query.selection.SelectionOperatorService;
+import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
+
+
+/**
+ * IncrementalReducer for DefaultReduceService. Every DataTable is merged into a running result as soon as it is
+ * received and can be released right after, so the broker only holds the running result instead of the responses of
+ * all the servers. The final response is the same as the one of DefaultReduceService.reduceOnDataTable().
+ *
+ */
+public class DefaultIncrementalReducer implements IncrementalReducer {
+  private final BrokerRequest _brokerRequest;
+  private final BrokerResponse _brokerResponse = new BrokerResponse();
+  private final boolean _isSelection;
+  private int _numResponses = 0;
+  private Exception _reduceException = null;
+  private BrokerResponse _finalBrokerResponse = null;
+
+  // Selection
+  private SelectionOperatorService _selectionService = null;
+  private Collection<Serializable[]> _selectionRows = null;
+  private DataTable _selectionSchemaSource = null;
+  private boolean _selectionComplete = false;
+
+  // Aggregation
+  private List<AggregationFunction> _aggregationFunctions = null;
+  private Serializable[] _aggregationResults = null;
+
+  // Aggregation group by
+  private AggregationGroupByOperatorService _groupByService = null;
+  private List<Map<String, Serializable>> _groupByResults = null;
+
+  public DefaultIncrementalReducer(BrokerRequest brokerRequest) {
+    _brokerRequest = brokerRequest;
+    _isSelection = DefaultReduceService.isSelectionQuery(brokerRequest);
+    if (!_isSelection && brokerRequest.isSetAggregationsInfo()) {
+      if (brokerRequest.isSetGroupBy()) {
+        _groupByService =
+            new AggregationGroupByOperatorService(brokerRequest.getAggregationsInfo(), brokerRequest.getGroupBy());
+      } else {
+        _aggregationFunctions = AggregationFunctionFactory.getAggregationFunction(brokerRequest);
+        _aggregationResults = new Serializable[_aggregationFunctions.size()];
+      }
+    }
+  }
+
+  @Override
+  public synchronized void reduce(ServerInstance serverInstance, DataTable instanceResponse) {
+    if (instanceResponse == null || _finalBrokerResponse != null) {
+      return;
+    }
+    _numResponses++;
+    if (instanceResponse.getDataSchema() == null && instanceResponse.getMetadata() != null) {
+      DefaultReduceService.reduceOnExceptions(_brokerResponse, instanceResponse);
+      return;
+    }
+    DefaultReduceService.reduceOnStatistics(_brokerResponse, instanceResponse);
+    if (_reduceException != null) {
+      return;
+    }
+    try {
+      if (_isSelection) {
+        reduceOnSelectionResults(instanceResponse);
+      } else if (_groupByService != null) {
+        _groupByResults = _groupByService.mergeGroupByOperators(_groupByResults, instanceResponse);
+      } else if (_aggregationFunctions != null) {
+        reduceOnAggregationResults(instanceResponse);
+      }
+    } catch (Exception e) {
+      _reduceException = e;
+    }
+  }
+
+  private void reduceOnSelectionResults(DataTable instanceResponse) {
+    if (_selectionSchemaSource == null) {
+      _selectionSchemaSource = instanceResponse;
+      if (_brokerRequest.getSelections().isSetSelectionSortSequence()) {
+        _selectionService = new SelectionOperatorService(_brokerRequest.getSelections(), instanceResponse.getDataSchema());
+        _selectionRows = _selectionService.getRowEventsSet();
+      } else {
+        _selectionRows = new ArrayList<Serializable[]>();
+      }
+    }
+    if (_selectionService != null) {
+      _selectionService.reduce(instanceResponse);
+    } else if (!_selectionComplete) {
+      _selectionComplete =
+          !SelectionOperatorUtils.reduce(instanceResponse, _selectionRows, _brokerRequest.getSelections().getSize());
+    }
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private void reduceOnAggregationResults(DataTable instanceResponse) {
+    List<List<Serializable>> shuffledResults = new ArrayList<List<Serializable>>(_aggregationFunctions.size());
+    for (int i = 0; i < _aggregationFunctions.size(); ++i) {
+      shuffledResults.add(new ArrayList<Serializable>());
+    }
+    DefaultReduceService.shuffleAggregationResults(_brokerRequest, instanceResponse, shuffledResults);
+    for (int i = 0; i < _aggregationFunctions.size(); ++i) {
+      AggregationFunction aggregationFunction = _aggregationFunctions.get(i);
+      for (Serializable value : shuffledResults.get(i)) {
+        _aggregationResults[i] =
+            (_aggregationResults[i] == null) ? value : aggregationFunction.combineTwoValues(_aggregationResults[i], value);
+      }
+    }
+  }
+
+  @Override
+  public synchronized boolean isComplete() {
+    return _selectionComplete;
+  }
+
+  @Override
+  public synchronized BrokerResponse getBrokerResponse() {
+    if (_finalBrokerResponse == null) {
+      _finalBrokerResponse = buildBrokerResponse();
+    }
+    return _finalBrokerResponse;
+  }
+
+  private BrokerResponse buildBrokerResponse() {
+    if (_numResponses == 0) {
+      return BrokerResponse.EMPTY_RESULT;
+    }
+    if (_reduceException != null) {
+      _brokerResponse.addToExceptions(QueryException.getException(QueryException.BROKER_GATHER_ERROR,
+          _reduceException));
+      return _brokerResponse;
+    }
+    try {
+      if (_isSelection) {
+        _brokerResponse.setSelectionResults(renderSelectionResults());
+        return _brokerResponse;
+      }
+      if (_groupByService != null) {
+        _brokerResponse.setAggregationResults(_groupByService.renderGroupByOperators(_groupByService
+            .finalizeGroupByOperators(_groupByResults)));
+        return _brokerResponse;
+      }
+      if (_aggregationFunctions != null) {
+        List<List<Serializable>> aggregationResultsList = new ArrayList<List<Serializable>>();
+        for (Serializable aggregationResult : _aggregationResults) {
+          List<Serializable> results = new ArrayList<Serializable>(1);
+          if (aggregationResult != null) {
+            results.add(aggregationResult);
+          }
+          aggregationResultsList.add(results);
+        }
+        _brokerResponse.setAggregationResults(DefaultReduceService.reduceOnAggregationResults(_brokerRequest,
+            aggregationResultsList));
+        return _brokerResponse;
+      }
+    } catch (Exception e) {
+      _brokerResponse.addToExceptions(QueryException.getException(QueryException.BROKER_GATHER_ERROR, e));
+      return _brokerResponse;
+    }
+    throw new UnsupportedOperationException(
+        "Should not reach here, the query has no attributes of selection or aggregation!");
+  }
+
+  private JSONObject renderSelectionResults() throws Exception {
+    if (_selectionSchemaSource == null) {
+      return null;
+    }
+    if (_selectionService != null) {
+      return _selectionService.render(_selectionRows);
+    }
+    return SelectionOperatorUtils.render(_selectionRows, _brokerRequest.getSelections().getSelectionColumns(),
+        _selectionSchemaSource.getDataSchema());
+  }
+}
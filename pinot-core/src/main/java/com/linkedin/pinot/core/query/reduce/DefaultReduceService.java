@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.query.IncrementalReducer;
 import com.linkedin.pinot.common.query.ReduceService;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.AggregationResult;
@@ -127,32 +128,15 @@ public class DefaultReduceService implements ReduceService {
         continue;
       }
       if (instanceResponse.getDataSchema() == null && instanceResponse.getMetadata() != null) {
-        for (String key : instanceResponse.getMetadata().keySet()) {
-          if (key.startsWith("Exception")) {
-            ProcessingException processingException = new ProcessingException();
-            processingException.setErrorCode(Integer.parseInt(key.substring(9)));
-            processingException.setMessage(instanceResponse.getMetadata().get(key));
-            brokerResponse.addToExceptions(processingException);
-          }
-        }
+        reduceOnExceptions(brokerResponse, instanceResponse);
         instanceResponseMap.remove(serverInstance);
         continue;
       }
-
-      // reduceOnNumDocsScanned
-      brokerResponse.setNumDocsScanned(brokerResponse.getNumDocsScanned()
-          + Long.parseLong(instanceResponse.getMetadata().get(NUM_DOCS_SCANNED)));
-      // reduceOnTotalDocs
-      brokerResponse.setTotalDocs(brokerResponse.getTotalDocs()
-          + Long.parseLong(instanceResponse.getMetadata().get(TOTAL_DOCS)));
-      if (Long.parseLong(instanceResponse.getMetadata().get(TIME_USED_MS)) > brokerResponse.getTimeUsedMs()) {
-        brokerResponse.setTimeUsedMs(Long.parseLong(instanceResponse.getMetadata().get(TIME_USED_MS)));
-      }
+      reduceOnStatistics(brokerResponse, instanceResponse);
     }
     try {
 
-      if (brokerRequest.isSetSelections() && (brokerRequest.getSelections().getSelectionColumns() != null)
-          && (brokerRequest.getSelections().getSelectionColumns().size() >= 0)) {
+      if (isSelectionQuery(brokerRequest)) {
         // Reduce DataTable for selection query.
         JSONObject selectionRet = reduceOnSelectionResults(brokerRequest, instanceResponseMap);
         brokerResponse.setSelectionResults(selectionRet);
@@ -217,7 +201,38 @@ public class DefaultReduceService implements ReduceService {
         .reduceGroupByOperators(instanceResponseMap));
   }
 
-  private List<JSONObject> reduceOnAggregationResults(BrokerRequest brokerRequest,
+  /**
+   * Adds the exceptions carried in the metadata of a DataTable without schema to the broker response.
+   */
+  static void reduceOnExceptions(BrokerResponse brokerResponse, DataTable instanceResponse) {
+    for (String key : instanceResponse.getMetadata().keySet()) {
+      if (key.startsWith("Exception")) {
+        ProcessingException processingException = new ProcessingException();
+        processingException.setErrorCode(Integer.parseInt(key.substring(9)));
+        processingException.setMessage(instanceResponse.getMetadata().get(key));
+        brokerResponse.addToExceptions(processingException);
+      }
+    }
+  }
+
+  static void reduceOnStatistics(BrokerResponse brokerResponse, DataTable instanceResponse) {
+    // reduceOnNumDocsScanned
+    brokerResponse.setNumDocsScanned(brokerResponse.getNumDocsScanned()
+        + Long.parseLong(instanceResponse.getMetadata().get(NUM_DOCS_SCANNED)));
+    // reduceOnTotalDocs
+    brokerResponse.setTotalDocs(brokerResponse.getTotalDocs()
+        + Long.parseLong(instanceResponse.getMetadata().get(TOTAL_DOCS)));
+    if (Long.parseLong(instanceResponse.getMetadata().get(TIME_USED_MS)) > brokerResponse.getTimeUsedMs()) {
+      brokerResponse.setTimeUsedMs(Long.parseLong(instanceResponse.getMetadata().get(TIME_USED_MS)));
+    }
+  }
+
+  static boolean isSelectionQuery(BrokerRequest brokerRequest) {
+    return brokerRequest.isSetSelections() && (brokerRequest.getSelections().getSelectionColumns() != null)
+        && (brokerRequest.getSelections().getSelectionColumns().size() >= 0);
+  }
+
+  static List<JSONObject> reduceOnAggregationResults(BrokerRequest brokerRequest,
       List<List<Serializable>> aggregationResultsList) {
     List<JSONObject> retAggregationResults = new ArrayList<JSONObject>();
     List<AggregationFunction> aggregationFunctions = AggregationFunctionFactory.getAggregationFunction(brokerRequest);
@@ -241,42 +256,53 @@ public class DefaultReduceService implements ReduceService {
     for (int i = 0; i < brokerRequest.getAggregationsInfo().size(); ++i) {
       aggregationResultsList.add(new ArrayList<Serializable>());
     }
-    DataSchema aggregationResultSchema;
     for (ServerInstance serverInstance : instanceResponseMap.keySet()) {
-      DataTable instanceResponse = instanceResponseMap.get(serverInstance);
-      aggregationResultSchema = instanceResponse.getDataSchema();
-      if (aggregationResultSchema == null) {
-        continue;
-      }
-      // Shuffle AggregationResults
-      for (int rowId = 0; rowId < instanceResponse.getNumberOfRows(); ++rowId) {
-        for (int colId = 0; colId < brokerRequest.getAggregationsInfoSize(); ++colId) {
-          switch (aggregationResultSchema.getColumnType(colId)) {
-            case INT:
-              aggregationResultsList.get(colId).add(instanceResponse.getInt(rowId, colId));
-              break;
-            case SHORT:
-              aggregationResultsList.get(colId).add(instanceResponse.getShort(rowId, colId));
-              break;
-            case FLOAT:
-              aggregationResultsList.get(colId).add(instanceResponse.getFloat(rowId, colId));
-              break;
-            case LONG:
-              aggregationResultsList.get(colId).add(instanceResponse.getLong(rowId, colId));
-              break;
-            case DOUBLE:
-              aggregationResultsList.get(colId).add(instanceResponse.getDouble(rowId, colId));
-              break;
-            case STRING:
-              aggregationResultsList.get(colId).add(instanceResponse.getString(rowId, colId));
-              break;
-            default:
-              aggregationResultsList.get(colId).add(instanceResponse.getObject(rowId, colId));
-              break;
-          }
+      shuffleAggregationResults(brokerRequest, instanceResponseMap.get(serverInstance), aggregationResultsList);
+    }
+    return aggregationResultsList;
+  }
+
+  /**
+   * Appends the aggregation results of one DataTable to the per function result lists.
+   */
+  static void shuffleAggregationResults(BrokerRequest brokerRequest, DataTable instanceResponse,
+      List<List<Serializable>> aggregationResultsList) {
+    DataSchema aggregationResultSchema = instanceResponse.getDataSchema();
+    if (aggregationResultSchema == null) {
+      return;
+    }
+    // Shuffle AggregationResults
+    for (int rowId = 0; rowId < instanceResponse.getNumberOfRows(); ++rowId) {
+      for (int colId = 0; colId < brokerRequest.getAggregationsInfoSize(); ++colId) {
+        switch (aggregationResultSchema.getColumnType(colId)) {
+          case INT:
+            aggregationResultsList.get(colId).add(instanceResponse.getInt(rowId, colId));
+            break;
+          case SHORT:
+            aggregationResultsList.get(colId).add(instanceResponse.getShort(rowId, colId));
+            break;
+          case FLOAT:
+            aggregationResultsList.get(colId).add(instanceResponse.getFloat(rowId, colId));
+            break;
+          case LONG:
+            aggregationResultsList.get(colId).add(instanceResponse.getLong(rowId, colId));
+            break;
+          case DOUBLE:
+            aggregationResultsList.get(colId).add(instanceResponse.getDouble(rowId, colId));
+            break;
+          case STRING:
+            aggregationResultsList.get(colId).add(instanceResponse.getString(rowId, colId));
+            break;
+          default:
+            aggregationResultsList.get(colId).add(instanceResponse.getObject(rowId, colId));
+            break;
         }
       }
     }
-    return aggregationResultsList;
+  }
+
+  @Override
+  public IncrementalReducer newIncrementalReducer(BrokerRequest brokerRequest) {
+    return new DefaultIncrementalReducer(brokerRequest);
   }
 }
@@ -64,7 +64,6 @@ import com.linkedin.pinot.core.segment.index.readers.DoubleDictionary;
 import com.linkedin.pinot.core.segment.index.readers.FloatDictionary;
 import com.linkedin.pinot.core.segment.index.readers.IntDictionary;
 import com.linkedin.pinot.core.segment.index.readers.LongDictionary;
-import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
 
 
 /**
@@ -84,8 +83,8 @@ public class SelectionOperatorService {
   private final Comparator<Serializable[]> _rowComparator;
   private final Collection<Serializable[]> _rowEventsSet;
 
-  private Comparator<Integer> _rowDocIdComparator;
-  private Collection<Integer> _rowDocIdSet;
+  private List<Integer> _rowDocIdSet;
+  private TopKDocIdCollector _topKDocIdCollector;
 
   private final IndexSegment _indexSegment;
   private final boolean _doOrdering;
@@ -121,7 +120,6 @@ public class SelectionOperatorService {
     } else {
       _rowEventsSet = new ArrayList<Serializable[]>(_maxRowSize);
     }
-    _rowDocIdComparator = null;
     _rowDocIdSet = null;
   }
 
@@ -155,7 +153,6 @@ public class SelectionOperatorService {
     } else {
       _rowEventsSet = new ArrayList<Serializable[]>(_maxRowSize);
     }
-    _rowDocIdComparator = null;
     _rowDocIdSet = null;
   }
 
@@ -205,30 +202,39 @@ public class SelectionOperatorService {
 
   public Collection<Serializable[]> reduce(Map<ServerInstance, DataTable> selectionResults) {
     _rowEventsSet.clear();
+    for (final DataTable dt : selectionResults.values()) {
+      reduce(dt);
+    }
+    return _rowEventsSet;
+  }
+
+  /**
+   * Merges the rows of one more DataTable into the rows reduced so far, so that responses can be reduced one at a
+   * time as they arrive.
+   *
+   * @param dt
+   * @return reduced rows
+   */
+  public Collection<Serializable[]> reduce(DataTable dt) {
     if (_doOrdering) {
       PriorityQueue<Serializable[]> queue = (PriorityQueue<Serializable[]>) _rowEventsSet;
-      for (final DataTable dt : selectionResults.values()) {
-        for (int rowId = 0; rowId < dt.getNumberOfRows(); ++rowId) {
-          final Serializable[] row = getRowFromDataTable(dt, rowId);
-          if (queue.size() < _maxRowSize) {
+      for (int rowId = 0; rowId < dt.getNumberOfRows(); ++rowId) {
+        final Serializable[] row = getRowFromDataTable(dt, rowId);
+        if (queue.size() < _maxRowSize) {
+          queue.add(row);
+        } else {
+          if (_rowComparator.compare(queue.peek(), row) < 0) {
             queue.add(row);
-          } else {
-            if (_rowComparator.compare(queue.peek(), row) < 0) {
-              queue.add(row);
-              queue.poll();
-            }
+            queue.poll();
           }
         }
       }
     } else {
-      for (final DataTable dt : selectionResults.values()) {
-        for (int rowId = 0; rowId < dt.getNumberOfRows(); ++rowId) {
-          final Serializable[] row = getRowFromDataTable(dt, rowId);
-          if (_rowEventsSet.size() < _maxRowSize) {
-            _rowEventsSet.add(row);
-          } else {
-            break;
-          }
+      for (int rowId = 0; rowId < dt.getNumberOfRows(); ++rowId) {
+        if (_rowEventsSet.size() < _maxRowSize) {
+          _rowEventsSet.add(getRowFromDataTable(dt, rowId));
+        } else {
+          break;
         }
       }
     }
@@ -285,46 +291,34 @@ public class SelectionOperatorService {
       @Override
       public int compare(Serializable[] o1, Serializable[] o2) {
         for (int i = 0; i < sortSequence.size(); ++i) {
+          int result;
           switch (dataSchema.getColumnType(i)) {
             case INT:
-              if (!sortSequence.get(i).isIsAsc()) {
-                return ((Integer) o1[i]).compareTo((Integer) o2[i]);
-              } else {
-                return ((Integer) o2[i]).compareTo((Integer) o1[i]);
-              }
+              result = ((Integer) o1[i]).compareTo((Integer) o2[i]);
+              break;
             case SHORT:
-              if (!sortSequence.get(i).isIsAsc()) {
-                return ((Short) o1[i]).compareTo((Short) o2[i]);
-              } else {
-                return ((Short) o2[i]).compareTo((Short) o1[i]);
-              }
+              result = ((Short) o1[i]).compareTo((Short) o2[i]);
+              break;
             case LONG:
-              if (!sortSequence.get(i).isIsAsc()) {
-                return ((Long) o1[i]).compareTo((Long) o2[i]);
-              } else {
-                return ((Long) o2[i]).compareTo((Long) o1[i]);
-              }
+              result = ((Long) o1[i]).compareTo((Long) o2[i]);
+              break;
             case FLOAT:
-              if (!sortSequence.get(i).isIsAsc()) {
-                return ((Float) o1[i]).compareTo((Float) o2[i]);
-              } else {
-                return ((Float) o2[i]).compareTo((Float) o1[i]);
-              }
+              result = ((Float) o1[i]).compareTo((Float) o2[i]);
+              break;
             case DOUBLE:
-              if (!sortSequence.get(i).isIsAsc()) {
-                return ((Double) o1[i]).compareTo((Double) o2[i]);
-              } else {
-                return ((Double) o2[i]).compareTo((Double) o1[i]);
-              }
+              result = ((Double) o1[i]).compareTo((Double) o2[i]);
+              break;
             case STRING:
-              if (!sortSequence.get(i).isIsAsc()) {
-                return ((String) o1[i]).compareTo((String) o2[i]);
-              } else {
-                return ((String) o2[i]).compareTo((String) o1[i]);
-              }
+              result = ((String) o1[i]).compareTo((String) o2[i]);
+              break;
             default:
+              result = 0;
               break;
           }
+          // Rows are kept in a queue whose head is the worst row, so ascending columns compare in reverse.
+          if (result != 0) {
+            return sortSequence.get(i).isIsAsc() ? -result : result;
+          }
         }
         return 0;
       };
@@ -364,27 +358,27 @@ public class SelectionOperatorService {
     return new DataSchema(columns.toArray(new String[0]), dataTypes);
   }
 
+  /**
+   * Scans the documents of one block. For order by queries only the doc ids of the current top rows are kept, the
+   * rows themselves are materialized by {@link #mergeToRowEventsSet(Block[])} once all blocks have been scanned.
+   * Otherwise the first rows of the block are merged right away.
+   */
   public void iterateOnBlock(BlockDocIdIterator blockDocIdIterator, Block[] blocks) throws Exception {
-    int docId = 0;
-    _rowDocIdComparator = getDocIdComparator(_sortSequence, _dataSchema, blocks);
     if (_doOrdering) {
-      _rowDocIdSet = new PriorityQueue<Integer>(_maxRowSize, _rowDocIdComparator);
-    } else {
-      _rowDocIdSet = new ArrayList<Integer>(_maxRowSize);
+      if (_topKDocIdCollector == null) {
+        _topKDocIdCollector = new TopKDocIdCollector(_sortSequence, _maxRowSize);
+      }
+      _numDocsScanned += _topKDocIdCollector.collect(blockDocIdIterator, blocks);
+      return;
     }
+    int docId = 0;
+    _rowDocIdSet = new ArrayList<Integer>(_maxRowSize);
     while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
       _numDocsScanned++;
       if (_rowDocIdSet.size() < _maxRowSize) {
         _rowDocIdSet.add(docId);
       } else {
-        if (!_doOrdering) {
-          break;
-        }
-        PriorityQueue<Integer> queue = (PriorityQueue<Integer>) _rowDocIdSet;
-        if (_doOrdering && (_rowDocIdComparator.compare(docId, queue.peek()) > 0)) {
-          queue.add(docId);
-          queue.poll();
-        }
+        break;
       }
     }
     mergeToRowEventsSet(blocks);
@@ -392,154 +386,32 @@ public class SelectionOperatorService {
 
   public Collection<Serializable[]> mergeToRowEventsSet(Block[] blocks) throws Exception {
     if (_doOrdering) {
+      if (_topKDocIdCollector == null) {
+        return _rowEventsSet;
+      }
       final PriorityQueue<Serializable[]> rowEventsPriorityQueue =
           new PriorityQueue<Serializable[]>(_maxRowSize, _rowComparator);
-      PriorityQueue<Integer> queue = (PriorityQueue<Integer>) _rowDocIdSet;
-      while (!queue.isEmpty()) {
-        Serializable[] rowFromBlockValSets = getRowFromBlockValSets(queue.poll(), blocks);
-        rowEventsPriorityQueue.add(rowFromBlockValSets);
+      for (int docId : _topKDocIdCollector.getDocIds()) {
+        rowEventsPriorityQueue.add(getRowFromBlockValSets(docId, blocks));
       }
+      _topKDocIdCollector = null;
       merge(_rowEventsSet, rowEventsPriorityQueue);
     } else {
+      if (_rowDocIdSet == null) {
+        return _rowEventsSet;
+      }
       final List<Serializable[]> rowEventsList = new ArrayList<Serializable[]>(_maxRowSize);
-      List<Integer> list = (List<Integer>) _rowDocIdSet;
-      for (int i = 0; i < Math.min(_maxRowSize, list.size()); i++) {
-        Serializable[] rowFromBlockValSets = getRowFromBlockValSets(list.get(i), blocks);
+      for (int i = 0; i < Math.min(_maxRowSize, _rowDocIdSet.size()); i++) {
+        Serializable[] rowFromBlockValSets = getRowFromBlockValSets(_rowDocIdSet.get(i), blocks);
         rowEventsList.add(rowFromBlockValSets);
       }
+      _rowDocIdSet = null;
       merge(_rowEventsSet, rowEventsList);
     }
 
     return _rowEventsSet;
   }
 
-  private Comparator<Integer> getDocIdComparator(final List<SelectionSort> sortSequence, final DataSchema dataSchema,
-      final Block[] blocks) {
-
-    return new Comparator<Integer>() {
-      @Override
-      public int compare(Integer o1, Integer o2) {
-        for (int i = 0; i < sortSequence.size(); ++i) {
-          // Don't compare multi-value column.
-          if (!blocks[i].getMetadata().isSingleValue()) {
-            continue;
-          }
-          if (blocks[i].getMetadata().hasDictionary()) {
-            final BlockSingleValIterator blockValSetIterator =
-                (BlockSingleValIterator) blocks[i].getBlockValueSet().iterator();
-            blockValSetIterator.skipTo(o1);
-            int v1 = blockValSetIterator.nextIntVal();
-            blockValSetIterator.skipTo(o2);
-            int v2 = blockValSetIterator.nextIntVal();
-            if (v1 > v2) {
-              if (!sortSequence.get(i).isIsAsc()) {
-                return 1;
-              } else {
-                return -1;
-              }
-            }
-            if (v1 < v2) {
-              if (!sortSequence.get(i).isIsAsc()) {
-                return -1;
-              } else {
-                return 1;
-              }
-            }
-          } else {
-            final BlockSingleValIterator blockValSetIterator =
-                (BlockSingleValIterator) blocks[i].getBlockValueSet().iterator();
-            switch (blocks[i].getMetadata().getDataType()) {
-              case INT:
-                blockValSetIterator.skipTo(o1);
-                int i1 = blockValSetIterator.nextIntVal();
-                blockValSetIterator.skipTo(o2);
-                int i2 = blockValSetIterator.nextIntVal();
-                if (i1 > i2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return 1;
-                  } else {
-                    return -1;
-                  }
-                }
-                if (i1 < i2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return -1;
-                  } else {
-                    return 1;
-                  }
-                }
-                break;
-              case FLOAT:
-                blockValSetIterator.skipTo(o1);
-                float f1 = blockValSetIterator.nextIntVal();
-                blockValSetIterator.skipTo(o2);
-                float f2 = blockValSetIterator.nextIntVal();
-                if (f1 > f2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return 1;
-                  } else {
-                    return -1;
-                  }
-                }
-                if (f1 < f2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return -1;
-                  } else {
-                    return 1;
-                  }
-                }
-                break;
-              case LONG:
-                blockValSetIterator.skipTo(o1);
-                long l1 = blockValSetIterator.nextLongVal();
-                blockValSetIterator.skipTo(o2);
-                long l2 = blockValSetIterator.nextLongVal();
-                if (l1 > l2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return 1;
-                  } else {
-                    return -1;
-                  }
-                }
-                if (l1 < l2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return -1;
-                  } else {
-                    return 1;
-                  }
-                }
-                break;
-              case DOUBLE:
-                blockValSetIterator.skipTo(o1);
-                double d1 = blockValSetIterator.nextDoubleVal();
-                blockValSetIterator.skipTo(o2);
-                double d2 = blockValSetIterator.nextDoubleVal();
-                if (d1 > d2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return 1;
-                  } else {
-                    return -1;
-                  }
-                }
-                if (d1 < d2) {
-                  if (!sortSequence.get(i).isIsAsc()) {
-                    return -1;
-                  } else {
-                    return 1;
-                  }
-                }
-                break;
-
-              default:
-                break;
-            }
-          }
-        }
-        return 0;
-      };
-    };
-  }
-
   private Serializable[] getRowFromBlockValSets(int docId, Block[] blocks) throws Exception {
 
     final Serializable[] row = new Serializable[_dataSchema.size()];
@@ -660,7 +532,7 @@ public class SelectionOperatorService {
               row[i] = ((DoubleDictionary) dictionaryReader).get(bvIter.nextIntVal());
               break;
             case STRING:
-              row[i] = ((StringDictionary) dictionaryReader).get(bvIter.nextIntVal());
+              row[i] = (String) dictionaryReader.get(bvIter.nextIntVal());
               break;
             default:
               break;
@@ -728,7 +600,7 @@ public class SelectionOperatorService {
             dictSize = bvIter.nextIntVal(dictIds);
             String[] rawStringRow = new String[dictSize];
             for (int dictIdx = 0; dictIdx < dictSize; ++dictIdx) {
-              rawStringRow[dictIdx] = (((StringDictionary) dictionaryReader).get(dictIds[dictIdx]));
+              rawStringRow[dictIdx] = (String) dictionaryReader.get(dictIds[dictIdx]);
             }
             row[i] = rawStringRow;
             break;
@@ -1072,6 +944,6 @@ public class SelectionOperatorService {
     if (!_doOrdering) {
       return getRowEventsSet().size() >= _maxRowSize;
     }
-    return false;
+    return _topKDocIdCollector != null && _topKDocIdCollector.isTerminated();
   }
 }
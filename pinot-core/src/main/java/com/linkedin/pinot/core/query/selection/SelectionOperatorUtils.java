@@ -60,7 +60,6 @@ import com.linkedin.pinot.core.segment.index.readers.DoubleDictionary;
 import com.linkedin.pinot.core.segment.index.readers.FloatDictionary;
 import com.linkedin.pinot.core.segment.index.readers.IntDictionary;
 import com.linkedin.pinot.core.segment.index.readers.LongDictionary;
-import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
 
 
 /**
@@ -136,17 +135,31 @@ public class SelectionOperatorUtils {
   public static Collection<Serializable[]> reduce(Map<ServerInstance, DataTable> selectionResults, int maxRowSize) {
     Collection<Serializable[]> rowEventsSet = new ArrayList<Serializable[]>(maxRowSize);
     for (final DataTable dt : selectionResults.values()) {
-      for (int rowId = 0; rowId < dt.getNumberOfRows(); ++rowId) {
-        final Serializable[] row = extractRowFromDataTable(dt, rowId);
-        rowEventsSet.add(row);
-        if (rowEventsSet.size() == maxRowSize) {
-          return rowEventsSet;
-        }
+      if (!reduce(dt, rowEventsSet, maxRowSize)) {
+        return rowEventsSet;
       }
     }
     return rowEventsSet;
   }
 
+  /**
+   * Appends the rows of one DataTable to rowEventsSet until it holds maxRowSize rows.
+   *
+   * @return false once rowEventsSet is full, i.e. no further DataTable needs to be looked at
+   */
+  public static boolean reduce(DataTable dt, Collection<Serializable[]> rowEventsSet, int maxRowSize) {
+    if (rowEventsSet.size() >= maxRowSize) {
+      return false;
+    }
+    for (int rowId = 0; rowId < dt.getNumberOfRows(); ++rowId) {
+      rowEventsSet.add(extractRowFromDataTable(dt, rowId));
+      if (rowEventsSet.size() == maxRowSize) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public static JSONObject render(Collection<Serializable[]> finalResults, List<String> selectionColumns, DataSchema dataSchema) throws Exception {
     final LinkedList<JSONArray> rowEventsJSonList = new LinkedList<JSONArray>();
     List<Serializable[]> list = (List<Serializable[]>) finalResults;
@@ -325,7 +338,7 @@ public class SelectionOperatorUtils {
               row[i] = ((DoubleDictionary) dictionaryReader).get(bvIter.nextIntVal());
               break;
             case STRING:
-              row[i] = ((StringDictionary) dictionaryReader).get(bvIter.nextIntVal());
+              row[i] = (String) dictionaryReader.get(bvIter.nextIntVal());
               break;
             default:
               break;
@@ -393,7 +406,7 @@ public class SelectionOperatorUtils {
             dictSize = bvIter.nextIntVal(dictIds);
             String[] rawStringRow = new String[dictSize];
             for (int dictIdx = 0; dictIdx < dictSize; ++dictIdx) {
-              rawStringRow[dictIdx] = (((StringDictionary) dictionaryReader).get(dictIds[dictIdx]));
+              rawStringRow[dictIdx] = (String) dictionaryReader.get(dictIds[dictIdx]);
             }
             row[i] = rawStringRow;
             break;
@@ -0,0 +1,325 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.selection;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+/**
+ * Keeps the doc ids of the best K documents of one segment for a selection order by query.
+ *
+ * Each document is reduced to one primitive sort key per order by column, read in chunks through
+ * {@link com.linkedin.pinot.core.common.BlockValSet#readIntValues}: the dictionary id for immutable segments, whose
+ * dictionaries are sorted so ids compare like values, the value itself for numeric realtime columns, and the rank of
+ * the value for string realtime columns. Keys are encoded so that smaller is better, and kept with their doc ids in a
+ * bounded max heap of primitive arrays whose root is the worst retained document. Multi value columns are not
+ * compared, as before. Rows only need to be materialized for the doc ids left at the end.
+ *
+ * When the first order by column is the sorted column of the segment and is ascending, doc ids come in key order, so
+ * collection stops at the first document whose key is past the worst retained one.
+ */
+public class TopKDocIdCollector {
+  private static final int CHUNK_SIZE = 1024;
+
+  private final List<SelectionSort> _sortSequence;
+  private final int _numKeys;
+  private final int _maxSize;
+
+  // Heap entry i has doc id _heapDocIds[i] and keys _heapKeys[i * _numKeys] to _heapKeys[(i + 1) * _numKeys - 1].
+  private final long[] _heapKeys;
+  private final int[] _heapDocIds;
+  private int _size = 0;
+  private boolean _terminated;
+
+  private final int[] _docIdBuffer = new int[CHUNK_SIZE];
+  private final int[] _dictIdBuffer = new int[CHUNK_SIZE];
+  private final long[] _longBuffer = new long[CHUNK_SIZE];
+  private final double[] _doubleBuffer = new double[CHUNK_SIZE];
+  private final long[] _chunkKeys;
+  private final long[] _entryKeys;
+
+  // Ranks of the values of string realtime dictionaries, by dictionary id.
+  private final Dictionary[] _rankedDictionaries;
+  private final int[][] _valueRanks;
+
+  public TopKDocIdCollector(List<SelectionSort> sortSequence, int maxSize) {
+    _sortSequence = sortSequence;
+    _numKeys = sortSequence.size();
+    _maxSize = maxSize;
+    _heapKeys = new long[maxSize * _numKeys];
+    _heapDocIds = new int[maxSize];
+    _chunkKeys = new long[CHUNK_SIZE * _numKeys];
+    _entryKeys = new long[_numKeys];
+    _rankedDictionaries = new Dictionary[_numKeys];
+    _valueRanks = new int[_numKeys][];
+    _terminated = maxSize == 0;
+  }
+
+  /**
+   * Offers the documents of the given iterator, where blocks[i] holds the values of the i-th order by column.
+   *
+   * @return number of documents read from the iterator
+   */
+  public int collect(BlockDocIdIterator docIdIterator, Block[] blocks) {
+    boolean stopOnSortedColumn = isSortedAscending(blocks[0]);
+    int numDocsScanned = 0;
+    while (!_terminated) {
+      int length = 0;
+      int docId;
+      while (length < CHUNK_SIZE && (docId = docIdIterator.next()) != Constants.EOF) {
+        _docIdBuffer[length++] = docId;
+      }
+      if (length == 0) {
+        break;
+      }
+      computeKeys(blocks, length);
+      for (int i = 0; i < length; i++) {
+        numDocsScanned++;
+        if (!offer(_docIdBuffer[i], i * _numKeys, stopOnSortedColumn)) {
+          _terminated = true;
+          break;
+        }
+      }
+    }
+    return numDocsScanned;
+  }
+
+  /**
+   * Returns true once no further document can make it into the top K.
+   */
+  public boolean isTerminated() {
+    return _terminated;
+  }
+
+  /**
+   * Returns the collected doc ids, in no particular order.
+   */
+  public int[] getDocIds() {
+    return Arrays.copyOf(_heapDocIds, _size);
+  }
+
+  private boolean isSortedAscending(Block block) {
+    BlockMetadata metadata = block.getMetadata();
+    return _sortSequence.get(0).isIsAsc() && metadata.isSingleValue() && metadata.isSorted()
+        && metadata.hasDictionary() && !(metadata.getDictionary() instanceof MutableDictionaryReader);
+  }
+
+  /**
+   * Adds the document at the given offset of the chunk keys if it is better than the worst retained one.
+   *
+   * @return false if neither this nor any following document can be retained
+   */
+  private boolean offer(int docId, int keyOffset, boolean stopOnSortedColumn) {
+    if (_size < _maxSize) {
+      siftUp(_size++, docId, _chunkKeys, keyOffset);
+      return true;
+    }
+    if (compare(_chunkKeys, keyOffset, _heapKeys, 0) < 0) {
+      siftDown(docId, _chunkKeys, keyOffset);
+      return true;
+    }
+    return !stopOnSortedColumn || _chunkKeys[keyOffset] <= _heapKeys[0];
+  }
+
+  private int compare(long[] keys1, int offset1, long[] keys2, int offset2) {
+    for (int i = 0; i < _numKeys; i++) {
+      long key1 = keys1[offset1 + i];
+      long key2 = keys2[offset2 + i];
+      if (key1 != key2) {
+        return key1 < key2 ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private void siftUp(int index, int docId, long[] keys, int keyOffset) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (compare(_heapKeys, parent * _numKeys, keys, keyOffset) >= 0) {
+        break;
+      }
+      moveEntry(parent, index);
+      index = parent;
+    }
+    setEntry(index, docId, keys, keyOffset);
+  }
+
+  /**
+   * Replaces the root with the given entry and restores the heap order.
+   */
+  private void siftDown(int docId, long[] keys, int keyOffset) {
+    System.arraycopy(keys, keyOffset, _entryKeys, 0, _numKeys);
+    int index = 0;
+    int half = _size >>> 1;
+    while (index < half) {
+      int child = (index << 1) + 1;
+      int right = child + 1;
+      if (right < _size && compare(_heapKeys, right * _numKeys, _heapKeys, child * _numKeys) > 0) {
+        child = right;
+      }
+      if (compare(_entryKeys, 0, _heapKeys, child * _numKeys) >= 0) {
+        break;
+      }
+      moveEntry(child, index);
+      index = child;
+    }
+    setEntry(index, docId, _entryKeys, 0);
+  }
+
+  private void moveEntry(int from, int to) {
+    _heapDocIds[to] = _heapDocIds[from];
+    System.arraycopy(_heapKeys, from * _numKeys, _heapKeys, to * _numKeys, _numKeys);
+  }
+
+  private void setEntry(int index, int docId, long[] keys, int keyOffset) {
+    _heapDocIds[index] = docId;
+    System.arraycopy(keys, keyOffset, _heapKeys, index * _numKeys, _numKeys);
+  }
+
+  /**
+   * Fills the chunk keys for the first length doc ids of the doc id buffer.
+   */
+  private void computeKeys(Block[] blocks, int length) {
+    for (int column = 0; column < _numKeys; column++) {
+      BlockMetadata metadata = blocks[column].getMetadata();
+      boolean ascending = _sortSequence.get(column).isIsAsc();
+      if (!metadata.isSingleValue()) {
+        for (int i = 0; i < length; i++) {
+          _chunkKeys[i * _numKeys + column] = 0;
+        }
+        continue;
+      }
+      long[] keys = _longBuffer;
+      if (metadata.hasDictionary()) {
+        blocks[column].getBlockValueSet().readIntValues(_docIdBuffer, length, _dictIdBuffer);
+        Dictionary dictionary = metadata.getDictionary();
+        if (!(dictionary instanceof MutableDictionaryReader)) {
+          for (int i = 0; i < length; i++) {
+            keys[i] = _dictIdBuffer[i];
+          }
+        } else {
+          switch (metadata.getDataType()) {
+            case INT:
+            case LONG:
+              dictionary.readLongValues(_dictIdBuffer, length, keys);
+              break;
+            case FLOAT:
+            case DOUBLE:
+              dictionary.readDoubleValues(_dictIdBuffer, length, _doubleBuffer);
+              for (int i = 0; i < length; i++) {
+                keys[i] = toSortableLong(_doubleBuffer[i]);
+              }
+              break;
+            default:
+              int[] ranks = getValueRanks(column, dictionary, length);
+              for (int i = 0; i < length; i++) {
+                keys[i] = ranks[_dictIdBuffer[i]];
+              }
+              break;
+          }
+        }
+      } else {
+        readRawKeys(blocks[column], metadata, length, keys);
+      }
+      for (int i = 0; i < length; i++) {
+        _chunkKeys[i * _numKeys + column] = ascending ? keys[i] : ~keys[i];
+      }
+    }
+  }
+
+  private void readRawKeys(Block block, BlockMetadata metadata, int length, long[] keys) {
+    BlockSingleValIterator iterator = (BlockSingleValIterator) block.getBlockValueSet().iterator();
+    for (int i = 0; i < length; i++) {
+      iterator.skipTo(_docIdBuffer[i]);
+      switch (metadata.getDataType()) {
+        case INT:
+          keys[i] = iterator.nextIntVal();
+          break;
+        case LONG:
+          keys[i] = iterator.nextLongVal();
+          break;
+        case FLOAT:
+          keys[i] = toSortableLong(iterator.nextFloatVal());
+          break;
+        case DOUBLE:
+          keys[i] = toSortableLong(iterator.nextDoubleVal());
+          break;
+        default:
+          keys[i] = 0;
+          break;
+      }
+    }
+  }
+
+  /**
+   * Returns the ranks of the values of a realtime dictionary. They are recomputed when the dictionary has grown past
+   * one of the given dictionary ids since they were last computed.
+   */
+  private int[] getValueRanks(int column, final Dictionary dictionary, int length) {
+    int[] ranks = _valueRanks[column];
+    if (ranks != null && _rankedDictionaries[column] == dictionary) {
+      boolean upToDate = true;
+      for (int i = 0; i < length; i++) {
+        if (_dictIdBuffer[i] >= ranks.length) {
+          upToDate = false;
+          break;
+        }
+      }
+      if (upToDate) {
+        return ranks;
+      }
+    }
+    int numValues = dictionary.length();
+    final String[] values = new String[numValues];
+    Integer[] sortedDictIds = new Integer[numValues];
+    for (int dictId = 0; dictId < numValues; dictId++) {
+      values[dictId] = dictionary.getStringValue(dictId);
+      sortedDictIds[dictId] = dictId;
+    }
+    Arrays.sort(sortedDictIds, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return values[o1].compareTo(values[o2]);
+      }
+    });
+    ranks = new int[numValues];
+    for (int rank = 0; rank < numValues; rank++) {
+      ranks[sortedDictIds[rank]] = rank;
+    }
+    _rankedDictionaries[column] = dictionary;
+    _valueRanks[column] = ranks;
+    return ranks;
+  }
+
+  /**
+   * Maps a double to a long with the same order as {@link Double#compare(double, double)}.
+   */
+  static long toSortableLong(double value) {
+    long bits = Double.doubleToLongBits(value);
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+}
@@ -15,6 +15,9 @@
  */
 package com.linkedin.pinot.core.realtime;
 
+import java.util.List;
+import java.util.Map;
+
 import com.linkedin.pinot.core.data.GenericRow;
 
 public interface StreamProvider {
@@ -47,12 +50,29 @@ public interface StreamProvider {
    */
   public GenericRow next(long offset);
 
+  /**
+   * Fetches and decodes up to maxRows rows, returning early when the stream has no more rows available.
+   *
+   * @param rows list to append the decoded rows to
+   * @param maxRows maximum number of rows to fetch
+   * @return number of rows appended, possibly 0
+   */
+  public int nextBatch(List<GenericRow> rows, int maxRows);
+
   /**
    *
    * @return
    */
   public long currentOffset();
 
+  /**
+   * Returns the position of the stream right after the last row returned, as the next offset to consume of every
+   * partition read so far.
+   *
+   * @return map from partition id to the next offset to consume, to be committed later on with commit(Map)
+   */
+  public Map<Integer, Long> currentOffsets();
+
   /**
    *
    */
@@ -64,6 +84,13 @@ public interface StreamProvider {
    */
   public void commit(long offset);
 
+  /**
+   * Commits the given offsets only, irrespective of the rows returned since they were taken.
+   *
+   * @param offsets map from partition id to the next offset to consume, as returned by currentOffsets()
+   */
+  public void commit(Map<Integer, Long> offsets);
+
   /**
    *
    */
@@ -16,18 +16,45 @@
 package com.linkedin.pinot.core.realtime.converter;
 
 import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.primitives.UnsignedBytes;
+
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.TimeFieldSpec;
 import com.linkedin.pinot.common.data.TimeGranularitySpec;
-import com.linkedin.pinot.core.data.readers.RecordReader;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnMultiValueReaderWriter;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
+import com.linkedin.pinot.core.segment.creator.ForwardIndexType;
+import com.linkedin.pinot.core.segment.creator.InvertedIndexType;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentColumnarIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 
 
+/**
+ * Converts a realtime segment to an offline one directly from its dictionary encoded columns: every mutable
+ * dictionary is sorted once, and the forward indexes are remapped to the sorted dictionary ids, so that no row is
+ * materialized and no value is looked up again.
+ */
 public class RealtimeSegmentConverter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RealtimeSegmentConverter.class);
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
 
   private RealtimeSegmentImpl realtimeSegmentImpl;
   private String outputPath;
@@ -35,6 +62,10 @@ public class RealtimeSegmentConverter {
   private String tableName;
   private String segmentName;
   private String sortedColumn;
+  // Name of the time column in the realtime segment, the converted segment uses the incoming name
+  private String realtimeTimeColumnName;
+  private List<String> rangeIndexColumns = new ArrayList<String>();
+  private List<String> varLengthDictionaryColumns = new ArrayList<String>();
 
   public RealtimeSegmentConverter(RealtimeSegmentImpl realtimeSegment, String outputPath, Schema schema,
       String tableName, String segmentName, String sortedColumn) {
@@ -62,17 +93,25 @@ public class RealtimeSegmentConverter {
     newSchema.addSchema(newTimeSpec.getName(), newTimeSpec);
     this.dataSchema = newSchema;
     this.sortedColumn = sortedColumn;
+    this.realtimeTimeColumnName = original.getOutGoingTimeColumnName();
   }
 
-  public void build() throws Exception {
-    // lets create a record reader
-    RecordReader reader;
+  /**
+   * Columns to create a range index for in the converted segment, named as in the realtime segment.
+   */
+  public void setRangeIndexColumns(List<String> rangeIndexColumns) {
+    this.rangeIndexColumns = rangeIndexColumns;
+  }
 
-    if (sortedColumn == null) {
-      reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema);
-    } else {
-      reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema, sortedColumn);
-    }
+  /**
+   * String columns to write a variable length dictionary for in the converted segment, named as in the realtime
+   * segment.
+   */
+  public void setVarLengthDictionaryColumns(List<String> varLengthDictionaryColumns) {
+    this.varLengthDictionaryColumns = varLengthDictionaryColumns;
+  }
+
+  public void build() throws Exception {
     SegmentGeneratorConfig genConfig = new SegmentGeneratorConfig(dataSchema);
     genConfig.setInputFilePath(null);
 
@@ -83,8 +122,295 @@ public class RealtimeSegmentConverter {
     genConfig.setTableName(tableName);
     genConfig.setIndexOutputDir(outputPath);
     genConfig.setSegmentName(segmentName);
-    final SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
-    driver.init(genConfig, reader);
-    driver.build();
+    List<String> convertedRangeIndexColumns = new ArrayList<String>();
+    List<String> convertedVarLengthDictionaryColumns = new ArrayList<String>();
+    for (FieldSpec spec : dataSchema.getAllFieldSpecs()) {
+      if (rangeIndexColumns.contains(getRealtimeColumnName(spec.getName()))) {
+        convertedRangeIndexColumns.add(spec.getName());
+      }
+      if (varLengthDictionaryColumns.contains(getRealtimeColumnName(spec.getName()))) {
+        convertedVarLengthDictionaryColumns.add(spec.getName());
+      }
+    }
+    genConfig.setRangeIndexColumns(convertedRangeIndexColumns);
+    genConfig.setVarLengthDictionaryColumns(convertedVarLengthDictionaryColumns);
+
+    long start = System.currentTimeMillis();
+    int numDocs = realtimeSegmentImpl.getTotalDocs();
+
+    // sort every dictionary once
+    Map<String, SortedDictionary> sortedDictionaries = new HashMap<String, SortedDictionary>();
+    for (FieldSpec spec : dataSchema.getAllFieldSpecs()) {
+      sortedDictionaries.put(spec.getName(),
+          sortDictionary(spec, realtimeSegmentImpl.getDictionary(getRealtimeColumnName(spec.getName())),
+              convertedVarLengthDictionaryColumns.contains(spec.getName())));
+    }
+
+    // order of the docs in the converted segment, null to keep the realtime order
+    int[] docIds = null;
+    if (sortedColumn != null && dataSchema.getFieldSpecFor(sortedColumn) != null
+        && dataSchema.getFieldSpecFor(sortedColumn).isSingleValueField()) {
+      docIds = sortDocIds(sortedColumn, sortedDictionaries.get(sortedColumn), numDocs);
+    }
+
+    // gather the column statistics from the forward indexes
+    Map<String, ColumnIndexCreationInfo> indexCreationInfoMap = new HashMap<String, ColumnIndexCreationInfo>();
+    for (FieldSpec spec : dataSchema.getAllFieldSpecs()) {
+      String column = spec.getName();
+      SortedDictionary dictionary = sortedDictionaries.get(column);
+      boolean isSorted = false;
+      int totalNumberOfEntries = 0;
+      int maxNumberOfMultiValues = 0;
+      if (spec.isSingleValueField()) {
+        isSorted = isSorted(column, dictionary, docIds, numDocs);
+      } else {
+        FixedByteSingleColumnMultiValueReaderWriter forwardIndex =
+            (FixedByteSingleColumnMultiValueReaderWriter) realtimeSegmentImpl.getForwardIndex(column);
+        int[] buffer = new int[realtimeSegmentImpl.getMaxNumberOfMultiValues(column)];
+        for (int docId = 0; docId < numDocs; docId++) {
+          int length = forwardIndex.getIntArray(docId, buffer);
+          totalNumberOfEntries += length;
+          maxNumberOfMultiValues = Math.max(maxNumberOfMultiValues, length);
+        }
+      }
+      indexCreationInfoMap.put(column, new ColumnIndexCreationInfo(true, dictionary.min, dictionary.max,
+          dictionary.sortedValues, ForwardIndexType.FIXED_BIT_COMPRESSED, InvertedIndexType.P4_DELTA, isSorted, false,
+          totalNumberOfEntries, maxNumberOfMultiValues));
+    }
+
+    // write the dictionaries, then the forward and inverted indexes one column at a time
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    SegmentColumnarIndexCreator indexCreator =
+        driver.initForDictionaryEncodedColumns(genConfig, dataSchema, numDocs, indexCreationInfoMap);
+    for (FieldSpec spec : dataSchema.getAllFieldSpecs()) {
+      String column = spec.getName();
+      int[] newDictionaryIds = sortedDictionaries.get(column).newDictionaryIds;
+      if (spec.isSingleValueField()) {
+        FixedByteSingleColumnSingleValueReaderWriter forwardIndex =
+            (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegmentImpl.getForwardIndex(
+                getRealtimeColumnName(column));
+        int[] dictionaryIds = new int[numDocs];
+        for (int docId = 0; docId < numDocs; docId++) {
+          dictionaryIds[docId] = newDictionaryIds[forwardIndex.getInt(docIds == null ? docId : docIds[docId])];
+        }
+        indexCreator.indexColumn(column, dictionaryIds);
+      } else {
+        FixedByteSingleColumnMultiValueReaderWriter forwardIndex =
+            (FixedByteSingleColumnMultiValueReaderWriter) realtimeSegmentImpl.getForwardIndex(column);
+        int[] buffer = new int[realtimeSegmentImpl.getMaxNumberOfMultiValues(column)];
+        int[][] dictionaryIds = new int[numDocs][];
+        for (int docId = 0; docId < numDocs; docId++) {
+          int length = forwardIndex.getIntArray(docIds == null ? docId : docIds[docId], buffer);
+          int[] docDictionaryIds = new int[length];
+          for (int i = 0; i < length; i++) {
+            docDictionaryIds[i] = newDictionaryIds[buffer[i]];
+          }
+          Arrays.sort(docDictionaryIds);
+          dictionaryIds[docId] = docDictionaryIds;
+        }
+        indexCreator.indexColumn(column, dictionaryIds);
+      }
+    }
+    driver.sealSegment();
+    LOGGER.info("Converted realtime segment {} with {} docs in {} ms", segmentName, numDocs,
+        System.currentTimeMillis() - start);
+  }
+
+  private String getRealtimeColumnName(String column) {
+    if (column.equals(dataSchema.getTimeFieldSpec().getName())) {
+      return realtimeTimeColumnName;
+    }
+    return column;
+  }
+
+  /**
+   * Orders the docs by the sorted dictionary ids of the column with a counting sort, keeping the realtime order of
+   * the docs that share a value.
+   */
+  private int[] sortDocIds(String column, SortedDictionary dictionary, int numDocs) {
+    FixedByteSingleColumnSingleValueReaderWriter forwardIndex =
+        (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegmentImpl.getForwardIndex(
+            getRealtimeColumnName(column));
+    int[] offsets = new int[dictionary.sortedValues.length + 1];
+    for (int docId = 0; docId < numDocs; docId++) {
+      offsets[dictionary.newDictionaryIds[forwardIndex.getInt(docId)] + 1]++;
+    }
+    for (int i = 1; i < offsets.length; i++) {
+      offsets[i] += offsets[i - 1];
+    }
+    int[] docIds = new int[numDocs];
+    for (int docId = 0; docId < numDocs; docId++) {
+      docIds[offsets[dictionary.newDictionaryIds[forwardIndex.getInt(docId)]]++] = docId;
+    }
+    return docIds;
+  }
+
+  private boolean isSorted(String column, SortedDictionary dictionary, int[] docIds, int numDocs) {
+    FixedByteSingleColumnSingleValueReaderWriter forwardIndex =
+        (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegmentImpl.getForwardIndex(
+            getRealtimeColumnName(column));
+    int previous = -1;
+    for (int docId = 0; docId < numDocs; docId++) {
+      int dictionaryId = dictionary.newDictionaryIds[forwardIndex.getInt(docIds == null ? docId : docIds[docId])];
+      if (dictionaryId < previous) {
+        return false;
+      }
+      previous = dictionaryId;
+    }
+    return true;
+  }
+
+  /**
+   * Sorts the values of a mutable dictionary in the order of the offline dictionary of the column.
+   */
+  static SortedDictionary sortDictionary(FieldSpec spec, MutableDictionaryReader dictionary,
+      boolean varLengthStrings) {
+    int cardinality = dictionary.length();
+    SortedDictionary sorted = new SortedDictionary(cardinality);
+    switch (spec.getDataType()) {
+      case INT: {
+        int[] values = new int[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+          values[i] = (int) dictionary.getLongValue(i);
+        }
+        int[] sortedValues = Arrays.copyOf(values, cardinality);
+        Arrays.sort(sortedValues);
+        for (int i = 0; i < cardinality; i++) {
+          sorted.newDictionaryIds[i] = Arrays.binarySearch(sortedValues, values[i]);
+          sorted.sortedValues[i] = sortedValues[i];
+        }
+        break;
+      }
+      case LONG: {
+        long[] values = new long[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+          values[i] = dictionary.getLongValue(i);
+        }
+        long[] sortedValues = Arrays.copyOf(values, cardinality);
+        Arrays.sort(sortedValues);
+        for (int i = 0; i < cardinality; i++) {
+          sorted.newDictionaryIds[i] = Arrays.binarySearch(sortedValues, values[i]);
+          sorted.sortedValues[i] = sortedValues[i];
+        }
+        break;
+      }
+      case FLOAT: {
+        float[] values = new float[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+          values[i] = (float) dictionary.getDoubleValue(i);
+        }
+        float[] sortedValues = Arrays.copyOf(values, cardinality);
+        Arrays.sort(sortedValues);
+        for (int i = 0; i < cardinality; i++) {
+          sorted.newDictionaryIds[i] = Arrays.binarySearch(sortedValues, values[i]);
+          sorted.sortedValues[i] = sortedValues[i];
+        }
+        break;
+      }
+      case DOUBLE: {
+        double[] values = new double[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+          values[i] = dictionary.getDoubleValue(i);
+        }
+        double[] sortedValues = Arrays.copyOf(values, cardinality);
+        Arrays.sort(sortedValues);
+        for (int i = 0; i < cardinality; i++) {
+          sorted.newDictionaryIds[i] = Arrays.binarySearch(sortedValues, values[i]);
+          sorted.sortedValues[i] = sortedValues[i];
+        }
+        break;
+      }
+      case STRING:
+      case BOOLEAN: {
+        String[] values = new String[cardinality];
+        int maxLength = 0;
+        for (int i = 0; i < cardinality; i++) {
+          values[i] = dictionary.toString(i);
+          maxLength = Math.max(maxLength, values[i].getBytes(UTF_8).length);
+        }
+        if (varLengthStrings) {
+          sortOnBytes(values, sorted);
+        } else {
+          sortOnPaddedValues(values, maxLength, sorted);
+        }
+        // min and max are reported on the values themselves
+        if (cardinality > 0) {
+          String[] sortedValues = Arrays.copyOf(values, cardinality);
+          Arrays.sort(sortedValues);
+          sorted.min = sortedValues[0];
+          sorted.max = sortedValues[cardinality - 1];
+        }
+        return sorted;
+      }
+      default:
+        throw new UnsupportedOperationException("Unsupported data type : " + spec.getDataType() + " for column : "
+            + spec.getName());
+    }
+    if (cardinality > 0) {
+      sorted.min = sorted.sortedValues[0];
+      sorted.max = sorted.sortedValues[cardinality - 1];
+    }
+    return sorted;
+  }
+
+  /**
+   * The padded offline dictionary is ordered on the values padded to the longest one.
+   */
+  private static void sortOnPaddedValues(String[] values, int maxLength, SortedDictionary sorted) {
+    int cardinality = values.length;
+    String[] paddedValues = new String[cardinality];
+    for (int i = 0; i < cardinality; i++) {
+      StringBuilder builder = new StringBuilder(values[i]);
+      for (int j = values[i].getBytes(UTF_8).length; j < maxLength; j++) {
+        builder.append(V1Constants.Str.STRING_PAD_CHAR);
+      }
+      paddedValues[i] = builder.toString();
+    }
+    String[] sortedPaddedValues = Arrays.copyOf(paddedValues, cardinality);
+    Arrays.sort(sortedPaddedValues);
+    for (int i = 0; i < cardinality; i++) {
+      int newDictionaryId = Arrays.binarySearch(sortedPaddedValues, paddedValues[i]);
+      sorted.newDictionaryIds[i] = newDictionaryId;
+      sorted.sortedValues[newDictionaryId] = values[i];
+    }
+  }
+
+  /**
+   * The variable length offline dictionary is ordered on the unsigned UTF-8 bytes of the values.
+   */
+  private static void sortOnBytes(String[] values, SortedDictionary sorted) {
+    int cardinality = values.length;
+    final byte[][] bytes = new byte[cardinality][];
+    Integer[] order = new Integer[cardinality];
+    for (int i = 0; i < cardinality; i++) {
+      bytes[i] = values[i].getBytes(UTF_8);
+      order[i] = i;
+    }
+    final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return comparator.compare(bytes[o1], bytes[o2]);
+      }
+    });
+    for (int newDictionaryId = 0; newDictionaryId < cardinality; newDictionaryId++) {
+      sorted.newDictionaryIds[order[newDictionaryId]] = newDictionaryId;
+      sorted.sortedValues[newDictionaryId] = values[order[newDictionaryId]];
+    }
+  }
+
+  /**
+   * Values of a column in sorted order, and the mapping from the ids of the mutable dictionary to the sorted ones.
+   */
+  static class SortedDictionary {
+    final Object[] sortedValues;
+    final int[] newDictionaryIds;
+    Object min;
+    Object max;
+
+    SortedDictionary(int cardinality) {
+      sortedValues = new Object[cardinality];
+      newDictionaryIds = new int[cardinality];
+    }
   }
 }
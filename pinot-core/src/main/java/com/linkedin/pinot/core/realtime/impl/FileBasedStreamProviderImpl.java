@@ -15,6 +15,10 @@
  */
 package com.linkedin.pinot.core.realtime.impl;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.extractors.FieldExtractor;
 import com.linkedin.pinot.core.data.extractors.FieldExtractorFactory;
@@ -60,6 +64,17 @@ public class FileBasedStreamProviderImpl implements StreamProvider {
     return null;
   }
 
+  @Override
+  public int nextBatch(List<GenericRow> rows, int maxRows) {
+    int numRows = 0;
+    while (numRows < maxRows && reader.hasNext()) {
+      rows.add(reader.next());
+      count++;
+      numRows++;
+    }
+    return numRows;
+  }
+
   @Override
   public GenericRow next(long offset) {
     throw new UnsupportedOperationException();
@@ -70,6 +85,11 @@ public class FileBasedStreamProviderImpl implements StreamProvider {
     return count;
   }
 
+  @Override
+  public Map<Integer, Long> currentOffsets() {
+    return Collections.singletonMap(0, (long) count);
+  }
+
   @Override
   public void commit() {
     throw new UnsupportedOperationException();
@@ -80,6 +100,11 @@ public class FileBasedStreamProviderImpl implements StreamProvider {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void commit(Map<Integer, Long> offsets) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void shutdown() throws Exception {
     reader.close();
@@ -43,6 +43,8 @@ import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.readers.RecordReader;
 import com.linkedin.pinot.core.index.reader.DataFileReader;
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
+import com.linkedin.pinot.core.index.readerwriter.impl.DirectMemoryManager;
 import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnMultiValueReaderWriter;
 import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
 import com.linkedin.pinot.core.indexsegment.IndexType;
@@ -50,11 +52,8 @@ import com.linkedin.pinot.core.realtime.RealtimeSegment;
 import com.linkedin.pinot.core.realtime.impl.datasource.RealtimeColumnDataSource;
 import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
 import com.linkedin.pinot.core.realtime.impl.dictionary.RealtimeDictionaryProvider;
-import com.linkedin.pinot.core.realtime.impl.invertedIndex.DimensionInvertertedIndex;
-import com.linkedin.pinot.core.realtime.impl.invertedIndex.MetricInvertedIndex;
 import com.linkedin.pinot.core.realtime.impl.invertedIndex.RealtimeInvertedIndex;
-import com.linkedin.pinot.core.realtime.impl.invertedIndex.TimeInvertedIndex;
-import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.realtime.impl.invertedIndex.RealtimeInvertedIndexImpl;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 
 
@@ -76,7 +75,8 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
 
   private Map<String, Integer> maxNumberOfMultivaluesMap;
 
-  private int docIdSearchableOffset = -1;
+  // Published after all indexes of a row are written, queries only look at docs up to this offset
+  private volatile int docIdSearchableOffset = -1;
   private int numDocsIndexed = 0;
   private int numSuccessIndexed = 0;
 
@@ -87,8 +87,35 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
   private final int capacity;
 
   private final Map<String, DataFileReader> columnIndexReaderWriterMap;
+  private final RealtimeIndexOffHeapMemoryManager memoryManager;
+
+  // Per column indexes resolved once for the batch indexing path, instead of map lookups for every row
+  private final String[] singleValueColumns;
+  private final MutableDictionaryReader[] singleValueDictionaries;
+  private final FixedByteSingleColumnSingleValueReaderWriter[] singleValueWriters;
+  private final RealtimeInvertedIndex[] singleValueInvertedIndexes;
+  private final String[] multiValueColumns;
+  private final MutableDictionaryReader[] multiValueDictionaries;
+  private final FixedByteSingleColumnMultiValueReaderWriter[] multiValueWriters;
+  private final RealtimeInvertedIndex[] multiValueInvertedIndexes;
+
+  // Dictionary ids of the batch being indexed, reused across batches
+  private int[][] batchSingleValueDictIds;
+  private int[][][] batchMultiValueDictIds;
+  private int[] batchTimeDictIds = new int[0];
 
   public RealtimeSegmentImpl(Schema schema, int capacity) throws IOException {
+    this(schema, capacity, new DirectMemoryManager("realtime"));
+  }
+
+  /**
+   * @param schema
+   * @param capacity maximum number of docs to index
+   * @param memoryManager allocates the forward indexes on demand, closed when the segment is destroyed
+   */
+  public RealtimeSegmentImpl(Schema schema, int capacity, RealtimeIndexOffHeapMemoryManager memoryManager)
+      throws IOException {
+    this.memoryManager = memoryManager;
     // intial variable setup
     dataSchema = schema;
     dictionaryMap = new HashMap<String, MutableDictionaryReader>();
@@ -120,27 +147,64 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     columnIndexReaderWriterMap = new HashMap<String, DataFileReader>();
     invertedIndexMap = new HashMap<String, RealtimeInvertedIndex>();
 
+    int numRowsPerChunk = Math.min(FixedByteSingleColumnSingleValueReaderWriter.DEFAULT_NUM_ROWS_PER_CHUNK,
+        Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1);
     for (String dimension : schema.getDimensionNames()) {
-      invertedIndexMap.put(dimension, new DimensionInvertertedIndex(dimension));
+      invertedIndexMap.put(dimension, new RealtimeInvertedIndexImpl(dimension));
       if (schema.getFieldSpecFor(dimension).isSingleValueField()) {
-        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnSingleValueReaderWriter(capacity,
-            V1Constants.Dict.INT_DICTIONARY_COL_SIZE));
+        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnSingleValueReaderWriter(numRowsPerChunk,
+            Integer.SIZE / 8, memoryManager, dimension));
       } else {
-        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnMultiValueReaderWriter(capacity,
-            Integer.SIZE / 8, FixedByteSingleColumnMultiValueReaderWriter.DEFAULT_MAX_NUMBER_OF_MULTIVALUES));
+        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnMultiValueReaderWriter(numRowsPerChunk,
+            Integer.SIZE / 8, FixedByteSingleColumnMultiValueReaderWriter.DEFAULT_MAX_NUMBER_OF_MULTIVALUES,
+            numRowsPerChunk, memoryManager, dimension));
       }
     }
 
     for (String metric : schema.getMetricNames()) {
-      invertedIndexMap.put(metric, new MetricInvertedIndex(metric));
-      columnIndexReaderWriterMap.put(metric, new FixedByteSingleColumnSingleValueReaderWriter(capacity,
-          V1Constants.Dict.INT_DICTIONARY_COL_SIZE));
+      invertedIndexMap.put(metric, new RealtimeInvertedIndexImpl(metric));
+      columnIndexReaderWriterMap.put(metric, new FixedByteSingleColumnSingleValueReaderWriter(numRowsPerChunk,
+          Integer.SIZE / 8, memoryManager, metric));
     }
 
-    invertedIndexMap.put(outgoingTimeColumnName, new TimeInvertedIndex(outgoingTimeColumnName));
-    columnIndexReaderWriterMap.put(outgoingTimeColumnName, new FixedByteSingleColumnSingleValueReaderWriter(capacity,
-        V1Constants.Dict.INT_DICTIONARY_COL_SIZE));
+    invertedIndexMap.put(outgoingTimeColumnName, new RealtimeInvertedIndexImpl(outgoingTimeColumnName));
+    columnIndexReaderWriterMap.put(outgoingTimeColumnName, new FixedByteSingleColumnSingleValueReaderWriter(
+        numRowsPerChunk, Integer.SIZE / 8, memoryManager, outgoingTimeColumnName));
 
+    List<String> singleValueColumnList = new ArrayList<String>();
+    List<String> multiValueColumnList = new ArrayList<String>();
+    for (String dimension : schema.getDimensionNames()) {
+      if (schema.getFieldSpecFor(dimension).isSingleValueField()) {
+        singleValueColumnList.add(dimension);
+      } else {
+        multiValueColumnList.add(dimension);
+      }
+    }
+    singleValueColumnList.addAll(schema.getMetricNames());
+
+    singleValueColumns = singleValueColumnList.toArray(new String[singleValueColumnList.size()]);
+    singleValueDictionaries = new MutableDictionaryReader[singleValueColumns.length];
+    singleValueWriters = new FixedByteSingleColumnSingleValueReaderWriter[singleValueColumns.length];
+    singleValueInvertedIndexes = new RealtimeInvertedIndex[singleValueColumns.length];
+    for (int i = 0; i < singleValueColumns.length; i++) {
+      singleValueDictionaries[i] = dictionaryMap.get(singleValueColumns[i]);
+      singleValueWriters[i] =
+          (FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(singleValueColumns[i]);
+      singleValueInvertedIndexes[i] = invertedIndexMap.get(singleValueColumns[i]);
+    }
+    batchSingleValueDictIds = new int[singleValueColumns.length][0];
+
+    multiValueColumns = multiValueColumnList.toArray(new String[multiValueColumnList.size()]);
+    multiValueDictionaries = new MutableDictionaryReader[multiValueColumns.length];
+    multiValueWriters = new FixedByteSingleColumnMultiValueReaderWriter[multiValueColumns.length];
+    multiValueInvertedIndexes = new RealtimeInvertedIndex[multiValueColumns.length];
+    for (int i = 0; i < multiValueColumns.length; i++) {
+      multiValueDictionaries[i] = dictionaryMap.get(multiValueColumns[i]);
+      multiValueWriters[i] =
+          (FixedByteSingleColumnMultiValueReaderWriter) columnIndexReaderWriterMap.get(multiValueColumns[i]);
+      multiValueInvertedIndexes[i] = invertedIndexMap.get(multiValueColumns[i]);
+    }
+    batchMultiValueDictIds = new int[multiValueColumns.length][0][];
   }
 
   @Override
@@ -160,103 +224,124 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
 
   @Override
   public boolean index(GenericRow row) {
-    if (numDocsIndexed >= capacity) {
-      return false;
+    return index(Collections.singletonList(row)) == 1;
+  }
+
+  /**
+   * Indexes a batch of rows column by column and makes them searchable at once. Rows that do not fit in the
+   * remaining capacity of the segment are left out.
+   *
+   * @param rows rows to index, in docId order
+   * @return number of rows indexed, counted from the beginning of the list
+   */
+  public int index(List<GenericRow> rows) {
+    int numRows = Math.min(rows.size(), capacity - numDocsIndexed);
+    if (numRows <= 0) {
+      return 0;
     }
-    // updating dictionary for dimesions only
-    // its ok to insert this first
-    // since filtering won't return back anything unless a new entry is made in the inverted index
-    for (String dimension : dataSchema.getDimensionNames()) {
-      dictionaryMap.get(dimension).index(row.getValue(dimension));
-      if (!dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-        Object[] entries = (Object[]) row.getValue(dimension);
-        if ((entries != null) && (maxNumberOfMultivaluesMap.get(dimension) < entries.length)) {
-          maxNumberOfMultivaluesMap.put(dimension, entries.length);
-        }
+    ensureBatchCapacity(numRows);
+
+    // Add all values to the dictionaries first, a new dictionary entry is not visible to filters until the inverted
+    // index references it. Nothing below the searchable offset is touched if a row of the batch fails here.
+    for (int i = 0; i < singleValueColumns.length; i++) {
+      String column = singleValueColumns[i];
+      MutableDictionaryReader dictionary = singleValueDictionaries[i];
+      int[] dictIds = batchSingleValueDictIds[i];
+      for (int row = 0; row < numRows; row++) {
+        dictIds[row] = dictionary.indexSingleValue(rows.get(row).getValue(column));
       }
     }
 
-    for (String metric : dataSchema.getMetricNames()) {
-      dictionaryMap.get(metric).index(row.getValue(metric));
-    }
-
-    // convert time granularity and add the time value to dictionary
-    Object timeValueObj = timeConverter.convert(row.getValue(incomingTimeColumnName));
-
-    long timeValue = -1;
-    if (timeValueObj instanceof Integer) {
-      timeValue = ((Integer) timeValueObj).longValue();
-    } else {
-      timeValue = (Long) timeValueObj;
+    for (int i = 0; i < multiValueColumns.length; i++) {
+      String column = multiValueColumns[i];
+      MutableDictionaryReader dictionary = multiValueDictionaries[i];
+      int[][] dictIds = batchMultiValueDictIds[i];
+      for (int row = 0; row < numRows; row++) {
+        Object[] values = (Object[]) rows.get(row).getValue(column);
+        int[] rowDictIds = new int[values.length];
+        for (int j = 0; j < values.length; j++) {
+          rowDictIds[j] = dictionary.indexSingleValue(values[j]);
+        }
+        dictIds[row] = rowDictIds;
+      }
     }
 
-    dictionaryMap.get(outgoingTimeColumnName).index(timeValueObj);
-
-    // update the min max time values
-    minTimeVal = Math.min(minTimeVal, timeValue);
-    maxTimeVal = Math.max(maxTimeVal, timeValue);
-
-    // also lets collect all dicIds to update inverted index later
-    Map<String, Object> rawRowToDicIdMap = new HashMap<String, Object>();
-
-    // lets update forward index now
-    int docId = docIdGenerator.incrementAndGet();
-
-    for (String dimension : dataSchema.getDimensionNames()) {
-      if (dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-        int dicId = dictionaryMap.get(dimension).indexOf(row.getValue(dimension));
-        ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(dimension)).setInt(docId, dicId);
-        rawRowToDicIdMap.put(dimension, dicId);
+    // convert time granularity and add the time values to the dictionary
+    MutableDictionaryReader timeDictionary = dictionaryMap.get(outgoingTimeColumnName);
+    long batchMinTimeVal = minTimeVal;
+    long batchMaxTimeVal = maxTimeVal;
+    for (int row = 0; row < numRows; row++) {
+      Object timeValueObj = timeConverter.convert(rows.get(row).getValue(incomingTimeColumnName));
+      long timeValue;
+      if (timeValueObj instanceof Integer) {
+        timeValue = ((Integer) timeValueObj).longValue();
       } else {
-        Object[] mValues = (Object[]) row.getValue(dimension);
-        int[] dicIds = new int[mValues.length];
-        for (int i = 0; i < dicIds.length; i++) {
-          dicIds[i] = dictionaryMap.get(dimension).indexOf(mValues[i]);
-        }
-        ((FixedByteSingleColumnMultiValueReaderWriter) columnIndexReaderWriterMap.get(dimension)).setIntArray(docId,
-            dicIds);
-        rawRowToDicIdMap.put(dimension, dicIds);
+        timeValue = (Long) timeValueObj;
       }
+      batchMinTimeVal = Math.min(batchMinTimeVal, timeValue);
+      batchMaxTimeVal = Math.max(batchMaxTimeVal, timeValue);
+      batchTimeDictIds[row] = timeDictionary.indexSingleValue(timeValueObj);
     }
 
-    for (String metric : dataSchema.getMetricNames()) {
-      FixedByteSingleColumnSingleValueReaderWriter readerWriter =
-          (FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric);
-      int dicId = dictionaryMap.get(metric).indexOf(row.getValue(metric));
-      readerWriter.setInt(docId, dicId);
-      rawRowToDicIdMap.put(metric, dicId);
+    // write the forward and inverted indexes one column at a time, docIds are ascending within each column
+    int firstDocId = docIdGenerator.get() + 1;
+    for (int i = 0; i < singleValueColumns.length; i++) {
+      writeSingleValueColumn(singleValueWriters[i], singleValueInvertedIndexes[i], batchSingleValueDictIds[i],
+          firstDocId, numRows);
     }
 
-    int timeDicId = dictionaryMap.get(outgoingTimeColumnName).indexOf(timeValueObj);
+    for (int i = 0; i < multiValueColumns.length; i++) {
+      FixedByteSingleColumnMultiValueReaderWriter writer = multiValueWriters[i];
+      RealtimeInvertedIndex invertedIndex = multiValueInvertedIndexes[i];
+      int[][] dictIds = batchMultiValueDictIds[i];
+      int maxNumberOfMultivalues = maxNumberOfMultivaluesMap.get(multiValueColumns[i]);
+      for (int row = 0; row < numRows; row++) {
+        int docId = firstDocId + row;
+        int[] rowDictIds = dictIds[row];
+        writer.setIntArray(docId, rowDictIds);
+        for (int dictId : rowDictIds) {
+          invertedIndex.add(dictId, docId);
+        }
+        maxNumberOfMultivalues = Math.max(maxNumberOfMultivalues, rowDictIds.length);
+        dictIds[row] = null;
+      }
+      maxNumberOfMultivaluesMap.put(multiValueColumns[i], maxNumberOfMultivalues);
+    }
 
-    ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(outgoingTimeColumnName)).setInt(
-        docId, timeDicId);
-    rawRowToDicIdMap.put(outgoingTimeColumnName, timeDicId);
+    writeSingleValueColumn(
+        (FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(outgoingTimeColumnName),
+        invertedIndexMap.get(outgoingTimeColumnName), batchTimeDictIds, firstDocId, numRows);
+
+    minTimeVal = batchMinTimeVal;
+    maxTimeVal = batchMaxTimeVal;
+    docIdGenerator.addAndGet(numRows);
+    docIdSearchableOffset = firstDocId + numRows - 1;
+    numDocsIndexed += numRows;
+    numSuccessIndexed += numRows;
+    return numRows;
+  }
 
-    // lets update the inverted index now
-    // metrics
-    for (String metric : dataSchema.getMetricNames()) {
-      invertedIndexMap.get(metric).add(rawRowToDicIdMap.get(metric), docId);
+  private static void writeSingleValueColumn(FixedByteSingleColumnSingleValueReaderWriter writer,
+      RealtimeInvertedIndex invertedIndex, int[] dictIds, int firstDocId, int numRows) {
+    for (int row = 0; row < numRows; row++) {
+      writer.setInt(firstDocId + row, dictIds[row]);
     }
-
-    //dimension
-    for (String dimension : dataSchema.getDimensionNames()) {
-      if (dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-        invertedIndexMap.get(dimension).add(rawRowToDicIdMap.get(dimension), docId);
-      } else {
-        int[] dicIds = (int[]) rawRowToDicIdMap.get(dimension);
-        for (int dicId : dicIds) {
-          invertedIndexMap.get(dimension).add(dicId, docId);
-        }
-      }
+    for (int row = 0; row < numRows; row++) {
+      invertedIndex.add(dictIds[row], firstDocId + row);
     }
-    //time
-    invertedIndexMap.get(outgoingTimeColumnName).add(rawRowToDicIdMap.get(outgoingTimeColumnName), docId);
+  }
 
-    docIdSearchableOffset = docId;
-    numDocsIndexed += 1;
-    numSuccessIndexed += 1;
-    return true;
+  private void ensureBatchCapacity(int numRows) {
+    if (batchTimeDictIds.length >= numRows) {
+      return;
+    }
+    for (int i = 0; i < batchSingleValueDictIds.length; i++) {
+      batchSingleValueDictIds[i] = new int[numRows];
+    }
+    for (int i = 0; i < batchMultiValueDictIds.length; i++) {
+      batchMultiValueDictIds[i] = new int[numRows][];
+    }
+    batchTimeDictIds = new int[numRows];
   }
 
   @Override
@@ -340,7 +425,15 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
 
   @Override
   public void destroy() {
-    throw new UnsupportedOperationException("not implemented");
+    // Forward indexes are all allocated from the memory manager, which releases them at once
+    memoryManager.close();
+  }
+
+  /**
+   * Returns the number of bytes of off-heap memory used by the forward indexes of this segment.
+   */
+  public long getOffHeapMemoryUsed() {
+    return memoryManager.getAllocatedBytes();
   }
 
   private IntIterator[] getSortedBitmapIntIteratorsForStringColumn(final String columnToSortOn) {
@@ -359,7 +452,7 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     LOGGER.info("dictionary len : {}, time to sort : {} ", dictionary.length(), (System.currentTimeMillis() - start));
 
     for (int i = 0; i < rawValues.size(); i++) {
-      intIterators[i] = index.getDocIdSetFor(dictionary.indexOf(rawValues.get(i))).getIntIterator();
+      intIterators[i] = index.getImmutable(dictionary.indexOf(rawValues.get(i))).getIntIterator();
     }
     return intIterators;
   }
@@ -382,7 +475,7 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     LOGGER.info("dictionary len : {}, time to sort : {} ", dictionary.length(), (System.currentTimeMillis() - start));
 
     for (int i = 0; i < rawValuesArr.length; i++) {
-      intIterators[i] = index.getDocIdSetFor(dictionary.indexOf(rawValuesArr[i])).getIntIterator();
+      intIterators[i] = index.getImmutable(dictionary.indexOf(rawValuesArr[i])).getIntIterator();
     }
     return intIterators;
   }
@@ -403,7 +496,7 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     LOGGER.info("dictionary len : {}, time to sort : {} ", dictionary.length(), (System.currentTimeMillis() - start));
 
     for (int i = 0; i < rawValues.size(); i++) {
-      intIterators[i] = index.getDocIdSetFor(dictionary.indexOf(rawValues.get(i))).getIntIterator();
+      intIterators[i] = index.getImmutable(dictionary.indexOf(rawValues.get(i))).getIntIterator();
     }
     return intIterators;
   }
@@ -424,7 +517,7 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     LOGGER.info("dictionary len : {}, time to sort : {} ", dictionary.length(), (System.currentTimeMillis() - start));
 
     for (int i = 0; i < rawValues.size(); i++) {
-      intIterators[i] = index.getDocIdSetFor(dictionary.indexOf(rawValues.get(i))).getIntIterator();
+      intIterators[i] = index.getImmutable(dictionary.indexOf(rawValues.get(i))).getIntIterator();
     }
     return intIterators;
   }
@@ -445,7 +538,7 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     LOGGER.info("dictionary len : {}, time to sort : {} ", dictionary.length(), (System.currentTimeMillis() - start));
 
     for (int i = 0; i < rawValues.size(); i++) {
-      intIterators[i] = index.getDocIdSetFor(dictionary.indexOf(rawValues.get(i))).getIntIterator();
+      intIterators[i] = index.getImmutable(dictionary.indexOf(rawValues.get(i))).getIntIterator();
     }
     return intIterators;
   }
@@ -575,4 +668,21 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
   public boolean hasDictionary(String columnName) {
     return dictionaryMap.containsKey(columnName);
   }
+
+  public MutableDictionaryReader getDictionary(String columnName) {
+    return dictionaryMap.get(columnName);
+  }
+
+  /**
+   * Returns the forward index of the column, holding dictionary ids: a
+   * {@link FixedByteSingleColumnSingleValueReaderWriter} for single value columns, a
+   * {@link FixedByteSingleColumnMultiValueReaderWriter} for multi value ones.
+   */
+  public DataFileReader getForwardIndex(String columnName) {
+    return columnIndexReaderWriterMap.get(columnName);
+  }
+
+  public int getMaxNumberOfMultiValues(String columnName) {
+    return maxNumberOfMultivaluesMap.get(columnName);
+  }
 }
@@ -137,6 +137,11 @@ public class RealtimeMultiValueBlock implements Block {
         };
       }
 
+      @Override
+      public void readIntValues(int[] docIds, int length, int[] values) {
+        throw new UnsupportedOperationException("readIntValues is not supported on multi value blocks");
+      }
+
       @Override
       public DataType getValueType() {
         return spec.getDataType();
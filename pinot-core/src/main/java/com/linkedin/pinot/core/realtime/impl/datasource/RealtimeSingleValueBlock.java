@@ -138,6 +138,11 @@ public class RealtimeSingleValueBlock implements Block {
         };
       }
 
+      @Override
+      public void readIntValues(int[] docIds, int length, int[] values) {
+        reader.readIntValues(docIds, length, values);
+      }
+
       @Override
       public DataType getValueType() {
         return spec.getDataType();
@@ -15,13 +15,17 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import com.linkedin.pinot.common.data.FieldSpec;
 
 
 public class DoubleMutableDictionary extends MutableDictionaryReader {
 
-  private Double min = Double.MAX_VALUE;
-  private Double max = Double.MIN_VALUE;
+  private volatile double[] _values = new double[INITIAL_CAPACITY];
+  private volatile double _min = Double.MAX_VALUE;
+  private volatile double _max = -Double.MAX_VALUE;
 
   public DoubleMutableDictionary(FieldSpec spec) {
     super(spec);
@@ -34,43 +38,75 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Double entry = new Double(Double.parseDouble(rawValue.toString()));
-      addToDictionaryBiMap(entry);
-      updateMinMax(entry);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          indexDouble(toDouble(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Double) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Double) rawValue);
-      return;
-    }
+    indexDouble(toDouble(rawValue));
+  }
 
-    if (rawValue instanceof Object[]) {
-      for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          addToDictionaryBiMap(new Double(Double.parseDouble(o.toString())));
-          updateMinMax(new Double(Double.parseDouble(o.toString())));
-          continue;
-        }
+  @Override
+  public int indexSingleValue(Object rawValue) {
+    return indexDouble(toDouble(rawValue));
+  }
 
-        if (o instanceof Double) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Double) o);
-          continue;
-        }
-      }
+  /**
+   * Adds the value if absent and returns its dictionary id. Must only be called by the indexing thread.
+   */
+  public int indexDouble(double value) {
+    int dictionaryId = indexOfDouble(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
     }
+    dictionaryId = length();
+    double[] values = _values;
+    if (dictionaryId == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+      _values = values;
+    }
+    values[dictionaryId] = value;
+    if (value < _min) {
+      _min = value;
+    }
+    if (value > _max) {
+      _max = value;
+    }
+    long bits = Double.doubleToLongBits(value);
+    addEntry((int) (bits ^ (bits >>> 32)), dictionaryId);
+    return dictionaryId;
   }
 
-  private void updateMinMax(Double entry) {
-    if (entry < min) {
-      min = entry;
+  public int indexOfDouble(double value) {
+    long bits = Double.doubleToLongBits(value);
+    AtomicIntegerArray table = getHashTable();
+    int mask = table.length() - 1;
+    for (int slot = mix((int) (bits ^ (bits >>> 32))) & mask;; slot = (slot + 1) & mask) {
+      int entry = table.get(slot);
+      if (entry == 0) {
+        return NULL_VALUE_INDEX;
+      }
+      if (Double.doubleToLongBits(_values[entry - 1]) == bits) {
+        return entry - 1;
+      }
     }
-    if (entry > max) {
-      max = entry;
+  }
+
+  private static double toDouble(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).doubleValue();
     }
+    return Double.parseDouble(rawValue.toString());
+  }
+
+  @Override
+  protected int hashOf(int dictionaryId) {
+    long bits = Double.doubleToLongBits(_values[dictionaryId]);
+    return (int) (bits ^ (bits >>> 32));
   }
 
   @Override
@@ -78,38 +114,37 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Double(Double.parseDouble(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Double(Double.parseDouble(rawValue.toString())));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return indexOfDouble(toDouble(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).longValue();
+    return (long) _values[dictionaryId];
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return _values[dictionaryId];
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
+    return Double.toString(_values[dictionaryId]);
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Double.toString(_values[dictionaryId]);
   }
 
   @Override
@@ -146,22 +181,18 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private double getDouble(int dictionaryId) {
-    return ((Double) dictionaryIdBiMap.get(new Integer(dictionaryId))).doubleValue();
+  public double getDouble(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
   public Object getMinVal() {
-    return min;
+    return _min;
   }
 
   @Override
   public Object getMaxVal() {
-    return max;
+    return _max;
   }
+
 }
@@ -15,13 +15,17 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import com.linkedin.pinot.common.data.FieldSpec;
 
 
 public class FloatMutableDictionary extends MutableDictionaryReader {
 
-  private Float min = Float.MAX_VALUE;
-  private Float max = Float.MIN_VALUE;
+  private volatile float[] _values = new float[INITIAL_CAPACITY];
+  private volatile float _min = Float.MAX_VALUE;
+  private volatile float _max = -Float.MAX_VALUE;
 
   public FloatMutableDictionary(FieldSpec spec) {
     super(spec);
@@ -33,44 +37,74 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
       hasNull = true;
       return;
     }
-    if (rawValue instanceof String) {
-      Float e = new Float(Float.parseFloat(rawValue.toString()));
-      addToDictionaryBiMap(e);
-      updateMinMax(e);
-      return;
-    }
 
-    if (rawValue instanceof Float) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Float) rawValue);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          indexFloat(toFloat(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Object[]) {
+    indexFloat(toFloat(rawValue));
+  }
 
-      for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          addToDictionaryBiMap(new Float(Float.parseFloat(o.toString())));
-          updateMinMax(new Float(Float.parseFloat(o.toString())));
-          continue;
-        }
+  @Override
+  public int indexSingleValue(Object rawValue) {
+    return indexFloat(toFloat(rawValue));
+  }
 
-        if (o instanceof Float) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Float) o);
-          continue;
-        }
-      }
+  /**
+   * Adds the value if absent and returns its dictionary id. Must only be called by the indexing thread.
+   */
+  public int indexFloat(float value) {
+    int dictionaryId = indexOfFloat(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
     }
+    dictionaryId = length();
+    float[] values = _values;
+    if (dictionaryId == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+      _values = values;
+    }
+    values[dictionaryId] = value;
+    if (value < _min) {
+      _min = value;
+    }
+    if (value > _max) {
+      _max = value;
+    }
+    addEntry(Float.floatToIntBits(value), dictionaryId);
+    return dictionaryId;
   }
 
-  private void updateMinMax(Float entry) {
-    if (entry < min) {
-      min = entry;
+  public int indexOfFloat(float value) {
+    int bits = Float.floatToIntBits(value);
+    AtomicIntegerArray table = getHashTable();
+    int mask = table.length() - 1;
+    for (int slot = mix(bits) & mask;; slot = (slot + 1) & mask) {
+      int entry = table.get(slot);
+      if (entry == 0) {
+        return NULL_VALUE_INDEX;
+      }
+      if (Float.floatToIntBits(_values[entry - 1]) == bits) {
+        return entry - 1;
+      }
     }
-    if (entry > max) {
-      max = entry;
+  }
+
+  private static float toFloat(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).floatValue();
     }
+    return Float.parseFloat(rawValue.toString());
+  }
+
+  @Override
+  protected int hashOf(int dictionaryId) {
+    return Float.floatToIntBits(_values[dictionaryId]);
   }
 
   @Override
@@ -78,38 +112,37 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Float(Float.parseFloat(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Float(Float.parseFloat(rawValue.toString())));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return indexOfFloat(toFloat(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).longValue();
+    return (long) _values[dictionaryId];
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return _values[dictionaryId];
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).toString();
+    return Float.toString(_values[dictionaryId]);
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Float.toString(_values[dictionaryId]);
   }
 
   @Override
@@ -146,22 +179,18 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private float getFloat(int dictionaryId) {
-    return ((Float) dictionaryIdBiMap.get(new Integer(dictionaryId))).floatValue();
+  public float getFloat(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
   public Object getMinVal() {
-    return min;
+    return _min;
   }
 
   @Override
   public Object getMaxVal() {
-    return max;
+    return _max;
   }
+
 }
@@ -15,13 +15,17 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import com.linkedin.pinot.common.data.FieldSpec;
 
 
 public class IntMutableDictionary extends MutableDictionaryReader {
 
-  private Integer min = Integer.MAX_VALUE;
-  private Integer max = Integer.MIN_VALUE;
+  private volatile int[] _values = new int[INITIAL_CAPACITY];
+  private volatile int _min = Integer.MAX_VALUE;
+  private volatile int _max = Integer.MIN_VALUE;
 
   public IntMutableDictionary(FieldSpec spec) {
     super(spec);
@@ -34,46 +38,72 @@ public class IntMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Integer entry = new Integer(Integer.parseInt(rawValue.toString()));
-      addToDictionaryBiMap(entry);
-      updateMinMax(entry);
-      return;
-    }
-
-    if (rawValue instanceof Integer) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Integer) rawValue);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          indexInt(toInt(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Object[]) {
-      Object[] multivalues = (Object[]) rawValue;
+    indexInt(toInt(rawValue));
+  }
 
-      for (int i = 0; i < multivalues.length; i++) {
+  @Override
+  public int indexSingleValue(Object rawValue) {
+    return indexInt(toInt(rawValue));
+  }
 
-        if (multivalues[i] instanceof String) {
-          addToDictionaryBiMap(new Integer(Integer.parseInt(multivalues[i].toString())));
-          updateMinMax(Integer.parseInt(multivalues[i].toString()));
-          continue;
-        }
+  /**
+   * Adds the value if absent and returns its dictionary id. Must only be called by the indexing thread.
+   */
+  public int indexInt(int value) {
+    int dictionaryId = indexOfInt(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
+    }
+    dictionaryId = length();
+    int[] values = _values;
+    if (dictionaryId == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+      _values = values;
+    }
+    values[dictionaryId] = value;
+    if (value < _min) {
+      _min = value;
+    }
+    if (value > _max) {
+      _max = value;
+    }
+    addEntry(value, dictionaryId);
+    return dictionaryId;
+  }
 
-        if (multivalues[i] instanceof Integer) {
-          addToDictionaryBiMap(multivalues[i]);
-          updateMinMax((Integer) multivalues[i]);
-          continue;
-        }
+  public int indexOfInt(int value) {
+    AtomicIntegerArray table = getHashTable();
+    int mask = table.length() - 1;
+    for (int slot = mix(value) & mask;; slot = (slot + 1) & mask) {
+      int entry = table.get(slot);
+      if (entry == 0) {
+        return NULL_VALUE_INDEX;
+      }
+      if (_values[entry - 1] == value) {
+        return entry - 1;
       }
     }
   }
 
-  private void updateMinMax(Integer entry) {
-    if (entry < min) {
-      min = entry;
-    }
-    if (entry > max) {
-      max = entry;
+  private static int toInt(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).intValue();
     }
+    return Integer.parseInt(rawValue.toString());
+  }
+
+  @Override
+  protected int hashOf(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
@@ -81,43 +111,37 @@ public class IntMutableDictionary extends MutableDictionaryReader {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Integer(Integer.parseInt(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Integer(Integer.parseInt(rawValue.toString())));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return indexOfInt(toInt(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).longValue();
+    return _values[dictionaryId];
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return _values[dictionaryId];
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+    return Integer.toString(_values[dictionaryId]);
   }
 
   @Override
   public String getStringValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+    return Integer.toString(_values[dictionaryId]);
   }
 
   @Override
@@ -155,17 +179,17 @@ public class IntMutableDictionary extends MutableDictionaryReader {
   }
 
   public int getInt(int dictionaryId) {
-    return ((Integer) dictionaryIdBiMap.get(new Integer(dictionaryId))).intValue();
+    return _values[dictionaryId];
   }
 
   @Override
   public Object getMinVal() {
-    return min;
+    return _min;
   }
 
   @Override
   public Object getMaxVal() {
-    return max;
+    return _max;
   }
 
 }
@@ -15,13 +15,17 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import com.linkedin.pinot.common.data.FieldSpec;
 
 
 public class LongMutableDictionary extends MutableDictionaryReader {
 
-  private Long min = Long.MAX_VALUE;
-  private Long max = Long.MIN_VALUE;
+  private volatile long[] _values = new long[INITIAL_CAPACITY];
+  private volatile long _min = Long.MAX_VALUE;
+  private volatile long _max = Long.MIN_VALUE;
 
   public LongMutableDictionary(FieldSpec spec) {
     super(spec);
@@ -34,43 +38,73 @@ public class LongMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Long e = new Long(Long.parseLong(rawValue.toString()));
-      addToDictionaryBiMap(e);
-      updateMinMax(e);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          indexLong(toLong(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Long) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Long) rawValue);
-      return;
-    }
+    indexLong(toLong(rawValue));
+  }
 
-    if (rawValue instanceof Object[]) {
-      for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          addToDictionaryBiMap(new Long(Long.parseLong(o.toString())));
-          updateMinMax(new Long(Long.parseLong(o.toString())));
-          continue;
-        }
+  @Override
+  public int indexSingleValue(Object rawValue) {
+    return indexLong(toLong(rawValue));
+  }
 
-        if (o instanceof Long) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Long) o);
-          continue;
-        }
-      }
+  /**
+   * Adds the value if absent and returns its dictionary id. Must only be called by the indexing thread.
+   */
+  public int indexLong(long value) {
+    int dictionaryId = indexOfLong(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
     }
+    dictionaryId = length();
+    long[] values = _values;
+    if (dictionaryId == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+      _values = values;
+    }
+    values[dictionaryId] = value;
+    if (value < _min) {
+      _min = value;
+    }
+    if (value > _max) {
+      _max = value;
+    }
+    addEntry((int) (value ^ (value >>> 32)), dictionaryId);
+    return dictionaryId;
   }
 
-  private void updateMinMax(Long entry) {
-    if (entry < min) {
-      min = entry;
+  public int indexOfLong(long value) {
+    AtomicIntegerArray table = getHashTable();
+    int mask = table.length() - 1;
+    for (int slot = mix((int) (value ^ (value >>> 32))) & mask;; slot = (slot + 1) & mask) {
+      int entry = table.get(slot);
+      if (entry == 0) {
+        return NULL_VALUE_INDEX;
+      }
+      if (_values[entry - 1] == value) {
+        return entry - 1;
+      }
     }
-    if (entry > max) {
-      max = entry;
+  }
+
+  private static long toLong(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).longValue();
     }
+    return Long.parseLong(rawValue.toString());
+  }
+
+  @Override
+  protected int hashOf(int dictionaryId) {
+    long v = _values[dictionaryId];
+    return (int) (v ^ (v >>> 32));
   }
 
   @Override
@@ -78,38 +112,37 @@ public class LongMutableDictionary extends MutableDictionaryReader {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Long(Long.parseLong(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Long(Long.parseLong(rawValue.toString())));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return indexOfLong(toLong(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).longValue();
+    return _values[dictionaryId];
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return _values[dictionaryId];
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).toString();
+    return Long.toString(_values[dictionaryId]);
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Long.toString(_values[dictionaryId]);
   }
 
   @Override
@@ -146,22 +179,18 @@ public class LongMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private long getLong(int dictionaryId) {
-    return ((Long) dictionaryIdBiMap.get(new Integer(dictionaryId))).longValue();
+  public long getLong(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
   public Object getMinVal() {
-    return min;
+    return _min;
   }
 
   @Override
   public Object getMaxVal() {
-    return max;
+    return _max;
   }
+
 }
@@ -15,48 +15,78 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
+/**
+ * Base class for the realtime dictionaries.
+ *
+ * Dictionaries are written by a single indexing thread and read concurrently by queries without locking. Values live
+ * in primitive arrays indexed by dictionary id; the value to id lookup is an open addressing table of dictId + 1 (0
+ * marks an empty slot). The writer stores the value before setting its slot and bumps the volatile length last, and
+ * grows the arrays by copying and republishing them, so a reader either misses a new entry or sees it completely.
+ */
 public abstract class MutableDictionaryReader implements Dictionary {
-  protected BiMap<Integer, Object> dictionaryIdBiMap;
+  protected static final int INITIAL_CAPACITY = 64;
+
   protected FieldSpec spec;
-  protected boolean hasNull = false;
-  private final AtomicInteger dictionaryIdGenerator;
+  protected volatile boolean hasNull = false;
+
+  private volatile AtomicIntegerArray _hashTable = new AtomicIntegerArray(INITIAL_CAPACITY * 2);
+  private volatile int _length = 0;
 
   public MutableDictionaryReader(FieldSpec spec) {
     this.spec = spec;
-    this.dictionaryIdBiMap = HashBiMap.<Integer, Object> create();
-    dictionaryIdGenerator = new AtomicInteger(-1);
   }
 
-  protected void addToDictionaryBiMap(Object val) {
-    if (!dictionaryIdBiMap.inverse().containsKey(val)) {
-      dictionaryIdBiMap.put(new Integer(dictionaryIdGenerator.incrementAndGet()), val);
-      return;
-    }
+  /**
+   * Returns the hash of the value stored under the given dictionary id, used when the lookup table is rebuilt.
+   */
+  protected abstract int hashOf(int dictionaryId);
+
+  protected static int mix(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
   }
 
-  @Override
-  public int length() {
-    return dictionaryIdGenerator.get() + 1;
+  protected AtomicIntegerArray getHashTable() {
+    return _hashTable;
   }
 
-  protected Integer getIndexOfFromBiMap(Object val) {
-    Integer ret = dictionaryIdBiMap.inverse().get(val);
-    if (ret == null) {
-      ret = -1;
+  /**
+   * Makes a new entry visible to readers. Must only be called by the indexing thread, after the value for the new
+   * dictionary id (which must be {@link #length()}) has been stored.
+   */
+  protected void addEntry(int hash, int dictionaryId) {
+    AtomicIntegerArray table = _hashTable;
+    if ((dictionaryId + 1) * 2 > table.length()) {
+      table = new AtomicIntegerArray(table.length() * 2);
+      for (int i = 0; i < dictionaryId; i++) {
+        insert(table, hashOf(i), i);
+      }
+      insert(table, hash, dictionaryId);
+      _hashTable = table;
+    } else {
+      insert(table, hash, dictionaryId);
     }
-    return ret;
+    _length = dictionaryId + 1;
   }
 
-  protected Object getRawValueFromBiMap(int dictionaryId) {
-    return dictionaryIdBiMap.get(new Integer(dictionaryId));
+  private static void insert(AtomicIntegerArray table, int hash, int dictionaryId) {
+    int mask = table.length() - 1;
+    int slot = mix(hash) & mask;
+    while (table.get(slot) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table.set(slot, dictionaryId + 1);
+  }
+
+  @Override
+  public int length() {
+    return _length;
   }
 
   public boolean hasNull() {
@@ -69,6 +99,11 @@ public abstract class MutableDictionaryReader implements Dictionary {
 
   public abstract void index(Object rawValue);
 
+  /**
+   * Adds a single (non null) value if absent and returns its dictionary id. Must only be called by the indexing thread.
+   */
+  public abstract int indexSingleValue(Object rawValue);
+
   @Override
   public abstract int indexOf(Object rawValue);
 
@@ -90,18 +125,34 @@ public abstract class MutableDictionaryReader implements Dictionary {
   @Override
   public abstract double getDoubleValue(int dictionaryId);
 
+  @Override
+  public void readLongValues(int[] dictionaryIds, int length, long[] values) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getLongValue(dictionaryIds[i]);
+    }
+  }
+
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int length, double[] values) {
+    for (int i = 0; i < length; i++) {
+      int dictionaryId = dictionaryIds[i];
+      values[i] = dictionaryId == NULL_VALUE_INDEX ? Double.NaN : getDoubleValue(dictionaryId);
+    }
+  }
+
   @Override
   public abstract String toString(int dictionaryId);
 
   public void print() {
     System.out.println("************* printing dictionary for column : " + spec.getName() + " ***************");
-    for (Integer key : dictionaryIdBiMap.keySet()) {
-      System.out.println(key + "," + dictionaryIdBiMap.get(key));
+    int length = length();
+    for (int i = 0; i < length; i++) {
+      System.out.println(i + "," + get(i));
     }
     System.out.println("************************************");
   }
 
   public boolean isEmpty() {
-    return dictionaryIdBiMap.isEmpty();
+    return length() == 0;
   }
 }
@@ -15,13 +15,17 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import com.linkedin.pinot.common.data.FieldSpec;
 
 
 public class StringMutableDictionary extends MutableDictionaryReader {
 
-  private String min = null;
-  private String max = null;
+  private volatile String[] _values = new String[INITIAL_CAPACITY];
+  private volatile String _min = null;
+  private volatile String _max = null;
 
   public StringMutableDictionary(FieldSpec spec) {
     super(spec);
@@ -29,50 +33,88 @@ public class StringMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public void index(Object rawValue) {
+    if (rawValue == null) {
+      hasNull = true;
+      return;
+    }
+
     if (rawValue instanceof Object[]) {
-      for (Object o : (Object[]) rawValue) {
-        addToDictionaryBiMap(o.toString());
-        updateMinMax(o.toString());
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          indexString(value.toString());
+        }
       }
       return;
     }
 
-    addToDictionaryBiMap(rawValue.toString());
-    updateMinMax(rawValue.toString());
+    indexString(rawValue.toString());
   }
 
-  private void updateMinMax(String entry) {
-    if (min == null && max == null) {
-      min = entry;
-      max = entry;
-      return;
-    }
+  @Override
+  public int indexSingleValue(Object rawValue) {
+    return indexString(rawValue.toString());
+  }
 
-    if (entry.compareTo(min) < 0) {
-      min = entry;
+  /**
+   * Adds the value if absent and returns its dictionary id. Must only be called by the indexing thread.
+   */
+  public int indexString(String value) {
+    int dictionaryId = indexOfString(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
     }
+    dictionaryId = length();
+    String[] values = _values;
+    if (dictionaryId == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+      _values = values;
+    }
+    values[dictionaryId] = value;
+    if (_min == null || value.compareTo(_min) < 0) {
+      _min = value;
+    }
+    if (_max == null || value.compareTo(_max) > 0) {
+      _max = value;
+    }
+    addEntry(value.hashCode(), dictionaryId);
+    return dictionaryId;
+  }
 
-    if (entry.compareTo(max) > 0) {
-      max = entry;
+  public int indexOfString(String value) {
+    AtomicIntegerArray table = getHashTable();
+    int mask = table.length() - 1;
+    for (int slot = mix(value.hashCode()) & mask;; slot = (slot + 1) & mask) {
+      int entry = table.get(slot);
+      if (entry == 0) {
+        return NULL_VALUE_INDEX;
+      }
+      if (value.equals(_values[entry - 1])) {
+        return entry - 1;
+      }
     }
   }
 
+  @Override
+  protected int hashOf(int dictionaryId) {
+    return _values[dictionaryId].hashCode();
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue.toString());
+    return indexOfString(rawValue.toString()) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    return getIndexOfFromBiMap(rawValue.toString());
+    return indexOfString(rawValue.toString());
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
@@ -87,12 +129,12 @@ public class StringMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String toString(int dictionaryId) {
-    return (String) getRawValueFromBiMap(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
   public String getStringValue(int dictionaryId) {
-    return (String) getRawValueFromBiMap(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
@@ -125,18 +167,18 @@ public class StringMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  private String getString(int dictionaryId) {
-    return dictionaryIdBiMap.get(new Integer(dictionaryId)).toString();
+  public String getString(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
   public Object getMinVal() {
-    return min;
+    return _min;
   }
 
   @Override
   public Object getMaxVal() {
-    return max;
+    return _max;
   }
 
 }
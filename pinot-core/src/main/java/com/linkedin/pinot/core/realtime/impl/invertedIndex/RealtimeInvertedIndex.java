@@ -15,14 +15,15 @@
  */
 package com.linkedin.pinot.core.realtime.impl.invertedIndex;
 
-import org.roaringbitmap.buffer.MutableRoaringBitmap;
-
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
 
 
 public interface RealtimeInvertedIndex extends InvertedIndexReader {
-  public void add(Object dictId, int docId);
 
-  public MutableRoaringBitmap getDocIdSetFor(Object dicId);
+  /**
+   * Adds the doc id to the posting list of the dictionary id. Doc ids must be added in increasing order by a single
+   * indexing thread; readers may call {@link #getImmutable(int)} concurrently.
+   */
+  public void add(int dictId, int docId);
 
 }
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.invertedIndex;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Realtime inverted index keyed by dictionary id.
+ *
+ * The posting lists are kept in an array indexed by dictionary id. It is written by a single indexing thread and read
+ * by queries without locks: each posting list is a bitmap that is never modified once published, covering the doc
+ * ids of the completed 2^16 chunks, plus an append-only array of the doc ids in the current chunk whose length is
+ * published through a volatile field. Since doc ids are added in increasing order, the tail is folded into a new
+ * bitmap when the writer moves on to the next chunk.
+ */
+public class RealtimeInvertedIndexImpl implements RealtimeInvertedIndex {
+  private static final int INITIAL_NUM_POSTING_LISTS = 256;
+  private static final ImmutableRoaringBitmap EMPTY_BITMAP = new MutableRoaringBitmap();
+
+  private final String _columnName;
+  private volatile PostingList[] _postingLists = new PostingList[INITIAL_NUM_POSTING_LISTS];
+
+  public RealtimeInvertedIndexImpl(String columnName) {
+    _columnName = columnName;
+  }
+
+  @Override
+  public void add(int dictId, int docId) {
+    PostingList[] postingLists = _postingLists;
+    PostingList postingList = dictId < postingLists.length ? postingLists[dictId] : null;
+    if (postingList == null) {
+      if (dictId >= postingLists.length) {
+        postingLists = Arrays.copyOf(postingLists, Math.max(postingLists.length * 2, dictId + 1));
+      }
+      postingList = new PostingList();
+      postingLists[dictId] = postingList;
+      // Republish the array so that readers see the new posting list
+      _postingLists = postingLists;
+    }
+    postingList.add(docId);
+  }
+
+  /**
+   * Returns a snapshot of the doc ids for the given dictionary id, or an empty bitmap if there are none yet. The
+   * returned bitmap must not be modified.
+   */
+  @Override
+  public ImmutableRoaringBitmap getImmutable(int dictId) {
+    PostingList[] postingLists = _postingLists;
+    if (dictId < 0 || dictId >= postingLists.length) {
+      return EMPTY_BITMAP;
+    }
+    PostingList postingList = postingLists[dictId];
+    if (postingList == null) {
+      return EMPTY_BITMAP;
+    }
+    return postingList.getSnapshot();
+  }
+
+  @Override
+  public int[] getMinMaxRangeFor(int docId) {
+    throw new UnsupportedOperationException("Min/max range is not supported for realtime inverted index on column: "
+        + _columnName);
+  }
+
+  @Override
+  public void close() throws IOException {
+  }
+
+  private static final class PostingList {
+    private static final int INITIAL_TAIL_CAPACITY = 4;
+
+    private volatile State _state = new State(new MutableRoaringBitmap(), new int[INITIAL_TAIL_CAPACITY], 0);
+    private volatile Snapshot _snapshot;
+
+    void add(int docId) {
+      State state = _state;
+      int size = state._size;
+      if (size > 0 && (state._tail[0] >>> 16) != (docId >>> 16)) {
+        // The current chunk is complete, fold it into a new bitmap
+        MutableRoaringBitmap sealed = state._sealed.clone();
+        for (int i = 0; i < size; i++) {
+          sealed.add(state._tail[i]);
+        }
+        int[] tail = new int[INITIAL_TAIL_CAPACITY];
+        tail[0] = docId;
+        _state = new State(sealed, tail, 1);
+        return;
+      }
+      int[] tail = state._tail;
+      if (size == tail.length) {
+        tail = Arrays.copyOf(tail, size * 2);
+        tail[size] = docId;
+        _state = new State(state._sealed, tail, size + 1);
+      } else {
+        tail[size] = docId;
+        state._size = size + 1;
+      }
+    }
+
+    ImmutableRoaringBitmap getSnapshot() {
+      State state = _state;
+      int size = state._size;
+      if (size == 0) {
+        return state._sealed;
+      }
+      Snapshot snapshot = _snapshot;
+      if (snapshot != null && snapshot._state == state && snapshot._size == size) {
+        return snapshot._bitmap;
+      }
+      MutableRoaringBitmap bitmap = state._sealed.clone();
+      int[] tail = state._tail;
+      for (int i = 0; i < size; i++) {
+        bitmap.add(tail[i]);
+      }
+      _snapshot = new Snapshot(state, size, bitmap);
+      return bitmap;
+    }
+  }
+
+  private static final class State {
+    final MutableRoaringBitmap _sealed;
+    final int[] _tail;
+    volatile int _size;
+
+    State(MutableRoaringBitmap sealed, int[] tail, int size) {
+      _sealed = sealed;
+      _tail = tail;
+      _size = size;
+    }
+  }
+
+  private static final class Snapshot {
+    final State _state;
+    final int _size;
+    final MutableRoaringBitmap _bitmap;
+
+    Snapshot(State state, int size, MutableRoaringBitmap bitmap) {
+      _state = state;
+      _size = size;
+      _bitmap = bitmap;
+    }
+  }
+}
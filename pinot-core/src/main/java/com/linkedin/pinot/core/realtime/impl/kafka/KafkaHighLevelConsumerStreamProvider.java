@@ -15,13 +15,21 @@
  */
 package com.linkedin.pinot.core.realtime.impl.kafka;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import kafka.consumer.ConsumerConfig;
 import kafka.consumer.ConsumerIterator;
+import kafka.consumer.ConsumerTimeoutException;
 import kafka.consumer.KafkaStream;
 import kafka.javaapi.consumer.ConsumerConnector;
+import kafka.message.MessageAndMetadata;
+import kafka.utils.ZKGroupTopicDirs;
+import kafka.utils.ZKStringSerializer$;
+import kafka.utils.ZkUtils;
+
+import org.I0Itec.zkclient.ZkClient;
 
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.realtime.StreamProvider;
@@ -50,6 +58,11 @@ public class KafkaHighLevelConsumerStreamProvider implements StreamProvider {
   private ConsumerConnector consumer;
   private KafkaStream<byte[], byte[]> kafkaStreams;
   private ConsumerIterator<byte[], byte[]> kafkaIterator;
+  // Next offset to consume of every partition read so far, only accessed by the consuming thread
+  private final Map<Integer, Long> consumedOffsets = new HashMap<Integer, Long>();
+  // Used to commit explicit offsets, which the consumer connector does not support, guarded by this
+  private ZkClient zkClient;
+  private boolean isShutdown = false;
 
   @Override
   public void init(StreamProviderConfig streamProviderConfig) throws Exception {
@@ -75,9 +88,9 @@ public class KafkaHighLevelConsumerStreamProvider implements StreamProvider {
 
   @Override
   public GenericRow next() {
-    if (kafkaIterator.hasNext()) {
+    if (hasNext()) {
       try {
-        GenericRow row = decoder.decode(kafkaIterator.next().message());
+        GenericRow row = decoder.decode(nextMessage());
         kafkaEventsConsumedCount.inc();
         return row;
       } catch (Exception e) {
@@ -88,6 +101,45 @@ public class KafkaHighLevelConsumerStreamProvider implements StreamProvider {
     return null;
   }
 
+  @Override
+  public int nextBatch(List<GenericRow> rows, int maxRows) {
+    int numRows = 0;
+    int numFailed = 0;
+    while (numRows < maxRows && hasNext()) {
+      try {
+        GenericRow row = decoder.decode(nextMessage());
+        if (row != null) {
+          rows.add(row);
+          numRows++;
+          continue;
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while consuming events", e);
+      }
+      numFailed++;
+    }
+    kafkaEventsConsumedCount.inc(numRows);
+    kafkaEventsFailedCount.inc(numFailed);
+    return numRows;
+  }
+
+  private byte[] nextMessage() {
+    MessageAndMetadata<byte[], byte[]> messageAndMetadata = kafkaIterator.next();
+    consumedOffsets.put(messageAndMetadata.partition(), messageAndMetadata.offset() + 1);
+    return messageAndMetadata.message();
+  }
+
+  /**
+   * Returns false when no message arrived within the consumer timeout, so that callers get a chance to stop.
+   */
+  private boolean hasNext() {
+    try {
+      return kafkaIterator.hasNext();
+    } catch (ConsumerTimeoutException e) {
+      return false;
+    }
+  }
+
   @Override
   public GenericRow next(long offset) {
     throw new UnsupportedOperationException();
@@ -104,16 +156,55 @@ public class KafkaHighLevelConsumerStreamProvider implements StreamProvider {
     kafkaEventsCommitCount.inc();
   }
 
+  @Override
+  public Map<Integer, Long> currentOffsets() {
+    return new HashMap<Integer, Long>(consumedOffsets);
+  }
+
   @Override
   public void commit(long offset) {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Writes the given offsets where the high level consumer of the group reads them from, since the consumer
+   * connector can only commit the offsets of everything it has read.
+   */
+  @Override
+  public synchronized void commit(Map<Integer, Long> offsets) {
+    if (zkClient == null) {
+      zkClient = new ZkClient(kafkaConsumerConfig.zkConnect(), kafkaConsumerConfig.zkSessionTimeoutMs(),
+          kafkaConsumerConfig.zkConnectionTimeoutMs(), ZKStringSerializer$.MODULE$);
+    }
+    ZKGroupTopicDirs topicDirs =
+        new ZKGroupTopicDirs(kafkaConsumerConfig.groupId(), streamProviderConfig.getTopicName());
+    try {
+      for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+        ZkUtils.updatePersistentPath(zkClient, topicDirs.consumerOffsetDir() + "/" + entry.getKey(),
+            String.valueOf(entry.getValue()));
+      }
+      kafkaEventsCommitCount.inc();
+    } finally {
+      // offsets of completed segments may still be committed once consumption has stopped
+      if (isShutdown) {
+        zkClient.close();
+        zkClient = null;
+      }
+    }
+  }
+
   @Override
   public void shutdown() throws Exception {
     if (consumer != null) {
       consumer.shutdown();
     }
+    synchronized (this) {
+      isShutdown = true;
+      if (zkClient != null) {
+        zkClient.close();
+        zkClient = null;
+      }
+    }
   }
 
 }
@@ -40,6 +40,8 @@ public class KafkaHighLevelStreamProviderConfig implements StreamProviderConfig
     defaultProps.put("zookeeper.sync.time.ms", "200");
     defaultProps.put("auto.commit.enable", "false");
     defaultProps.put("auto.offset.reset", "largest");
+    // bounded wait for new messages, lets the consuming thread notice that it should stop
+    defaultProps.put("consumer.timeout.ms", "100");
   }
 
   private String kafkaTopicName;
@@ -15,6 +15,10 @@
  */
 package com.linkedin.pinot.core.realtime.kafka;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.realtime.StreamProvider;
 import com.linkedin.pinot.core.realtime.StreamProviderConfig;
@@ -45,6 +49,17 @@ public class KafkaStreamProvider implements StreamProvider{
     return null;
   }
 
+  @Override
+  public int nextBatch(List<GenericRow> rows, int maxRows) {
+    int numRows = 0;
+    GenericRow row;
+    while (numRows < maxRows && (row = next()) != null) {
+      rows.add(row);
+      numRows++;
+    }
+    return numRows;
+  }
+
   @Override
   public GenericRow next(long offset) {
     // TODO Auto-generated method stub
@@ -57,6 +72,12 @@ public class KafkaStreamProvider implements StreamProvider{
     return 0;
   }
 
+  @Override
+  public Map<Integer, Long> currentOffsets() {
+    // TODO Auto-generated method stub
+    return Collections.emptyMap();
+  }
+
   @Override
   public void commit() {
     // TODO Auto-generated method stub
@@ -69,6 +90,12 @@ public class KafkaStreamProvider implements StreamProvider{
 
   }
 
+  @Override
+  public void commit(Map<Integer, Long> offsets) {
+    // TODO Auto-generated method stub
+
+  }
+
   @Override
   public void shutdown() {
     // TODO Auto-generated method stub
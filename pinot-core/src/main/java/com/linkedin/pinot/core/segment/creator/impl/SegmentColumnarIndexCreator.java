@@ -40,12 +40,20 @@ import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataK
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 
+import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.core.data.GenericRow;
@@ -57,6 +65,7 @@ import com.linkedin.pinot.core.segment.creator.SegmentCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.MultiValueUnsortedForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueSortedForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueUnsortedForwardIndexCreator;
+import com.linkedin.pinot.core.segment.creator.impl.inv.BitSlicedRangeIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.inv.BitmapInvertedIndexCreator;
 
 
@@ -73,6 +82,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   private Map<String, SegmentDictionaryCreator> dictionaryCreatorMap;
   private Map<String, ForwardIndexCreator> forwardIndexCreatorMap;
   private Map<String, InvertedIndexCreator> invertedIndexCreatorMap;
+  private Map<String, InvertedIndexCreator> rangeIndexCreatorMap;
   private String segmentName;
 
   private Schema schema;
@@ -85,13 +95,24 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   public void init(SegmentGeneratorConfig segmentCreationSpec,
       Map<String, ColumnIndexCreationInfo> indexCreationInfoMap, Schema schema, int totalDocs, File outDir)
       throws Exception {
+    init(segmentCreationSpec, indexCreationInfoMap, schema, totalDocs, outDir, null);
+  }
+
+  /**
+   * Same as {@link #init(SegmentGeneratorConfig, Map, Schema, int, File)}, but builds the dictionaries of the columns
+   * in parallel on the given executor, if not null.
+   */
+  public void init(SegmentGeneratorConfig segmentCreationSpec,
+      Map<String, ColumnIndexCreationInfo> indexCreationInfoMap, Schema schema, int totalDocs, File outDir,
+      ExecutorService executorService) throws Exception {
     docIdCounter = 0;
     config = segmentCreationSpec;
     this.indexCreationInfoMap = indexCreationInfoMap;
     dictionaryCreatorMap = new HashMap<String, SegmentDictionaryCreator>();
-    forwardIndexCreatorMap = new HashMap<String, ForwardIndexCreator>();
+    forwardIndexCreatorMap = new ConcurrentHashMap<String, ForwardIndexCreator>();
     this.indexCreationInfoMap = indexCreationInfoMap;
-    invertedIndexCreatorMap = new HashMap<String, InvertedIndexCreator>();
+    invertedIndexCreatorMap = new ConcurrentHashMap<String, InvertedIndexCreator>();
+    rangeIndexCreatorMap = new ConcurrentHashMap<String, InvertedIndexCreator>();
     file = outDir;
 
     // Check that the output directory does not exist
@@ -105,48 +126,75 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
 
     this.totalDocs = totalDocs;
 
-    // Initialize and build dictionaries
+    // Initialize dictionaries
     for (final FieldSpec spec : schema.getAllFieldSpecs()) {
       final ColumnIndexCreationInfo info = indexCreationInfoMap.get(spec.getName());
       if (info.isCreateDictionary()) {
-        dictionaryCreatorMap.put(spec.getName(),
-            new SegmentDictionaryCreator(info.hasNulls(), info.getSortedUniqueElementsArray(), spec, file));
+        final boolean varLengthStrings = config.getVarLengthDictionaryColumns() != null
+            && config.getVarLengthDictionaryColumns().contains(spec.getName());
+        dictionaryCreatorMap.put(spec.getName(), new SegmentDictionaryCreator(info.hasNulls(),
+            info.getSortedUniqueElementsArray(), spec, file, varLengthStrings));
+        dictionaryCache.put(spec.getName(), new HashMap<Object, Object>());
       } else {
         throw new RuntimeException("Creation of indices without dictionaries is not implemented!");
       }
     }
 
     // For each column, build its dictionary and initialize a forwards and an inverted index
-    for (final String column : dictionaryCreatorMap.keySet()) {
-      dictionaryCreatorMap.get(column).build();
-      dictionaryCache.put(column, new HashMap<Object, Object>());
-      ColumnIndexCreationInfo indexCreationInfo = indexCreationInfoMap.get(column);
-      if (schema.getFieldSpecFor(column).isSingleValueField()) {
-        if (indexCreationInfo.isSorted()) {
-          forwardIndexCreatorMap.put(column,
-              new SingleValueSortedForwardIndexCreator(file, indexCreationInfo.getSortedUniqueElementsArray().length,
-                  schema.getFieldSpecFor(column)));
-        } else {
-          forwardIndexCreatorMap.put(
-              column,
-              new SingleValueUnsortedForwardIndexCreator(schema.getFieldSpecFor(column), file, indexCreationInfo
-                  .getSortedUniqueElementsArray().length, totalDocs, indexCreationInfo.getTotalNumberOfEntries(),
-                  indexCreationInfo.hasNulls()));
-        }
+    if (executorService == null) {
+      for (final String column : dictionaryCreatorMap.keySet()) {
+        initColumn(column);
+      }
+    } else {
+      List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+      for (final String column : dictionaryCreatorMap.keySet()) {
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            initColumn(column);
+            return null;
+          }
+        });
+      }
+      invokeAll(executorService, tasks);
+    }
+  }
+
+  private void initColumn(String column) throws Exception {
+    dictionaryCreatorMap.get(column).build();
+    ColumnIndexCreationInfo indexCreationInfo = indexCreationInfoMap.get(column);
+    if (schema.getFieldSpecFor(column).isSingleValueField()) {
+      if (indexCreationInfo.isSorted()) {
+        forwardIndexCreatorMap.put(column,
+            new SingleValueSortedForwardIndexCreator(file, indexCreationInfo.getSortedUniqueElementsArray().length,
+                schema.getFieldSpecFor(column)));
       } else {
         forwardIndexCreatorMap.put(
             column,
-            new MultiValueUnsortedForwardIndexCreator(schema.getFieldSpecFor(column), file, indexCreationInfo
+            new SingleValueUnsortedForwardIndexCreator(schema.getFieldSpecFor(column), file, indexCreationInfo
                 .getSortedUniqueElementsArray().length, totalDocs, indexCreationInfo.getTotalNumberOfEntries(),
                 indexCreationInfo.hasNulls()));
       }
+    } else {
+      forwardIndexCreatorMap.put(
+          column,
+          new MultiValueUnsortedForwardIndexCreator(schema.getFieldSpecFor(column), file, indexCreationInfo
+              .getSortedUniqueElementsArray().length, totalDocs, indexCreationInfo.getTotalNumberOfEntries(),
+              indexCreationInfo.hasNulls()));
+    }
 
-      if (config.createInvertedIndexEnabled()) {
-        invertedIndexCreatorMap.put(
-            column,
-            new BitmapInvertedIndexCreator(file, indexCreationInfo.getSortedUniqueElementsArray().length, schema
-                .getFieldSpecFor(column)));
-      }
+    if (config.createInvertedIndexEnabled()) {
+      invertedIndexCreatorMap.put(
+          column,
+          new BitmapInvertedIndexCreator(file, indexCreationInfo.getSortedUniqueElementsArray().length, schema
+              .getFieldSpecFor(column)));
+    }
+
+    if (config.getRangeIndexColumns() != null && config.getRangeIndexColumns().contains(column)
+        && schema.getFieldSpecFor(column).isSingleValueField() && !indexCreationInfo.isSorted()) {
+      rangeIndexCreatorMap.put(column,
+          new BitSlicedRangeIndexCreator(file, indexCreationInfo.getSortedUniqueElementsArray().length, schema
+              .getFieldSpecFor(column)));
     }
   }
 
@@ -166,10 +214,86 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       if (config.createInvertedIndexEnabled()) {
         invertedIndexCreatorMap.get(column).add(docIdCounter, dictionaryIndex);
       }
+      final InvertedIndexCreator rangeIndexCreator = rangeIndexCreatorMap.get(column);
+      if (rangeIndexCreator != null) {
+        rangeIndexCreator.add(docIdCounter, dictionaryIndex);
+      }
     }
     docIdCounter++;
   }
 
+  /**
+   * Index all the values of one column, the value at index i being the one of document i. Different columns can be
+   * indexed concurrently, but this cannot be mixed with {@link #indexRow(GenericRow)}.
+   */
+  public void indexColumn(String column, List<Object> values) {
+    final SegmentDictionaryCreator dictionaryCreator = dictionaryCreatorMap.get(column);
+    final Map<Object, Object> columnDictionaryCache = dictionaryCache.get(column);
+    final ForwardIndexCreator forwardIndexCreator = forwardIndexCreatorMap.get(column);
+    final InvertedIndexCreator invertedIndexCreator =
+        config.createInvertedIndexEnabled() ? invertedIndexCreatorMap.get(column) : null;
+    final InvertedIndexCreator rangeIndexCreator = rangeIndexCreatorMap.get(column);
+
+    final int numValues = values.size();
+    for (int docId = 0; docId < numValues; docId++) {
+      Object columnValueToIndex = values.get(docId);
+      Object dictionaryIndex = columnDictionaryCache.get(columnValueToIndex);
+      if (dictionaryIndex == null) {
+        dictionaryIndex = dictionaryCreator.indexOf(columnValueToIndex);
+        columnDictionaryCache.put(columnValueToIndex, dictionaryIndex);
+      }
+      forwardIndexCreator.index(docId, dictionaryIndex);
+      if (invertedIndexCreator != null) {
+        invertedIndexCreator.add(docId, dictionaryIndex);
+      }
+      if (rangeIndexCreator != null) {
+        rangeIndexCreator.add(docId, dictionaryIndex);
+      }
+    }
+  }
+
+  /**
+   * Index a single value column from dictionary ids that are already resolved against the sorted values of the
+   * column, the id at index i being the one of document i. Different columns can be indexed concurrently.
+   */
+  public void indexColumn(String column, int[] dictionaryIds) {
+    final ForwardIndexCreator forwardIndexCreator = forwardIndexCreatorMap.get(column);
+    final InvertedIndexCreator invertedIndexCreator =
+        config.createInvertedIndexEnabled() ? invertedIndexCreatorMap.get(column) : null;
+    final InvertedIndexCreator rangeIndexCreator = rangeIndexCreatorMap.get(column);
+
+    for (int docId = 0; docId < dictionaryIds.length; docId++) {
+      forwardIndexCreator.index(docId, dictionaryIds[docId]);
+      if (invertedIndexCreator != null) {
+        invertedIndexCreator.add(docId, dictionaryIds[docId]);
+      }
+      if (rangeIndexCreator != null) {
+        rangeIndexCreator.add(docId, dictionaryIds[docId]);
+      }
+    }
+  }
+
+  /**
+   * Multi value variant of {@link #indexColumn(String, int[])}.
+   */
+  public void indexColumn(String column, int[][] dictionaryIds) {
+    final ForwardIndexCreator forwardIndexCreator = forwardIndexCreatorMap.get(column);
+    final InvertedIndexCreator invertedIndexCreator =
+        config.createInvertedIndexEnabled() ? invertedIndexCreatorMap.get(column) : null;
+
+    for (int docId = 0; docId < dictionaryIds.length; docId++) {
+      final int[] docDictionaryIds = dictionaryIds[docId];
+      final Object[] entries = new Object[docDictionaryIds.length];
+      for (int i = 0; i < docDictionaryIds.length; i++) {
+        entries[i] = docDictionaryIds[i];
+        if (invertedIndexCreator != null) {
+          invertedIndexCreator.add(docId, docDictionaryIds[i]);
+        }
+      }
+      forwardIndexCreator.index(docId, entries);
+    }
+  }
+
   @Override
   public void setSegmentName(String segmentName) {
     this.segmentName = segmentName;
@@ -178,15 +302,53 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   @Override
   public void seal() throws ConfigurationException, IOException {
     for (final String column : forwardIndexCreatorMap.keySet()) {
-      forwardIndexCreatorMap.get(column).close();
-      if (config.createInvertedIndexEnabled()) {
-        invertedIndexCreatorMap.get(column).seal();
-      }
-      dictionaryCreatorMap.get(column).close();
+      sealColumn(column);
+    }
+    writeMetadata();
+  }
+
+  /**
+   * Same as {@link #seal()}, but writes the indexes of the columns in parallel on the given executor.
+   */
+  public void seal(ExecutorService executorService) throws Exception {
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (final String column : forwardIndexCreatorMap.keySet()) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          sealColumn(column);
+          return null;
+        }
+      });
     }
+    invokeAll(executorService, tasks);
     writeMetadata();
   }
 
+  private void sealColumn(String column) throws IOException {
+    forwardIndexCreatorMap.get(column).close();
+    if (config.createInvertedIndexEnabled()) {
+      invertedIndexCreatorMap.get(column).seal();
+    }
+    if (rangeIndexCreatorMap.containsKey(column)) {
+      rangeIndexCreatorMap.get(column).seal();
+    }
+    dictionaryCreatorMap.get(column).close();
+  }
+
+  /**
+   * Run the tasks on the executor and wait for all of them, rethrowing the first failure.
+   */
+  static void invokeAll(ExecutorService executorService, List<Callable<Void>> tasks) throws Exception {
+    for (Future<Void> future : executorService.invokeAll(tasks)) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        Utils.rethrowException(e.getCause());
+      }
+    }
+  }
+
   void writeMetadata() throws ConfigurationException {
     final PropertiesConfiguration properties =
         new PropertiesConfiguration(new File(file, V1Constants.MetadataKeys.METADATA_FILE_NAME));
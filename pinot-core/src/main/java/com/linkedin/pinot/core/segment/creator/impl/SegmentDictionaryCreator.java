@@ -15,39 +15,66 @@
  */
 package com.linkedin.pinot.core.segment.creator.impl;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
 import org.apache.commons.io.FileUtils;
 
+import com.google.common.primitives.UnsignedBytes;
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
 import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWriter;
 import com.linkedin.pinot.core.indexsegment.utils.ByteBufferBinarySearchUtil;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
 
 
 public class SegmentDictionaryCreator implements Closeable {
   private final Object[] sortedList;
   private final FieldSpec spec;
   private final File dictionaryFile;
+  private final boolean varLengthStrings;
   private FixedByteWidthRowColDataFileReader dataReader;
   private ByteBufferBinarySearchUtil searchableByteBuffer;
+  private VarLengthStringDictionary varLengthDictionary;
   private int stringColumnMaxLength = 0;
 
   public SegmentDictionaryCreator(boolean hasNulls, Object[] sortedList, FieldSpec spec, File indexDir)
       throws IOException {
+    this(hasNulls, sortedList, spec, indexDir, false);
+  }
+
+  /**
+   * @param varLengthStrings whether to store the values of a string column with their own length instead of padding
+   * them to the longest one, see {@link VarLengthStringDictionary}. Ignored for the other data types.
+   */
+  public SegmentDictionaryCreator(boolean hasNulls, Object[] sortedList, FieldSpec spec, File indexDir,
+      boolean varLengthStrings) throws IOException {
     this.sortedList = sortedList;
     this.spec = spec;
-    dictionaryFile = new File(indexDir, spec.getName() + ".dict");
+    this.varLengthStrings =
+        varLengthStrings && (spec.getDataType() == DataType.STRING || spec.getDataType() == DataType.BOOLEAN);
+    if (this.varLengthStrings) {
+      dictionaryFile = new File(indexDir, spec.getName() + V1Constants.Dict.VAR_LENGTH_FILE_EXTENSION);
+    } else {
+      dictionaryFile = new File(indexDir, spec.getName() + V1Constants.Dict.FILE_EXTENTION);
+    }
     FileUtils.touch(dictionaryFile);
   }
 
   @Override
   public void close() throws IOException {
-    dataReader.close();
+    if (varLengthDictionary != null) {
+      varLengthDictionary.close();
+    } else {
+      dataReader.close();
+    }
   }
 
   public void build() throws Exception {
@@ -114,6 +141,11 @@ public class SegmentDictionaryCreator implements Closeable {
           }
         }
 
+        if (varLengthStrings) {
+          buildVarLengthStringDictionary();
+          return;
+        }
+
         final FixedByteWidthRowColDataFileWriter stringDictionaryWrite =
             new FixedByteWidthRowColDataFileWriter(dictionaryFile, sortedList.length, 1,
                 new int[] { stringColumnMaxLength });
@@ -147,6 +179,33 @@ public class SegmentDictionaryCreator implements Closeable {
     searchableByteBuffer = new ByteBufferBinarySearchUtil(dataReader);
   }
 
+  private void buildVarLengthStringDictionary() throws IOException {
+    // Sorted on the unsigned bytes, the order the dictionary compares lookups in
+    final byte[][] values = new byte[sortedList.length][];
+    for (int i = 0; i < sortedList.length; i++) {
+      values[i] = sortedList[i].toString().getBytes(Charset.forName("UTF-8"));
+    }
+    Arrays.sort(values, UnsignedBytes.lexicographicalComparator());
+
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dictionaryFile)));
+    try {
+      int offset = (values.length + 1) * VarLengthStringDictionary.INT_SIZE_IN_BYTES;
+      for (final byte[] value : values) {
+        out.writeInt(offset);
+        offset += value.length;
+      }
+      out.writeInt(offset);
+      for (final byte[] value : values) {
+        out.write(value);
+      }
+    } finally {
+      out.close();
+    }
+
+    varLengthDictionary = new VarLengthStringDictionary(dictionaryFile, values.length, true);
+  }
+
   public int getStringColumnMaxLength() {
     return stringColumnMaxLength;
   }
@@ -175,6 +234,9 @@ public class SegmentDictionaryCreator implements Closeable {
         return new Integer(searchableByteBuffer.binarySearch(0, longValue));
       case STRING:
       case BOOLEAN:
+        if (varLengthDictionary != null) {
+          return new Integer(varLengthDictionary.indexOf(e));
+        }
         final StringBuilder bld = new StringBuilder();
         bld.append(e.toString());
         for (int i = 0; i < (stringColumnMaxLength - ((String) e).getBytes(Charset.forName("UTF-8")).length); i++) {
@@ -217,6 +279,12 @@ public class SegmentDictionaryCreator implements Closeable {
         break;
       case STRING:
       case BOOLEAN:
+        if (varLengthDictionary != null) {
+          for (int i = 0; i < multiValues.length; i++) {
+            ret[i] = varLengthDictionary.indexOf(multiValues[i]);
+          }
+          break;
+        }
         for (int i = 0; i < multiValues.length; i++) {
           final StringBuilder bld = new StringBuilder();
           bld.append(multiValues[i].toString());
@@ -19,8 +19,13 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -33,10 +38,10 @@ import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.readers.RecordReader;
 import com.linkedin.pinot.core.data.readers.RecordReaderFactory;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.AbstractColumnStatisticsCollector;
 import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
 import com.linkedin.pinot.core.segment.creator.ForwardIndexType;
 import com.linkedin.pinot.core.segment.creator.InvertedIndexType;
-import com.linkedin.pinot.core.segment.creator.SegmentCreator;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.SegmentPreIndexStatsCollector;
 import com.linkedin.pinot.core.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
@@ -55,7 +60,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   RecordReader recordReader;
   SegmentPreIndexStatsCollector statsCollector;
   Map<String, ColumnIndexCreationInfo> indexCreationInfoMap;
-  SegmentCreator indexCreator;
+  SegmentColumnarIndexCreator indexCreator;
   Schema dataSchema;
   int totalDocs;
   File tempIndexDir;
@@ -96,6 +101,11 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
   @Override
   public void build() throws Exception {
+    if (config.getNumCreationThreads() > 1) {
+      buildInParallel(config.getNumCreationThreads());
+      return;
+    }
+
     // Count the number of documents and gather per-column statistics
     LOGGER.info("Start building StatsCollector!");
     totalDocs = 0;
@@ -130,15 +140,160 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     recordReader.close();
     LOGGER.info("Finished records indexing in IndexCreator!");
 
-    // Build the segment name, if necessary
+    sealSegment();
+
+    LOGGER.info("Driver, record read time : {}", totalRecordReadTime);
+    LOGGER.info("Driver, stats collector time : {}", totalStatsCollectorTime);
+    LOGGER.info("Driver, indexing time : {}", totalIndexTime);
+  }
+
+  /**
+   * Parallel variant of {@link #build()}: the input is read only once into per-column buffers, then the statistics,
+   * dictionaries, forward and inverted indexes of the columns are built concurrently, and the files are checksummed
+   * concurrently. The whole input is held in memory, as decoded values, until its column is indexed.
+   */
+  void buildInParallel(int numThreads) throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+    try {
+      // Decode the records once into one value list per column
+      LOGGER.info("Start reading records with {} threads!", numThreads);
+      final Map<String, List<Object>> columnValues = new HashMap<String, List<Object>>();
+      for (final FieldSpec spec : dataSchema.getAllFieldSpecs()) {
+        columnValues.put(spec.getName(), new ArrayList<Object>());
+      }
+      totalDocs = 0;
+      long start = System.currentTimeMillis();
+      while (recordReader.hasNext()) {
+        totalDocs++;
+        GenericRow row = recordReader.next();
+        for (final Map.Entry<String, List<Object>> entry : columnValues.entrySet()) {
+          entry.getValue().add(row.getValue(entry.getKey()));
+        }
+      }
+      recordReader.close();
+      totalRecordReadTime += System.currentTimeMillis() - start;
+
+      // Gather per-column statistics
+      start = System.currentTimeMillis();
+      List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+      for (final Map.Entry<String, List<Object>> entry : columnValues.entrySet()) {
+        final AbstractColumnStatisticsCollector columnStatsCollector =
+            statsCollector.getColumnProfileFor(entry.getKey());
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (Object value : entry.getValue()) {
+              columnStatsCollector.collect(value);
+            }
+            columnStatsCollector.seal();
+            return null;
+          }
+        });
+      }
+      SegmentColumnarIndexCreator.invokeAll(executorService, tasks);
+      buildIndexCreationInfo(false);
+      totalStatsCollectorTime += System.currentTimeMillis() - start;
+      LOGGER.info("Finished building StatsCollector!");
+
+      // Build the dictionaries, then the indexes, one column per task
+      start = System.currentTimeMillis();
+      indexCreator.init(config, indexCreationInfoMap, dataSchema, totalDocs, tempIndexDir, executorService);
+      tasks.clear();
+      for (final Map.Entry<String, List<Object>> entry : columnValues.entrySet()) {
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            indexCreator.indexColumn(entry.getKey(), entry.getValue());
+            // Release the values of the column as soon as they are indexed
+            entry.getValue().clear();
+            return null;
+          }
+        });
+      }
+      SegmentColumnarIndexCreator.invokeAll(executorService, tasks);
+      totalIndexTime += System.currentTimeMillis() - start;
+      LOGGER.info("Finished records indexing in IndexCreator!");
+
+      final File segmentOutputDir = buildSegmentName();
+
+      // Write the index files to disk
+      indexCreator.setSegmentName(segmentName);
+      indexCreator.seal(executorService);
+      LOGGER.info("Finished segment seal!");
+
+      moveToOutputDir(segmentOutputDir);
+
+      // Compute CRC
+      final long crc = CrcUtils.forAllFilesInFolder(segmentOutputDir).computeCrc(executorService);
+
+      // Persist creation metadata to disk
+      persistCreationMeta(segmentOutputDir, crc);
+
+      LOGGER.info("Driver, record read time : {}", totalRecordReadTime);
+      LOGGER.info("Driver, stats collector time : {}", totalStatsCollectorTime);
+      LOGGER.info("Driver, indexing time : {}", totalIndexTime);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Alternative to {@link #init(SegmentGeneratorConfig, RecordReader)} for columns that are already dictionary
+   * encoded against their sorted values, e.g. by a realtime segment: the statistics of the columns are given instead
+   * of collected from records. The caller indexes every column through the returned creator, then calls
+   * {@link #sealSegment()}.
+   */
+  public SegmentColumnarIndexCreator initForDictionaryEncodedColumns(SegmentGeneratorConfig config, Schema schema,
+      int totalDocs, Map<String, ColumnIndexCreationInfo> indexCreationInfoMap) throws Exception {
+    this.config = config;
+    dataSchema = schema;
+    this.totalDocs = totalDocs;
+    this.indexCreationInfoMap = indexCreationInfoMap;
+
+    final File indexDir = new File(config.getIndexOutputDir());
+    if (!indexDir.exists()) {
+      indexDir.mkdirs();
+    }
+    tempIndexDir = new File(indexDir, com.linkedin.pinot.common.utils.FileUtils.getRandomFileName());
+
+    indexCreator = new SegmentColumnarIndexCreator();
+    indexCreator.init(config, indexCreationInfoMap, schema, totalDocs, tempIndexDir);
+    return indexCreator;
+  }
+
+  /**
+   * Write the index files of the indexed columns, move them to the segment directory and persist the creation
+   * metadata.
+   */
+  public void sealSegment() throws Exception {
+    final File segmentOutputDir = buildSegmentName();
+
+    // Write the index files to disk
+    indexCreator.setSegmentName(segmentName);
+    indexCreator.seal();
+    LOGGER.info("Finished segment seal!");
+
+    moveToOutputDir(segmentOutputDir);
+
+    // Compute CRC
+    final long crc = CrcUtils.forAllFilesInFolder(segmentOutputDir).computeCrc();
+
+    // Persist creation metadata to disk
+    persistCreationMeta(segmentOutputDir, crc);
+  }
+
+  /**
+   * Build the segment name, if necessary, and return the final segment directory.
+   */
+  private File buildSegmentName() throws Exception {
     final String timeColumn = config.getTimeColumnName();
 
     if (config.getSegmentName() != null) {
       segmentName = config.getSegmentName();
     } else {
       if (timeColumn != null && timeColumn.length() > 0) {
-        final Object minTimeValue = statsCollector.getColumnProfileFor(timeColumn).getMinValue();
-        final Object maxTimeValue = statsCollector.getColumnProfileFor(timeColumn).getMaxValue();
+        final Object minTimeValue = indexCreationInfoMap.get(timeColumn).getMin();
+        final Object maxTimeValue = indexCreationInfoMap.get(timeColumn).getMax();
         segmentName =
             SegmentNameBuilder.buildBasic(config.getTableName(), minTimeValue, maxTimeValue,
                 config.getSegmentNamePostfix());
@@ -147,15 +302,14 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
             SegmentNameBuilder.buildBasic(config.getTableName(), config.getSegmentNamePostfix());
       }
     }
+    return new File(new File(config.getIndexOutputDir()), segmentName);
+  }
 
-    // Write the index files to disk
-    indexCreator.setSegmentName(segmentName);
-    indexCreator.seal();
-    LOGGER.info("Finished segment seal!");
-
+  /**
+   * Move the temporary directory into its final location, replacing any existing segment directory.
+   */
+  private void moveToOutputDir(File segmentOutputDir) throws IOException {
     // Delete the directory named after the segment name, if it exists
-    final File outputDir = new File(config.getIndexOutputDir());
-    final File segmentOutputDir = new File(outputDir, segmentName);
     if (segmentOutputDir.exists()) {
       FileUtils.deleteDirectory(segmentOutputDir);
     }
@@ -165,16 +319,6 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
     // Delete the temporary directory
     FileUtils.deleteQuietly(tempIndexDir);
-
-    // Compute CRC
-    final long crc = CrcUtils.forAllFilesInFolder(segmentOutputDir).computeCrc();
-
-    // Persist creation metadata to disk
-    persistCreationMeta(segmentOutputDir, crc);
-
-    LOGGER.info("Driver, record read time : {}", totalRecordReadTime);
-    LOGGER.info("Driver, stats collector time : {}", totalStatsCollectorTime);
-    LOGGER.info("Driver, indexing time : {}", totalIndexTime);
   }
 
   public void ovveriteSegmentName(String segmentName) {
@@ -209,7 +353,16 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
    * Complete the stats gathering process and store the stats information in indexCreationInfoMap.
    */
   void buildIndexCreationInfo() throws Exception {
-    statsCollector.build();
+    buildIndexCreationInfo(true);
+  }
+
+  /**
+   * @param sealStats false if the column statistics have already been sealed
+   */
+  void buildIndexCreationInfo(boolean sealStats) throws Exception {
+    if (sealStats) {
+      statsCollector.build();
+    }
     for (final FieldSpec spec : dataSchema.getAllFieldSpecs()) {
       final String column = spec.getName();
       indexCreationInfoMap.put(
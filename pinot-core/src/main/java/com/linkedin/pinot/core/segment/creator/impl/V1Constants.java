@@ -55,6 +55,7 @@ public class V1Constants {
     public static final int[] FLOAT_DICTIONARY_COL_SIZE = new int[] { 4 };
     public static final int[] DOUBLE_DICTIONARY_COL_SIZE = new int[] { 8 };
     public static final String FILE_EXTENTION = ".dict";
+    public static final String VAR_LENGTH_FILE_EXTENSION = ".var.dict";
 
     public static int[] getSingleValueColumnSizeFor(FieldSpec spec) {
       switch (spec.getDataType()) {
@@ -80,6 +81,7 @@ public class V1Constants {
     public static final String BITMAP_INVERTED_INDEX_FILE_EXTENSION = ".bitmap.inv";
     public static final String SORTED_INVERTED_INDEX_FILE_EXTENSION = ".sorted.inv";
     public static final String INTARRAY_INVERTED_INDEX_FILE_EXTENSION = ".intArray.inv";
+    public static final String BITMAP_RANGE_INDEX_FILE_EXTENSION = ".bitmap.range";
   }
 
   public static class MetadataKeys {
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl.inv;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.segment.creator.InvertedIndexCreator;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+
+
+/**
+ * Creates a bit-sliced range index for a single value column: one bitmap of the docs having a value, followed by one
+ * bitmap per bit of the dictionary id, holding the docs whose dictionary id has that bit set. Since dictionaries are
+ * sorted, a range of values is a range of dictionary ids, which can then be resolved with a number of bitmap
+ * operations proportional to the number of bits instead of the number of dictionary ids in the range.
+ *
+ * The bitmaps are written in the same layout as the bitmap inverted index.
+ */
+public class BitSlicedRangeIndexCreator implements InvertedIndexCreator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BitSlicedRangeIndexCreator.class);
+
+  private final File rangeIndexFile;
+  private final FieldSpec spec;
+  private final MutableRoaringBitmap[] bitmaps;
+  private final long start;
+
+  public BitSlicedRangeIndexCreator(File indexDir, int cardinality, FieldSpec spec) {
+    if (!spec.isSingleValueField()) {
+      throw new UnsupportedOperationException("Range index is only supported on single value columns, not on "
+          + spec.getName());
+    }
+    this.spec = spec;
+    rangeIndexFile = new File(indexDir, spec.getName() + V1Constants.Indexes.BITMAP_RANGE_INDEX_FILE_EXTENSION);
+    bitmaps = new MutableRoaringBitmap[getNumBitmaps(cardinality)];
+    for (int i = 0; i < bitmaps.length; i++) {
+      bitmaps[i] = new MutableRoaringBitmap();
+    }
+    start = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the number of bitmaps of the range index of a column with the given cardinality: the bitmap of the docs
+   * having a value plus one bitmap per bit needed to represent the largest dictionary id.
+   */
+  public static int getNumBitmaps(int cardinality) {
+    return 1 + Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(cardinality - 1, 0)));
+  }
+
+  @Override
+  public void add(int docId, int dictionaryId) {
+    if (dictionaryId < 0) {
+      return;
+    }
+    bitmaps[0].add(docId);
+    for (int bit = 0; dictionaryId != 0; bit++, dictionaryId >>>= 1) {
+      if ((dictionaryId & 1) != 0) {
+        bitmaps[bit + 1].add(docId);
+      }
+    }
+  }
+
+  @Override
+  public void add(int docId, Object dictionaryId) {
+    add(docId, ((Integer) dictionaryId).intValue());
+  }
+
+  @Override
+  public long totalTimeTakeSoFar() {
+    return System.currentTimeMillis() - start;
+  }
+
+  @Override
+  public void seal() throws IOException {
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(rangeIndexFile)));
+    int offset = 4 * (bitmaps.length + 1);
+    out.writeInt(offset);
+    for (final MutableRoaringBitmap bitmap : bitmaps) {
+      offset += bitmap.serializedSizeInBytes();
+      out.writeInt(offset);
+    }
+    for (final MutableRoaringBitmap bitmap : bitmaps) {
+      bitmap.serialize(out);
+    }
+    out.close();
+    LOGGER.debug("persisted bit-sliced range index for column : " + spec.getName() + " in "
+        + rangeIndexFile.getAbsolutePath());
+  }
+}
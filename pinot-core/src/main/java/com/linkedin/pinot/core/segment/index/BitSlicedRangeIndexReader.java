@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import com.linkedin.pinot.core.segment.creator.impl.inv.BitSlicedRangeIndexCreator;
+
+
+/**
+ * Reads the range index written by {@link BitSlicedRangeIndexCreator}. A range of dictionary ids is resolved by
+ * comparing the bound(s) against the bit slices from the most significant one down, which takes two bitmap operations
+ * per slice and bound, whatever the number of dictionary ids in the range.
+ */
+public class BitSlicedRangeIndexReader implements RangeIndexReader {
+  private final int cardinality;
+  private final int numSlices;
+  private final BitmapInvertedIndexReader bitmaps;
+
+  public BitSlicedRangeIndexReader(File file, int cardinality, boolean isMmap) throws IOException {
+    this.cardinality = cardinality;
+    final int numBitmaps = BitSlicedRangeIndexCreator.getNumBitmaps(cardinality);
+    numSlices = numBitmaps - 1;
+    bitmaps = new BitmapInvertedIndexReader(file, numBitmaps, isMmap);
+  }
+
+  @Override
+  public ImmutableRoaringBitmap getMatchingDocIds(int startDictId, int endDictId) {
+    startDictId = Math.max(startDictId, 0);
+    endDictId = Math.min(endDictId, cardinality - 1);
+    if (startDictId > endDictId) {
+      return new MutableRoaringBitmap();
+    }
+    if (startDictId == endDictId) {
+      return equalTo(startDictId);
+    }
+
+    ImmutableRoaringBitmap matchingDocIds = getExistenceBitmap();
+    if (startDictId > 0) {
+      matchingDocIds = compareTo(startDictId, true);
+    }
+    if (endDictId < cardinality - 1) {
+      if (startDictId > 0) {
+        matchingDocIds = ImmutableRoaringBitmap.and(matchingDocIds, compareTo(endDictId, false));
+      } else {
+        matchingDocIds = compareTo(endDictId, false);
+      }
+    }
+    return matchingDocIds;
+  }
+
+  /**
+   * Returns the docs whose dictionary id is greater or equal to the given one if greaterOrEqual, less or equal
+   * otherwise.
+   */
+  private ImmutableRoaringBitmap compareTo(int dictId, boolean greaterOrEqual) {
+    // Docs whose dictionary id has the same bits as dictId so far, and docs already known to be strictly on the
+    // requested side of it.
+    ImmutableRoaringBitmap equal = getExistenceBitmap();
+    MutableRoaringBitmap strict = new MutableRoaringBitmap();
+    for (int bit = numSlices - 1; bit >= 0; bit--) {
+      ImmutableRoaringBitmap slice = getSlice(bit);
+      if ((dictId & (1 << bit)) != 0) {
+        if (!greaterOrEqual) {
+          strict.or(ImmutableRoaringBitmap.andNot(equal, slice));
+        }
+        equal = ImmutableRoaringBitmap.and(equal, slice);
+      } else {
+        if (greaterOrEqual) {
+          strict.or(ImmutableRoaringBitmap.and(equal, slice));
+        }
+        equal = ImmutableRoaringBitmap.andNot(equal, slice);
+      }
+    }
+    strict.or(equal);
+    return strict;
+  }
+
+  private ImmutableRoaringBitmap equalTo(int dictId) {
+    ImmutableRoaringBitmap equal = getExistenceBitmap();
+    for (int bit = numSlices - 1; bit >= 0; bit--) {
+      if ((dictId & (1 << bit)) != 0) {
+        equal = ImmutableRoaringBitmap.and(equal, getSlice(bit));
+      } else {
+        equal = ImmutableRoaringBitmap.andNot(equal, getSlice(bit));
+      }
+    }
+    return equal;
+  }
+
+  private ImmutableRoaringBitmap getExistenceBitmap() {
+    return bitmaps.getImmutable(0);
+  }
+
+  private ImmutableRoaringBitmap getSlice(int bit) {
+    return bitmaps.getImmutable(bit + 1);
+  }
+
+  @Override
+  public void close() throws IOException {
+    bitmaps.close();
+  }
+}
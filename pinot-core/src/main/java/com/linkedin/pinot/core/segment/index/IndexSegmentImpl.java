@@ -39,8 +39,8 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 public class IndexSegmentImpl implements IndexSegment {
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexSegmentImpl.class);
 
-  private final File indexDir;
-  private final SegmentMetadataImpl segmentMetadata;
+  protected final File indexDir;
+  protected final SegmentMetadataImpl segmentMetadata;
   private final Map<String, ColumnIndexContainer> indexContainerMap;
 
   public IndexSegmentImpl(File indexDir, SegmentMetadataImpl segmentMetadata,
@@ -51,16 +51,23 @@ public class IndexSegmentImpl implements IndexSegment {
     LOGGER.info("successfully loaded the index segment : " + indexDir.getName());
   }
 
+  /**
+   * Returns the indexes of the column, or null if the segment does not have it.
+   */
+  protected ColumnIndexContainer getColumnIndexContainer(String column) {
+    return indexContainerMap.get(column);
+  }
+
   public ImmutableDictionaryReader getDictionaryFor(String column) {
-    return indexContainerMap.get(column).getDictionary();
+    return getColumnIndexContainer(column).getDictionary();
   }
 
   public DataFileReader getForwardIndexReaderFor(String column) {
-    return indexContainerMap.get(column).getForwardIndex();
+    return getColumnIndexContainer(column).getForwardIndex();
   }
 
   public InvertedIndexReader getInvertedIndexFor(String column) {
-    return indexContainerMap.get(column).getInvertedIndex();
+    return getColumnIndexContainer(column).getInvertedIndex();
   }
 
   @Override
@@ -85,7 +92,7 @@ public class IndexSegmentImpl implements IndexSegment {
 
   @Override
   public DataSource getDataSource(String columnName) {
-    final DataSource d = new ColumnDataSourceImpl(indexContainerMap.get(columnName));
+    final DataSource d = new ColumnDataSourceImpl(getColumnIndexContainer(columnName));
     return d;
   }
 
@@ -101,24 +108,34 @@ public class IndexSegmentImpl implements IndexSegment {
   @Override
   public void destroy() {
     for (String column : indexContainerMap.keySet()) {
+      close(column, indexContainerMap.get(column));
+    }
+    indexContainerMap.clear();
+  }
 
-      try {
-        indexContainerMap.get(column).getDictionary().close();
-      } catch (Exception e) {
-        LOGGER.error("Error when close dictionary index for column : " + column, e);
-      }
-      try {
-        indexContainerMap.get(column).getForwardIndex().close();
-      } catch (Exception e) {
-        LOGGER.error("Error when close forward index for column : " + column, e);
-      }
-      try {
-        indexContainerMap.get(column).getInvertedIndex().close();
-      } catch (Exception e) {
-        LOGGER.error("Error when close inverted index for column : " + column, e);
+  protected static void close(String column, ColumnIndexContainer container) {
+    try {
+      container.getDictionary().close();
+    } catch (Exception e) {
+      LOGGER.error("Error when close dictionary index for column : " + column, e);
+    }
+    try {
+      container.getForwardIndex().close();
+    } catch (Exception e) {
+      LOGGER.error("Error when close forward index for column : " + column, e);
+    }
+    try {
+      container.getInvertedIndex().close();
+    } catch (Exception e) {
+      LOGGER.error("Error when close inverted index for column : " + column, e);
+    }
+    try {
+      if (container.getRangeIndex() != null) {
+        container.getRangeIndex().close();
       }
+    } catch (Exception e) {
+      LOGGER.error("Error when close range index for column : " + column, e);
     }
-    indexContainerMap.clear();
   }
 
   @Override
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
+
+
+/**
+ * Index segment opening the indexes of a column on its first access rather than when the segment is loaded, so that
+ * loading a segment only reads its metadata and the memory in use follows the columns actually queried.
+ *
+ * If an idle unload period is configured, the indexes of the columns not accessed for that long are closed again, to
+ * be reopened on their next access. Columns are only unloaded while the reference count of the segment, set by the
+ * table data manager holding it, shows that no query uses the segment.
+ */
+public class LazyIndexSegmentImpl extends IndexSegmentImpl {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LazyIndexSegmentImpl.class);
+
+  private static final ScheduledExecutorService IDLE_COLUMN_UNLOADER =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "lazy-column-unloader");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  private final ReadMode readMode;
+  private final IndexLoadingConfigMetadata indexLoadingConfigMetadata;
+  private final long idleUnloadMs;
+  private final Map<String, LoadedColumn> loadedColumns = new ConcurrentHashMap<String, LoadedColumn>();
+  private final ScheduledFuture<?> idleUnloadTask;
+  private volatile AtomicInteger referenceCount;
+  private boolean destroyed = false;
+
+  public LazyIndexSegmentImpl(File indexDir, SegmentMetadataImpl segmentMetadata, ReadMode readMode,
+      IndexLoadingConfigMetadata indexLoadingConfigMetadata) throws Exception {
+    super(indexDir, segmentMetadata, Collections.<String, ColumnIndexContainer> emptyMap());
+    this.readMode = readMode;
+    this.indexLoadingConfigMetadata = indexLoadingConfigMetadata;
+    idleUnloadMs = indexLoadingConfigMetadata == null ? 0 : indexLoadingConfigMetadata.getLazyLoadingIdleUnloadMs();
+    if (idleUnloadMs > 0) {
+      idleUnloadTask = IDLE_COLUMN_UNLOADER.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          unloadIdleColumns();
+        }
+      }, idleUnloadMs, idleUnloadMs, TimeUnit.MILLISECONDS);
+    } else {
+      idleUnloadTask = null;
+    }
+  }
+
+  /**
+   * Sets the reference count of the segment in the table data manager holding it, which holds one reference itself
+   * and one more for every query using the segment. Until it is set, no column is ever unloaded.
+   */
+  public void setReferenceCount(AtomicInteger referenceCount) {
+    this.referenceCount = referenceCount;
+  }
+
+  @Override
+  protected ColumnIndexContainer getColumnIndexContainer(String column) {
+    LoadedColumn loadedColumn = loadedColumns.get(column);
+    if (loadedColumn != null) {
+      loadedColumn.lastAccessTime = System.currentTimeMillis();
+      return loadedColumn.container;
+    }
+    return load(column);
+  }
+
+  private synchronized ColumnIndexContainer load(String column) {
+    LoadedColumn loadedColumn = loadedColumns.get(column);
+    if (loadedColumn == null) {
+      ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(column);
+      if (columnMetadata == null) {
+        return null;
+      }
+      if (destroyed) {
+        throw new IllegalStateException("Segment " + segmentMetadata.getName() + " has been destroyed");
+      }
+      try {
+        loadedColumn = new LoadedColumn(
+            ColumnIndexContainer.init(column, indexDir, columnMetadata, indexLoadingConfigMetadata, readMode));
+      } catch (Exception e) {
+        throw new RuntimeException("Failed to load column " + column + " of segment " + segmentMetadata.getName(), e);
+      }
+      loadedColumns.put(column, loadedColumn);
+    }
+    loadedColumn.lastAccessTime = System.currentTimeMillis();
+    return loadedColumn.container;
+  }
+
+  /**
+   * Closes the indexes of the columns that were not accessed for the idle unload period, unless a query uses the
+   * segment.
+   */
+  synchronized void unloadIdleColumns() {
+    if (idleUnloadMs <= 0 || destroyed || isInUse()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, LoadedColumn> entry : loadedColumns.entrySet()) {
+      String column = entry.getKey();
+      LoadedColumn loadedColumn = entry.getValue();
+      if (now - loadedColumn.lastAccessTime <= idleUnloadMs) {
+        continue;
+      }
+      loadedColumns.remove(column);
+      // A query takes its reference before accessing any column. If it got the column before the removal, its
+      // reference is seen here and the column stays loaded; otherwise it does not find the column and reloads it.
+      if (isInUse()) {
+        loadedColumns.put(column, loadedColumn);
+        return;
+      }
+      LOGGER.debug("Unloading idle column {} of segment {}", column, segmentMetadata.getName());
+      close(column, loadedColumn.container);
+    }
+  }
+
+  private boolean isInUse() {
+    AtomicInteger count = referenceCount;
+    return count == null || count.get() > 1;
+  }
+
+  /**
+   * Returns the number of columns whose indexes are currently open.
+   */
+  public int getNumLoadedColumns() {
+    return loadedColumns.size();
+  }
+
+  @Override
+  public synchronized void destroy() {
+    destroyed = true;
+    if (idleUnloadTask != null) {
+      idleUnloadTask.cancel(false);
+    }
+    for (Map.Entry<String, LoadedColumn> entry : loadedColumns.entrySet()) {
+      close(entry.getKey(), entry.getValue().container);
+    }
+    loadedColumns.clear();
+  }
+
+  private static final class LoadedColumn {
+    final ColumnIndexContainer container;
+    volatile long lastAccessTime;
+
+    LoadedColumn(ColumnIndexContainer container) {
+      this.container = container;
+    }
+  }
+}
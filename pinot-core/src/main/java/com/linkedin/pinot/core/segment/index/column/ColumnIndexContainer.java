@@ -24,9 +24,11 @@ import com.linkedin.pinot.core.index.reader.DataFileReader;
 import com.linkedin.pinot.core.index.reader.impl.FixedBitSkipListSCMVReader;
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.BitSlicedRangeIndexReader;
 import com.linkedin.pinot.core.segment.index.BitmapInvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.RangeIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.DoubleDictionary;
 import com.linkedin.pinot.core.segment.index.readers.FixedBitCompressedSVForwardIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.FloatDictionary;
@@ -34,6 +36,7 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 import com.linkedin.pinot.core.segment.index.readers.IntDictionary;
 import com.linkedin.pinot.core.segment.index.readers.LongDictionary;
 import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
 
 
 public abstract class ColumnIndexContainer {
@@ -48,8 +51,14 @@ public abstract class ColumnIndexContainer {
       }
     }
 
-    File dictionaryFile = new File(indexDir, column + V1Constants.Dict.FILE_EXTENTION);
-    ImmutableDictionaryReader dictionary = load(metadata, dictionaryFile, mode);
+    ImmutableDictionaryReader dictionary;
+    File varLengthDictionaryFile = new File(indexDir, column + V1Constants.Dict.VAR_LENGTH_FILE_EXTENSION);
+    if (varLengthDictionaryFile.exists()) {
+      dictionary = new VarLengthStringDictionary(varLengthDictionaryFile, metadata, mode);
+    } else {
+      File dictionaryFile = new File(indexDir, column + V1Constants.Dict.FILE_EXTENTION);
+      dictionary = load(metadata, dictionaryFile, mode);
+    }
 
     if (metadata.isSorted() && metadata.isSingleValue()) {
       return loadSorted(column, indexDir, metadata, dictionary, mode);
@@ -76,6 +85,7 @@ public abstract class ColumnIndexContainer {
       ImmutableDictionaryReader dictionary, ReadMode mode, boolean loadInverted) throws IOException {
     File fwdIndexFile = new File(indexDir, column + V1Constants.Indexes.UN_SORTED_SV_FWD_IDX_FILE_EXTENTION);
     File invertedIndexFile = new File(indexDir, column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION);
+    File rangeIndexFile = new File(indexDir, column + V1Constants.Indexes.BITMAP_RANGE_INDEX_FILE_EXTENSION);
 
     FixedBitCompressedSVForwardIndexReader fwdIndexReader =
         new FixedBitCompressedSVForwardIndexReader(fwdIndexFile, metadata.getTotalDocs(), metadata.getBitsPerElement(),
@@ -88,7 +98,13 @@ public abstract class ColumnIndexContainer {
           new BitmapInvertedIndexReader(invertedIndexFile, metadata.getCardinality(), mode == ReadMode.mmap);
     }
 
-    return new UnsortedSVColumnIndexContainer(column, metadata, fwdIndexReader, dictionary, invertedIndex);
+    // The range index is only created for the columns declared with one, so load it whenever it is there.
+    BitSlicedRangeIndexReader rangeIndex = null;
+    if (rangeIndexFile.exists()) {
+      rangeIndex = new BitSlicedRangeIndexReader(rangeIndexFile, metadata.getCardinality(), mode == ReadMode.mmap);
+    }
+
+    return new UnsortedSVColumnIndexContainer(column, metadata, fwdIndexReader, dictionary, invertedIndex, rangeIndex);
   }
 
   private static ColumnIndexContainer loadMultiValue(String column, File indexDir, ColumnMetadata metadata,
@@ -136,6 +152,13 @@ public abstract class ColumnIndexContainer {
    */
   public abstract InvertedIndexReader getInvertedIndex();
 
+  /**
+   * Returns the range index of the column, or null if it has none.
+   */
+  public RangeIndexReader getRangeIndex() {
+    return null;
+  }
+
   /**
    *
    * @return
@@ -16,9 +16,11 @@
 package com.linkedin.pinot.core.segment.index.column;
 
 import com.linkedin.pinot.core.index.reader.DataFileReader;
+import com.linkedin.pinot.core.segment.index.BitSlicedRangeIndexReader;
 import com.linkedin.pinot.core.segment.index.BitmapInvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.RangeIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.FixedBitCompressedSVForwardIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 
@@ -30,6 +32,7 @@ public class UnsortedSVColumnIndexContainer extends ColumnIndexContainer {
   private final FixedBitCompressedSVForwardIndexReader indexReader;
   private final ImmutableDictionaryReader dictionary;
   private final BitmapInvertedIndexReader invertedIndexReader;
+  private final BitSlicedRangeIndexReader rangeIndexReader;
 
   public UnsortedSVColumnIndexContainer(String column, ColumnMetadata columnMetadata,
       FixedBitCompressedSVForwardIndexReader indexReader, ImmutableDictionaryReader dictionary) {
@@ -39,11 +42,18 @@ public class UnsortedSVColumnIndexContainer extends ColumnIndexContainer {
   public UnsortedSVColumnIndexContainer(String column, ColumnMetadata columnMetadata,
       FixedBitCompressedSVForwardIndexReader indexReader, ImmutableDictionaryReader dictionary,
       BitmapInvertedIndexReader invertedIndex) {
+    this(column, columnMetadata, indexReader, dictionary, invertedIndex, null);
+  }
+
+  public UnsortedSVColumnIndexContainer(String column, ColumnMetadata columnMetadata,
+      FixedBitCompressedSVForwardIndexReader indexReader, ImmutableDictionaryReader dictionary,
+      BitmapInvertedIndexReader invertedIndex, BitSlicedRangeIndexReader rangeIndex) {
     this.column = column;
     this.columnMetadata = columnMetadata;
     this.indexReader = indexReader;
     this.dictionary = dictionary;
     this.invertedIndexReader = invertedIndex;
+    this.rangeIndexReader = rangeIndex;
   }
 
   @Override
@@ -51,6 +61,11 @@ public class UnsortedSVColumnIndexContainer extends ColumnIndexContainer {
     return invertedIndexReader;
   }
 
+  @Override
+  public RangeIndexReader getRangeIndex() {
+    return rangeIndexReader;
+  }
+
   @Override
   public DataFileReader getForwardIndex() {
     return indexReader;
@@ -73,6 +88,9 @@ public class UnsortedSVColumnIndexContainer extends ColumnIndexContainer {
     if (invertedIndexReader != null) {
       invertedIndexReader.close();
     }
+    if (rangeIndexReader != null) {
+      rangeIndexReader.close();
+    }
     return true;
   }
 }
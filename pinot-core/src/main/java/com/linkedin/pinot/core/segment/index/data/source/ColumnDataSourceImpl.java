@@ -27,6 +27,7 @@ import com.linkedin.pinot.core.common.DataSourceMetadata;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.index.reader.impl.FixedBitSkipListSCMVReader;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.RangeIndexReader;
 import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
 import com.linkedin.pinot.core.segment.index.data.source.mv.block.MultiValueBlock;
 import com.linkedin.pinot.core.segment.index.data.source.sv.block.SortedSingleValueBlock;
@@ -151,6 +152,11 @@ public class ColumnDataSourceImpl implements DataSource {
     return indexContainer.getInvertedIndex();
   }
 
+  @Override
+  public RangeIndexReader getRangeIndex() {
+    return indexContainer.getRangeIndex();
+  }
+
   @Override
   public Dictionary getDictionary() {
     return indexContainer.getDictionary();
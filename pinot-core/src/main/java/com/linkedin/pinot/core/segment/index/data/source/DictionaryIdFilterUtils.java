@@ -29,6 +29,8 @@ import com.linkedin.pinot.core.common.predicate.InPredicate;
 import com.linkedin.pinot.core.common.predicate.NEqPredicate;
 import com.linkedin.pinot.core.common.predicate.NotInPredicate;
 import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.common.predicate.RegexPredicate;
+import com.linkedin.pinot.core.operator.filter.predicate.RegexPredicateEvaluator;
 import com.linkedin.pinot.core.operator.filter.utils.RangePredicateEvaluator;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
@@ -111,8 +113,12 @@ public class DictionaryIdFilterUtils {
         filteredBitmap = rangeBitmapHolder;
         break;
       case REGEX:
-        throw new UnsupportedOperationException("unsupported type : " + columnMetadata.getDataType().toString()
-            + " for filter type : regex");
+        final MutableRoaringBitmap regexHolder = new MutableRoaringBitmap();
+        for (final int dictId : new RegexPredicateEvaluator((RegexPredicate) predicate, dictionary).getDictionaryIds()) {
+          regexHolder.or(invertedIndex.getImmutable(dictId));
+        }
+        filteredBitmap = regexHolder;
+        break;
     }
 
     return filteredBitmap;
@@ -177,7 +183,10 @@ public class DictionaryIdFilterUtils {
         }
         break;
       case REGEX:
-        throw new UnsupportedOperationException("unsupported type : " + predicate.getType() + " : " + predicate);
+        for (final int dictId : new RegexPredicateEvaluator((RegexPredicate) predicate, dictionary).getDictionaryIds()) {
+          ret.add(dictId);
+        }
+        break;
     }
     return ret;
   }
@@ -143,6 +143,11 @@ public class MultiValueBlock implements Block {
         };
       }
 
+      @Override
+      public void readIntValues(int[] docIds, int length, int[] values) {
+        throw new UnsupportedOperationException("readIntValues is not supported on multi value blocks");
+      }
+
       @Override
       public DataType getValueType() {
         return columnMetadata.getDataType();
@@ -129,6 +129,11 @@ public class SortedSingleValueBlock implements Block {
         };
       }
 
+      @Override
+      public void readIntValues(int[] docIds, int length, int[] values) {
+        sVReader.readIntValues(docIds, length, values);
+      }
+
       @Override
       public DataType getValueType() {
         // TODO Auto-generated method stub
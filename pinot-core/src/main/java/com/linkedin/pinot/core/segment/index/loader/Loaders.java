@@ -22,6 +22,7 @@ import java.util.Map;
 import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.LazyIndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
 
@@ -41,6 +42,10 @@ public class Loaders {
         IndexLoadingConfigMetadata indexLoadingConfigMetadata) throws Exception {
       SegmentMetadataImpl metadata = new SegmentMetadataImpl(indexDir);
 
+      if (indexLoadingConfigMetadata != null && indexLoadingConfigMetadata.isLazyLoading()) {
+        return new LazyIndexSegmentImpl(indexDir, metadata, readMode, indexLoadingConfigMetadata);
+      }
+
       Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<String, ColumnIndexContainer>();
 
       for (String column : metadata.getColumnMetadataMap().keySet()) {
@@ -33,6 +33,18 @@ public interface Dictionary {
 
   double getDoubleValue(int dictionaryId);
 
+  /**
+   * Bulk version of {@link #getLongValue(int)} for the first length dictionary ids. Dictionary ids must not be
+   * {@link #NULL_VALUE_INDEX}.
+   */
+  void readLongValues(int[] dictionaryIds, int length, long[] values);
+
+  /**
+   * Bulk version of {@link #getDoubleValue(int)} for the first length dictionary ids.
+   * {@link #NULL_VALUE_INDEX} is dereferenced to {@link Double#NaN}.
+   */
+  void readDoubleValues(int[] dictionaryIds, int length, double[] values);
+
   String getStringValue(int dictionaryId);
 
   String toString(int dictionaryId);
@@ -73,6 +73,11 @@ public class FixedBitCompressedSVForwardIndexReader implements SingleColumnSingl
     return dataFileReader.getInt(row, 0);
   }
 
+  @Override
+  public void readIntValues(int[] rows, int length, int[] values) {
+    dataFileReader.readInts(rows, 0, length, values);
+  }
+
   @Override
   public long getLong(int row) {
     throw new UnsupportedOperationException();
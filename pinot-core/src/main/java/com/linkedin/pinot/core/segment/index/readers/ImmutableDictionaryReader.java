@@ -42,6 +42,16 @@ public abstract class ImmutableDictionaryReader implements Dictionary {
     fileSearcher = new ByteBufferBinarySearchUtil(dataFileReader);
   }
 
+  /**
+   * For dictionaries whose values are not stored in a fixed width data file, which then have to implement the lookups
+   * and override {@link #close()} themselves.
+   */
+  protected ImmutableDictionaryReader(int rows) {
+    dataFileReader = null;
+    fileSearcher = null;
+    this.rows = rows;
+  }
+
   protected int intIndexOf(int actualValue) {
     return fileSearcher.binarySearch(0, actualValue);
   }
@@ -74,6 +84,21 @@ public abstract class ImmutableDictionaryReader implements Dictionary {
   @Override
   public abstract double getDoubleValue(int dictionaryId);
 
+  @Override
+  public void readLongValues(int[] dictionaryIds, int length, long[] values) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getLongValue(dictionaryIds[i]);
+    }
+  }
+
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int length, double[] values) {
+    for (int i = 0; i < length; i++) {
+      int dictionaryId = dictionaryIds[i];
+      values[i] = dictionaryId == NULL_VALUE_INDEX ? Double.NaN : getDoubleValue(dictionaryId);
+    }
+  }
+
   @Override
   public abstract String toString(int dictionaryId);
 
@@ -76,6 +76,31 @@ public class SortedForwardIndexReader implements SingleColumnSingleValueReader {
     return Constants.EOF;
   }
 
+  /**
+   * Rows are expected in increasing order, as produced by filters: consecutive rows in the same dictionary id
+   * range are resolved without a binary search.
+   */
+  @Override
+  public void readIntValues(int[] rows, int length, int[] values) {
+    int dictId = Constants.EOF;
+    int startDocId = 0;
+    int endDocId = -1;
+    for (int i = 0; i < length; i++) {
+      final int row = rows[i];
+      if (row < startDocId || row > endDocId) {
+        dictId = getInt(row);
+        if (dictId == Constants.EOF) {
+          startDocId = 0;
+          endDocId = -1;
+        } else {
+          startDocId = indexReader.getInt(dictId, 0);
+          endDocId = indexReader.getInt(dictId, 1);
+        }
+      }
+      values[i] = dictId;
+    }
+  }
+
   @Override
   public long getLong(int row) {
     throw new UnsupportedOperationException("not allowed in sorted reader");
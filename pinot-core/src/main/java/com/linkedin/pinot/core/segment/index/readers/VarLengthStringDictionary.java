@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.readers;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.MmapUtils;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+
+
+/**
+ * String dictionary storing every value with its own length, written by the segment dictionary creator for the
+ * columns configured with a variable length dictionary.
+ *
+ * The file starts with cardinality + 1 int offsets, offset i being where the UTF-8 bytes of value i start and the last
+ * one being the file length, followed by the values sorted on their unsigned bytes. Lookups compare the key against
+ * the bytes in place, and recently decoded values are kept in a small direct mapped cache.
+ */
+public class VarLengthStringDictionary extends ImmutableDictionaryReader {
+  public static final int INT_SIZE_IN_BYTES = Integer.SIZE / Byte.SIZE;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int MAX_DECODE_CACHE_SIZE = 1024;
+
+  private final RandomAccessFile rndFile;
+  private final ByteBuffer buffer;
+  private final DecodedValue[] decodeCache;
+  private final int decodeCacheMask;
+
+  public VarLengthStringDictionary(File dictFile, ColumnMetadata metadata, ReadMode mode) throws IOException {
+    this(dictFile, metadata.getCardinality(), mode == ReadMode.mmap);
+  }
+
+  public VarLengthStringDictionary(File dictFile, int cardinality, boolean isMmap) throws IOException {
+    super(cardinality);
+    rndFile = new RandomAccessFile(dictFile, "r");
+    final FileChannel channel = rndFile.getChannel();
+    final int fileLength = (int) channel.size();
+    if (isMmap) {
+      buffer = channel.map(MapMode.READ_ONLY, 0, fileLength);
+    } else {
+      buffer = ByteBuffer.allocateDirect(fileLength);
+      // A single read may return fewer bytes than asked for
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          rndFile.close();
+          throw new EOFException("Dictionary file " + dictFile + " ended after " + buffer.position() + " of "
+              + fileLength + " bytes");
+        }
+      }
+    }
+
+    int decodeCacheSize = 1;
+    while (decodeCacheSize < cardinality && decodeCacheSize < MAX_DECODE_CACHE_SIZE) {
+      decodeCacheSize <<= 1;
+    }
+    decodeCache = new DecodedValue[decodeCacheSize];
+    decodeCacheMask = decodeCacheSize - 1;
+  }
+
+  @Override
+  public int indexOf(Object rawValue) {
+    final byte[] value = rawValue.toString().getBytes(UTF_8);
+    int low = 0;
+    int high = length() - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int compare = compareTo(middle, value);
+      if (compare < 0) {
+        low = middle + 1;
+      } else if (compare > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  @Override
+  public String get(int dictionaryId) {
+    if ((dictionaryId == -1) || (dictionaryId >= length())) {
+      return "null";
+    }
+    final int cacheIndex = dictionaryId & decodeCacheMask;
+    final DecodedValue cached = decodeCache[cacheIndex];
+    if (cached != null && cached.dictionaryId == dictionaryId) {
+      return cached.value;
+    }
+    final String value = decode(dictionaryId);
+    decodeCache[cacheIndex] = new DecodedValue(dictionaryId, value);
+    return value;
+  }
+
+  @Override
+  public long getLongValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to long");
+  }
+
+  @Override
+  public double getDoubleValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to double");
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return get(dictionaryId);
+  }
+
+  @Override
+  public String toString(int dictionaryId) {
+    return get(dictionaryId);
+  }
+
+  @Override
+  public void close() throws IOException {
+    MmapUtils.unloadByteBuffer(buffer);
+    rndFile.close();
+  }
+
+  /**
+   * Compares the stored value to the given UTF-8 bytes, unsigned byte by byte, without copying it out of the buffer.
+   */
+  private int compareTo(int dictionaryId, byte[] value) {
+    final int start = getOffset(dictionaryId);
+    final int length = getOffset(dictionaryId + 1) - start;
+    final int commonLength = Math.min(length, value.length);
+    for (int i = 0; i < commonLength; i++) {
+      final int diff = (buffer.get(start + i) & 0xFF) - (value[i] & 0xFF);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return length - value.length;
+  }
+
+  private String decode(int dictionaryId) {
+    final int start = getOffset(dictionaryId);
+    final byte[] bytes = new byte[getOffset(dictionaryId + 1) - start];
+    // Duplicate the buffer so that concurrent readers do not share its position
+    final ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(start);
+    duplicate.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private int getOffset(int index) {
+    return buffer.getInt(index * INT_SIZE_IN_BYTES);
+  }
+
+  private static final class DecodedValue {
+    final int dictionaryId;
+    final String value;
+
+    DecodedValue(int dictionaryId, String value) {
+      this.dictionaryId = dictionaryId;
+      this.value = value;
+    }
+  }
+}
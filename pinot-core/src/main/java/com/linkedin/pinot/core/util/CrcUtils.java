@@ -24,7 +24,12 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.Adler32;
 import java.util.zip.CheckedInputStream;
 import java.util.zip.Checksum;
@@ -101,6 +106,62 @@ public class CrcUtils {
     return checksum.getValue();
   }
 
+  /**
+   * Same as {@link #computeCrc()}, but the files are checksummed concurrently on the given executor and the per file
+   * checksums are combined in file order, so the result is identical.
+   */
+  public long computeCrc(ExecutorService executorService) throws InterruptedException {
+    final List<Future<long[]>> futures = new ArrayList<Future<long[]>>(filesToProcess.size());
+    for (final File file : filesToProcess) {
+      futures.add(executorService.submit(new Callable<long[]>() {
+        @Override
+        public long[] call() throws Exception {
+          return new long[] { new CrcUtils(Collections.singletonList(file)).computeCrc(), file.length() };
+        }
+      }));
+    }
+
+    long crc = new Adler32().getValue();
+    for (final Future<long[]> future : futures) {
+      final long[] crcAndLength;
+      try {
+        crcAndLength = future.get();
+      } catch (final ExecutionException e) {
+        LOGGER.error("Caught exception while computing CRC", e);
+        Utils.rethrowException(e.getCause());
+        throw new AssertionError("Should not reach this");
+      }
+      crc = combineAdler32(crc, crcAndLength[0], crcAndLength[1]);
+    }
+    return crc;
+  }
+
+  /**
+   * Returns the Adler-32 checksum of the concatenation of two byte sequences, given their checksums and the length of
+   * the second one (same as adler32_combine in zlib).
+   */
+  static long combineAdler32(long adler1, long adler2, long length2) {
+    final long base = 65521L;
+    final long rem = length2 % base;
+    long sum1 = adler1 & 0xffff;
+    long sum2 = (rem * sum1) % base;
+    sum1 += (adler2 & 0xffff) + base - 1;
+    sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + base - rem;
+    if (sum1 >= base) {
+      sum1 -= base;
+    }
+    if (sum1 >= base) {
+      sum1 -= base;
+    }
+    if (sum2 >= (base << 1)) {
+      sum2 -= (base << 1);
+    }
+    if (sum2 >= base) {
+      sum2 -= base;
+    }
+    return sum1 | (sum2 << 16);
+  }
+
   public String computeMD5() throws NoSuchAlgorithmException, IOException {
 
     final MessageDigest digest = MessageDigest.getInstance("md5");
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.util;
 
 import com.linkedin.pinot.core.indexsegment.utils.BitUtils;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 
 /**
@@ -122,6 +123,19 @@ public final class CustomBitSet {
 
   }
 
+  /**
+   * Same as {@link #readInt(int, int)} for a value of numBits (at most 32) bits, using a single 8 byte read
+   * instead of a byte at a time when possible.
+   */
+  public int readBits(int startBitIndex, int numBits) {
+    int bytePosition = startBitIndex >>> 3;
+    if (bytePosition + 8 <= buf.limit() && buf.order() == ByteOrder.BIG_ENDIAN) {
+      long word = buf.getLong(bytePosition);
+      return (int) ((word >>> (64 - (startBitIndex & 7) - numBits)) & (0xFFFFFFFFL >>> (32 - numBits)));
+    }
+    return readInt(startBitIndex, startBitIndex + numBits);
+  }
+
   public byte[] toByteArray() {
     byte[] dst = new byte[buf.capacity()];
     buf.get(dst);
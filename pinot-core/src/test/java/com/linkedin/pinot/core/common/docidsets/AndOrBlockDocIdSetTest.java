@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.common.docidsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.AndBlockDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.OrBlockDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.ScanBasedDocIdIterator;
+import com.linkedin.pinot.core.operator.docidsets.SortedDocIdSet;
+
+
+public class AndOrBlockDocIdSetTest {
+  private static final int NUM_DOCS = 10000;
+  private final Random random = new Random();
+
+  @Test
+  public void testAndOfBitmaps() {
+    TreeSet<Integer> docs1 = randomDocs(NUM_DOCS / 2);
+    TreeSet<Integer> docs2 = randomDocs(NUM_DOCS / 2);
+    TreeSet<Integer> expected = new TreeSet<Integer>(docs1);
+    expected.retainAll(docs2);
+
+    FilterBlockDocIdSet docIdSet = AndBlockDocIdSet.intersect(Arrays.asList(bitmapDocIdSet(docs1), bitmapDocIdSet(docs2)));
+    Assert.assertTrue(docIdSet instanceof BitmapDocIdSet);
+    Assert.assertEquals(iterate(docIdSet), expected);
+  }
+
+  @Test
+  public void testOrOfBitmaps() {
+    TreeSet<Integer> docs1 = randomDocs(NUM_DOCS / 10);
+    TreeSet<Integer> docs2 = randomDocs(NUM_DOCS / 10);
+    TreeSet<Integer> expected = new TreeSet<Integer>(docs1);
+    expected.addAll(docs2);
+
+    FilterBlockDocIdSet docIdSet = OrBlockDocIdSet.union(Arrays.asList(bitmapDocIdSet(docs1), bitmapDocIdSet(docs2)));
+    Assert.assertTrue(docIdSet instanceof BitmapDocIdSet);
+    Assert.assertEquals(iterate(docIdSet), expected);
+  }
+
+  @Test
+  public void testAndOfBitmapsSortedAndScans() {
+    TreeSet<Integer> bitmapDocs = randomDocs(NUM_DOCS / 2);
+    TreeSet<Integer> scanDocs1 = randomDocs(NUM_DOCS / 2);
+    TreeSet<Integer> scanDocs2 = randomDocs(NUM_DOCS / 2);
+    int sortedStart = NUM_DOCS / 4;
+    int sortedEnd = 3 * NUM_DOCS / 4;
+
+    TreeSet<Integer> expected = new TreeSet<Integer>(bitmapDocs);
+    expected.retainAll(scanDocs1);
+    expected.retainAll(scanDocs2);
+    expected = new TreeSet<Integer>(expected.subSet(sortedStart, true, sortedEnd, true));
+
+    List<Pair<Integer, Integer>> pairs = new ArrayList<Pair<Integer, Integer>>();
+    pairs.add(Pair.of(sortedStart, sortedEnd));
+    List<FilterBlockDocIdSet> docIdSets = new ArrayList<FilterBlockDocIdSet>();
+    docIdSets.add(new ScanDocIdSet(scanDocs1));
+    docIdSets.add(bitmapDocIdSet(bitmapDocs));
+    docIdSets.add(new SortedDocIdSet(pairs));
+    docIdSets.add(new ScanDocIdSet(scanDocs2));
+    Assert.assertEquals(iterate(AndBlockDocIdSet.intersect(docIdSets)), expected);
+  }
+
+  @Test
+  public void testAndOfScansOnly() {
+    TreeSet<Integer> scanDocs1 = randomDocs(NUM_DOCS / 2);
+    TreeSet<Integer> scanDocs2 = randomDocs(NUM_DOCS / 2);
+    TreeSet<Integer> expected = new TreeSet<Integer>(scanDocs1);
+    expected.retainAll(scanDocs2);
+
+    List<FilterBlockDocIdSet> docIdSets = new ArrayList<FilterBlockDocIdSet>();
+    docIdSets.add(new ScanDocIdSet(scanDocs1));
+    docIdSets.add(new ScanDocIdSet(scanDocs2));
+    Assert.assertEquals(iterate(AndBlockDocIdSet.intersect(docIdSets)), expected);
+  }
+
+  @Test
+  public void testOrOfBitmapsAndScans() {
+    TreeSet<Integer> bitmapDocs = randomDocs(NUM_DOCS / 10);
+    TreeSet<Integer> scanDocs = randomDocs(NUM_DOCS / 10);
+    TreeSet<Integer> expected = new TreeSet<Integer>(bitmapDocs);
+    expected.addAll(scanDocs);
+
+    List<FilterBlockDocIdSet> docIdSets = new ArrayList<FilterBlockDocIdSet>();
+    docIdSets.add(new ScanDocIdSet(scanDocs));
+    docIdSets.add(bitmapDocIdSet(bitmapDocs));
+    Assert.assertEquals(iterate(OrBlockDocIdSet.union(docIdSets)), expected);
+  }
+
+  private TreeSet<Integer> randomDocs(int numValues) {
+    TreeSet<Integer> docs = new TreeSet<Integer>();
+    for (int i = 0; i < numValues; i++) {
+      docs.add(random.nextInt(NUM_DOCS));
+    }
+    return docs;
+  }
+
+  private static BitmapDocIdSet bitmapDocIdSet(TreeSet<Integer> docs) {
+    MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+    for (int docId : docs) {
+      bitmap.add(docId);
+    }
+    return new BitmapDocIdSet(0, NUM_DOCS - 1, bitmap);
+  }
+
+  private static TreeSet<Integer> iterate(FilterBlockDocIdSet docIdSet) {
+    BlockDocIdIterator iterator = docIdSet.iterator();
+    TreeSet<Integer> result = new TreeSet<Integer>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      result.add(docId);
+    }
+    return result;
+  }
+
+  /**
+   * Doc id set that scans a boolean array, standing in for the scan based doc id sets over a column.
+   */
+  private static class ScanDocIdSet implements FilterBlockDocIdSet {
+    private final boolean[] matches = new boolean[NUM_DOCS];
+    private int startDocId = 0;
+    private int endDocId = NUM_DOCS - 1;
+
+    ScanDocIdSet(TreeSet<Integer> docs) {
+      for (int docId : docs) {
+        matches[docId] = true;
+      }
+    }
+
+    @Override
+    public BlockDocIdIterator iterator() {
+      return new ScanBasedDocIdIterator() {
+        int currentDocId = -1;
+
+        @Override
+        public boolean isMatch(int docId) {
+          Assert.assertTrue(docId >= startDocId && docId <= endDocId);
+          return matches[docId];
+        }
+
+        @Override
+        public int advance(int targetDocId) {
+          if (currentDocId == Constants.EOF || currentDocId >= targetDocId) {
+            return currentDocId;
+          }
+          for (int docId = Math.max(targetDocId, startDocId); docId <= endDocId; docId++) {
+            if (matches[docId]) {
+              currentDocId = docId;
+              return currentDocId;
+            }
+          }
+          currentDocId = Constants.EOF;
+          return currentDocId;
+        }
+
+        @Override
+        public int next() {
+          if (currentDocId == Constants.EOF) {
+            return currentDocId;
+          }
+          return advance(currentDocId + 1);
+        }
+
+        @Override
+        public int currentDocId() {
+          return currentDocId;
+        }
+      };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T getRaw() {
+      return (T) matches;
+    }
+
+    @Override
+    public int getMinDocId() {
+      return 0;
+    }
+
+    @Override
+    public int getMaxDocId() {
+      return NUM_DOCS - 1;
+    }
+
+    @Override
+    public void setStartDocId(int startDocId) {
+      this.startDocId = startDocId;
+    }
+
+    @Override
+    public void setEndDocId(int endDocId) {
+      this.endDocId = endDocId;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.common.docidsets;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.core.operator.docidsets.DictionaryIdMatcher;
+
+
+public class DictionaryIdMatcherTest {
+
+  @Test
+  public void testMatcherSelection() {
+    Assert.assertTrue(DictionaryIdMatcher.create(new int[] { 5 }) instanceof DictionaryIdMatcher.SingleDictionaryIdMatcher);
+    Assert.assertTrue(DictionaryIdMatcher.create(new int[] { 5, 5 }) instanceof DictionaryIdMatcher.SingleDictionaryIdMatcher);
+    Assert.assertTrue(DictionaryIdMatcher.create(new int[] { 7, 5, 6 }) instanceof DictionaryIdMatcher.RangeDictionaryIdMatcher);
+    Assert.assertTrue(DictionaryIdMatcher.create(new int[] { 1, 5, 200 }) instanceof DictionaryIdMatcher.BitSetDictionaryIdMatcher);
+  }
+
+  @Test
+  public void testMatches() {
+    Random random = new Random();
+    int[][] dictIdsList = new int[][] { { 3 }, { 10, 11, 12, 13 }, { 0, 63, 64, 65, 1000 }, randomIds(random, 100) };
+    for (int[] dictIds : dictIdsList) {
+      Set<Integer> expected = new HashSet<Integer>();
+      for (int dictId : dictIds) {
+        expected.add(dictId);
+      }
+      DictionaryIdMatcher matcher = DictionaryIdMatcher.create(dictIds);
+      for (int dictId = -1; dictId < 2000; dictId++) {
+        Assert.assertEquals(matcher.matches(dictId), expected.contains(dictId), "dictId: " + dictId);
+      }
+      Assert.assertTrue(matcher.matchesAny(new int[] { 5000, dictIds[0] }, 2));
+      Assert.assertFalse(matcher.matchesAny(new int[] { 5000, dictIds[0] }, 1));
+    }
+  }
+
+  private static int[] randomIds(Random random, int numIds) {
+    int[] dictIds = new int[numIds];
+    for (int i = 0; i < numIds; i++) {
+      dictIds[i] = random.nextInt(1500);
+    }
+    return dictIds;
+  }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.data.manager.realtime;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.instance.InstanceZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
+import com.linkedin.pinot.common.utils.CommonConstants.Segment.SegmentType;
+import com.linkedin.pinot.common.utils.SegmentNameBuilder;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.index.readerwriter.impl.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.StreamProvider;
+import com.linkedin.pinot.core.realtime.StreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderImpl;
+import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+
+
+public class RealtimeSegmentDataManagerTest {
+  private static final String AVRO_DATA = "data/test_data-mv.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "RealtimeSegmentDataManagerTest");
+  private static final long TIMEOUT_MILLIS = 60000;
+
+  private Schema schema;
+  private AbstractTableConfig tableConfig;
+  private List<GenericRow> rows;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    String filePath = RealtimeSegmentDataManagerTest.class.getClassLoader().getResource(AVRO_DATA).getFile();
+    Map<String, FieldType> fieldTypeMap = new HashMap<String, FieldSpec.FieldType>();
+    for (int i = 1; i <= 12; i++) {
+      fieldTypeMap.put("column" + i, FieldType.DIMENSION);
+    }
+    fieldTypeMap.put("column13", FieldType.TIME);
+    fieldTypeMap.put("count", FieldType.METRIC);
+    schema = SegmentTestUtils.extractSchemaFromAvro(new File(filePath), fieldTypeMap, TimeUnit.MINUTES);
+
+    StreamProviderConfig config = new FileBasedStreamProviderConfig(FileFormat.AVRO, filePath, schema);
+    StreamProvider provider = new FileBasedStreamProviderImpl();
+    provider.init(config);
+    rows = new ArrayList<GenericRow>();
+    GenericRow row = provider.next();
+    while (row != null) {
+      rows.add(row);
+      row = provider.next();
+    }
+    provider.shutdown();
+
+    JSONObject request = new JSONObject();
+    request.put("tableName", "testTable");
+    request.put("tableType", "REALTIME");
+    request.put("tableIndexConfig", new JSONObject().put("loadMode", "HEAP"));
+    request.put("segmentsConfig", new JSONObject());
+    request.put("tenants", new JSONObject());
+    request.put("metadata", new JSONObject());
+    tableConfig = AbstractTableConfig.init(request.toString());
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testKeepsIndexingWhileConverting() throws Exception {
+    CyclicStreamProvider provider = new CyclicStreamProvider(rows);
+    RealtimeStreamConsumer stream = new RealtimeStreamConsumer("testTable", provider, 100, 4, null);
+    stream.start();
+    BlockingTableDataManager tableDataManager = new BlockingTableDataManager();
+
+    RealtimeSegmentZKMetadata segmentMetadata = new RealtimeSegmentZKMetadata();
+    segmentMetadata.setTableName("testTable_REALTIME");
+    segmentMetadata.setSegmentName(
+        SegmentNameBuilder.Realtime.build("testTable_REALTIME", "Server_localhost_8000", "testGroup", "0", "0"));
+    segmentMetadata.setSegmentType(SegmentType.REALTIME);
+    segmentMetadata.setStatus(Status.IN_PROGRESS);
+    RealtimeSegmentDataManager firstSegment =
+        new RealtimeSegmentDataManager(segmentMetadata, tableConfig, new InstanceZKMetadata(), tableDataManager,
+            INDEX_DIR.getAbsolutePath(), ReadMode.heap, schema, new DirectMemoryManager("first"), null, stream);
+    RealtimeSegmentDataManager nextSegment = null;
+    try {
+      waitForRawDocs((RealtimeSegmentImpl) firstSegment.getSegment(), 1);
+      firstSegment.completeSegment();
+
+      // the next segment consumes the stream while the first one is blocked on persisting its converted version
+      Assert.assertTrue(tableDataManager.conversionDone.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+      nextSegment = tableDataManager.nextSegment;
+      Assert.assertNotNull(nextSegment);
+      Assert.assertFalse(nextSegment.getSegmentName().equals(firstSegment.getSegmentName()));
+      RealtimeSegmentImpl consumingSegment = (RealtimeSegmentImpl) nextSegment.getSegment();
+      int numRawDocs = consumingSegment.getRawDocumentCount();
+      waitForRawDocs(consumingSegment, numRawDocs + 1);
+
+      // offsets are only committed once the segment is persisted, up to its last row
+      Assert.assertTrue(provider.committedOffsets.isEmpty());
+      tableDataManager.persisted.countDown();
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (provider.committedOffsets.isEmpty() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(provider.committedOffsets,
+          Collections.singletonMap(0, (long) tableDataManager.persistedMetadata.getTotalDocs()));
+    } finally {
+      tableDataManager.persisted.countDown();
+      if (nextSegment != null) {
+        nextSegment.destroy();
+      }
+      firstSegment.destroy();
+      stream.shutdown();
+    }
+  }
+
+  private static void waitForRawDocs(RealtimeSegmentImpl segment, int numRawDocs) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (segment.getRawDocumentCount() < numRawDocs && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(segment.getRawDocumentCount() >= numRawDocs);
+  }
+
+  /**
+   * Table data manager which keeps the segments it starts to itself and blocks persisting converted segments.
+   */
+  private static class BlockingTableDataManager extends RealtimeTableDataManager {
+    private final CountDownLatch conversionDone = new CountDownLatch(1);
+    private final CountDownLatch persisted = new CountDownLatch(1);
+    private volatile RealtimeSegmentDataManager nextSegment;
+    private volatile RealtimeSegmentZKMetadata persistedMetadata;
+
+    @Override
+    public void startConsumingSegment(RealtimeSegmentZKMetadata segmentMetadata,
+        RealtimeSegmentDataManager previousSegment) throws Exception {
+      nextSegment = previousSegment.createNextSegmentDataManager(segmentMetadata,
+          new DirectMemoryManager(segmentMetadata.getSegmentName()));
+    }
+
+    @Override
+    public void notify(RealtimeSegmentZKMetadata metadata) {
+      persistedMetadata = metadata;
+      conversionDone.countDown();
+      try {
+        persisted.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Stream of a single partition going over the same rows again and again, with one offset per row.
+   */
+  private static class CyclicStreamProvider implements StreamProvider {
+    private final List<GenericRow> _rows;
+    private long _offset = 0;
+    private volatile Map<Integer, Long> committedOffsets = Collections.emptyMap();
+
+    private CyclicStreamProvider(List<GenericRow> rows) {
+      _rows = rows;
+    }
+
+    @Override
+    public void init(StreamProviderConfig streamProviderConfig) {
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void setOffset(long offset) {
+      _offset = offset;
+    }
+
+    @Override
+    public GenericRow next() {
+      return _rows.get((int) (_offset++ % _rows.size()));
+    }
+
+    @Override
+    public GenericRow next(long offset) {
+      return _rows.get((int) (offset % _rows.size()));
+    }
+
+    @Override
+    public int nextBatch(List<GenericRow> rows, int maxRows) {
+      for (int i = 0; i < maxRows; i++) {
+        rows.add(next());
+      }
+      return maxRows;
+    }
+
+    @Override
+    public long currentOffset() {
+      return _offset;
+    }
+
+    @Override
+    public Map<Integer, Long> currentOffsets() {
+      return Collections.singletonMap(0, _offset);
+    }
+
+    @Override
+    public void commit() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commit(long offset) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commit(Map<Integer, Long> offsets) {
+      committedOffsets = new HashMap<Integer, Long>(offsets);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.QueryCancelledException;
+
+
+public class MCombineOperatorTest {
+
+  @Test
+  public void testTimeoutCancelsSegmentThreads() throws Exception {
+    int numSegments = 4;
+    ExecutorService executorService = Executors.newFixedThreadPool(numSegments);
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch interrupted = new CountDownLatch(2);
+    List<Operator> operators = new ArrayList<Operator>();
+    for (int i = 0; i < numSegments; i++) {
+      operators.add(new BlockingOperator(started, interrupted));
+    }
+    try {
+      MCombineOperator combineOperator =
+          new MCombineOperator(operators, executorService, 200, 2, new BrokerRequest(), null);
+      IntermediateResultsBlock block = (IntermediateResultsBlock) combineOperator.nextBlock();
+
+      // Both threads were stuck on their first segment, and got interrupted rather than left running
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+      Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+      List<ProcessingException> exceptions = block.getExceptions();
+      Assert.assertNotNull(exceptions);
+      Assert.assertEquals(exceptions.size(), 1);
+      Assert.assertEquals(exceptions.get(0).getErrorCode(), QueryException.EXECUTION_TIMEOUT_ERROR.getErrorCode());
+      for (Operator operator : operators) {
+        Assert.assertTrue(((BlockingOperator) operator)._numCalls <= 1);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTimeoutReportsMissingSegments() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    final CountDownLatch blocker = new CountDownLatch(1);
+    List<Operator> operators = new ArrayList<Operator>();
+    // The thread taking the slow segment first leaves the other segment to the other thread
+    operators.add(new ResultOperator(blocker));
+    operators.add(new ResultOperator(null));
+    try {
+      MCombineOperator combineOperator =
+          new MCombineOperator(operators, executorService, 200, 2, new BrokerRequest(), null);
+      IntermediateResultsBlock block = (IntermediateResultsBlock) combineOperator.nextBlock();
+      // The slow segment ignores the interrupt and finishes after the results were collected
+      blocker.countDown();
+
+      List<ProcessingException> exceptions = block.getExceptions();
+      Assert.assertNotNull(exceptions);
+      Assert.assertEquals(exceptions.size(), 1);
+      Assert.assertEquals(exceptions.get(0).getErrorCode(), QueryException.EXECUTION_TIMEOUT_ERROR.getErrorCode());
+      Assert.assertTrue(exceptions.get(0).getMessage().contains("results of 1 out of 2 segments are missing"),
+          exceptions.get(0).getMessage());
+    } finally {
+      blocker.countDown();
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testThreadsDoneBeforeTimeoutReportMissingSegments() throws Exception {
+    // Runs the segment threads within submit, so that they are all done by the time the results are waited for
+    ExecutorService executorService = MoreExecutors.sameThreadExecutor();
+    List<Operator> operators = new ArrayList<Operator>();
+    for (int i = 0; i < 4; i++) {
+      operators.add(new SlowOperator(150));
+    }
+    MCombineOperator combineOperator =
+        new MCombineOperator(operators, executorService, 100, 2, new BrokerRequest(), null);
+    IntermediateResultsBlock block = (IntermediateResultsBlock) combineOperator.nextBlock();
+
+    // The first thread stopped after its first segment, past the deadline, and the second one did not start any
+    List<ProcessingException> exceptions = block.getExceptions();
+    Assert.assertNotNull(exceptions);
+    Assert.assertEquals(exceptions.size(), 1);
+    Assert.assertEquals(exceptions.get(0).getErrorCode(), QueryException.EXECUTION_TIMEOUT_ERROR.getErrorCode());
+    Assert.assertTrue(exceptions.get(0).getMessage().contains("results of 3 out of 4 segments are missing"),
+        exceptions.get(0).getMessage());
+  }
+
+  /**
+   * Segment operator which only returns once interrupted, by throwing like the filter and projection operators do
+   */
+  private static class BlockingOperator implements Operator {
+    private final CountDownLatch _started;
+    private final CountDownLatch _interrupted;
+    private volatile int _numCalls = 0;
+
+    public BlockingOperator(CountDownLatch started, CountDownLatch interrupted) {
+      _started = started;
+      _interrupted = interrupted;
+    }
+
+    @Override
+    public boolean open() {
+      return true;
+    }
+
+    @Override
+    public Block nextBlock() {
+      _numCalls++;
+      _started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        _interrupted.countDown();
+        Thread.currentThread().interrupt();
+        throw new QueryCancelledException("Query has been cancelled");
+      }
+      return new IntermediateResultsBlock();
+    }
+
+    @Override
+    public Block nextBlock(BlockId BlockId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean close() {
+      return true;
+    }
+  }
+
+  /**
+   * Segment operator which returns an empty result after the given time
+   */
+  private static class SlowOperator implements Operator {
+    private final long _timeMs;
+
+    public SlowOperator(long timeMs) {
+      _timeMs = timeMs;
+    }
+
+    @Override
+    public boolean open() {
+      return true;
+    }
+
+    @Override
+    public Block nextBlock() {
+      Uninterruptibles.sleepUninterruptibly(_timeMs, TimeUnit.MILLISECONDS);
+      return new IntermediateResultsBlock();
+    }
+
+    @Override
+    public Block nextBlock(BlockId BlockId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean close() {
+      return true;
+    }
+  }
+
+  /**
+   * Segment operator which returns an empty result, once the given latch is released if any, ignoring interrupts
+   */
+  private static class ResultOperator implements Operator {
+    private final CountDownLatch _blocker;
+
+    public ResultOperator(CountDownLatch blocker) {
+      _blocker = blocker;
+    }
+
+    @Override
+    public boolean open() {
+      return true;
+    }
+
+    @Override
+    public Block nextBlock() {
+      if (_blocker != null) {
+        Uninterruptibles.awaitUninterruptibly(_blocker);
+      }
+      return new IntermediateResultsBlock();
+    }
+
+    @Override
+    public Block nextBlock(BlockId BlockId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean close() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter.predicate;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.predicate.RegexPredicate;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentDictionaryCreator;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+
+
+public class RegexPredicateEvaluatorTest {
+  private static final String[] VALUES = { "abc", "abcd", "abd", "b.c", "bxc", "xyz" };
+
+  @Test
+  public void testLiteralPrefix() {
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("abc.*"), "abc");
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("b\\.c"), "b.c");
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("abc?d"), "ab");
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("ab{2}"), "a");
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("ab+"), "ab");
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("ab\\d"), "ab");
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("[ab]c"), "");
+    Assert.assertEquals(RegexPredicateEvaluator.getLiteralPrefix("abc|xyz"), "");
+  }
+
+  @Test
+  public void testMatchingIds() {
+    Dictionary dictionary = new ArrayDictionary(VALUES);
+    Assert.assertEquals(getMatchingIds("abc.*", dictionary), new int[] { 0, 1 });
+    Assert.assertEquals(getMatchingIds("ab.", dictionary), new int[] { 0, 2 });
+    Assert.assertEquals(getMatchingIds("b\\.c", dictionary), new int[] { 3 });
+    Assert.assertEquals(getMatchingIds("b.c", dictionary), new int[] { 3, 4 });
+    Assert.assertEquals(getMatchingIds(".*d", dictionary), new int[] { 1, 2 });
+    Assert.assertEquals(getMatchingIds("q.*", dictionary), new int[0]);
+
+    RegexPredicateEvaluator evaluator =
+        new RegexPredicateEvaluator(new RegexPredicate("column", Arrays.asList("x.*")), dictionary);
+    Assert.assertTrue(evaluator.apply(5));
+    Assert.assertFalse(evaluator.apply(0));
+  }
+
+  @Test
+  public void testPaddedStringDictionary() throws Exception {
+    File indexDir = new File(FileUtils.getTempDirectory(), "RegexPredicateEvaluatorTest");
+    FileUtils.deleteQuietly(indexDir);
+    indexDir.mkdirs();
+    try {
+      // Sorted on the padded values, "new york city" comes before "new%%%%%%%%%%"
+      Object[] values = { "aaa", "new", "new york city", "zzz" };
+      SegmentDictionaryCreator creator = new SegmentDictionaryCreator(false, values,
+          new DimensionFieldSpec("column", DataType.STRING, true), indexDir);
+      creator.build();
+      int maxLength = creator.getStringColumnMaxLength();
+      creator.close();
+
+      ColumnMetadata metadata =
+          new ColumnMetadata("column", values.length, values.length, DataType.STRING, 2, maxLength,
+              FieldType.DIMENSION, false, false, true, 0, false, true, null, values.length);
+      StringDictionary dictionary = new StringDictionary(
+          new File(indexDir, "column" + V1Constants.Dict.FILE_EXTENTION), metadata, ReadMode.heap);
+      Assert.assertEquals(dictionary.get(1), "new york city");
+      Assert.assertEquals(dictionary.get(2), "new");
+
+      // LIKE 'new york%'
+      Assert.assertEquals(getMatchingIds("new york.*", dictionary), new int[] { 1 });
+      Assert.assertEquals(getMatchingIds("new.*", dictionary), new int[] { 1, 2 });
+      Assert.assertEquals(getMatchingIds("new", dictionary), new int[] { 2 });
+      // Matches the padding of "new", but not the value
+      Assert.assertEquals(getMatchingIds("new%.*", dictionary), new int[0]);
+      dictionary.close();
+    } finally {
+      FileUtils.deleteQuietly(indexDir);
+    }
+  }
+
+  private static int[] getMatchingIds(String regex, Dictionary dictionary) {
+    return new RegexPredicateEvaluator(new RegexPredicate("column", Arrays.asList(regex)), dictionary)
+        .getDictionaryIds();
+  }
+
+  private static class ArrayDictionary implements Dictionary {
+    private final String[] values;
+
+    ArrayDictionary(String[] values) {
+      this.values = values;
+    }
+
+    @Override
+    public int indexOf(Object rawValue) {
+      return Arrays.binarySearch(values, rawValue);
+    }
+
+    @Override
+    public Object get(int dictionaryId) {
+      return values[dictionaryId];
+    }
+
+    @Override
+    public long getLongValue(int dictionaryId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double getDoubleValue(int dictionaryId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void readLongValues(int[] dictionaryIds, int length, long[] values) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void readDoubleValues(int[] dictionaryIds, int length, double[] values) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getStringValue(int dictionaryId) {
+      return values[dictionaryId];
+    }
+
+    @Override
+    public String toString(int dictionaryId) {
+      return values[dictionaryId];
+    }
+
+    @Override
+    public int length() {
+      return values.length;
+    }
+  }
+}
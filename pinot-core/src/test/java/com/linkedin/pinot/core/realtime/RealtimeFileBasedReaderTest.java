@@ -16,6 +16,8 @@
 package com.linkedin.pinot.core.realtime;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -38,12 +40,15 @@ import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.realtime.converter.RealtimeSegmentConverter;
 import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderConfig;
 import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderImpl;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
 
 
@@ -155,6 +160,7 @@ public class RealtimeFileBasedReaderTest {
         Block realtimeBlock = realtimeDS.nextBlock();
 
         BlockMetadata offlineMetadata = offlineBlock.getMetadata();
+        BlockMetadata realtimeMetadata = realtimeBlock.getMetadata();
 
         BlockSingleValIterator offlineValIterator = (BlockSingleValIterator) offlineBlock.getBlockValueSet().iterator();
         BlockSingleValIterator realtimeValIterator =
@@ -165,7 +171,8 @@ public class RealtimeFileBasedReaderTest {
         while (realtimeValIterator.hasNext()) {
           int offlineDicId = offlineValIterator.nextIntVal();
           int realtimeDicId = realtimeValIterator.nextIntVal();
-          Assert.assertEquals(offlineMetadata.getDictionary().get(offlineDicId), realtimeDicId);
+          Assert.assertEquals(offlineMetadata.getDictionary().get(offlineDicId), realtimeMetadata.getDictionary()
+              .get(realtimeDicId));
         }
         Assert.assertEquals(offlineValIterator.hasNext(), realtimeValIterator.hasNext());
       }
@@ -239,4 +246,64 @@ public class RealtimeFileBasedReaderTest {
       }
     }
   }
+  @Test
+  public void testConversionSortedOnColumn() throws Exception {
+    String sortedColumn = null;
+    for (String dimension : schema.getDimensionNames()) {
+      if (schema.getFieldSpecFor(dimension).isSingleValueField()) {
+        sortedColumn = dimension;
+        break;
+      }
+    }
+    File outputDir = new File("/tmp/realtime-sorted");
+    FileUtils.deleteQuietly(outputDir);
+    new RealtimeSegmentConverter(realtimeSegment, outputDir.getAbsolutePath(), schema, "testTable", "sorted-segment",
+        sortedColumn).build();
+    IndexSegment sortedSegment = Loaders.IndexSegment.load(outputDir.listFiles()[0], ReadMode.heap);
+
+    try {
+      Assert.assertEquals(sortedSegment.getTotalDocs(), realtimeSegment.getAggregateDocumentCount());
+      Assert.assertTrue(((SegmentMetadataImpl) sortedSegment.getSegmentMetadata()).getColumnMetadataFor(sortedColumn)
+          .isSorted());
+
+      // docs are ordered on the sorted column, docs sharing a value keep their realtime order
+      final FixedByteSingleColumnSingleValueReaderWriter sortedForwardIndex =
+          (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegment.getForwardIndex(sortedColumn);
+      final Dictionary sortedDictionary = realtimeSegment.getDictionary(sortedColumn);
+      final Dictionary offlineSortedDictionary =
+          sortedSegment.getDataSource(sortedColumn).nextBlock().getMetadata().getDictionary();
+      Integer[] expectedDocIds = new Integer[realtimeSegment.getAggregateDocumentCount()];
+      for (int docId = 0; docId < expectedDocIds.length; docId++) {
+        expectedDocIds[docId] = docId;
+      }
+      Arrays.sort(expectedDocIds, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer docId1, Integer docId2) {
+          return offlineDictionaryIdOf(docId1) - offlineDictionaryIdOf(docId2);
+        }
+
+        private int offlineDictionaryIdOf(int docId) {
+          return offlineSortedDictionary.indexOf(sortedDictionary.get(sortedForwardIndex.getInt(docId)));
+        }
+      });
+
+      for (FieldSpec spec : schema.getAllFieldSpecs()) {
+        if (!spec.isSingleValueField()) {
+          continue;
+        }
+        FixedByteSingleColumnSingleValueReaderWriter forwardIndex =
+            (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegment.getForwardIndex(spec.getName());
+        Dictionary realtimeDictionary = realtimeSegment.getDictionary(spec.getName());
+        Block block = sortedSegment.getDataSource(spec.getName()).nextBlock();
+        BlockSingleValIterator iterator = (BlockSingleValIterator) block.getBlockValueSet().iterator();
+        for (Integer docId : expectedDocIds) {
+          Assert.assertEquals(block.getMetadata().getDictionary().get(iterator.nextIntVal()),
+              realtimeDictionary.get(forwardIndex.getInt(docId)), spec.getName());
+        }
+      }
+    } finally {
+      sortedSegment.destroy();
+      FileUtils.deleteQuietly(outputDir);
+    }
+  }
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.realtime.impl.dictionary.RealtimeDictionaryProvider;
+import com.linkedin.pinot.core.realtime.impl.dictionary.StringMutableDictionary;
+import com.linkedin.pinot.core.realtime.impl.invertedIndex.RealtimeInvertedIndex;
+import com.linkedin.pinot.core.realtime.impl.invertedIndex.RealtimeInvertedIndexImpl;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+public class RealtimeIndexConcurrencyTest {
+  private static final int NUM_VALUES = 10000;
+  private static final int NUM_DOCS = 300000;
+  private static final int NUM_DICT_IDS = 7;
+
+  @Test
+  public void testDictionaries() {
+    for (DataType dataType : new DataType[] { DataType.INT, DataType.LONG, DataType.FLOAT, DataType.DOUBLE,
+        DataType.STRING }) {
+      MutableDictionaryReader dictionary =
+          RealtimeDictionaryProvider.getDictionaryFor(new DimensionFieldSpec("column", dataType, true));
+      Assert.assertTrue(dictionary.isEmpty());
+      for (int i = 0; i < NUM_VALUES; i++) {
+        dictionary.index(Integer.toString(i - NUM_VALUES / 2));
+        // Duplicates must not create new entries
+        dictionary.index(Integer.toString(i / 2 - NUM_VALUES / 2));
+      }
+      dictionary.index(null);
+
+      Assert.assertEquals(dictionary.length(), NUM_VALUES, dataType.toString());
+      Assert.assertTrue(dictionary.hasNull());
+      for (int i = 0; i < NUM_VALUES; i++) {
+        String value = Integer.toString(i - NUM_VALUES / 2);
+        int dictId = dictionary.indexOf(value);
+        Assert.assertEquals(dictId, i, dataType.toString());
+        Assert.assertTrue(dictionary.contains(value));
+        if (dataType == DataType.STRING) {
+          Assert.assertEquals(dictionary.getStringValue(dictId), value);
+        } else {
+          Assert.assertEquals(dictionary.getLongValue(dictId), i - NUM_VALUES / 2);
+          Assert.assertEquals(dictionary.getDoubleValue(dictId), (double) (i - NUM_VALUES / 2));
+        }
+      }
+      Assert.assertEquals(dictionary.indexOf(Integer.toString(NUM_VALUES)), Dictionary.NULL_VALUE_INDEX);
+      Assert.assertFalse(dictionary.contains(Integer.toString(NUM_VALUES)));
+    }
+
+    MutableDictionaryReader intDictionary =
+        RealtimeDictionaryProvider.getDictionaryFor(new DimensionFieldSpec("column", DataType.INT, true));
+    intDictionary.index(new Object[] { 3, "-5", 3, 10 });
+    Assert.assertEquals(intDictionary.length(), 3);
+    Assert.assertEquals(intDictionary.getMinVal(), -5);
+    Assert.assertEquals(intDictionary.getMaxVal(), 10);
+    Assert.assertTrue(intDictionary.inRange("0", "3", intDictionary.indexOf(3)));
+    Assert.assertFalse(intDictionary.inRange("0", "3", intDictionary.indexOf(3), false, false));
+  }
+
+  @Test
+  public void testConcurrentDictionaryReads() throws Exception {
+    final StringMutableDictionary dictionary =
+        new StringMutableDictionary(new DimensionFieldSpec("column", DataType.STRING, false));
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<String> failure = new AtomicReference<String>();
+
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!done.get() && failure.get() == null) {
+          int length = dictionary.length();
+          for (int i = Math.max(0, length - 100); i < length; i++) {
+            String value = dictionary.getString(i);
+            if (value == null || dictionary.indexOf(value) != i) {
+              failure.set("Inconsistent entry for dictId: " + i);
+            }
+          }
+        }
+      }
+    });
+    reader.start();
+    for (int i = 0; i < NUM_VALUES * 10; i++) {
+      dictionary.index("value" + i);
+    }
+    done.set(true);
+    reader.join();
+
+    Assert.assertNull(failure.get(), failure.get());
+    Assert.assertEquals(dictionary.length(), NUM_VALUES * 10);
+  }
+
+  @Test
+  public void testInvertedIndex() throws Exception {
+    final RealtimeInvertedIndex invertedIndex = new RealtimeInvertedIndexImpl("column");
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<String> failure = new AtomicReference<String>();
+
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        int[] lastCardinality = new int[NUM_DICT_IDS];
+        while (!done.get() && failure.get() == null) {
+          for (int dictId = 0; dictId < NUM_DICT_IDS; dictId++) {
+            ImmutableRoaringBitmap bitmap = invertedIndex.getImmutable(dictId);
+            int cardinality = bitmap.getCardinality();
+            if (cardinality < lastCardinality[dictId]) {
+              failure.set("Posting list shrank for dictId: " + dictId);
+            }
+            lastCardinality[dictId] = cardinality;
+            IntIterator iterator = bitmap.getIntIterator();
+            int expected = dictId;
+            while (iterator.hasNext()) {
+              if (iterator.next() != expected) {
+                failure.set("Unexpected doc id in posting list for dictId: " + dictId);
+              }
+              expected += NUM_DICT_IDS;
+            }
+          }
+        }
+      }
+    });
+    reader.start();
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      invertedIndex.add(docId % NUM_DICT_IDS, docId);
+    }
+    done.set(true);
+    reader.join();
+
+    Assert.assertNull(failure.get(), failure.get());
+    for (int dictId = 0; dictId < NUM_DICT_IDS; dictId++) {
+      ImmutableRoaringBitmap bitmap = invertedIndex.getImmutable(dictId);
+      Assert.assertEquals(bitmap.getCardinality(), (NUM_DOCS - dictId + NUM_DICT_IDS - 1) / NUM_DICT_IDS);
+      Assert.assertTrue(bitmap.contains(NUM_DOCS - 1 - (NUM_DOCS - 1 - dictId) % NUM_DICT_IDS));
+    }
+    Assert.assertEquals(invertedIndex.getImmutable(NUM_DICT_IDS + 1000).getCardinality(), 0);
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockMultiValIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderImpl;
+import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+
+
+public class RealtimeSegmentBatchIndexingTest {
+  private static final String AVRO_DATA = "data/test_data-mv.avro";
+  private static final int BATCH_SIZE = 7;
+
+  private static Schema schema;
+  private static StreamProviderConfig config;
+  private static RealtimeSegmentImpl rowSegment;
+  private static RealtimeSegmentImpl batchSegment;
+
+  @BeforeClass
+  public static void before() throws Exception {
+    String filePath = RealtimeSegmentBatchIndexingTest.class.getClassLoader().getResource(AVRO_DATA).getFile();
+    Map<String, FieldType> fieldTypeMap = new HashMap<String, FieldSpec.FieldType>();
+    for (int i = 1; i <= 12; i++) {
+      fieldTypeMap.put("column" + i, FieldType.DIMENSION);
+    }
+    fieldTypeMap.put("column13", FieldType.TIME);
+    fieldTypeMap.put("count", FieldType.METRIC);
+    schema = SegmentTestUtils.extractSchemaFromAvro(new File(filePath), fieldTypeMap, TimeUnit.MINUTES);
+    config = new FileBasedStreamProviderConfig(FileFormat.AVRO, filePath, schema);
+
+    StreamProvider provider = new FileBasedStreamProviderImpl();
+    provider.init(config);
+    rowSegment = new RealtimeSegmentImpl(schema, 100000);
+    GenericRow row = provider.next();
+    while (row != null) {
+      rowSegment.index(row);
+      row = provider.next();
+    }
+    provider.shutdown();
+
+    provider = new FileBasedStreamProviderImpl();
+    provider.init(config);
+    batchSegment = new RealtimeSegmentImpl(schema, 100000);
+    List<GenericRow> batch = new ArrayList<GenericRow>(BATCH_SIZE);
+    while (provider.nextBatch(batch, BATCH_SIZE) > 0) {
+      Assert.assertEquals(batchSegment.index(batch), batch.size());
+      batch.clear();
+    }
+    provider.shutdown();
+  }
+
+  @Test
+  public void testSameDocsAsRowByRowIndexing() {
+    Assert.assertEquals(batchSegment.getRawDocumentCount(), rowSegment.getRawDocumentCount());
+    Assert.assertEquals(batchSegment.getAggregateDocumentCount(), rowSegment.getAggregateDocumentCount());
+    Assert.assertEquals(batchSegment.getMinTime(), rowSegment.getMinTime());
+    Assert.assertEquals(batchSegment.getMaxTime(), rowSegment.getMaxTime());
+
+    for (FieldSpec spec : schema.getAllFieldSpecs()) {
+      Block rowBlock = rowSegment.getDataSource(spec.getName()).nextBlock();
+      Block batchBlock = batchSegment.getDataSource(spec.getName()).nextBlock();
+      Dictionary rowDictionary = rowBlock.getMetadata().getDictionary();
+      Dictionary batchDictionary = batchBlock.getMetadata().getDictionary();
+
+      if (spec.isSingleValueField()) {
+        BlockSingleValIterator rowIterator = (BlockSingleValIterator) rowBlock.getBlockValueSet().iterator();
+        BlockSingleValIterator batchIterator = (BlockSingleValIterator) batchBlock.getBlockValueSet().iterator();
+        while (rowIterator.hasNext()) {
+          Assert.assertTrue(batchIterator.hasNext());
+          Assert.assertEquals(batchDictionary.get(batchIterator.nextIntVal()),
+              rowDictionary.get(rowIterator.nextIntVal()), spec.getName());
+        }
+        Assert.assertFalse(batchIterator.hasNext());
+      } else {
+        Assert.assertEquals(batchBlock.getMetadata().getMaxNumberOfMultiValues(),
+            rowBlock.getMetadata().getMaxNumberOfMultiValues());
+        BlockMultiValIterator rowIterator = (BlockMultiValIterator) rowBlock.getBlockValueSet().iterator();
+        BlockMultiValIterator batchIterator = (BlockMultiValIterator) batchBlock.getBlockValueSet().iterator();
+        int[] rowIds = new int[rowBlock.getMetadata().getMaxNumberOfMultiValues()];
+        int[] batchIds = new int[batchBlock.getMetadata().getMaxNumberOfMultiValues()];
+        while (rowIterator.hasNext()) {
+          Assert.assertTrue(batchIterator.hasNext());
+          int rowLength = rowIterator.nextIntVal(rowIds);
+          Assert.assertEquals(batchIterator.nextIntVal(batchIds), rowLength);
+          for (int i = 0; i < rowLength; i++) {
+            Assert.assertEquals(batchDictionary.get(batchIds[i]), rowDictionary.get(rowIds[i]), spec.getName());
+          }
+        }
+        Assert.assertFalse(batchIterator.hasNext());
+      }
+    }
+  }
+
+  @Test
+  public void testBatchCappedByCapacity() throws Exception {
+    StreamProvider provider = new FileBasedStreamProviderImpl();
+    provider.init(config);
+    List<GenericRow> batch = new ArrayList<GenericRow>();
+    Assert.assertEquals(provider.nextBatch(batch, 25), 25);
+    provider.shutdown();
+
+    RealtimeSegmentImpl segment = new RealtimeSegmentImpl(schema, 10);
+    Assert.assertEquals(segment.index(batch), 10);
+    Assert.assertEquals(segment.getRawDocumentCount(), 10);
+    Assert.assertEquals(segment.index(batch), 0);
+    Assert.assertFalse(segment.index(batch.get(0)));
+    segment.destroy();
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class LazyIndexSegmentImplTest {
+  private static final String AVRO_DATA = "data/test_data-mv.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "LazyIndexSegmentImplTest");
+  private static final String COLUMN = "column1";
+
+  private File segmentDir;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(LazyIndexSegmentImplTest.class.getClassLoader().getResource(AVRO_DATA));
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "daysSinceEpoch",
+            TimeUnit.DAYS, "testTable");
+    config.setTimeColumnName("daysSinceEpoch");
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    segmentDir = INDEX_DIR.listFiles()[0];
+  }
+
+  @AfterClass
+  public void teardown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testLoadOnFirstAccess() throws Exception {
+    IndexSegmentImpl eagerSegment = (IndexSegmentImpl) Loaders.IndexSegment.load(segmentDir, ReadMode.mmap);
+    LazyIndexSegmentImpl lazySegment =
+        (LazyIndexSegmentImpl) Loaders.IndexSegment.load(segmentDir, ReadMode.mmap, getLoadingConfig(0));
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 0);
+
+    Assert.assertNotNull(lazySegment.getDataSource(COLUMN));
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 1);
+    ImmutableDictionaryReader dictionary = lazySegment.getDictionaryFor(COLUMN);
+    Assert.assertSame(lazySegment.getDictionaryFor(COLUMN), dictionary);
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 1);
+
+    ImmutableDictionaryReader expected = eagerSegment.getDictionaryFor(COLUMN);
+    Assert.assertEquals(dictionary.length(), expected.length());
+    for (int i = 0; i < expected.length(); i++) {
+      Assert.assertEquals(dictionary.get(i), expected.get(i));
+    }
+
+    // Without an idle unload period the columns stay loaded
+    lazySegment.unloadIdleColumns();
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 1);
+
+    lazySegment.destroy();
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 0);
+    eagerSegment.destroy();
+  }
+
+  @Test
+  public void testUnloadIdleColumns() throws Exception {
+    LazyIndexSegmentImpl lazySegment =
+        (LazyIndexSegmentImpl) Loaders.IndexSegment.load(segmentDir, ReadMode.heap, getLoadingConfig(200L));
+    // Only the table data manager holds the segment
+    lazySegment.setReferenceCount(new AtomicInteger(1));
+    ImmutableDictionaryReader dictionary = lazySegment.getDictionaryFor(COLUMN);
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 1);
+
+    Thread.sleep(500);
+    lazySegment.unloadIdleColumns();
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 0);
+
+    // Reopened on the next access
+    Assert.assertNotSame(lazySegment.getDictionaryFor(COLUMN), dictionary);
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 1);
+    lazySegment.destroy();
+  }
+
+  @Test
+  public void testColumnInUseIsNeverUnloaded() throws Exception {
+    LazyIndexSegmentImpl lazySegment =
+        (LazyIndexSegmentImpl) Loaders.IndexSegment.load(segmentDir, ReadMode.heap, getLoadingConfig(200L));
+    AtomicInteger referenceCount = new AtomicInteger(1);
+    lazySegment.setReferenceCount(referenceCount);
+
+    // A query takes its reference, then reads the column long past the idle unload period
+    referenceCount.incrementAndGet();
+    ImmutableDictionaryReader dictionary = lazySegment.getDictionaryFor(COLUMN);
+    Object firstValue = dictionary.get(0);
+    Thread.sleep(500);
+    lazySegment.unloadIdleColumns();
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 1);
+    Assert.assertSame(lazySegment.getDictionaryFor(COLUMN), dictionary);
+    Assert.assertEquals(dictionary.get(0), firstValue);
+
+    // Once the query returns the segment, the idle column is unloaded
+    referenceCount.decrementAndGet();
+    Thread.sleep(500);
+    lazySegment.unloadIdleColumns();
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 0);
+    lazySegment.destroy();
+  }
+
+  @Test
+  public void testUnknownReferenceCountKeepsColumnsLoaded() throws Exception {
+    LazyIndexSegmentImpl lazySegment =
+        (LazyIndexSegmentImpl) Loaders.IndexSegment.load(segmentDir, ReadMode.heap, getLoadingConfig(200L));
+    lazySegment.getDictionaryFor(COLUMN);
+    Thread.sleep(500);
+    lazySegment.unloadIdleColumns();
+    Assert.assertEquals(lazySegment.getNumLoadedColumns(), 1);
+    lazySegment.destroy();
+  }
+
+  private static IndexLoadingConfigMetadata getLoadingConfig(long idleUnloadMs) {
+    IndexLoadingConfigMetadata indexLoadingConfigMetadata =
+        new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    indexLoadingConfigMetadata.setLazyLoading(true);
+    indexLoadingConfigMetadata.setLazyLoadingIdleUnloadMs(idleUnloadMs);
+    return indexLoadingConfigMetadata;
+  }
+}
@@ -17,6 +17,8 @@ package com.linkedin.pinot.core.util;
 
 import com.linkedin.pinot.util.TestUtils;
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
@@ -73,7 +75,35 @@ public class CrcUtilsTest {
 
   }
 
+  @Test
+  public void testParallelCreationAndCrc() throws Exception {
+    if (INDEX_DIR.exists()) {
+      FileUtils.deleteQuietly(INDEX_DIR);
+    }
+
+    final CrcUtils u1 = CrcUtils.forAllFilesInFolder(new File(makeSegmentAndReturnPath()));
+    final long crc1 = u1.computeCrc();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      Assert.assertEquals(u1.computeCrc(executorService), crc1);
+
+      FileUtils.deleteQuietly(INDEX_DIR);
+
+      // The segment built in parallel has the same content
+      final CrcUtils u2 = CrcUtils.forAllFilesInFolder(new File(makeSegmentAndReturnPath(4)));
+      Assert.assertEquals(u2.computeCrc(executorService), crc1);
+    } finally {
+      executorService.shutdown();
+      FileUtils.deleteQuietly(INDEX_DIR);
+    }
+  }
+
   private String makeSegmentAndReturnPath() throws Exception {
+    return makeSegmentAndReturnPath(1);
+  }
+
+  private String makeSegmentAndReturnPath(int numCreationThreads) throws Exception {
     final String filePath = TestUtils
         .getFileFromResourceUrl(ChunkIndexCreationDriverImplTest.class.getClassLoader().getResource(AVRO_DATA));
 
@@ -82,6 +112,7 @@ public class CrcUtilsTest {
             "daysSinceEpoch", TimeUnit.DAYS, "testTable");
     config.setSegmentNamePostfix("1");
     config.setTimeColumnName("daysSinceEpoch");
+    config.setNumCreationThreads(numCreationThreads);
     final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
     driver.init(config);
     driver.build();
@@ -211,4 +211,66 @@ public class FixedBitWidthRowColDataFileReaderTest {
 
     }
   }
+
+  @Test
+  public void testReadBits() {
+    Random r = new Random();
+    for (int maxBits = 1; maxBits < 32; maxBits++) {
+      int numElements = 100;
+      CustomBitSet customBitSet = CustomBitSet.withBitLength(numElements * maxBits);
+      int max = (int) Math.pow(2, maxBits);
+      int[] values = new int[numElements];
+      for (int i = 0; i < numElements; i++) {
+        values[i] = r.nextInt(max);
+        for (int j = maxBits - 1; j >= 0; j--) {
+          if ((values[i] & (1 << j)) != 0) {
+            customBitSet.setBit(i * maxBits + (maxBits - j - 1));
+          }
+        }
+      }
+      for (int i = 0; i < numElements; i++) {
+        Assert.assertEquals(customBitSet.readBits(i * maxBits, maxBits), values[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testReadInts() throws Exception {
+    int maxBits = 13;
+    int numElements = 1000;
+    File file = new File("test" + maxBits + "FixedBitWidthReadInts");
+    try {
+      CustomBitSet bitset = CustomBitSet.withBitLength(numElements * maxBits);
+      Random r = new Random();
+      int[] values = new int[numElements];
+      for (int i = 0; i < numElements; i++) {
+        values[i] = r.nextInt(1 << maxBits);
+        for (int j = maxBits - 1; j >= 0; j--) {
+          if ((values[i] & (1 << j)) != 0) {
+            bitset.setBit(i * maxBits + (maxBits - j - 1));
+          }
+        }
+      }
+      FileOutputStream fos = new FileOutputStream(file);
+      fos.write(bitset.toByteArray());
+      fos.close();
+
+      FixedBitWidthRowColDataFileReader heapReader =
+          FixedBitWidthRowColDataFileReader.forHeap(file, numElements, 1, new int[] { maxBits });
+      // Every third row, including the last ones that cannot be read with a single 8 byte read
+      int[] rows = new int[numElements / 3 + 1];
+      int length = 0;
+      for (int row = numElements - 1; row >= 0; row -= 3) {
+        rows[length++] = row;
+      }
+      int[] readValues = new int[length];
+      heapReader.readInts(rows, 0, length, readValues);
+      for (int i = 0; i < length; i++) {
+        Assert.assertEquals(readValues[i], values[rows[i]]);
+      }
+      heapReader.close();
+    } finally {
+      file.delete();
+    }
+  }
 }
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.index.readerwriter;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Random;
 
@@ -22,7 +23,10 @@ import junit.framework.Assert;
 
 import org.testng.annotations.Test;
 
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
+import com.linkedin.pinot.core.index.readerwriter.impl.DirectMemoryManager;
 import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.index.readerwriter.impl.MmapMemoryManager;
 
 
 public class FixedByteSingleColumnSingleValueReaderWriterTest {
@@ -61,4 +65,40 @@ public class FixedByteSingleColumnSingleValueReaderWriterTest {
     }
     readerWriter.close();
   }
+
+  @Test
+  public void testGrowOnDemand() throws IOException {
+    testGrowOnDemand(new DirectMemoryManager("testSegment"));
+    File tempDir = new File(System.getProperty("java.io.tmpdir"), "FixedByteSingleColumnSingleValueReaderWriterTest");
+    MmapMemoryManager mmapMemoryManager = new MmapMemoryManager(tempDir, "testSegment");
+    testGrowOnDemand(mmapMemoryManager);
+    Assert.assertFalse(new File(tempDir, "testSegment.offheap").exists());
+  }
+
+  private void testGrowOnDemand(RealtimeIndexOffHeapMemoryManager memoryManager) throws IOException {
+    int numRowsPerChunk = 1024;
+    long totalAllocatedBytes = RealtimeIndexOffHeapMemoryManager.getTotalAllocatedBytes();
+    FixedByteSingleColumnSingleValueReaderWriter readerWriter =
+        new FixedByteSingleColumnSingleValueReaderWriter(numRowsPerChunk, Integer.SIZE / 8, memoryManager, "column");
+    // Nothing is allocated until rows are written
+    Assert.assertEquals(0, memoryManager.getAllocatedBytes());
+
+    int rows = numRowsPerChunk * 10 + 1;
+    for (int i = 0; i < rows; i++) {
+      readerWriter.setInt(i, i * 7);
+    }
+    for (int i = 0; i < rows; i++) {
+      Assert.assertEquals(i * 7, readerWriter.getInt(i));
+    }
+    Assert.assertEquals(11L * numRowsPerChunk * Integer.SIZE / 8, memoryManager.getAllocatedBytes());
+    Assert.assertEquals(totalAllocatedBytes + memoryManager.getAllocatedBytes(),
+        RealtimeIndexOffHeapMemoryManager.getTotalAllocatedBytes());
+
+    // Closing the reader/writer leaves the shared chunks to the memory manager
+    readerWriter.close();
+    Assert.assertEquals(11L * numRowsPerChunk * Integer.SIZE / 8, memoryManager.getAllocatedBytes());
+    memoryManager.close();
+    Assert.assertEquals(0, memoryManager.getAllocatedBytes());
+    Assert.assertEquals(totalAllocatedBytes, RealtimeIndexOffHeapMemoryManager.getTotalAllocatedBytes());
+  }
 }
@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import java.util.Collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockDocIdSet;
+import com.linkedin.pinot.core.common.BlockDocIdValueSet;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.BlockValIterator;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.Predicate;
+import com.linkedin.pinot.core.operator.DocIdSetBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByAccumulator;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+public class AggregationFunctionUtilsTest {
+  private static final int[] DICT_IDS = { 2, -1, 0, 1, 2 };
+  private static final double[] VALUES = { 10.0, 20.0, 30.0 };
+
+  @Test
+  public void testDoubleValueReader() {
+    AggregationFunctionUtils.DoubleValueReader reader = new AggregationFunctionUtils.DoubleValueReader();
+    Block valueBlock = new TestBlock(true);
+
+    int length = reader.read(new DocIdSetBlock(new int[] { 0, 1, 2, 3, 4 }, 5), valueBlock);
+    Assert.assertEquals(length, 5);
+    double[] values = reader.getValues();
+    Assert.assertEquals(values[0], 30.0);
+    Assert.assertTrue(Double.isNaN(values[1]));
+    Assert.assertEquals(values[2], 10.0);
+    Assert.assertEquals(values[3], 20.0);
+    Assert.assertEquals(values[4], 30.0);
+
+    // A smaller block reuses the buffers
+    length = reader.read(new DocIdSetBlock(new int[] { 3, 4 }, 2), valueBlock);
+    Assert.assertEquals(length, 2);
+    Assert.assertSame(reader.getValues(), values);
+    Assert.assertEquals(values[0], 20.0);
+    Assert.assertEquals(values[1], 30.0);
+  }
+
+  @Test
+  public void testMultiValueBlocksAreNotBulkRead() {
+    // The multi value blocks throw UnsupportedOperationException on bulk reads, callers must never get there
+    Block multiValueBlock = new TestBlock(false);
+    try {
+      new AggregationFunctionUtils.DoubleValueReader().read(new DocIdSetBlock(new int[] { 0, 1 }, 2),
+          multiValueBlock);
+      Assert.fail("Multi value blocks must be rejected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    for (String function : new String[] { "sum", "min", "max", "avg" }) {
+      AggregationInfo aggregationInfo = new AggregationInfo();
+      aggregationInfo.setAggregationType(function);
+      aggregationInfo.setAggregationParams(Collections.singletonMap("column", "column"));
+      AggregationFunction aggregationFunction = AggregationFunctionFactory.get(aggregationInfo, true);
+      Assert.assertNull(GroupByAccumulator.create(aggregationFunction, new Block[] { multiValueBlock }));
+    }
+  }
+
+  private static class TestBlock implements Block {
+    private final boolean _isSingleValue;
+
+    TestBlock(boolean isSingleValue) {
+      _isSingleValue = isSingleValue;
+    }
+
+    @Override
+    public BlockId getId() {
+      return new BlockId(0);
+    }
+
+    @Override
+    public boolean applyPredicate(Predicate predicate) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BlockDocIdSet getBlockDocIdSet() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BlockValSet getBlockValueSet() {
+      return new BlockValSet() {
+        @Override
+        public BlockValIterator iterator() {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DataType getValueType() {
+          return DataType.DOUBLE;
+        }
+
+        @Override
+        public void readIntValues(int[] docIds, int length, int[] values) {
+          if (!_isSingleValue) {
+            throw new UnsupportedOperationException("readIntValues is not supported on multi value blocks");
+          }
+          for (int i = 0; i < length; i++) {
+            values[i] = DICT_IDS[docIds[i]];
+          }
+        }
+      };
+    }
+
+    @Override
+    public BlockDocIdValueSet getBlockDocIdValueSet() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BlockMetadata getMetadata() {
+      return new BlockMetadata() {
+        @Override
+        public int getSize() {
+          return DICT_IDS.length;
+        }
+
+        @Override
+        public int getLength() {
+          return DICT_IDS.length;
+        }
+
+        @Override
+        public int getStartDocId() {
+          return 0;
+        }
+
+        @Override
+        public int getEndDocId() {
+          return DICT_IDS.length - 1;
+        }
+
+        @Override
+        public boolean isSorted() {
+          return false;
+        }
+
+        @Override
+        public boolean isSparse() {
+          return false;
+        }
+
+        @Override
+        public boolean hasInvertedIndex() {
+          return false;
+        }
+
+        @Override
+        public boolean hasDictionary() {
+          return true;
+        }
+
+        @Override
+        public boolean isSingleValue() {
+          return _isSingleValue;
+        }
+
+        @Override
+        public Dictionary getDictionary() {
+          return new TestDictionary();
+        }
+
+        @Override
+        public int getMaxNumberOfMultiValues() {
+          return _isSingleValue ? 0 : 2;
+        }
+
+        @Override
+        public DataType getDataType() {
+          return DataType.DOUBLE;
+        }
+      };
+    }
+  }
+
+  private static class TestDictionary implements Dictionary {
+    @Override
+    public int indexOf(Object rawValue) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object get(int dictionaryId) {
+      return VALUES[dictionaryId];
+    }
+
+    @Override
+    public long getLongValue(int dictionaryId) {
+      return (long) VALUES[dictionaryId];
+    }
+
+    @Override
+    public double getDoubleValue(int dictionaryId) {
+      return VALUES[dictionaryId];
+    }
+
+    @Override
+    public void readLongValues(int[] dictionaryIds, int length, long[] values) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void readDoubleValues(int[] dictionaryIds, int length, double[] values) {
+      for (int i = 0; i < length; i++) {
+        values[i] = dictionaryIds[i] == NULL_VALUE_INDEX ? Double.NaN : VALUES[dictionaryIds[i]];
+      }
+    }
+
+    @Override
+    public String getStringValue(int dictionaryId) {
+      return String.valueOf(VALUES[dictionaryId]);
+    }
+
+    @Override
+    public String toString(int dictionaryId) {
+      return getStringValue(dictionaryId);
+    }
+
+    @Override
+    public int length() {
+      return VALUES.length;
+    }
+  }
+}
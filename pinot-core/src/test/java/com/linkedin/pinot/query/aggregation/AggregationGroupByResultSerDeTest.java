@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.DataTableBuilder;
+import com.linkedin.pinot.common.utils.DataTableBuilder.DataSchema;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction.AvgPair;
+import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.DistinctCountAggregationNoDictionaryFunction;
+import com.linkedin.pinot.core.query.aggregation.function.SumAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResultSerDe;
+
+
+public class AggregationGroupByResultSerDeTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Map<String, Serializable> counts = new HashMap<String, Serializable>();
+    Map<String, Serializable> sums = new HashMap<String, Serializable>();
+    Map<String, Serializable> avgs = new HashMap<String, Serializable>();
+    Map<String, Serializable> distinctCounts = new HashMap<String, Serializable>();
+    AvgAggregationFunction avgFunction = new AvgAggregationFunction();
+    for (int i = 0; i < 1000; i++) {
+      String key = "key\t\t" + i + "\u00e9";
+      counts.put(key, (long) i);
+      sums.put(key, i * 1.5);
+      avgs.put(key, avgFunction.getAvgPair(i * 2.0, (long) i));
+      IntOpenHashSet set = new IntOpenHashSet();
+      for (int j = 0; j < i % 10; j++) {
+        set.add(j * i);
+      }
+      distinctCounts.put(key, set);
+    }
+    sums.put("nullKey", null);
+
+    assertEquals(roundTrip(new CountAggregationFunction(), counts), counts);
+    assertEquals(roundTrip(new SumAggregationFunction(), sums), sums);
+    assertNull(roundTrip(new SumAggregationFunction(), sums).get("nullKey"));
+    assertEquals(roundTrip(new DistinctCountAggregationNoDictionaryFunction(), distinctCounts), distinctCounts);
+
+    Map<String, Serializable> decodedAvgs = roundTrip(avgFunction, avgs);
+    assertEquals(decodedAvgs.size(), avgs.size());
+    for (String key : avgs.keySet()) {
+      AvgPair expected = (AvgPair) avgs.get(key);
+      AvgPair actual = (AvgPair) decodedAvgs.get(key);
+      assertEquals(actual.getFirst(), expected.getFirst());
+      assertEquals(actual.getSecond(), expected.getSecond());
+    }
+  }
+
+  @Test
+  public void testReadsJavaSerializedResults() throws Exception {
+    Map<String, Serializable> counts = new HashMap<String, Serializable>();
+    counts.put("a", 1L);
+    counts.put("b", 2L);
+
+    DataSchema dataSchema =
+        new DataSchema(new String[] { "functionName", "GroupByResultMap" }, new DataType[] { DataType.STRING,
+            DataType.OBJECT });
+    DataTableBuilder builder = new DataTableBuilder(dataSchema);
+    builder.open();
+    builder.startRow();
+    builder.setColumn(0, "count_star");
+    builder.setColumn(1, counts);
+    builder.finishRow();
+    builder.startRow();
+    builder.setColumn(0, "count_star");
+    builder.setObjectBytes(1, AggregationGroupByResultSerDe.serialize(new CountAggregationFunction(), counts));
+    builder.finishRow();
+    builder.seal();
+    DataTable dataTable = new DataTable(builder.build().toBytes());
+
+    assertTrue(DataTable.isJavaSerialized(dataTable.getObjectBytes(0, 1)));
+    assertFalse(AggregationGroupByResultSerDe.isBinaryGroupByResult(dataTable.getObjectBytes(0, 1)));
+    assertTrue(AggregationGroupByResultSerDe.isBinaryGroupByResult(dataTable.getObjectBytes(1, 1)));
+
+    List<Map<String, Serializable>> results =
+        AggregationGroupByOperatorService.transformDataTableToGroupByResult(dataTable);
+    assertEquals(results.size(), 2);
+    assertEquals(results.get(0), counts);
+    assertEquals(results.get(1), counts);
+  }
+
+  private Map<String, Serializable> roundTrip(AggregationFunction function, Map<String, Serializable> groupByResult)
+      throws Exception {
+    assertTrue(AggregationGroupByResultSerDe.isSupported(function));
+    byte[] bytes = AggregationGroupByResultSerDe.serialize(function, groupByResult);
+    assertFalse(DataTable.isJavaSerialized(bytes));
+    return AggregationGroupByResultSerDe.deserialize(bytes);
+  }
+}
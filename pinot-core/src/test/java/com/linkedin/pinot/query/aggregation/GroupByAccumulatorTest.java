@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import java.io.Serializable;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockDocIdSet;
+import com.linkedin.pinot.core.common.BlockDocIdValueSet;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.BlockValIterator;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.Predicate;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction.AvgPair;
+import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MaxAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MinAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.SumAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByAccumulator;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+public class GroupByAccumulatorTest {
+  // Dictionary ids of the aggregation column, -1 being null. Documents 0-3 go to group 0, 4-6 to group 1.
+  private static final int[] DICT_IDS = { 2, -1, 0, 1, -1, -1, -1 };
+  private static final int[] GROUP_IDS = { 0, 0, 0, 0, 1, 1, 1 };
+  private static final double[] VALUES = { 10.0, 20.0, 30.0 };
+
+  @Test
+  public void testAllNullGroup() {
+    assertResults(new SumAggregationFunction(), 60.0, null);
+    assertResults(new MinAggregationFunction(), 10.0, null);
+    assertResults(new MaxAggregationFunction(), 30.0, null);
+    assertResults(new CountAggregationFunction(), 4L, 3L);
+
+    for (boolean bulk : new boolean[] { false, true }) {
+      GroupByAccumulator accumulator = aggregate(new AvgAggregationFunction(), bulk);
+      AvgPair avgPair = (AvgPair) accumulator.getResult(0);
+      Assert.assertEquals(avgPair.getFirst(), 60.0);
+      Assert.assertEquals(avgPair.getSecond(), Long.valueOf(3L));
+      Assert.assertNull(accumulator.getResult(1));
+    }
+  }
+
+  private void assertResults(AggregationFunction function, Serializable expectedGroup0, Serializable expectedGroup1) {
+    for (boolean bulk : new boolean[] { false, true }) {
+      GroupByAccumulator accumulator = aggregate(function, bulk);
+      Assert.assertEquals(accumulator.getResult(0), expectedGroup0);
+      Assert.assertEquals(accumulator.getResult(1), expectedGroup1);
+    }
+  }
+
+  private GroupByAccumulator aggregate(AggregationFunction function, boolean bulk) {
+    GroupByAccumulator accumulator = GroupByAccumulator.create(function, new Block[] { new TestBlock() });
+    accumulator.ensureCapacity(2);
+    if (bulk) {
+      int[] docIds = new int[DICT_IDS.length];
+      for (int i = 0; i < docIds.length; i++) {
+        docIds[i] = i;
+      }
+      accumulator.aggregate(docIds, GROUP_IDS, docIds.length);
+    } else {
+      for (int docId = 0; docId < DICT_IDS.length; docId++) {
+        accumulator.aggregate(docId, GROUP_IDS[docId]);
+      }
+    }
+    return accumulator;
+  }
+
+  private static class TestBlock implements Block {
+    private final Dictionary _dictionary = new TestDictionary();
+
+    @Override
+    public BlockId getId() {
+      return new BlockId(0);
+    }
+
+    @Override
+    public boolean applyPredicate(Predicate predicate) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BlockDocIdSet getBlockDocIdSet() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BlockValSet getBlockValueSet() {
+      return new BlockValSet() {
+        @Override
+        public BlockValIterator iterator() {
+          return new TestIterator();
+        }
+
+        @Override
+        public DataType getValueType() {
+          return DataType.DOUBLE;
+        }
+
+        @Override
+        public void readIntValues(int[] docIds, int length, int[] values) {
+          for (int i = 0; i < length; i++) {
+            values[i] = DICT_IDS[docIds[i]];
+          }
+        }
+      };
+    }
+
+    @Override
+    public BlockDocIdValueSet getBlockDocIdValueSet() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BlockMetadata getMetadata() {
+      return new BlockMetadata() {
+        @Override
+        public int getSize() {
+          return DICT_IDS.length;
+        }
+
+        @Override
+        public int getLength() {
+          return DICT_IDS.length;
+        }
+
+        @Override
+        public int getStartDocId() {
+          return 0;
+        }
+
+        @Override
+        public int getEndDocId() {
+          return DICT_IDS.length - 1;
+        }
+
+        @Override
+        public boolean isSorted() {
+          return false;
+        }
+
+        @Override
+        public boolean isSparse() {
+          return false;
+        }
+
+        @Override
+        public boolean hasInvertedIndex() {
+          return false;
+        }
+
+        @Override
+        public boolean hasDictionary() {
+          return true;
+        }
+
+        @Override
+        public boolean isSingleValue() {
+          return true;
+        }
+
+        @Override
+        public Dictionary getDictionary() {
+          return _dictionary;
+        }
+
+        @Override
+        public int getMaxNumberOfMultiValues() {
+          return 0;
+        }
+
+        @Override
+        public DataType getDataType() {
+          return DataType.DOUBLE;
+        }
+      };
+    }
+  }
+
+  private static class TestIterator extends BlockSingleValIterator {
+    private int _docId = 0;
+
+    @Override
+    public int nextIntVal() {
+      return DICT_IDS[_docId++];
+    }
+
+    @Override
+    public boolean skipTo(int docId) {
+      _docId = docId;
+      return docId < DICT_IDS.length;
+    }
+
+    @Override
+    public int currentDocId() {
+      return _docId;
+    }
+
+    @Override
+    public boolean reset() {
+      _docId = 0;
+      return true;
+    }
+
+    @Override
+    public boolean next() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _docId < DICT_IDS.length;
+    }
+
+    @Override
+    public int size() {
+      return DICT_IDS.length;
+    }
+
+    @Override
+    public DataType getValueType() {
+      return DataType.DOUBLE;
+    }
+  }
+
+  private static class TestDictionary implements Dictionary {
+    @Override
+    public int indexOf(Object rawValue) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object get(int dictionaryId) {
+      return VALUES[dictionaryId];
+    }
+
+    @Override
+    public long getLongValue(int dictionaryId) {
+      return (long) VALUES[dictionaryId];
+    }
+
+    @Override
+    public double getDoubleValue(int dictionaryId) {
+      return VALUES[dictionaryId];
+    }
+
+    @Override
+    public void readLongValues(int[] dictionaryIds, int length, long[] values) {
+      for (int i = 0; i < length; i++) {
+        values[i] = getLongValue(dictionaryIds[i]);
+      }
+    }
+
+    @Override
+    public void readDoubleValues(int[] dictionaryIds, int length, double[] values) {
+      for (int i = 0; i < length; i++) {
+        values[i] = dictionaryIds[i] == NULL_VALUE_INDEX ? Double.NaN : VALUES[dictionaryIds[i]];
+      }
+    }
+
+    @Override
+    public String getStringValue(int dictionaryId) {
+      return String.valueOf(VALUES[dictionaryId]);
+    }
+
+    @Override
+    public String toString(int dictionaryId) {
+      return getStringValue(dictionaryId);
+    }
+
+    @Override
+    public int length() {
+      return VALUES.length;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupIdGenerator;
+
+
+public class GroupIdGeneratorTest {
+
+  @Test
+  public void testDense() {
+    GroupIdGenerator generator = new GroupIdGenerator(100);
+    Assert.assertTrue(generator.isDense());
+    Assert.assertEquals(generator.getGroupId(42L), 42);
+    Assert.assertEquals(generator.getGroupId(7L), 7);
+    // Only covers the group ids handed out, not the whole key space
+    Assert.assertEquals(generator.getNumGroupIds(), 43);
+    for (int groupId = 0; groupId < generator.getNumGroupIds(); groupId++) {
+      Assert.assertEquals(generator.isGroupIdUsed(groupId), groupId == 42 || groupId == 7);
+    }
+    Assert.assertEquals(generator.getGroupKey(42), 42L);
+  }
+
+  @Test
+  public void testDenseGrowsWithGroupIds() {
+    GroupIdGenerator generator = new GroupIdGenerator(GroupIdGenerator.MAX_DENSE_GROUPS);
+    Assert.assertTrue(generator.isDense());
+    Assert.assertEquals(generator.getNumGroupIds(), 0);
+    Assert.assertEquals(generator.getGroupId(3L), 3);
+    Assert.assertEquals(generator.getNumGroupIds(), 4);
+    Assert.assertEquals(generator.getGroupId(5000L), 5000);
+    Assert.assertEquals(generator.getGroupId(GroupIdGenerator.MAX_DENSE_GROUPS - 1), GroupIdGenerator.MAX_DENSE_GROUPS - 1);
+    Assert.assertEquals(generator.getNumGroupIds(), GroupIdGenerator.MAX_DENSE_GROUPS);
+    Assert.assertTrue(generator.isGroupIdUsed(3));
+    Assert.assertTrue(generator.isGroupIdUsed(5000));
+    Assert.assertFalse(generator.isGroupIdUsed(4999));
+  }
+
+  @Test
+  public void testSparse() {
+    GroupIdGenerator generator = new GroupIdGenerator(Long.MAX_VALUE);
+    Assert.assertFalse(generator.isDense());
+    int numKeys = 5000;
+    for (int i = 0; i < numKeys; i++) {
+      Assert.assertEquals(generator.getGroupId(i * 1000003L), i);
+    }
+    // Keys seen before keep their group id
+    Assert.assertEquals(generator.getGroupId(1000003L), 1);
+    Assert.assertEquals(generator.getNumGroupIds(), numKeys);
+    for (int i = 0; i < numKeys; i++) {
+      Assert.assertTrue(generator.isGroupIdUsed(i));
+      Assert.assertEquals(generator.getGroupKey(i), i * 1000003L);
+    }
+  }
+}
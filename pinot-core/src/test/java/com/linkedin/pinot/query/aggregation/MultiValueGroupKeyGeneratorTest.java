@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.core.query.aggregation.groupby.MultiValueGroupKeyGenerator;
+
+
+public class MultiValueGroupKeyGeneratorTest {
+
+  @Test
+  public void testCartesianProduct() {
+    int[] cardinalities = new int[] { 10, 100, 7 };
+    MultiValueGroupKeyGenerator generator = new MultiValueGroupKeyGenerator(cardinalities,
+        new boolean[] { true, false, false }, new int[] { 0, 3, 2 });
+
+    int[][] dictIds = new int[][] { { 4 }, { 1, 50, 99 }, { 0, 6 } };
+    int numKeys = generator.generateKeys(dictIds, new int[] { 1, 3, 2 });
+    Assert.assertEquals(numKeys, 6);
+
+    Set<Long> expected = new HashSet<Long>();
+    for (int a : dictIds[0]) {
+      for (int b : dictIds[1]) {
+        for (int c : dictIds[2]) {
+          expected.add(((long) a * 100 + b) * 7 + c);
+        }
+      }
+    }
+    Set<Long> actual = new HashSet<Long>();
+    long[] keys = generator.getKeyBuffer();
+    for (int i = 0; i < numKeys; i++) {
+      actual.add(keys[i]);
+    }
+    Assert.assertEquals(actual, expected);
+
+    // Buffer is reused, fewer values overwrite the beginning only
+    numKeys = generator.generateKeys(dictIds, new int[] { 1, 1, 1 });
+    Assert.assertEquals(numKeys, 1);
+    Assert.assertEquals(generator.getKeyBuffer()[0], (4L * 100 + 1) * 7);
+  }
+
+  @Test
+  public void testGrowAndEmpty() {
+    int numValues = 50;
+    int[] values = new int[numValues];
+    for (int i = 0; i < numValues; i++) {
+      values[i] = i;
+    }
+    MultiValueGroupKeyGenerator generator = new MultiValueGroupKeyGenerator(new int[] { 100, 100 },
+        new boolean[] { false, false }, new int[] { numValues, numValues });
+    int numKeys = generator.generateKeys(new int[][] { values, values }, new int[] { numValues, numValues });
+    Assert.assertEquals(numKeys, numValues * numValues);
+    Set<Long> actual = new HashSet<Long>();
+    for (int i = 0; i < numKeys; i++) {
+      actual.add(generator.getKeyBuffer()[i]);
+    }
+    Assert.assertEquals(actual.size(), numKeys);
+
+    Assert.assertEquals(generator.generateKeys(new int[][] { values, values }, new int[] { 0, numValues }), 0);
+  }
+}
@@ -31,16 +31,22 @@ import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.query.IncrementalReducer;
 import com.linkedin.pinot.common.query.ReduceService;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterQuery;
+import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.request.SelectionSort;
 import com.linkedin.pinot.common.response.BrokerResponse;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.segment.ReadMode;
@@ -419,6 +425,195 @@ public class DefaultReduceServiceTest {
     }
   }
 
+  @Test
+  public void testIncrementalMultiAggregationQuery() {
+    BrokerRequest brokerRequest = getMultiAggregationQuery();
+
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName("midas");
+
+    brokerRequest.setQuerySource(querySource);
+    InstanceRequest instanceRequest = new InstanceRequest(0, brokerRequest);
+    instanceRequest.setSearchSegments(new ArrayList<String>());
+    for (IndexSegment segment : _indexSegmentList) {
+      instanceRequest.addToSearchSegments(segment.getSegmentName());
+    }
+
+    Map<ServerInstance, DataTable> instanceResponseMap = new HashMap<ServerInstance, DataTable>();
+    IncrementalReducer incrementalReducer = _reduceService.newIncrementalReducer(brokerRequest);
+    try {
+      for (int i = 0; i < 10; ++i) {
+        ServerInstance serverInstance = new ServerInstance("localhost:" + i + i + i + i);
+        instanceResponseMap.put(serverInstance, _queryExecutor.processQuery(instanceRequest));
+        incrementalReducer.reduce(serverInstance, _queryExecutor.processQuery(instanceRequest));
+      }
+      BrokerResponse brokerResponse = _reduceService.reduceOnDataTable(brokerRequest, instanceResponseMap);
+      BrokerResponse incrementalBrokerResponse = incrementalReducer.getBrokerResponse();
+      Assert.assertEquals(incrementalBrokerResponse.getNumDocsScanned(), brokerResponse.getNumDocsScanned());
+      Assert.assertEquals(incrementalBrokerResponse.getTotalDocs(), brokerResponse.getTotalDocs());
+      Assert.assertEquals(incrementalBrokerResponse.getAggregationResults().size(), 7);
+      for (int i = 0; i < 7; ++i) {
+        LOGGER.info("Incremental BrokerResponse is " + incrementalBrokerResponse.getAggregationResults().get(i));
+        JsonAssert.assertEqualsIgnoreOrder(incrementalBrokerResponse.getAggregationResults().get(i).toString(),
+            brokerResponse.getAggregationResults().get(i).toString());
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      // Should never happen
+      throw new RuntimeException(e.toString(), e);
+    }
+  }
+
+  @Test
+  public void testIncrementalAggregationGroupByQuery() {
+    BrokerRequest brokerRequest = getMultiAggregationQuery();
+    GroupBy groupBy = new GroupBy();
+    List<String> columns = new ArrayList<String>();
+    columns.add("dim0");
+    columns.add("dim1");
+    groupBy.setColumns(columns);
+    groupBy.setTopN(15);
+    brokerRequest.setGroupBy(groupBy);
+
+    assertIncrementalReduceMatchesBatchReduce(brokerRequest);
+  }
+
+  @Test
+  public void testIncrementalSelectionQuery() {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    Selection selection = new Selection();
+    selection.setOffset(0);
+    selection.setSize(10);
+    List<String> selectionColumns = new ArrayList<String>();
+    selectionColumns.add("dim0");
+    selectionColumns.add("dim1");
+    selection.setSelectionColumns(selectionColumns);
+    brokerRequest.setSelections(selection);
+    brokerRequest.setFilterQuery(null);
+
+    assertIncrementalReduceMatchesBatchReduce(brokerRequest);
+  }
+
+  @Test
+  public void testIncrementalSelectionOrderByQuery() {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    Selection selection = new Selection();
+    selection.setOffset(0);
+    selection.setSize(10);
+    List<String> selectionColumns = new ArrayList<String>();
+    selectionColumns.add("dim0");
+    selectionColumns.add("dim1");
+    selection.setSelectionColumns(selectionColumns);
+    List<SelectionSort> selectionSortSequence = new ArrayList<SelectionSort>();
+    SelectionSort selectionSort = new SelectionSort();
+    selectionSort.setColumn("dim0");
+    selectionSort.setIsAsc(false);
+    selectionSortSequence.add(selectionSort);
+    selectionSort = new SelectionSort();
+    selectionSort.setColumn("dim1");
+    selectionSort.setIsAsc(false);
+    selectionSortSequence.add(selectionSort);
+    selection.setSelectionSortSequence(selectionSortSequence);
+    brokerRequest.setSelections(selection);
+    brokerRequest.setFilterQuery(null);
+
+    assertIncrementalReduceMatchesBatchReduce(brokerRequest);
+  }
+
+  @Test
+  public void testIncrementalSelectionQueryAfterLimit() throws Exception {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    Selection selection = new Selection();
+    selection.setOffset(0);
+    selection.setSize(1);
+    List<String> selectionColumns = new ArrayList<String>();
+    selectionColumns.add("dim0");
+    selectionColumns.add("dim1");
+    selection.setSelectionColumns(selectionColumns);
+    brokerRequest.setSelections(selection);
+    brokerRequest.setFilterQuery(null);
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName("midas");
+    brokerRequest.setQuerySource(querySource);
+    InstanceRequest instanceRequest = new InstanceRequest(0, brokerRequest);
+    instanceRequest.setSearchSegments(new ArrayList<String>());
+    for (IndexSegment segment : _indexSegmentList) {
+      instanceRequest.addToSearchSegments(segment.getSegmentName());
+    }
+
+    Map<ServerInstance, DataTable> instanceResponseMap = new HashMap<ServerInstance, DataTable>();
+    IncrementalReducer incrementalReducer = _reduceService.newIncrementalReducer(brokerRequest);
+    for (int i = 0; i < 5; ++i) {
+      ServerInstance serverInstance = new ServerInstance("localhost:" + i + i + i + i);
+      instanceResponseMap.put(serverInstance, _queryExecutor.processQuery(instanceRequest));
+      incrementalReducer.reduce(serverInstance, _queryExecutor.processQuery(instanceRequest));
+      // The first response already has the rows asked for
+      Assert.assertTrue(incrementalReducer.isComplete());
+    }
+    // A server failing after the limit was reached
+    DataTable errorResponse = new DataTable();
+    errorResponse.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR,
+        new RuntimeException("Failed to process the segment")));
+    ServerInstance failedServerInstance = new ServerInstance("localhost:5555");
+    instanceResponseMap.put(failedServerInstance, errorResponse);
+    incrementalReducer.reduce(failedServerInstance, errorResponse);
+
+    BrokerResponse brokerResponse = _reduceService.reduceOnDataTable(brokerRequest, instanceResponseMap);
+    BrokerResponse incrementalBrokerResponse = incrementalReducer.getBrokerResponse();
+    // Later responses still count in the statistics and report their exceptions
+    Assert.assertEquals(incrementalBrokerResponse.getNumDocsScanned(), brokerResponse.getNumDocsScanned());
+    Assert.assertEquals(incrementalBrokerResponse.getTotalDocs(), brokerResponse.getTotalDocs());
+    Assert.assertEquals(incrementalBrokerResponse.getExceptionsSize(), 1);
+    Assert.assertEquals(brokerResponse.getExceptionsSize(), 1);
+    Assert.assertEquals(incrementalBrokerResponse.getExceptions().get(0).getErrorCode(),
+        brokerResponse.getExceptions().get(0).getErrorCode());
+    Assert.assertEquals(incrementalBrokerResponse.getSelectionResults().getJSONArray("results").length(), 1);
+  }
+
+  private void assertIncrementalReduceMatchesBatchReduce(BrokerRequest brokerRequest) {
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName("midas");
+
+    brokerRequest.setQuerySource(querySource);
+    InstanceRequest instanceRequest = new InstanceRequest(0, brokerRequest);
+    instanceRequest.setSearchSegments(new ArrayList<String>());
+    for (IndexSegment segment : _indexSegmentList) {
+      instanceRequest.addToSearchSegments(segment.getSegmentName());
+    }
+
+    Map<ServerInstance, DataTable> instanceResponseMap = new HashMap<ServerInstance, DataTable>();
+    IncrementalReducer incrementalReducer = _reduceService.newIncrementalReducer(brokerRequest);
+    try {
+      for (int i = 0; i < 10; ++i) {
+        ServerInstance serverInstance = new ServerInstance("localhost:" + i + i + i + i);
+        instanceResponseMap.put(serverInstance, _queryExecutor.processQuery(instanceRequest));
+        incrementalReducer.reduce(serverInstance, _queryExecutor.processQuery(instanceRequest));
+      }
+      BrokerResponse brokerResponse = _reduceService.reduceOnDataTable(brokerRequest, instanceResponseMap);
+      BrokerResponse incrementalBrokerResponse = incrementalReducer.getBrokerResponse();
+      Assert.assertEquals(incrementalBrokerResponse.getNumDocsScanned(), brokerResponse.getNumDocsScanned());
+      Assert.assertEquals(incrementalBrokerResponse.getTotalDocs(), brokerResponse.getTotalDocs());
+      Assert.assertEquals(incrementalBrokerResponse.getExceptionsSize(), 0);
+      if (brokerResponse.getSelectionResults() != null) {
+        LOGGER.info("Incremental BrokerResponse is " + incrementalBrokerResponse.getSelectionResults());
+        JsonAssert.assertEqualsIgnoreOrder(incrementalBrokerResponse.getSelectionResults().toString(),
+            brokerResponse.getSelectionResults().toString());
+      } else {
+        int numAggregationResults = brokerResponse.getAggregationResults().size();
+        Assert.assertEquals(incrementalBrokerResponse.getAggregationResults().size(), numAggregationResults);
+        for (int i = 0; i < numAggregationResults; ++i) {
+          LOGGER.info("Incremental BrokerResponse is " + incrementalBrokerResponse.getAggregationResults().get(i));
+          JsonAssert.assertEqualsIgnoreOrder(incrementalBrokerResponse.getAggregationResults().get(i).toString(),
+              brokerResponse.getAggregationResults().get(i).toString());
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      // Should never happen
+      throw new RuntimeException(e.toString(), e);
+    }
+  }
+
   private BrokerRequest getCountQuery() {
     BrokerRequest query = new BrokerRequest();
     AggregationInfo aggregationInfo = getCountAggregationInfo();
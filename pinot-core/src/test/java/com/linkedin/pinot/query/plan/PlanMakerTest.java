@@ -67,6 +67,7 @@ import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV1;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import com.linkedin.pinot.core.plan.maker.PlanMaker;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
+import com.linkedin.pinot.core.query.config.QueryParallelismConfig;
 import com.linkedin.pinot.core.query.reduce.DefaultReduceService;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
@@ -414,6 +415,37 @@ public class PlanMakerTest {
     System.out.println(brokerResponse.getAggregationResults());
   }
 
+  @Test
+  public void testInterSegmentAggregationPlanMakerAndRunWithParallelism() {
+    PlanMaker instancePlanMaker = new InstancePlanMakerImplV2();
+    ExecutorService executorService = Executors.newCachedThreadPool(new NamedThreadFactory("test-plan-maker"));
+    for (int maxThreadsPerQuery : new int[] { 1, 2, 3, _indexSegmentList.size() }) {
+      BrokerRequest brokerRequest = _brokerRequest.deepCopy();
+      Plan globalPlan = instancePlanMaker.makeInterSegmentPlan(_indexSegmentList, brokerRequest, executorService,
+          150000, new QueryParallelismConfig(maxThreadsPerQuery, 1));
+      globalPlan.execute();
+      DataTable instanceResponse = globalPlan.getInstanceResponse();
+      Assert.assertEquals(instanceResponse.getLong(0, 0), 200001L * _indexSegmentList.size());
+      Assert.assertEquals(instanceResponse.getDouble(0, 1), 20000100000.0 * _indexSegmentList.size());
+      Assert.assertEquals(instanceResponse.getDouble(0, 2), 200000.0);
+      Assert.assertEquals(instanceResponse.getDouble(0, 3), 0.0);
+    }
+    executorService.shutdown();
+  }
+
+  @Test
+  public void testQueryParallelism() {
+    QueryParallelismConfig queryParallelismConfig = new QueryParallelismConfig(8, 100000L);
+    // At most one thread per segment
+    Assert.assertEquals(queryParallelismConfig.getNumThreads(3, 10000000L), 3);
+    // No more than the configured maximum
+    Assert.assertEquals(queryParallelismConfig.getNumThreads(100, 10000000L), 8);
+    // Small queries stay on few threads
+    Assert.assertEquals(queryParallelismConfig.getNumThreads(100, 250000L), 3);
+    Assert.assertEquals(queryParallelismConfig.getNumThreads(100, 10L), 1);
+    Assert.assertEquals(queryParallelismConfig.getNumThreads(100, 0L), 1);
+  }
+
   @Test
   public void testInterSegmentAggregationGroupByPlanMakerAndRun() {
     PlanMaker instancePlanMaker = new InstancePlanMakerImplV1();
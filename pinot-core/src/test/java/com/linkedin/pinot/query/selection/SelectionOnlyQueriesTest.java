@@ -47,10 +47,12 @@ import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
 import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.operator.BReusableFilteredDocIdSetOperator;
+import com.linkedin.pinot.core.operator.MCombineOperator;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.query.MSelectionOnlyOperator;
 import com.linkedin.pinot.core.plan.Plan;
@@ -275,6 +277,26 @@ public class SelectionOnlyQueriesTest {
             "{\"columns\":[\"column11\",\"column12\",\"met_impressionCount\"],\"results\":[[\"i\",\"jgn\",\"4955241829510629137\"],[\"i\",\"lVH\",\"6240989492723764727\"],[\"i\",\"kWZ\",\"4955241829510629137\"],[\"i\",\"pm\",\"6240989492723764727\"],[\"i\",\"GF\",\"8637957270245933828\"],[\"i\",\"kB\",\"8637957270245933828\"],[\"i\",\"BQ\",\"8310347835142446717\"],[\"i\",\"YO\",\"4955241829510629137\"],[\"i\",\"RI\",\"8310347835142446717\"],[\"i\",\"RI\",\"6240989492723764727\"]]}");
   }
 
+  @Test
+  public void testSelectionOnlyStopsAtLimitAcrossSegments() throws Exception {
+    final int numSegments = 5;
+    final BrokerRequest brokerRequest = getSelectionNoFilterBrokerRequest();
+    final PlanMaker instancePlanMaker = new InstancePlanMakerImplV0();
+    final List<Operator> operators = new ArrayList<Operator>();
+    for (int i = 0; i < numSegments; ++i) {
+      operators.add(instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest).run());
+    }
+    final MCombineOperator combineOperator = new MCombineOperator(operators, brokerRequest);
+    combineOperator.open();
+    final IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+    combineOperator.close();
+
+    // The first segment provides all the rows, the others are not scanned but still count towards total docs.
+    Assert.assertEquals(resultBlock.getSelectionResult().size(), 10);
+    Assert.assertEquals(resultBlock.getNumDocsScanned(), 10);
+    Assert.assertEquals(resultBlock.getTotalDocs(), numSegments * 10001);
+  }
+
   private static Map<String, DataSource> getDataSourceMap() {
     final Map<String, DataSource> dataSourceMap = new HashMap<String, DataSource>();
     dataSourceMap.put("column11", _indexSegment.getDataSource("column11"));
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.selection;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.DataTableBuilder.DataSchema;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.QueryCancelledException;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.BReusableFilteredDocIdSetOperator;
+import com.linkedin.pinot.core.operator.MProjectionOperator;
+import com.linkedin.pinot.core.operator.MatchEntireSegmentDocIdSetBlock;
+import com.linkedin.pinot.core.operator.query.MSelectionOrderByOperator;
+import com.linkedin.pinot.core.query.selection.TopKDocIdCollector;
+import com.linkedin.pinot.core.realtime.StreamProvider;
+import com.linkedin.pinot.core.realtime.StreamProviderConfig;
+import com.linkedin.pinot.core.realtime.converter.RealtimeSegmentConverter;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderImpl;
+import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+/**
+ * Checks the top K documents kept by selection order by queries against a full sort of the segment.
+ */
+public class SelectionOrderByTopKTest {
+  private static final String AVRO_DATA = "data/test_data-mv.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "SelectionOrderByTopKTest");
+  private static final String SORTED_COLUMN = "column1";
+  private static final int SIZE = 10;
+
+  private RealtimeSegmentImpl _realtimeSegment;
+  private IndexSegment _sortedSegment;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    String filePath = TestUtils.getFileFromResourceUrl(getClass().getClassLoader().getResource(AVRO_DATA));
+    Map<String, FieldType> fieldTypeMap = new HashMap<String, FieldSpec.FieldType>();
+    for (int i = 1; i <= 10; i++) {
+      fieldTypeMap.put("column" + i, FieldType.DIMENSION);
+    }
+    fieldTypeMap.put("weeksSinceEpochSunday", FieldType.DIMENSION);
+    fieldTypeMap.put("daysSinceEpoch", FieldType.DIMENSION);
+    fieldTypeMap.put("column13", FieldType.TIME);
+    fieldTypeMap.put("count", FieldType.METRIC);
+    Schema schema = SegmentTestUtils.extractSchemaFromAvro(new File(filePath), fieldTypeMap, TimeUnit.MINUTES);
+
+    StreamProviderConfig config = new FileBasedStreamProviderConfig(FileFormat.AVRO, filePath, schema);
+    StreamProvider provider = new FileBasedStreamProviderImpl();
+    provider.init(config);
+    _realtimeSegment = new RealtimeSegmentImpl(schema, 100000);
+    GenericRow row = provider.next();
+    while (row != null) {
+      _realtimeSegment.index(row);
+      row = provider.next();
+    }
+    provider.shutdown();
+
+    // the converted segment has its docs sorted on the sorted column
+    RealtimeSegmentConverter converter =
+        new RealtimeSegmentConverter(_realtimeSegment, INDEX_DIR.getAbsolutePath(), schema, "testTable",
+            "testTable_sorted", SORTED_COLUMN);
+    converter.build();
+    _sortedSegment = Loaders.IndexSegment.load(INDEX_DIR.listFiles()[0], ReadMode.heap);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _realtimeSegment.destroy();
+    _sortedSegment.destroy();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testSortedColumnShortCircuit() {
+    int totalDocs = _sortedSegment.getTotalDocs();
+    DataSource dataSource = _sortedSegment.getDataSource(SORTED_COLUMN);
+    dataSource.open();
+    Block[] blocks = new Block[] { dataSource.nextBlock(new BlockId(0)) };
+    Assert.assertTrue(blocks[0].getMetadata().isSorted());
+
+    Selection selection = getSelection(new String[] { SORTED_COLUMN }, new boolean[] { true });
+    TopKDocIdCollector collector = new TopKDocIdCollector(selection.getSelectionSortSequence(), SIZE);
+    int numDocsScanned = collector.collect(new MatchEntireSegmentDocIdSetBlock(totalDocs).getBlockDocIdSet()
+        .iterator(), blocks);
+    dataSource.close();
+
+    // collection stops at the first document past the worst of the top K
+    Object[] values = readColumn(_sortedSegment, SORTED_COLUMN);
+    Integer[] sortedDocIds = sortDocIds(new Object[][] { values }, new boolean[] { true });
+    Comparable worstValue = (Comparable) values[sortedDocIds[SIZE - 1]];
+    int numDocsUpToWorst = 0;
+    while (numDocsUpToWorst < totalDocs && worstValue.compareTo(values[numDocsUpToWorst]) >= 0) {
+      numDocsUpToWorst++;
+    }
+    Assert.assertEquals(numDocsScanned, Math.min(numDocsUpToWorst + 1, totalDocs));
+    Assert.assertEquals(collector.isTerminated(), numDocsUpToWorst < totalDocs);
+
+    int[] docIds = collector.getDocIds();
+    Assert.assertEquals(docIds.length, SIZE);
+    Object[] topValues = new Object[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      topValues[i] = values[docIds[i]];
+    }
+    Arrays.sort(topValues);
+    for (int i = 0; i < SIZE; i++) {
+      Assert.assertEquals(topValues[i], values[sortedDocIds[i]]);
+    }
+  }
+
+  @Test
+  public void testRealtimeSegmentMatchesFullSort() {
+    String[] sortColumns = new String[] { "column5", "column1", "count" };
+    boolean[] ascending = new boolean[] { true, false, true };
+    Selection selection = getSelection(sortColumns, ascending);
+
+    int totalDocs = _realtimeSegment.getTotalDocs();
+    Map<String, DataSource> dataSourceMap = new HashMap<String, DataSource>();
+    for (String column : sortColumns) {
+      dataSourceMap.put(column, _realtimeSegment.getDataSource(column));
+    }
+    BReusableFilteredDocIdSetOperator docIdSetOperator = new BReusableFilteredDocIdSetOperator(null, totalDocs, 5000);
+    MProjectionOperator projectionOperator = new MProjectionOperator(dataSourceMap, docIdSetOperator);
+    MSelectionOrderByOperator selectionOperator =
+        new MSelectionOrderByOperator(_realtimeSegment, selection, projectionOperator);
+    IntermediateResultsBlock block = (IntermediateResultsBlock) selectionOperator.nextBlock();
+    PriorityQueue<Serializable[]> pq = (PriorityQueue<Serializable[]>) block.getSelectionResult();
+    LinkedList<Serializable[]> rows = new LinkedList<Serializable[]>();
+    while (!pq.isEmpty()) {
+      rows.addFirst(pq.poll());
+    }
+
+    Object[][] columnValues = new Object[sortColumns.length][];
+    for (int i = 0; i < sortColumns.length; i++) {
+      columnValues[i] = readColumn(_realtimeSegment, sortColumns[i]);
+    }
+    Integer[] sortedDocIds = sortDocIds(columnValues, ascending);
+
+    DataSchema dataSchema = block.getSelectionDataSchema();
+    Assert.assertEquals(rows.size(), SIZE);
+    for (int i = 0; i < SIZE; i++) {
+      for (int j = 0; j < sortColumns.length; j++) {
+        int index = getColumnIndex(dataSchema, sortColumns[j]);
+        Assert.assertEquals(rows.get(i)[index], columnValues[j][sortedDocIds[i]], sortColumns[j]);
+      }
+    }
+  }
+
+  @Test
+  public void testCancelledQueryIsNotAnError() {
+    String[] sortColumns = new String[] { "column5" };
+    Selection selection = getSelection(sortColumns, new boolean[] { true });
+    Map<String, DataSource> dataSourceMap = new HashMap<String, DataSource>();
+    dataSourceMap.put("column5", _realtimeSegment.getDataSource("column5"));
+    BReusableFilteredDocIdSetOperator docIdSetOperator =
+        new BReusableFilteredDocIdSetOperator(null, _realtimeSegment.getTotalDocs(), 5000);
+    MSelectionOrderByOperator selectionOperator = new MSelectionOrderByOperator(_realtimeSegment, selection,
+        new MProjectionOperator(dataSourceMap, docIdSetOperator));
+
+    Thread.currentThread().interrupt();
+    try {
+      selectionOperator.nextBlock();
+      Assert.fail("Cancelled query returned a block");
+    } catch (QueryCancelledException e) {
+      // Reaches the combine operator instead of being turned into a QUERY_EXECUTION_ERROR block
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  private static Selection getSelection(String[] sortColumns, boolean[] ascending) {
+    Selection selection = new Selection();
+    selection.setSelectionColumns(Arrays.asList(sortColumns));
+    selection.setOffset(0);
+    selection.setSize(SIZE);
+    List<SelectionSort> selectionSortSequence = new LinkedList<SelectionSort>();
+    for (int i = 0; i < sortColumns.length; i++) {
+      SelectionSort selectionSort = new SelectionSort();
+      selectionSort.setColumn(sortColumns[i]);
+      selectionSort.setIsAsc(ascending[i]);
+      selectionSortSequence.add(selectionSort);
+    }
+    selection.setSelectionSortSequence(selectionSortSequence);
+    return selection;
+  }
+
+  private static int getColumnIndex(DataSchema dataSchema, String column) {
+    for (int i = 0; i < dataSchema.size(); i++) {
+      if (dataSchema.getColumnName(i).equals(column)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("No column " + column + " in " + dataSchema);
+  }
+
+  /**
+   * Returns all the doc ids of the segment, sorted on the given column values.
+   */
+  private static Integer[] sortDocIds(final Object[][] columnValues, final boolean[] ascending) {
+    Integer[] docIds = new Integer[columnValues[0].length];
+    for (int docId = 0; docId < docIds.length; docId++) {
+      docIds[docId] = docId;
+    }
+    Arrays.sort(docIds, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        for (int i = 0; i < columnValues.length; i++) {
+          int result = ((Comparable) columnValues[i][o1]).compareTo(columnValues[i][o2]);
+          if (result != 0) {
+            return ascending[i] ? result : -result;
+          }
+        }
+        return 0;
+      }
+    });
+    return docIds;
+  }
+
+  private static Object[] readColumn(IndexSegment segment, String column) {
+    int totalDocs = segment.getTotalDocs();
+    DataSource dataSource = segment.getDataSource(column);
+    dataSource.open();
+    Block block = dataSource.nextBlock(new BlockId(0));
+    Assert.assertTrue(block.getMetadata().isSingleValue(), column);
+    Dictionary dictionary = block.getMetadata().getDictionary();
+    BlockSingleValIterator iterator = (BlockSingleValIterator) block.getBlockValueSet().iterator();
+    Object[] values = new Object[totalDocs];
+    for (int docId = 0; docId < totalDocs; docId++) {
+      iterator.skipTo(docId);
+      values[docId] = dictionary.get(iterator.nextIntVal());
+    }
+    dataSource.close();
+    return values;
+  }
+}
@@ -18,8 +18,11 @@ package com.linkedin.pinot.query.selection;
 import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
@@ -48,6 +51,9 @@ import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
@@ -68,6 +74,7 @@ import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
 import com.linkedin.pinot.util.TestUtils;
 
@@ -168,6 +175,68 @@ public class SelectionQueriesTest {
     }
   }
 
+  @Test
+  public void testSelectionOrderByMultipleColumns() throws Exception {
+    final BReusableFilteredDocIdSetOperator docIdSetOperator =
+        new BReusableFilteredDocIdSetOperator(null, _indexSegment.getTotalDocs(), 5000);
+    final MProjectionOperator projectionOperator = new MProjectionOperator(getDataSourceMap(), docIdSetOperator);
+
+    final Selection selection = getSelectionQuery();
+    final SelectionSort selectionSort = new SelectionSort();
+    selectionSort.setColumn("met_impressionCount");
+    selectionSort.setIsAsc(true);
+    selection.getSelectionSortSequence().add(selectionSort);
+
+    final MSelectionOrderByOperator selectionOperator =
+        new MSelectionOrderByOperator(_indexSegment, selection, projectionOperator);
+    final IntermediateResultsBlock block = (IntermediateResultsBlock) selectionOperator.nextBlock();
+    final PriorityQueue<Serializable[]> pq = (PriorityQueue<Serializable[]>) block.getSelectionResult();
+    final LinkedList<Serializable[]> rows = new LinkedList<Serializable[]>();
+    while (!pq.isEmpty()) {
+      rows.addFirst(pq.poll());
+    }
+
+    // Expected order: column11 descending, then met_impressionCount ascending, over all documents.
+    final int totalDocs = _indexSegment.getTotalDocs();
+    final Object[] column11Values = readColumn("column11", totalDocs);
+    final Object[] impressionCountValues = readColumn("met_impressionCount", totalDocs);
+    final Integer[] docIds = new Integer[totalDocs];
+    for (int docId = 0; docId < totalDocs; docId++) {
+      docIds[docId] = docId;
+    }
+    Arrays.sort(docIds, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        int result = ((Comparable) column11Values[o2]).compareTo(column11Values[o1]);
+        if (result != 0) {
+          return result;
+        }
+        return ((Comparable) impressionCountValues[o1]).compareTo(impressionCountValues[o2]);
+      }
+    });
+
+    Assert.assertEquals(rows.size(), 10);
+    for (int i = 0; i < rows.size(); i++) {
+      Assert.assertEquals(rows.get(i)[0], column11Values[docIds[i]]);
+      Assert.assertEquals(rows.get(i)[1], impressionCountValues[docIds[i]]);
+    }
+  }
+
+  private static Object[] readColumn(String column, int totalDocs) {
+    final DataSource dataSource = _indexSegment.getDataSource(column);
+    dataSource.open();
+    final Block block = dataSource.nextBlock(new BlockId(0));
+    final Dictionary dictionary = block.getMetadata().getDictionary();
+    final BlockSingleValIterator iterator = (BlockSingleValIterator) block.getBlockValueSet().iterator();
+    final Object[] values = new Object[totalDocs];
+    for (int docId = 0; docId < totalDocs; docId++) {
+      iterator.skipTo(docId);
+      values[docId] = dictionary.get(iterator.nextIntVal());
+    }
+    dataSource.close();
+    return values;
+  }
+
   @Test
   public void testInnerSegmentPlanMakerForSelectionNoFilter() throws Exception {
     final BrokerRequest brokerRequest = getSelectionNoFilterBrokerRequest();
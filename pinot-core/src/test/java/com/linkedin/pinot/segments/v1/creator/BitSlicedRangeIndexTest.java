@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import java.io.File;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.creator.impl.inv.BitSlicedRangeIndexCreator;
+import com.linkedin.pinot.core.segment.index.BitSlicedRangeIndexReader;
+
+
+public class BitSlicedRangeIndexTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BitSlicedRangeIndexTest");
+  private static final String COLUMN = "column";
+  private static final int NUM_DOCS = 5000;
+
+  @BeforeClass
+  public void setup() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    INDEX_DIR.mkdirs();
+  }
+
+  @AfterClass
+  public void teardown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testRanges() throws Exception {
+    for (int cardinality : new int[] { 1, 2, 7, 64, 1000 }) {
+      testRanges(cardinality, true);
+      testRanges(cardinality, false);
+    }
+  }
+
+  private void testRanges(int cardinality, boolean isMmap) throws Exception {
+    Random random = new Random(cardinality);
+    int[] dictIds = new int[NUM_DOCS];
+    BitSlicedRangeIndexCreator creator =
+        new BitSlicedRangeIndexCreator(INDEX_DIR, cardinality, new DimensionFieldSpec(COLUMN, DataType.INT, true));
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      dictIds[docId] = random.nextInt(cardinality);
+      creator.add(docId, dictIds[docId]);
+    }
+    creator.seal();
+
+    File rangeIndexFile = new File(INDEX_DIR, COLUMN + V1Constants.Indexes.BITMAP_RANGE_INDEX_FILE_EXTENSION);
+    BitSlicedRangeIndexReader reader = new BitSlicedRangeIndexReader(rangeIndexFile, cardinality, isMmap);
+    try {
+      for (int i = 0; i < 100; i++) {
+        int start = random.nextInt(cardinality);
+        int end = start + random.nextInt(cardinality - start);
+        ImmutableRoaringBitmap matchingDocIds = reader.getMatchingDocIds(start, end);
+        int numMatchingDocs = 0;
+        for (int docId = 0; docId < NUM_DOCS; docId++) {
+          boolean expected = dictIds[docId] >= start && dictIds[docId] <= end;
+          Assert.assertEquals(matchingDocIds.contains(docId), expected, "Doc " + docId + " for range [" + start + ", "
+              + end + "] of cardinality " + cardinality);
+          if (expected) {
+            numMatchingDocs++;
+          }
+        }
+        Assert.assertEquals(matchingDocIds.getCardinality(), numMatchingDocs);
+      }
+      Assert.assertEquals(reader.getMatchingDocIds(0, cardinality - 1).getCardinality(), NUM_DOCS);
+    } finally {
+      reader.close();
+      FileUtils.deleteQuietly(rangeIndexFile);
+    }
+  }
+}
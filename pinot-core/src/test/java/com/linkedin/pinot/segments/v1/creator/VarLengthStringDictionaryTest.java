@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentDictionaryCreator;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
+
+
+public class VarLengthStringDictionaryTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "VarLengthStringDictionaryTest");
+  private static final String COLUMN = "column";
+
+  // In unsigned UTF-8 byte order, which differs from the padded order for "a b" and "a"
+  private static final String[] VALUES = { "", "a", "a b", "abc", "b", "\u00e9t\u00e9", "\u4e2d\u6587" };
+
+  @BeforeClass
+  public void setup() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    INDEX_DIR.mkdirs();
+
+    StringBuilder longValue = new StringBuilder("http://");
+    for (int i = 0; i < 1000; i++) {
+      longValue.append('x');
+    }
+    Object[] sortedValues = Arrays.copyOf(VALUES, VALUES.length + 1, Object[].class);
+    sortedValues[VALUES.length] = longValue.toString();
+    Arrays.sort(sortedValues);
+
+    SegmentDictionaryCreator creator =
+        new SegmentDictionaryCreator(false, sortedValues, new DimensionFieldSpec(COLUMN, DataType.STRING, true),
+            INDEX_DIR, true);
+    creator.build();
+    Assert.assertEquals(creator.indexOf("a b"), 2);
+    Assert.assertEquals(creator.getStringColumnMaxLength(), 1007);
+    creator.close();
+  }
+
+  @AfterClass
+  public void teardown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testFileSize() {
+    Assert.assertFalse(new File(INDEX_DIR, COLUMN + V1Constants.Dict.FILE_EXTENTION).exists());
+    File dictionaryFile = new File(INDEX_DIR, COLUMN + V1Constants.Dict.VAR_LENGTH_FILE_EXTENSION);
+    // Offsets and bytes only, the long value does not widen the other entries
+    Assert.assertTrue(dictionaryFile.length() < 1200);
+  }
+
+  @Test
+  public void testLookups() throws Exception {
+    testLookups(true);
+    testLookups(false);
+  }
+
+  private void testLookups(boolean isMmap) throws Exception {
+    VarLengthStringDictionary dictionary = new VarLengthStringDictionary(
+        new File(INDEX_DIR, COLUMN + V1Constants.Dict.VAR_LENGTH_FILE_EXTENSION), VALUES.length + 1, isMmap);
+    Assert.assertEquals(dictionary.length(), VALUES.length + 1);
+    Assert.assertEquals(dictionary.get(0), "");
+    Assert.assertTrue(dictionary.get(5).startsWith("http://x"));
+    for (int i = 0; i < dictionary.length(); i++) {
+      String value = dictionary.get(i);
+      Assert.assertEquals(dictionary.indexOf(value), i);
+      // Decoded again from the cache
+      Assert.assertEquals(dictionary.get(i), value);
+      if (i > 0) {
+        Assert.assertTrue(dictionary.get(i - 1).compareTo(value) < 0);
+      }
+    }
+    Assert.assertEquals(dictionary.get(-1), "null");
+
+    // Missing values give their insertion point
+    Assert.assertEquals(dictionary.indexOf("a a"), -3);
+    Assert.assertEquals(dictionary.indexOf("zzz"), -7);
+    Assert.assertEquals(dictionary.indexOf("\uffff"), -9);
+    dictionary.close();
+  }
+}
@@ -27,6 +27,7 @@ import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.common.DataSourceMetadata;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.RangeIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
@@ -122,6 +123,11 @@ public class DataSourceUtils {
         return null;
       }
 
+      @Override
+      public RangeIndexReader getRangeIndex() {
+        return null;
+      }
+
       @Override
       public Dictionary getDictionary() {
         // TODO Auto-generated method stub
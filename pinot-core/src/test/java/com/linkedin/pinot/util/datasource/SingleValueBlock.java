@@ -111,6 +111,13 @@ public class SingleValueBlock implements Block {
         };
       }
 
+      @Override
+      public void readIntValues(int[] docIds, int length, int[] dictIds) {
+        for (int i = 0; i < length; i++) {
+          dictIds[i] = values[docIds[i]];
+        }
+      }
+
       @Override
       public DataType getValueType() {
         return DataType.INT;
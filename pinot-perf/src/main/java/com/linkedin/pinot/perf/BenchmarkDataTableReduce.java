@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.query.reduce.DefaultReduceService;
+
+
+/**
+ * Measures the broker side of a query: {@link DataTable} serialization and deserialization of a server response, and
+ * the {@link DefaultReduceService} reduce of the responses of several servers.
+ *
+ * Run with: java -cp pinot-perf-jar-with-dependencies.jar com.linkedin.pinot.perf.BenchmarkDataTableReduce
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkDataTableReduce {
+  private static final int NUM_ROWS = 1000000;
+  private static final int NUM_SERVERS = 10;
+
+  @Param({ "aggregation", "groupBy", "highCardinalityGroupBy", "selectionOrderBy" })
+  public String _query;
+
+  private BrokerRequest _brokerRequest;
+  private DataTable _dataTable;
+  private byte[] _serializedDataTable;
+  private Map<ServerInstance, DataTable> _serverResponses;
+  private DefaultReduceService _reduceService;
+
+  @Setup
+  public void setUp() throws Exception {
+    File workingDir = new File(FileUtils.getTempDirectory(), getClass().getSimpleName());
+    FileUtils.deleteQuietly(workingDir);
+    IndexSegment indexSegment = BenchmarkSegmentGenerator.generateSegment(workingDir, NUM_ROWS);
+    ExecutorService executorService = Executors.newFixedThreadPool(2, new NamedThreadFactory("benchmark-reduce"));
+    try {
+      _brokerRequest = BenchmarkSegmentGenerator.compile(BenchmarkQueryExecution.getQuery(_query));
+      _dataTable =
+          BenchmarkQueryExecution.execute(new InstancePlanMakerImplV2(), indexSegment, _brokerRequest,
+              executorService);
+    } finally {
+      executorService.shutdown();
+      indexSegment.destroy();
+      FileUtils.deleteQuietly(workingDir);
+    }
+
+    _serializedDataTable = _dataTable.toBytes();
+    _serverResponses = new HashMap<ServerInstance, DataTable>();
+    for (int i = 0; i < NUM_SERVERS; i++) {
+      _serverResponses.put(new ServerInstance("localhost", 8000 + i), new DataTable(_serializedDataTable));
+    }
+    _reduceService = new DefaultReduceService();
+  }
+
+  @Benchmark
+  public byte[] serialize() throws Exception {
+    return _dataTable.toBytes();
+  }
+
+  @Benchmark
+  public DataTable deserialize() {
+    return new DataTable(_serializedDataTable);
+  }
+
+  @Benchmark
+  public BrokerResponse reduce() {
+    // The reduce removes the responses carrying only exceptions from the map
+    return _reduceService.reduceOnDataTable(_brokerRequest, new HashMap<ServerInstance, DataTable>(_serverResponses));
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkDataTableReduce.class.getSimpleName()).build()).run();
+  }
+}
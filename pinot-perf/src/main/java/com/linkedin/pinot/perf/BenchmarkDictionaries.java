@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+/**
+ * Measures dictionary lookups: value to dictionary id (as done for predicates), and dictionary id to value one at a
+ * time and in bulk (as done for aggregations).
+ *
+ * Run with: java -cp pinot-perf-jar-with-dependencies.jar com.linkedin.pinot.perf.BenchmarkDictionaries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkDictionaries {
+  private static final int NUM_ROWS = 1000000;
+  private static final int NUM_LOOKUPS = 10000;
+
+  @Param({ BenchmarkSegmentGenerator.MEDIUM_CARDINALITY_DIMENSION, BenchmarkSegmentGenerator.HIGH_CARDINALITY_DIMENSION,
+      BenchmarkSegmentGenerator.LONG_METRIC })
+  public String _column;
+
+  private File _workingDir;
+  private IndexSegment _indexSegment;
+  private Dictionary _dictionary;
+  private int[] _dictIds;
+  private String[] _values;
+  private double[] _doubleValues;
+  private boolean _isNumeric;
+
+  @Setup
+  public void setUp() throws Exception {
+    _workingDir = new File(FileUtils.getTempDirectory(), getClass().getSimpleName());
+    FileUtils.deleteQuietly(_workingDir);
+    _indexSegment = BenchmarkSegmentGenerator.generateSegment(_workingDir, NUM_ROWS);
+    _dictionary = _indexSegment.getDataSource(_column).getDictionary();
+    DataType dataType = _indexSegment.getSegmentMetadata().getSchema().getFieldSpecFor(_column).getDataType();
+    _isNumeric = (dataType != DataType.STRING && dataType != DataType.BOOLEAN);
+
+    Random random = new Random(42);
+    _dictIds = new int[NUM_LOOKUPS];
+    _values = new String[NUM_LOOKUPS];
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      _dictIds[i] = random.nextInt(_dictionary.length());
+      _values[i] = _dictionary.getStringValue(_dictIds[i]);
+    }
+    _doubleValues = new double[NUM_LOOKUPS];
+  }
+
+  @TearDown
+  public void tearDown() {
+    _indexSegment.destroy();
+    FileUtils.deleteQuietly(_workingDir);
+  }
+
+  @Benchmark
+  public long indexOf() {
+    long sum = 0L;
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      sum += _dictionary.indexOf(_values[i]);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double getDoubleValue() {
+    // String dictionaries do not support numeric reads
+    if (!_isNumeric) {
+      return 0;
+    }
+    double sum = 0;
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      sum += _dictionary.getDoubleValue(_dictIds[i]);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double readDoubleValues() {
+    // String dictionaries do not support numeric reads
+    if (!_isNumeric) {
+      return 0;
+    }
+    _dictionary.readDoubleValues(_dictIds, NUM_LOOKUPS, _doubleValues);
+    double sum = 0;
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      sum += _doubleValues[i];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long getStringValue() {
+    long length = 0L;
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      length += _dictionary.getStringValue(_dictIds[i]).length();
+    }
+    return length;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkDictionaries.class.getSimpleName()).build()).run();
+  }
+}
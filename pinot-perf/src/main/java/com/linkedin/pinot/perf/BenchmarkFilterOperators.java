@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.plan.FilterPlanNode;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+/**
+ * Measures the filter operators built by {@link FilterPlanNode}: equality on dimensions of different cardinalities,
+ * a range on a metric, and their conjunction and disjunction. Every matching document id is iterated.
+ *
+ * Run with: java -cp pinot-perf-jar-with-dependencies.jar com.linkedin.pinot.perf.BenchmarkFilterOperators
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkFilterOperators {
+  private static final int NUM_ROWS = 1000000;
+
+  @Param({ "lowEquality", "mediumEquality", "highEquality", "range", "and", "or" })
+  public String _filter;
+
+  private File _workingDir;
+  private IndexSegment _indexSegment;
+  private BrokerRequest _brokerRequest;
+
+  @Setup
+  public void setUp() throws Exception {
+    _workingDir = new File(FileUtils.getTempDirectory(), getClass().getSimpleName());
+    FileUtils.deleteQuietly(_workingDir);
+    _indexSegment = BenchmarkSegmentGenerator.generateSegment(_workingDir, NUM_ROWS);
+
+    String low = BenchmarkSegmentGenerator.LOW_CARDINALITY_DIMENSION + " = '"
+        + getMiddleValue(BenchmarkSegmentGenerator.LOW_CARDINALITY_DIMENSION) + "'";
+    String medium = BenchmarkSegmentGenerator.MEDIUM_CARDINALITY_DIMENSION + " = '"
+        + getMiddleValue(BenchmarkSegmentGenerator.MEDIUM_CARDINALITY_DIMENSION) + "'";
+    String high = BenchmarkSegmentGenerator.HIGH_CARDINALITY_DIMENSION + " = '"
+        + getMiddleValue(BenchmarkSegmentGenerator.HIGH_CARDINALITY_DIMENSION) + "'";
+    String range = BenchmarkSegmentGenerator.INT_METRIC + " >= 1000 and " + BenchmarkSegmentGenerator.INT_METRIC
+        + " < 2000";
+
+    String filter;
+    if (_filter.equals("lowEquality")) {
+      filter = low;
+    } else if (_filter.equals("mediumEquality")) {
+      filter = medium;
+    } else if (_filter.equals("highEquality")) {
+      filter = high;
+    } else if (_filter.equals("range")) {
+      filter = range;
+    } else if (_filter.equals("and")) {
+      filter = low + " and " + medium;
+    } else {
+      filter = low + " or " + medium;
+    }
+    _brokerRequest = BenchmarkSegmentGenerator.compile("select count(*) from "
+        + BenchmarkSegmentGenerator.TABLE_NAME + " where " + filter);
+  }
+
+  @TearDown
+  public void tearDown() {
+    _indexSegment.destroy();
+    FileUtils.deleteQuietly(_workingDir);
+  }
+
+  @Benchmark
+  public int filter() {
+    Operator operator = new FilterPlanNode(_indexSegment, _brokerRequest).run();
+    operator.open();
+    BlockDocIdIterator iterator = operator.nextBlock().getBlockDocIdSet().iterator();
+    int count = 0;
+    while (iterator.next() != Constants.EOF) {
+      count++;
+    }
+    operator.close();
+    return count;
+  }
+
+  private String getMiddleValue(String column) {
+    Dictionary dictionary = _indexSegment.getDataSource(column).getDictionary();
+    return dictionary.getStringValue(dictionary.length() / 2);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkFilterOperators.class.getSimpleName()).build()).run();
+  }
+}
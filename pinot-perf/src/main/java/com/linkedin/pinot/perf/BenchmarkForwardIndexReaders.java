@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.linkedin.pinot.core.index.reader.SingleColumnSingleValueReader;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+
+
+/**
+ * Measures reading dictionary ids from single value forward indexes, one document at a time and in bulk, for the
+ * documents of a block in doc id order.
+ *
+ * Run with: java -cp pinot-perf-jar-with-dependencies.jar com.linkedin.pinot.perf.BenchmarkForwardIndexReaders
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkForwardIndexReaders {
+  private static final int NUM_ROWS = 1000000;
+  private static final int BLOCK_SIZE = 10000;
+
+  @Param({ BenchmarkSegmentGenerator.LOW_CARDINALITY_DIMENSION, BenchmarkSegmentGenerator.HIGH_CARDINALITY_DIMENSION,
+      BenchmarkSegmentGenerator.INT_METRIC })
+  public String _column;
+
+  // Every other document, as after a filter
+  @Param({ "1", "2" })
+  public int _docIdStep;
+
+  private File _workingDir;
+  private IndexSegment _indexSegment;
+  private SingleColumnSingleValueReader _reader;
+  private int[] _docIds;
+  private int _numDocIds;
+  private int[] _dictIds;
+
+  @Setup
+  public void setUp() throws Exception {
+    _workingDir = new File(FileUtils.getTempDirectory(), getClass().getSimpleName());
+    FileUtils.deleteQuietly(_workingDir);
+    _indexSegment = BenchmarkSegmentGenerator.generateSegment(_workingDir, NUM_ROWS);
+    _reader = (SingleColumnSingleValueReader) ((IndexSegmentImpl) _indexSegment).getForwardIndexReaderFor(_column);
+
+    _docIds = new int[BLOCK_SIZE];
+    _numDocIds = 0;
+    for (int docId = 0; docId < NUM_ROWS && _numDocIds < BLOCK_SIZE; docId += _docIdStep) {
+      _docIds[_numDocIds++] = docId;
+    }
+    _dictIds = new int[BLOCK_SIZE];
+  }
+
+  @TearDown
+  public void tearDown() {
+    _indexSegment.destroy();
+    FileUtils.deleteQuietly(_workingDir);
+  }
+
+  @Benchmark
+  public long singleReads() {
+    long sum = 0L;
+    for (int i = 0; i < _numDocIds; i++) {
+      sum += _reader.getInt(_docIds[i]);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long bulkReads() {
+    _reader.readIntValues(_docIds, _numDocIds, _dictIds);
+    long sum = 0L;
+    for (int i = 0; i < _numDocIds; i++) {
+      sum += _dictIds[i];
+    }
+    return sum;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkForwardIndexReaders.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.linkedin.pinot.core.query.aggregation.groupby.MultiValueGroupKeyGenerator;
+
+
+/**
+ * Compares the group key generation of a group by on one single value and two multi value columns: the
+ * {@link MultiValueGroupKeyGenerator} against the previous List&lt;Long&gt; based expansion.
+ *
+ * Run with: java -cp pinot-perf-jar-with-dependencies.jar com.linkedin.pinot.perf.BenchmarkMultiValueGroupKeyGeneration
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkMultiValueGroupKeyGeneration {
+  private static final int NUM_DOCS = 1000;
+  private static final int[] CARDINALITIES = new int[] { 100, 1000, 1000 };
+  private static final boolean[] IS_SINGLE_VALUE = new boolean[] { true, false, false };
+
+  @Param({ "1", "5", "10", "50" })
+  public int _maxNumValues;
+
+  // [docId][column][valueIndex]
+  private int[][][] _dictIds;
+  private MultiValueGroupKeyGenerator _generator;
+  private int[] _numValues;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    _dictIds = new int[NUM_DOCS][CARDINALITIES.length][];
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      for (int i = 0; i < CARDINALITIES.length; i++) {
+        int numValues = IS_SINGLE_VALUE[i] ? 1 : 1 + random.nextInt(_maxNumValues);
+        _dictIds[docId][i] = new int[numValues];
+        for (int j = 0; j < numValues; j++) {
+          _dictIds[docId][i][j] = random.nextInt(CARDINALITIES[i]);
+        }
+      }
+    }
+    int[] maxNumMultiValues = new int[CARDINALITIES.length];
+    for (int i = 0; i < CARDINALITIES.length; i++) {
+      maxNumMultiValues[i] = _maxNumValues;
+    }
+    _generator = new MultiValueGroupKeyGenerator(CARDINALITIES, IS_SINGLE_VALUE, maxNumMultiValues);
+    _numValues = new int[CARDINALITIES.length];
+  }
+
+  @Benchmark
+  public long keyBuffer() {
+    long sum = 0L;
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      int[][] dictIds = _dictIds[docId];
+      for (int i = 0; i < dictIds.length; i++) {
+        _numValues[i] = dictIds[i].length;
+      }
+      int numKeys = _generator.generateKeys(dictIds, _numValues);
+      long[] keys = _generator.getKeyBuffer();
+      for (int i = 0; i < numKeys; i++) {
+        sum += keys[i];
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long boxedList() {
+    long sum = 0L;
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      for (long key : getGroupKeysBoxed(_dictIds[docId])) {
+        sum += key;
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * The previous implementation, including the per document copy of the values into a fresh array.
+   */
+  private Long[] getGroupKeysBoxed(int[][] dictIds) {
+    List<Long> groupKeysList = new ArrayList<Long>();
+    groupKeysList.add(0L);
+    for (int i = 0; i < CARDINALITIES.length; i++) {
+      final int element = CARDINALITIES[i];
+      if (IS_SINGLE_VALUE[i]) {
+        int dictId = dictIds[i][0];
+        for (int j = 0; j < groupKeysList.size(); ++j) {
+          groupKeysList.set(j, (groupKeysList.get(j) * element) + dictId);
+        }
+      } else {
+        final int[] entries = new int[_maxNumValues];
+        System.arraycopy(dictIds[i], 0, entries, 0, dictIds[i].length);
+        int group = dictIds[i].length;
+        int originSize = groupKeysList.size();
+        for (int j = 0; j < group - 1; ++j) {
+          for (int k = 0; k < originSize; ++k) {
+            groupKeysList.add(groupKeysList.get(k));
+          }
+        }
+        for (int j = 0; j < group; ++j) {
+          for (int k = 0; k < originSize; ++k) {
+            groupKeysList.set(j * originSize + k, (groupKeysList.get(j * originSize + k) * element) + entries[j]);
+          }
+        }
+      }
+    }
+    return groupKeysList.toArray(new Long[0]);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkMultiValueGroupKeyGeneration.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.plan.Plan;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+
+
+/**
+ * Measures the server side execution of aggregation, group-by and selection order-by queries on one segment, through
+ * the plan maker used by the server, up to the instance response {@link DataTable}.
+ *
+ * Run with: java -cp pinot-perf-jar-with-dependencies.jar com.linkedin.pinot.perf.BenchmarkQueryExecution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkQueryExecution {
+  private static final int NUM_ROWS = 1000000;
+  private static final long TIMEOUT_MS = 60000L;
+
+  @Param({ "aggregation", "filteredAggregation", "groupBy", "highCardinalityGroupBy", "selectionOrderBy" })
+  public String _query;
+
+  private File _workingDir;
+  private IndexSegment _indexSegment;
+  private BrokerRequest _brokerRequest;
+  private PlanMaker _planMaker;
+  private ExecutorService _executorService;
+
+  @Setup
+  public void setUp() throws Exception {
+    _workingDir = new File(FileUtils.getTempDirectory(), getClass().getSimpleName());
+    FileUtils.deleteQuietly(_workingDir);
+    _indexSegment = BenchmarkSegmentGenerator.generateSegment(_workingDir, NUM_ROWS);
+    _brokerRequest = BenchmarkSegmentGenerator.compile(getQuery(_query));
+    _planMaker = new InstancePlanMakerImplV2();
+    _executorService = Executors.newFixedThreadPool(2, new NamedThreadFactory("benchmark-query-execution"));
+  }
+
+  @TearDown
+  public void tearDown() {
+    _executorService.shutdown();
+    _indexSegment.destroy();
+    FileUtils.deleteQuietly(_workingDir);
+  }
+
+  @Benchmark
+  public DataTable execute() {
+    return execute(_planMaker, _indexSegment, _brokerRequest, _executorService);
+  }
+
+  static DataTable execute(PlanMaker planMaker, IndexSegment indexSegment, BrokerRequest brokerRequest,
+      ExecutorService executorService) {
+    Plan plan =
+        planMaker.makeInterSegmentPlan(Collections.singletonList(indexSegment), brokerRequest, executorService,
+            TIMEOUT_MS);
+    plan.execute();
+    return plan.getInstanceResponse();
+  }
+
+  /**
+   * Return the PQL of the query with the given name.
+   */
+  static String getQuery(String name) {
+    String from = " from " + BenchmarkSegmentGenerator.TABLE_NAME;
+    if (name.equals("aggregation")) {
+      return "select count(*), sum(" + BenchmarkSegmentGenerator.INT_METRIC + "), max("
+          + BenchmarkSegmentGenerator.LONG_METRIC + ")" + from;
+    } else if (name.equals("filteredAggregation")) {
+      return "select sum(" + BenchmarkSegmentGenerator.INT_METRIC + ")" + from + " where "
+          + BenchmarkSegmentGenerator.INT_METRIC + " >= 1000 and " + BenchmarkSegmentGenerator.INT_METRIC + " < 5000";
+    } else if (name.equals("groupBy")) {
+      return "select sum(" + BenchmarkSegmentGenerator.INT_METRIC + ")" + from + " group by "
+          + BenchmarkSegmentGenerator.LOW_CARDINALITY_DIMENSION + ", "
+          + BenchmarkSegmentGenerator.MEDIUM_CARDINALITY_DIMENSION + " top 10";
+    } else if (name.equals("highCardinalityGroupBy")) {
+      return "select count(*)" + from + " group by " + BenchmarkSegmentGenerator.HIGH_CARDINALITY_DIMENSION
+          + " top 10";
+    } else if (name.equals("selectionOrderBy")) {
+      return "select " + BenchmarkSegmentGenerator.HIGH_CARDINALITY_DIMENSION + ", "
+          + BenchmarkSegmentGenerator.INT_METRIC + from + " order by " + BenchmarkSegmentGenerator.INT_METRIC
+          + " limit 10";
+    }
+    throw new IllegalArgumentException("Unknown query " + name);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkQueryExecution.class.getSimpleName()).build()).run();
+  }
+}
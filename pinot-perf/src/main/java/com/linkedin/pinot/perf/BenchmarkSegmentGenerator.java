@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.math.IntRange;
+import org.json.JSONObject;
+
+import com.linkedin.pinot.common.client.request.RequestConverter;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.pql.parsers.PQLCompiler;
+import com.linkedin.pinot.tools.data.generator.DataGenerator;
+import com.linkedin.pinot.tools.data.generator.DataGeneratorSpec;
+
+
+/**
+ * Generates the segment shared by the JMH benchmarks: random Avro data written by the pinot-tools
+ * {@link DataGenerator}, indexed with inverted indexes and loaded in heap mode.
+ *
+ * Columns: dimensions of low, medium and high cardinality (INT, INT, STRING), INT and LONG metrics and an INT time
+ * column.
+ */
+public class BenchmarkSegmentGenerator {
+  public static final String TABLE_NAME = "benchmark";
+  public static final String LOW_CARDINALITY_DIMENSION = "dimLow";
+  public static final String MEDIUM_CARDINALITY_DIMENSION = "dimMedium";
+  public static final String HIGH_CARDINALITY_DIMENSION = "dimHigh";
+  public static final String INT_METRIC = "metricInt";
+  public static final String LONG_METRIC = "metricLong";
+  public static final String TIME_COLUMN = "daysSinceEpoch";
+
+  private BenchmarkSegmentGenerator() {
+  }
+
+  /**
+   * Generate and load a segment with the given number of rows under the working directory.
+   */
+  public static IndexSegment generateSegment(File workingDir, int numRows) throws Exception {
+    List<String> columns = new ArrayList<String>();
+    Map<String, Integer> cardinality = new HashMap<String, Integer>();
+    Map<String, IntRange> range = new HashMap<String, IntRange>();
+    Map<String, DataType> dataTypes = new HashMap<String, DataType>();
+    Map<String, FieldType> fieldTypes = new HashMap<String, FieldType>();
+    Map<String, TimeUnit> timeUnits = new HashMap<String, TimeUnit>();
+
+    addColumn(columns, dataTypes, fieldTypes, LOW_CARDINALITY_DIMENSION, DataType.INT, FieldType.DIMENSION);
+    cardinality.put(LOW_CARDINALITY_DIMENSION, 10);
+    addColumn(columns, dataTypes, fieldTypes, MEDIUM_CARDINALITY_DIMENSION, DataType.INT, FieldType.DIMENSION);
+    cardinality.put(MEDIUM_CARDINALITY_DIMENSION, 1000);
+    addColumn(columns, dataTypes, fieldTypes, HIGH_CARDINALITY_DIMENSION, DataType.STRING, FieldType.DIMENSION);
+    cardinality.put(HIGH_CARDINALITY_DIMENSION, 100000);
+    addColumn(columns, dataTypes, fieldTypes, INT_METRIC, DataType.INT, FieldType.METRIC);
+    range.put(INT_METRIC, new IntRange(0, 10000));
+    addColumn(columns, dataTypes, fieldTypes, LONG_METRIC, DataType.LONG, FieldType.METRIC);
+    range.put(LONG_METRIC, new IntRange(0, 1000000));
+    addColumn(columns, dataTypes, fieldTypes, TIME_COLUMN, DataType.INT, FieldType.TIME);
+    range.put(TIME_COLUMN, new IntRange(16000, 16365));
+    timeUnits.put(TIME_COLUMN, TimeUnit.DAYS);
+
+    File avroDir = new File(workingDir, "avro");
+    DataGeneratorSpec spec =
+        new DataGeneratorSpec(columns, cardinality, range, dataTypes, fieldTypes, timeUnits, FileFormat.AVRO,
+            avroDir.getAbsolutePath(), true);
+    DataGenerator generator = new DataGenerator();
+    generator.init(spec);
+    generator.generate(numRows, 1);
+
+    File indexDir = new File(workingDir, "segments");
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(generator.fetchSchema());
+    config.setInputFilePath(new File(avroDir, "part-0.avro").getAbsolutePath());
+    config.setInputFileFormat(FileFormat.AVRO);
+    config.setSegmentVersion(SegmentVersion.v1);
+    config.setTableName(TABLE_NAME);
+    config.setSegmentName(TABLE_NAME + "_0");
+    config.setTimeColumnName(TIME_COLUMN);
+    config.setTimeUnitForSegment(TimeUnit.DAYS);
+    config.setIndexOutputDir(indexDir.getAbsolutePath());
+    config.setCreateInvertedIndex(true);
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config);
+    driver.build();
+    return Loaders.IndexSegment.load(new File(indexDir, driver.getSegmentName()), ReadMode.heap);
+  }
+
+  /**
+   * Compile a PQL query.
+   */
+  public static BrokerRequest compile(String pql) throws Exception {
+    JSONObject compiled = new PQLCompiler(new HashMap<String, String[]>()).compile(pql);
+    return RequestConverter.fromJSON(compiled);
+  }
+
+  private static void addColumn(List<String> columns, Map<String, DataType> dataTypes,
+      Map<String, FieldType> fieldTypes, String column, DataType dataType, FieldType fieldType) {
+    columns.add(column);
+    dataTypes.put(column, dataType);
+    fieldTypes.put(column, fieldType);
+  }
+}
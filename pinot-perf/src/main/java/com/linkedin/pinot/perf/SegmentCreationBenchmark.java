@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.perf;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.RecordReader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+
+
+/**
+ * Reports the segment creation throughput, in rows/sec, for a generated dataset with the serial driver and with the
+ * parallel single pass driver.
+ *
+ * Run with: java -cp pinot-perf-jar-with-dependencies.jar com.linkedin.pinot.perf.SegmentCreationBenchmark
+ *   [numRows] [numThreads...]
+ */
+public class SegmentCreationBenchmark {
+  private static final int NUM_RUNS = 3;
+
+  public static void main(String[] args) throws Exception {
+    int numRows = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+    int[] numThreadsList;
+    if (args.length > 1) {
+      numThreadsList = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        numThreadsList[i - 1] = Integer.parseInt(args[i]);
+      }
+    } else {
+      numThreadsList = new int[] { 1, 2, 4, Runtime.getRuntime().availableProcessors() };
+    }
+
+    File outputDir = new File(FileUtils.getTempDirectory(), "SegmentCreationBenchmark");
+    try {
+      for (int numThreads : numThreadsList) {
+        // First run is a warm up
+        long bestTimeMs = Long.MAX_VALUE;
+        for (int run = 0; run <= NUM_RUNS; run++) {
+          FileUtils.deleteQuietly(outputDir);
+          long timeMs = createSegment(numRows, numThreads, outputDir);
+          if (run > 0) {
+            bestTimeMs = Math.min(bestTimeMs, timeMs);
+          }
+        }
+        System.out.println("Threads: " + numThreads + ", rows: " + numRows + ", best time: " + bestTimeMs
+            + " ms, rows/sec: " + (numRows * 1000L / Math.max(bestTimeMs, 1)));
+      }
+    } finally {
+      FileUtils.deleteQuietly(outputDir);
+    }
+  }
+
+  private static long createSegment(int numRows, int numThreads, File outputDir) throws Exception {
+    GeneratedRecordReader reader = new GeneratedRecordReader(numRows);
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(reader.getSchema());
+    config.setTableName("benchmark");
+    config.setSegmentName("benchmark_" + numThreads);
+    config.setIndexOutputDir(outputDir.getAbsolutePath());
+    config.setTimeColumnName("daysSinceEpoch");
+    config.setTimeUnitForSegment(TimeUnit.DAYS);
+    config.setSegmentVersion(SegmentVersion.v1);
+    config.setCreateInvertedIndex(true);
+    config.setNumCreationThreads(numThreads);
+
+    long start = System.currentTimeMillis();
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, reader);
+    driver.build();
+    return System.currentTimeMillis() - start;
+  }
+
+  /**
+   * Generates the same pseudo random rows on every pass, with dimensions of different cardinalities, a multi value
+   * dimension, metrics and a time column.
+   */
+  private static class GeneratedRecordReader implements RecordReader {
+    private static final int[] STRING_CARDINALITIES = new int[] { 10, 1000, 100000 };
+    private static final int INT_CARDINALITY = 5000;
+    private static final int MAX_NUM_MULTI_VALUES = 5;
+
+    private final int _numRows;
+    private final Schema _schema;
+    private Random _random;
+    private int _rowId;
+
+    public GeneratedRecordReader(int numRows) {
+      _numRows = numRows;
+      Schema.SchemaBuilder builder = new Schema.SchemaBuilder().setSchemaName("benchmark");
+      for (int i = 0; i < STRING_CARDINALITIES.length; i++) {
+        builder.addSingleValueDimension("stringDim" + i, DataType.STRING);
+      }
+      builder.addSingleValueDimension("intDim", DataType.INT);
+      builder.addMultiValueDimension("multiValueDim", DataType.INT, ",");
+      builder.addMetric("longMetric", DataType.LONG);
+      builder.addMetric("doubleMetric", DataType.DOUBLE);
+      builder.addTime("daysSinceEpoch", TimeUnit.DAYS, DataType.INT);
+      _schema = builder.build();
+    }
+
+    @Override
+    public void init() throws Exception {
+      rewind();
+    }
+
+    @Override
+    public void rewind() throws Exception {
+      _random = new Random(42);
+      _rowId = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _rowId < _numRows;
+    }
+
+    @Override
+    public Schema getSchema() {
+      return _schema;
+    }
+
+    @Override
+    public GenericRow next() {
+      Map<String, Object> fields = new HashMap<String, Object>();
+      for (int i = 0; i < STRING_CARDINALITIES.length; i++) {
+        fields.put("stringDim" + i, "value_" + _random.nextInt(STRING_CARDINALITIES[i]));
+      }
+      fields.put("intDim", _random.nextInt(INT_CARDINALITY));
+      Object[] multiValues = new Object[1 + _random.nextInt(MAX_NUM_MULTI_VALUES)];
+      for (int i = 0; i < multiValues.length; i++) {
+        multiValues[i] = _random.nextInt(INT_CARDINALITY);
+      }
+      fields.put("multiValueDim", multiValues);
+      fields.put("longMetric", _random.nextLong() % 1000000L);
+      fields.put("doubleMetric", _random.nextDouble());
+      fields.put("daysSinceEpoch", 16000 + _rowId * 30 / _numRows);
+      _rowId++;
+
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      return row;
+    }
+
+    @Override
+    public void close() throws Exception {
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.server.request.scheduler.QueryScheduler;
+import com.linkedin.pinot.transport.netty.NettyServer.AsyncRequestHandler;
+
+
+/**
+ * Request handler that only deserializes the request on the Netty worker thread and hands the query
+ * over to a {@link QueryScheduler}. Queries rejected by the scheduler get an out of capacity error
+ * response right away.
+ *
+ */
+public class ScheduledRequestHandler extends SimpleRequestHandler implements AsyncRequestHandler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledRequestHandler.class);
+
+  private final QueryScheduler _queryScheduler;
+
+  public ScheduledRequestHandler(QueryExecutor queryExecutor, QueryScheduler queryScheduler,
+      ServerMetrics serverMetrics) {
+    super(queryExecutor, serverMetrics);
+    _queryScheduler = queryScheduler;
+  }
+
+  @Override
+  public ListenableFuture<byte[]> processRequestAsync(ByteBuf request) {
+    final long queryStartTime = System.nanoTime();
+    final InstanceRequest queryRequest;
+    try {
+      queryRequest = deserializeRequest(request, queryStartTime);
+    } catch (Exception e) {
+      return Futures.immediateFuture(serializeResponse(null, buildErrorResponse(e), queryStartTime));
+    }
+
+    BrokerRequest brokerRequest = queryRequest.getQuery();
+    ListenableFuture<byte[]> response = _queryScheduler.submit(brokerRequest, new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws Exception {
+        return processQuery(queryRequest, queryStartTime);
+      }
+    });
+    if (response == null) {
+      LOGGER.warn("Query scheduler is out of capacity, rejecting request {}", queryRequest.getRequestId());
+      _serverMetrics.addMeteredValue(brokerRequest, ServerMeter.SCHEDULER_REJECTED_QUERIES, 1);
+      ProcessingException exception = QueryException.SERVER_OUT_OF_CAPACITY_ERROR.deepCopy();
+      DataTable instanceResponse = new DataTable();
+      instanceResponse.addException(exception);
+      return Futures.immediateFuture(serializeResponse(brokerRequest, instanceResponse, queryStartTime));
+    }
+    return response;
+  }
+}
@@ -17,8 +17,8 @@ package com.linkedin.pinot.server.request;
 
 import io.netty.buffer.ByteBuf;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.slf4j.Logger;
@@ -33,7 +33,6 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.utils.DataTable;
-import com.linkedin.pinot.common.utils.DataTableBuilder;
 import com.linkedin.pinot.serde.SerDe;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandler;
 
@@ -47,9 +46,9 @@ public class SimpleRequestHandler implements RequestHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SimpleRequestHandler.class);
 
-  private ServerMetrics _serverMetrics;
+  protected ServerMetrics _serverMetrics;
 
-  QueryExecutor _queryExecutor = null;
+  protected QueryExecutor _queryExecutor = null;
 
   public SimpleRequestHandler(QueryExecutor queryExecutor, ServerMetrics serverMetrics) {
     _queryExecutor = queryExecutor;
@@ -59,39 +58,86 @@ public class SimpleRequestHandler implements RequestHandler {
   @Override
   public byte[] processRequest(ByteBuf request) {
     long queryStartTime = System.nanoTime();
+    InstanceRequest queryRequest;
+    try {
+      queryRequest = deserializeRequest(request, queryStartTime);
+    } catch (Exception e) {
+      return serializeResponse(null, buildErrorResponse(e), queryStartTime);
+    }
+    return processQuery(queryRequest, queryStartTime);
+  }
+
+  /**
+   * Reads the instance request out of the given buffer.
+   *
+   * @param request Serialized request
+   * @param queryStartTime Time at which the request was received, from {@link System#nanoTime()}
+   * @return
+   * @throws Exception
+   */
+  protected InstanceRequest deserializeRequest(ByteBuf request, long queryStartTime) throws Exception {
     _serverMetrics.addMeteredValue(null, ServerMeter.QUERIES, 1);
 
     LOGGER.debug("processing request : {}", request);
 
-    DataTable instanceResponse = null;
-
     byte[] byteArray = new byte[request.readableBytes()];
     request.readBytes(byteArray);
     SerDe serDe = new SerDe(new TCompactProtocol.Factory());
-    BrokerRequest brokerRequest = null;
-    try {
-      final InstanceRequest queryRequest = new InstanceRequest();
-      serDe.deserialize(queryRequest, byteArray);
-      long deserRequestTime = System.nanoTime();
-      _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.TOTAL_QUERY_TIME, deserRequestTime - queryStartTime);
-      LOGGER.info("instance request : {}", queryRequest);
-      brokerRequest = queryRequest.getQuery();
+    final InstanceRequest queryRequest = new InstanceRequest();
+    serDe.deserialize(queryRequest, byteArray);
+    long deserRequestTime = System.nanoTime();
+    _serverMetrics.addPhaseTiming(null, ServerQueryPhase.TOTAL_QUERY_TIME, deserRequestTime - queryStartTime);
+    LOGGER.info("instance request : {}", queryRequest);
+    return queryRequest;
+  }
 
+  /**
+   * Runs the query and returns the serialized response.
+   *
+   * @param queryRequest
+   * @param queryStartTime Time at which the request was received, from {@link System#nanoTime()}
+   * @return
+   */
+  protected byte[] processQuery(InstanceRequest queryRequest, long queryStartTime) {
+    BrokerRequest brokerRequest = queryRequest.getQuery();
+    DataTable instanceResponse;
+    try {
       long startTime = System.nanoTime();
+      if (queryRequest.isSetTimeoutMs() && queryRequest.getTimeoutMs() > 0) {
+        // Only hand the executor what is left of the broker's deadline after waiting in the queue, and don't bother
+        // starting on a query the broker has already given up on.
+        long remainingTimeMs = queryRequest.getTimeoutMs() - TimeUnit.NANOSECONDS.toMillis(startTime - queryStartTime);
+        if (remainingTimeMs <= 0) {
+          LOGGER.warn("Dropping request {} which expired after waiting {}ms", queryRequest.getRequestId(),
+              TimeUnit.NANOSECONDS.toMillis(startTime - queryStartTime));
+          _serverMetrics.addMeteredValue(brokerRequest, ServerMeter.QUERIES_CANCELLED, 1);
+          instanceResponse = new DataTable();
+          instanceResponse.addException(QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR,
+              new TimeoutException("Query expired before it could be processed")));
+          return serializeResponse(brokerRequest, instanceResponse, queryStartTime);
+        }
+        queryRequest.setTimeoutMs(remainingTimeMs);
+      }
       instanceResponse = _queryExecutor.processQuery(queryRequest);
       long totalNanos = System.nanoTime() - startTime;
       _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.QUERY_PROCESSING, totalNanos);
     } catch (Exception e) {
-      LOGGER.error("Got exception while processing request. Returning error response", e);
-      _serverMetrics.addMeteredValue(null, ServerMeter.UNCAUGHT_EXCEPTIONS, 1);
-      DataTableBuilder dataTableBuilder = new DataTableBuilder(null);
-      List<ProcessingException> exceptions = new ArrayList<ProcessingException>();
-      ProcessingException exception = QueryException.INTERNAL_ERROR.deepCopy();
-      exception.setMessage(e.getMessage());
-      exceptions.add(exception);
-      instanceResponse = dataTableBuilder.buildExceptions();
+      instanceResponse = buildErrorResponse(e);
     }
+    return serializeResponse(brokerRequest, instanceResponse, queryStartTime);
+  }
+
+  protected DataTable buildErrorResponse(Exception e) {
+    LOGGER.error("Got exception while processing request. Returning error response", e);
+    _serverMetrics.addMeteredValue(null, ServerMeter.UNCAUGHT_EXCEPTIONS, 1);
+    ProcessingException exception = QueryException.INTERNAL_ERROR.deepCopy();
+    exception.setMessage(e.getMessage());
+    DataTable instanceResponse = new DataTable();
+    instanceResponse.addException(exception);
+    return instanceResponse;
+  }
 
+  protected byte[] serializeResponse(BrokerRequest brokerRequest, DataTable instanceResponse, long queryStartTime) {
     byte[] responseByte;
     long serializationStartTime = System.nanoTime();
     try {
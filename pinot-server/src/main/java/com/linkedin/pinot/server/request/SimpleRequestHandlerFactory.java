@@ -17,13 +17,14 @@ package com.linkedin.pinot.server.request;
 
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.server.request.scheduler.QueryScheduler;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandler;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandlerFactory;
 
 
 /**
  * A simple implementation of RequestHandlerFactory.
- * Only return a SimpleRequestHandler.
+ * Returns a ScheduledRequestHandler when a query scheduler is configured, a SimpleRequestHandler otherwise.
  *
  *
  */
@@ -33,6 +34,8 @@ public class SimpleRequestHandlerFactory implements RequestHandlerFactory {
 
   private ServerMetrics _serverMetrics;
 
+  private QueryScheduler _queryScheduler;
+
   public SimpleRequestHandlerFactory() {
 
   }
@@ -42,12 +45,26 @@ public class SimpleRequestHandlerFactory implements RequestHandlerFactory {
     _serverMetrics = serverMetrics;
   }
 
+  /**
+   * @param queryExecutor
+   * @param queryScheduler Scheduler to run queries on, or null to run them on the Netty worker threads
+   * @param serverMetrics
+   */
+  public SimpleRequestHandlerFactory(QueryExecutor queryExecutor, QueryScheduler queryScheduler,
+      ServerMetrics serverMetrics) {
+    this(queryExecutor, serverMetrics);
+    _queryScheduler = queryScheduler;
+  }
+
   public void init(QueryExecutor queryExecutor) {
     _queryExecutor = queryExecutor;
   }
 
   @Override
   public RequestHandler createNewRequestHandler() {
+    if (_queryScheduler != null) {
+      return new ScheduledRequestHandler(_queryExecutor, _queryScheduler, _serverMetrics);
+    }
     return new SimpleRequestHandler(_queryExecutor, _serverMetrics);
   }
 
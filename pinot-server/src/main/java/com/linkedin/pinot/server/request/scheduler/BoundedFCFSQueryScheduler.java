@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+
+
+/**
+ * First come, first served scheduler with a bounded queue: once the queue is full, new queries are
+ * rejected right away instead of piling up behind queries the server cannot keep up with.
+ *
+ */
+public class BoundedFCFSQueryScheduler extends FCFSQueryScheduler {
+
+  public BoundedFCFSQueryScheduler(int numThreads, int maxPendingQueries, ServerMetrics serverMetrics) {
+    super(numThreads, checkBound(maxPendingQueries), serverMetrics);
+  }
+
+  private static int checkBound(int maxPendingQueries) {
+    if (maxPendingQueries <= 0) {
+      throw new IllegalArgumentException("Bounded scheduler needs a positive max number of pending queries, got "
+          + maxPendingQueries);
+    }
+    return maxPendingQueries;
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+
+
+/**
+ * First come, first served scheduler: queries run in arrival order on a fixed pool of threads.
+ * The queue is unbounded unless a maximum number of pending queries is given.
+ *
+ */
+public class FCFSQueryScheduler extends QueryScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FCFSQueryScheduler.class);
+
+  private final BlockingQueue<Runnable> _queue;
+  private final ThreadPoolExecutor _executor;
+
+  public FCFSQueryScheduler(int numThreads, ServerMetrics serverMetrics) {
+    this(numThreads, 0, serverMetrics);
+  }
+
+  /**
+   * @param numThreads Number of threads running queries
+   * @param maxPendingQueries Maximum number of queued queries, queries beyond it are rejected. Unbounded if <= 0.
+   * @param serverMetrics
+   */
+  protected FCFSQueryScheduler(int numThreads, int maxPendingQueries, ServerMetrics serverMetrics) {
+    super(serverMetrics);
+    if (maxPendingQueries > 0) {
+      _queue = new LinkedBlockingQueue<Runnable>(maxPendingQueries);
+    } else {
+      _queue = new LinkedBlockingQueue<Runnable>();
+    }
+    _executor =
+        new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, _queue, new NamedThreadFactory(
+            "query-scheduler"));
+    LOGGER.info("Started {} with {} threads and at most {} pending queries", getClass().getSimpleName(), numThreads,
+        maxPendingQueries > 0 ? maxPendingQueries : "unbounded");
+  }
+
+  @Override
+  public ListenableFuture<byte[]> submit(BrokerRequest brokerRequest, Callable<byte[]> query) {
+    ListenableFutureTask<byte[]> task = createTask(brokerRequest, query);
+    try {
+      _executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      return null;
+    }
+    return task;
+  }
+
+  @Override
+  public int getNumPendingQueries() {
+    return _queue.size();
+  }
+
+  @Override
+  public void shutDown() {
+    _executor.shutdownNow();
+  }
+}
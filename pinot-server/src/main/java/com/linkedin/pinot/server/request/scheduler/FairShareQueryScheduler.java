@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+
+
+/**
+ * Scheduler that keeps one queue per table and hands free threads to the tables with pending queries
+ * in round robin order, so that a burst of queries on one table does not starve the other tables.
+ * Each table queue is bounded; queries beyond the bound are rejected.
+ *
+ */
+public class FairShareQueryScheduler extends QueryScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FairShareQueryScheduler.class);
+
+  private final int _maxPendingQueriesPerTable;
+  private final ExecutorService _executor;
+
+  // All fields below are guarded by _lock
+  private final Object _lock = new Object();
+  private final Map<String, LinkedList<ListenableFutureTask<byte[]>>> _tableQueues =
+      new HashMap<String, LinkedList<ListenableFutureTask<byte[]>>>();
+  // Tables that have pending queries, in the order in which they get their next thread
+  private final LinkedList<String> _tablesWithPendingQueries = new LinkedList<String>();
+  private int _numPendingQueries = 0;
+  private boolean _isShutDown = false;
+
+  public FairShareQueryScheduler(int numThreads, int maxPendingQueriesPerTable, ServerMetrics serverMetrics) {
+    super(serverMetrics);
+    if (maxPendingQueriesPerTable <= 0) {
+      throw new IllegalArgumentException("Fair share scheduler needs a positive max number of pending queries, got "
+          + maxPendingQueriesPerTable);
+    }
+    _maxPendingQueriesPerTable = maxPendingQueriesPerTable;
+    _executor = Executors.newFixedThreadPool(numThreads, new NamedThreadFactory("query-scheduler"));
+    for (int i = 0; i < numThreads; i++) {
+      _executor.execute(new Worker());
+    }
+    LOGGER.info("Started fair share scheduler with {} threads and at most {} pending queries per table", numThreads,
+        maxPendingQueriesPerTable);
+  }
+
+  @Override
+  public ListenableFuture<byte[]> submit(BrokerRequest brokerRequest, Callable<byte[]> query) {
+    String tableName = getTableName(brokerRequest);
+    ListenableFutureTask<byte[]> task = createTask(brokerRequest, query);
+    synchronized (_lock) {
+      if (_isShutDown) {
+        return null;
+      }
+      LinkedList<ListenableFutureTask<byte[]>> tableQueue = _tableQueues.get(tableName);
+      if (tableQueue == null) {
+        tableQueue = new LinkedList<ListenableFutureTask<byte[]>>();
+        _tableQueues.put(tableName, tableQueue);
+      }
+      if (tableQueue.size() >= _maxPendingQueriesPerTable) {
+        return null;
+      }
+      if (tableQueue.isEmpty()) {
+        _tablesWithPendingQueries.addLast(tableName);
+      }
+      tableQueue.addLast(task);
+      _numPendingQueries++;
+      _lock.notify();
+    }
+    return task;
+  }
+
+  @Override
+  public int getNumPendingQueries() {
+    synchronized (_lock) {
+      return _numPendingQueries;
+    }
+  }
+
+  @Override
+  public void shutDown() {
+    synchronized (_lock) {
+      _isShutDown = true;
+      for (LinkedList<ListenableFutureTask<byte[]>> tableQueue : _tableQueues.values()) {
+        for (ListenableFutureTask<byte[]> task : tableQueue) {
+          task.cancel(true);
+        }
+      }
+      _tableQueues.clear();
+      _tablesWithPendingQueries.clear();
+      _numPendingQueries = 0;
+      _lock.notifyAll();
+    }
+    _executor.shutdownNow();
+  }
+
+  /**
+   * Takes the next query of the next table in round robin order, waiting for one if there is none.
+   *
+   * @return The next query to run, or null if the scheduler was shut down
+   */
+  private ListenableFutureTask<byte[]> takeNextTask() throws InterruptedException {
+    synchronized (_lock) {
+      while (!_isShutDown && _numPendingQueries == 0) {
+        _lock.wait();
+      }
+      if (_isShutDown) {
+        return null;
+      }
+      String tableName = _tablesWithPendingQueries.removeFirst();
+      LinkedList<ListenableFutureTask<byte[]>> tableQueue = _tableQueues.get(tableName);
+      ListenableFutureTask<byte[]> task = tableQueue.removeFirst();
+      if (tableQueue.isEmpty()) {
+        _tableQueues.remove(tableName);
+      } else {
+        _tablesWithPendingQueries.addLast(tableName);
+      }
+      _numPendingQueries--;
+      return task;
+    }
+  }
+
+  private class Worker implements Runnable {
+    @Override
+    public void run() {
+      try {
+        ListenableFutureTask<byte[]> task;
+        while ((task = takeNextTask()) != null) {
+          task.run();
+          // A query cancelled while running interrupts its worker, which must not leak into the next query
+          Thread.interrupted();
+        }
+      } catch (InterruptedException e) {
+        LOGGER.info("Query scheduler worker interrupted, exiting");
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
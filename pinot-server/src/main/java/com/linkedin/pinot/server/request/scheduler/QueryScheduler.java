@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.concurrent.Callable;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.metrics.ServerQueryPhase;
+import com.linkedin.pinot.common.request.BrokerRequest;
+
+
+/**
+ * Runs queries on a dedicated executor instead of the Netty worker threads. Implementations decide
+ * in which order queued queries run and when to reject them because the server is out of capacity.
+ *
+ */
+public abstract class QueryScheduler {
+  protected final ServerMetrics _serverMetrics;
+
+  public QueryScheduler(ServerMetrics serverMetrics) {
+    _serverMetrics = serverMetrics;
+  }
+
+  /**
+   * Queue a query for execution.
+   *
+   * @param brokerRequest Request being run, used for per table metrics and fairness
+   * @param query Query to run, returning the serialized response
+   * @return Future for the serialized response, or null if the query was rejected
+   */
+  public abstract ListenableFuture<byte[]> submit(BrokerRequest brokerRequest, Callable<byte[]> query);
+
+  /**
+   * @return Number of queries waiting to run
+   */
+  public abstract int getNumPendingQueries();
+
+  /**
+   * Stop accepting queries and release the executor threads.
+   */
+  public abstract void shutDown();
+
+  /**
+   * Register the gauges describing this scheduler. Called once, when the scheduler is built.
+   */
+  public void registerGauges() {
+    _serverMetrics.addCallbackGauge("scheduler.pendingQueries", new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        return (long) getNumPendingQueries();
+      }
+    });
+  }
+
+  /**
+   * Wrap the query into a task that reports how long it waited in the queue once it starts running.
+   */
+  protected ListenableFutureTask<byte[]> createTask(final BrokerRequest brokerRequest, final Callable<byte[]> query) {
+    final long queuedTimeNanos = System.nanoTime();
+    return ListenableFutureTask.create(new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws Exception {
+        _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.SCHEDULER_WAIT, System.nanoTime()
+            - queuedTimeNanos);
+        return query.call();
+      }
+    });
+  }
+
+  protected static String getTableName(BrokerRequest brokerRequest) {
+    if (brokerRequest != null && brokerRequest.getQuerySource() != null
+        && brokerRequest.getQuerySource().getTableName() != null) {
+      return brokerRequest.getQuerySource().getTableName();
+    }
+    return "unknown";
+  }
+}
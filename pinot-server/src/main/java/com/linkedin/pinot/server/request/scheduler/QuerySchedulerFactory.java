@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+
+
+/**
+ * Builds the query scheduler described by the server config (pinot.server.query.scheduler.*).
+ *
+ */
+public class QuerySchedulerFactory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QuerySchedulerFactory.class);
+
+  public static final String SCHEDULER_NAME = "name";
+  public static final String NUM_THREADS = "threads";
+  public static final String MAX_PENDING_QUERIES = "max.pending.queries";
+
+  public static final String NONE = "none";
+  public static final String FCFS = "fcfs";
+  public static final String BOUNDED_FCFS = "bounded_fcfs";
+  public static final String FAIR_SHARE = "fair_share";
+
+  public static final String DEFAULT_SCHEDULER = FCFS;
+  public static final int DEFAULT_NUM_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+  public static final int DEFAULT_MAX_PENDING_QUERIES = 1000;
+
+  /**
+   * Returns the scheduler to run queries on, or null if queries should run on the Netty worker threads.
+   *
+   * @param schedulerConfig
+   * @param serverMetrics
+   * @return
+   */
+  public static QueryScheduler create(Configuration schedulerConfig, ServerMetrics serverMetrics) {
+    String name = schedulerConfig.getString(SCHEDULER_NAME, DEFAULT_SCHEDULER).toLowerCase();
+    int numThreads = schedulerConfig.getInt(NUM_THREADS, DEFAULT_NUM_THREADS);
+    int maxPendingQueries = schedulerConfig.getInt(MAX_PENDING_QUERIES, DEFAULT_MAX_PENDING_QUERIES);
+    LOGGER.info("Building query scheduler {}", name);
+
+    QueryScheduler scheduler;
+    if (NONE.equals(name)) {
+      return null;
+    } else if (FCFS.equals(name)) {
+      scheduler = new FCFSQueryScheduler(numThreads, serverMetrics);
+    } else if (BOUNDED_FCFS.equals(name)) {
+      scheduler = new BoundedFCFSQueryScheduler(numThreads, maxPendingQueries, serverMetrics);
+    } else if (FAIR_SHARE.equals(name)) {
+      scheduler = new FairShareQueryScheduler(numThreads, maxPendingQueries, serverMetrics);
+    } else {
+      throw new IllegalArgumentException("Unknown query scheduler: " + name);
+    }
+    scheduler.registerGauges();
+    return scheduler;
+  }
+}
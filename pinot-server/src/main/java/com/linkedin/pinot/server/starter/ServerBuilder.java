@@ -19,6 +19,7 @@ import com.linkedin.pinot.common.metrics.MetricsHelper;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.yammer.metrics.core.MetricsRegistry;
 import java.io.File;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
@@ -28,9 +29,13 @@ import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.data.DataManager;
 import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.core.data.manager.offline.TableDataManagerProvider;
+import com.linkedin.pinot.core.index.readerwriter.RealtimeIndexOffHeapMemoryManager;
 import com.linkedin.pinot.server.conf.NettyServerConfig;
 import com.linkedin.pinot.server.conf.ServerConf;
 import com.linkedin.pinot.server.request.SimpleRequestHandlerFactory;
+import com.linkedin.pinot.server.request.scheduler.QueryScheduler;
+import com.linkedin.pinot.server.request.scheduler.QuerySchedulerFactory;
 import com.linkedin.pinot.transport.netty.NettyServer;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandlerFactory;
 import com.linkedin.pinot.transport.netty.NettyTCPServer;
@@ -164,12 +169,35 @@ public class ServerBuilder {
    */
   public RequestHandlerFactory buildRequestHandlerFactory(QueryExecutor queryExecutor) throws InstantiationException,
       IllegalAccessException, ClassNotFoundException {
+    return buildRequestHandlerFactory(queryExecutor, null);
+  }
+
+  /**
+   * Build RequestHandlerFactory that runs queries on the given scheduler
+   * @param queryExecutor
+   * @param queryScheduler scheduler to run queries on, or null to run them on the netty worker threads
+   * @return
+   * @throws InstantiationException
+   * @throws IllegalAccessException
+   * @throws ClassNotFoundException
+   */
+  public RequestHandlerFactory buildRequestHandlerFactory(QueryExecutor queryExecutor, QueryScheduler queryScheduler)
+      throws InstantiationException, IllegalAccessException, ClassNotFoundException {
     String className = _serverConf.getRequestHandlerFactoryClassName();
     LOGGER.info("Trying to Load Request Handler Factory by Class : " + className);
-    RequestHandlerFactory requestHandlerFactory = new SimpleRequestHandlerFactory(queryExecutor, _serverMetrics);
+    RequestHandlerFactory requestHandlerFactory =
+        new SimpleRequestHandlerFactory(queryExecutor, queryScheduler, _serverMetrics);
     return requestHandlerFactory;
   }
 
+  /**
+   * Build QueryScheduler
+   * @return the query scheduler, or null if queries should run on the netty worker threads
+   */
+  public QueryScheduler buildQueryScheduler() {
+    return QuerySchedulerFactory.create(_serverConf.getQuerySchedulerConfig(), _serverMetrics);
+  }
+
   public NettyServer buildNettyServer(NettyServerConfig nettyServerConfig, RequestHandlerFactory requestHandlerFactory) {
     LOGGER.info("Trying to build NettyTCPServer with port : " + nettyServerConfig.getPort());
     NettyServer nettyServer = new NettyTCPServer(nettyServerConfig.getPort(), requestHandlerFactory, null);
@@ -181,5 +209,12 @@ public class ServerBuilder {
     MetricsHelper.registerMetricsRegistry(metricsRegistry);
     _serverMetrics = new ServerMetrics(metricsRegistry);
     _serverMetrics.initializeGlobalMeters();
+    _serverMetrics.addCallbackGauge("realtime.offHeapMemoryUsed", new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        return RealtimeIndexOffHeapMemoryManager.getTotalAllocatedBytes();
+      }
+    });
+    TableDataManagerProvider.setServerMetrics(_serverMetrics);
   }
 }
@@ -16,8 +16,10 @@
 package com.linkedin.pinot.server.starter.helix;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.configuration.Configuration;
@@ -118,7 +120,9 @@ public class HelixInstanceDataManager implements InstanceDataManager {
     for (String tableName : _tableDataManagerMap.keySet()) {
       sb.append("\n\t{\n\t\tTable : [" + tableName + "];\n\t\tSegments : [");
       boolean isFirstSegment = true;
+      List<String> segmentNames = new ArrayList<String>();
       for (SegmentDataManager segmentDataManager : _tableDataManagerMap.get(tableName).getAllSegments()) {
+        segmentNames.add(segmentDataManager.getSegmentName());
         if (isFirstSegment) {
           sb.append(segmentDataManager.getSegment().getSegmentName());
           isFirstSegment = false;
@@ -126,6 +130,7 @@ public class HelixInstanceDataManager implements InstanceDataManager {
           sb.append(", " + segmentDataManager.getSegment().getSegmentName());
         }
       }
+      _tableDataManagerMap.get(tableName).returnSegmentReaders(segmentNames);
       sb.append("]\n\t}");
     }
     return sb.toString();
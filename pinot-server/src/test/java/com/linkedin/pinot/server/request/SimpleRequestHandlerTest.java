@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request;
+
+import io.netty.buffer.Unpooled;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.DataManager;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.requestHandler.BrokerRequestHandler.ScatterGatherRequestImpl;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.yammer.metrics.core.MetricsRegistry;
+
+
+public class SimpleRequestHandlerTest {
+  private final ServerMetrics _serverMetrics = new ServerMetrics(new MetricsRegistry());
+
+  @Test
+  public void testBrokerTimeoutReachesExecutor() throws Exception {
+    SegmentIdSet segments = new SegmentIdSet();
+    segments.addSegment(new SegmentId("testTable_0"));
+    ScatterGatherRequestImpl scatterGatherRequest =
+        new ScatterGatherRequestImpl(brokerRequest(), null, null, null, null, 0, null, 1L, 5000L);
+    byte[] request = scatterGatherRequest.getRequestForService(new ServerInstance("localhost", 8098), segments);
+
+    RecordingQueryExecutor queryExecutor = new RecordingQueryExecutor();
+    SimpleRequestHandler handler = new SimpleRequestHandler(queryExecutor, _serverMetrics);
+    handler.processRequest(Unpooled.wrappedBuffer(request));
+
+    // The executor gets whatever is left of the broker timeout
+    InstanceRequest instanceRequest = queryExecutor._instanceRequest;
+    Assert.assertNotNull(instanceRequest);
+    Assert.assertTrue(instanceRequest.isSetTimeoutMs());
+    Assert.assertTrue(instanceRequest.getTimeoutMs() > 0 && instanceRequest.getTimeoutMs() <= 5000L,
+        "Timeout " + instanceRequest.getTimeoutMs());
+  }
+
+  @Test
+  public void testDropsExpiredRequest() throws Exception {
+    InstanceRequest instanceRequest = new InstanceRequest();
+    instanceRequest.setRequestId(1L);
+    instanceRequest.setQuery(brokerRequest());
+    instanceRequest.setTimeoutMs(100L);
+
+    RecordingQueryExecutor queryExecutor = new RecordingQueryExecutor();
+    SimpleRequestHandler handler = new SimpleRequestHandler(queryExecutor, _serverMetrics);
+    // The request was received a second ago and waited in the queue past its timeout
+    byte[] response = handler.processQuery(instanceRequest, System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+
+    Assert.assertNull(queryExecutor._instanceRequest);
+    DataTable dataTable = new DataTable(response);
+    Assert.assertTrue(
+        dataTable.getMetadata().containsKey("Exception" + QueryException.EXECUTION_TIMEOUT_ERROR.getErrorCode()),
+        "Metadata " + dataTable.getMetadata());
+  }
+
+  private static BrokerRequest brokerRequest() {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName("testTable");
+    brokerRequest.setQuerySource(querySource);
+    return brokerRequest;
+  }
+
+  /**
+   * Keeps the last request it got, and answers with an empty response
+   */
+  private static class RecordingQueryExecutor implements QueryExecutor {
+    private volatile InstanceRequest _instanceRequest;
+
+    @Override
+    public void init(Configuration queryExecutorConfig, DataManager dataManager, ServerMetrics serverMetrics) {
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public DataTable processQuery(InstanceRequest instanceRequest) {
+      _instanceRequest = instanceRequest;
+      return new DataTable();
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    @Override
+    public boolean isStarted() {
+      return true;
+    }
+
+    @Override
+    public void updateResourceTimeOutInMs(String resource, long timeOutMs) {
+    }
+  }
+}
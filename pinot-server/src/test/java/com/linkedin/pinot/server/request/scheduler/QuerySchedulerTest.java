@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.yammer.metrics.core.MetricsRegistry;
+
+
+public class QuerySchedulerTest {
+  private final ServerMetrics _serverMetrics = new ServerMetrics(new MetricsRegistry());
+
+  @Test
+  public void testBoundedSchedulerRejectsWhenFull() throws Exception {
+    QueryScheduler scheduler = new BoundedFCFSQueryScheduler(1, 2, _serverMetrics);
+    CountDownLatch blocker = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    try {
+      ListenableFuture<byte[]> running = scheduler.submit(request("t"), blockingQuery(started, blocker, null, "t"));
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+      Assert.assertNotNull(scheduler.submit(request("t"), blockingQuery(null, null, null, "t")));
+      Assert.assertNotNull(scheduler.submit(request("t"), blockingQuery(null, null, null, "t")));
+      Assert.assertEquals(scheduler.getNumPendingQueries(), 2);
+      Assert.assertNull(scheduler.submit(request("t"), blockingQuery(null, null, null, "t")));
+      blocker.countDown();
+      Assert.assertEquals(new String(running.get(10, TimeUnit.SECONDS)), "t");
+    } finally {
+      scheduler.shutDown();
+    }
+  }
+
+  @Test
+  public void testFairShareSchedulerAlternatesTables() throws Exception {
+    QueryScheduler scheduler = new FairShareQueryScheduler(1, 10, _serverMetrics);
+    CountDownLatch blocker = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+    try {
+      scheduler.submit(request("busy"), blockingQuery(started, blocker, executionOrder, "busy"));
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+      // Three queries on the busy table are queued before the one on the quiet table
+      for (int i = 0; i < 3; i++) {
+        scheduler.submit(request("busy"), blockingQuery(null, null, executionOrder, "busy"));
+      }
+      ListenableFuture<byte[]> last =
+          scheduler.submit(request("quiet"), blockingQuery(null, null, executionOrder, "quiet"));
+      blocker.countDown();
+      last.get(10, TimeUnit.SECONDS);
+      // The quiet table gets the second free thread, not the fifth
+      Assert.assertEquals(executionOrder.get(2), "quiet");
+    } finally {
+      scheduler.shutDown();
+    }
+  }
+
+  @Test
+  public void testFairShareSchedulerClearsCancellationInterrupt() throws Exception {
+    QueryScheduler scheduler = new FairShareQueryScheduler(1, 10, _serverMetrics);
+    CountDownLatch blocker = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    try {
+      ListenableFuture<byte[]> cancelled = scheduler.submit(request("t"), blockingQuery(started, blocker, null, "t"));
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+      Assert.assertTrue(cancelled.cancel(true));
+      // The next query runs on the same worker, which must not be interrupted anymore
+      ListenableFuture<byte[]> next = scheduler.submit(request("t"), new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws Exception {
+          return String.valueOf(Thread.currentThread().isInterrupted()).getBytes();
+        }
+      });
+      Assert.assertEquals(new String(next.get(10, TimeUnit.SECONDS)), "false");
+    } finally {
+      scheduler.shutDown();
+    }
+  }
+
+  private static BrokerRequest request(String tableName) {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName(tableName);
+    brokerRequest.setQuerySource(querySource);
+    return brokerRequest;
+  }
+
+  private static Callable<byte[]> blockingQuery(final CountDownLatch started, final CountDownLatch blocker,
+      final List<String> executionOrder, final String response) {
+    return new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws Exception {
+        if (executionOrder != null) {
+          executionOrder.add(response);
+        }
+        if (started != null) {
+          started.countDown();
+        }
+        if (blocker != null) {
+          blocker.await();
+        }
+        return response.getBytes();
+      }
+    };
+  }
+}
@@ -18,6 +18,8 @@ package com.linkedin.pinot.requestHandler;
 import io.netty.buffer.ByteBuf;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +39,7 @@ import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.metrics.BrokerQueryPhase;
+import com.linkedin.pinot.common.query.IncrementalReducer;
 import com.linkedin.pinot.common.query.ReduceService;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterOperator;
@@ -57,6 +60,7 @@ import com.linkedin.pinot.transport.common.CompositeFuture;
 import com.linkedin.pinot.transport.common.ReplicaSelection;
 import com.linkedin.pinot.transport.common.ReplicaSelectionGranularity;
 import com.linkedin.pinot.transport.common.RoundRobinReplicaSelection;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 import com.linkedin.pinot.transport.scattergather.ScatterGather;
 import com.linkedin.pinot.transport.scattergather.ScatterGatherRequest;
@@ -79,12 +83,29 @@ public class BrokerRequestHandler {
   private final BrokerMetrics _brokerMetrics;
   private final TimeBoundaryService _timeBoundaryService;
   private final long _brokerTimeOut;
+  private final boolean _incrementalReduce;
 
-  //TODO: Currently only using RoundRobin selection. But, this can be allowed to be configured.
-  private RoundRobinReplicaSelection _replicaSelection;
+  // Speculative (hedged) requests, disabled by default
+  private volatile int _numSpeculativeRequests = 0;
+  private volatile long _speculativeRequestDelayMs = -1;
+  private volatile Map<String, Long> _tableSpeculativeRequestDelayMs = new HashMap<String, Long>();
+
+  private volatile ReplicaSelection _replicaSelection;
+  // If true, the replica selection chooses among all the servers hosting a segment-set, not only the routed one
+  private volatile boolean _selectAmongReplicas = false;
 
   public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
       ScatterGather scatterGatherer, ReduceService reduceService, BrokerMetrics brokerMetrics, long brokerTimeOut) {
+    this(table, timeBoundaryService, scatterGatherer, reduceService, brokerMetrics, brokerTimeOut, false);
+  }
+
+  /**
+   * @param incrementalReduce if true, server responses are deserialized and reduced as soon as they arrive instead of
+   *          after all of them have been gathered
+   */
+  public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
+      ScatterGather scatterGatherer, ReduceService reduceService, BrokerMetrics brokerMetrics, long brokerTimeOut,
+      boolean incrementalReduce) {
     _routingTable = table;
     _timeBoundaryService = timeBoundaryService;
     _scatterGatherer = scatterGatherer;
@@ -93,6 +114,43 @@ public class BrokerRequestHandler {
     _reduceService = reduceService;
     _brokerMetrics = brokerMetrics;
     _brokerTimeOut = brokerTimeOut;
+    _incrementalReduce = incrementalReduce;
+  }
+
+  /**
+   * Enable speculative requests: a request to a server that has not answered after the delay is also sent to
+   * another replica of its segments, and the first response is used.
+   *
+   * @param numSpeculativeRequests Max number of extra requests per segment-set, 0 to disable
+   * @param speculativeRequestDelayMs Default delay, non-positive to derive it from the observed server latency
+   * @param tableSpeculativeRequestDelayMs Delay overrides per table name (with type suffix)
+   */
+  public void setSpeculativeRequests(int numSpeculativeRequests, long speculativeRequestDelayMs,
+      Map<String, Long> tableSpeculativeRequestDelayMs) {
+    _speculativeRequestDelayMs = speculativeRequestDelayMs;
+    _tableSpeculativeRequestDelayMs = new HashMap<String, Long>(tableSpeculativeRequestDelayMs);
+    _numSpeculativeRequests = numSpeculativeRequests;
+  }
+
+  /**
+   * Replace the default round robin replica selection. The given policy chooses among all the servers hosting each
+   * segment-set and is notified of every request sent and completed.
+   */
+  public void setReplicaSelection(ReplicaSelection replicaSelection) {
+    _replicaSelection = replicaSelection;
+    _selectAmongReplicas = true;
+  }
+
+  private long getSpeculativeRequestDelayMs(String tableName) {
+    Long delayMs = _tableSpeculativeRequestDelayMs.get(tableName);
+    return (delayMs != null) ? delayMs : _speculativeRequestDelayMs;
+  }
+
+  private Map<SegmentId, List<ServerInstance>> getSegmentReplicas(RoutingTableLookupRequest rtRequest) {
+    if (_numSpeculativeRequests <= 0 && !_selectAmongReplicas) {
+      return null;
+    }
+    return _routingTable.findSegmentReplicas(rtRequest);
   }
 
   /**
@@ -248,10 +306,17 @@ public class BrokerRequestHandler {
     final long scatterGatherStartTime = System.nanoTime();
     ScatterGatherRequestImpl scatterRequest =
         new ScatterGatherRequestImpl(request, segmentServices, _replicaSelection,
-            ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), 0, //TODO: Speculative Requests not yet supported
-            overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut);
+            ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), _numSpeculativeRequests,
+            overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut,
+            getSpeculativeRequestDelayMs(rtRequest.getTableName()), getSegmentReplicas(rtRequest));
     CompositeFuture<ServerInstance, ByteBuf> response = _scatterGatherer.scatterGather(scatterRequest);
 
+    if (_incrementalReduce) {
+      IncrementalReduceContext context = new IncrementalReduceContext(request, false);
+      context.listenTo(response);
+      return context.gatherAndReduce(Collections.singletonList(response), scatterGatherStartTime);
+    }
+
     //Step 5 - Deserialize Responses and build instance response map
     final Map<ServerInstance, DataTable> instanceResponseMap = new HashMap<ServerInstance, DataTable>();
     {
@@ -340,12 +405,21 @@ public class BrokerRequestHandler {
       scatterGatherStartTime = System.nanoTime();
       ScatterGatherRequestImpl scatterRequest =
           new ScatterGatherRequestImpl(request, segmentServices, _replicaSelection,
-              ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), 0, //TODO: Speculative Requests not yet supported
-              overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut);
+              ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), _numSpeculativeRequests,
+              overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut,
+              getSpeculativeRequestDelayMs(rtRequest.getTableName()), getSegmentReplicas(rtRequest));
       responseFuturesList.put(request, _scatterGatherer.scatterGather(scatterRequest));
     }
     _brokerMetrics.addPhaseTiming(federatedBrokerRequest, BrokerQueryPhase.QUERY_ROUTING, queryRoutingTime);
 
+    if (_incrementalReduce) {
+      IncrementalReduceContext context = new IncrementalReduceContext(federatedBrokerRequest, true);
+      for (CompositeFuture<ServerInstance, ByteBuf> response : responseFuturesList.values()) {
+        context.listenTo(response);
+      }
+      return context.gatherAndReduce(responseFuturesList.values(), scatterGatherStartTime);
+    }
+
     long scatterGatherTime = 0;
     long deserializationTime = 0;
     //Step 5 - Deserialize Responses and build instance response map
@@ -422,6 +496,93 @@ public class BrokerRequestHandler {
     }
   }
 
+  /**
+   * Deserializes and reduces the responses of one broker request while they arrive, so that the reduce overlaps with
+   * waiting for the slowest server and only the running result is held in memory.
+   */
+  private class IncrementalReduceContext implements CompositeFuture.ResponseListener<ServerInstance, ByteBuf> {
+    private final BrokerRequest _request;
+    private final IncrementalReducer _reducer;
+    // Hybrid requests may get response from same instance, so we need to distinguish them.
+    private final boolean _decorateServerInstance;
+    private final AtomicInteger _responseSeq = new AtomicInteger(-1);
+    private final AtomicLong _deserializationTime = new AtomicLong(0);
+    private final AtomicLong _reduceTime = new AtomicLong(0);
+
+    public IncrementalReduceContext(BrokerRequest request, boolean decorateServerInstance) {
+      _request = request;
+      _reducer = _reduceService.newIncrementalReducer(request);
+      _decorateServerInstance = decorateServerInstance;
+    }
+
+    public void listenTo(CompositeFuture<ServerInstance, ByteBuf> response) {
+      response.addResponseListener(this);
+    }
+
+    @Override
+    public void onResponse(ServerInstance serverInstance, ByteBuf b) {
+      // Reduced even once the result is complete, for the statistics and exceptions of the response
+      try {
+        final long deserializationStartTime = System.nanoTime();
+        byte[] b2 = new byte[b.readableBytes()];
+        if (b2.length == 0) {
+          return;
+        }
+        b.getBytes(b.readerIndex(), b2);
+        DataTable r2 = new DataTable(b2);
+        final long reduceStartTime = System.nanoTime();
+        _deserializationTime.addAndGet(reduceStartTime - deserializationStartTime);
+
+        if (_decorateServerInstance) {
+          serverInstance =
+              new ServerInstance(serverInstance.getHostname(), serverInstance.getPort(), _responseSeq.incrementAndGet());
+        }
+        _reducer.reduce(serverInstance, r2);
+        _reduceTime.addAndGet(System.nanoTime() - reduceStartTime);
+      } catch (Exception ex) {
+        LOGGER.error("Got exceptions in collect query result for instance " + serverInstance + ", error: "
+            + ex.getMessage(), ex);
+        _brokerMetrics.addMeteredValue(_request, BrokerMeter.REQUEST_DESERIALIZATION_EXCEPTIONS, 1);
+      }
+    }
+
+    /**
+     * Waits for the given responses, which are reduced by then, and builds the broker response.
+     */
+    public BrokerResponse gatherAndReduce(Collection<CompositeFuture<ServerInstance, ByteBuf>> responseFutures,
+        long scatterGatherStartTime) throws InterruptedException {
+      for (CompositeFuture<ServerInstance, ByteBuf> response : responseFutures) {
+        Map<ServerInstance, ByteBuf> responses = null;
+        try {
+          responses = response.get();
+        } catch (ExecutionException e) {
+          LOGGER.warn("Caught exception while fetching response", e);
+          _brokerMetrics.addMeteredValue(_request, BrokerMeter.REQUEST_FETCH_EXCEPTIONS, 1);
+        }
+        Map<ServerInstance, Throwable> errors = response.getError();
+        if (responses != null && errors != null) {
+          for (ServerInstance serverInstance : responses.keySet()) {
+            if (errors.get(serverInstance) != null) {
+              _brokerMetrics.addMeteredValue(_request, BrokerMeter.REQUEST_FETCH_EXCEPTIONS, 1);
+            }
+          }
+        }
+      }
+      // Deserialization and reduce happened while gathering, they are reported separately
+      final long reduceStartTime = System.nanoTime();
+      final long scatterGatherTime =
+          reduceStartTime - scatterGatherStartTime - _deserializationTime.get() - _reduceTime.get();
+      _brokerMetrics.addPhaseTiming(_request, BrokerQueryPhase.SCATTER_GATHER, Math.max(scatterGatherTime, 0));
+      _brokerMetrics.addPhaseTiming(_request, BrokerQueryPhase.DESERIALIZATION, _deserializationTime.get());
+
+      BrokerResponse returnValue = _reducer.getBrokerResponse();
+      _brokerMetrics.addPhaseTiming(_request, BrokerQueryPhase.REDUCE,
+          _reduceTime.get() + (System.nanoTime() - reduceStartTime));
+      _brokerMetrics.addMeteredValue(_request, BrokerMeter.DOCUMENTS_SCANNED, returnValue.getNumDocsScanned());
+      return returnValue;
+    }
+  }
+
   public static class ScatterGatherRequestImpl implements ScatterGatherRequest {
     private final BrokerRequest _brokerRequest;
     private final Map<ServerInstance, SegmentIdSet> _segmentServices;
@@ -432,10 +593,20 @@ public class BrokerRequestHandler {
     private final BucketingSelection _bucketingSelection;
     private final long _requestId;
     private final long _requestTimeoutMs;
+    private final long _speculativeRequestDelayMs;
+    private final Map<SegmentId, List<ServerInstance>> _segmentReplicas;
 
     public ScatterGatherRequestImpl(BrokerRequest request, Map<ServerInstance, SegmentIdSet> segmentServices,
         ReplicaSelection replicaSelection, ReplicaSelectionGranularity replicaSelectionGranularity, Object hashKey,
         int numSpeculativeRequests, BucketingSelection bucketingSelection, long requestId, long requestTimeoutMs) {
+      this(request, segmentServices, replicaSelection, replicaSelectionGranularity, hashKey, numSpeculativeRequests,
+          bucketingSelection, requestId, requestTimeoutMs, -1, null);
+    }
+
+    public ScatterGatherRequestImpl(BrokerRequest request, Map<ServerInstance, SegmentIdSet> segmentServices,
+        ReplicaSelection replicaSelection, ReplicaSelectionGranularity replicaSelectionGranularity, Object hashKey,
+        int numSpeculativeRequests, BucketingSelection bucketingSelection, long requestId, long requestTimeoutMs,
+        long speculativeRequestDelayMs, Map<SegmentId, List<ServerInstance>> segmentReplicas) {
       _brokerRequest = request;
       _segmentServices = segmentServices;
       _replicaSelection = replicaSelection;
@@ -445,6 +616,8 @@ public class BrokerRequestHandler {
       _bucketingSelection = bucketingSelection;
       _requestId = requestId;
       _requestTimeoutMs = requestTimeoutMs;
+      _speculativeRequestDelayMs = speculativeRequestDelayMs;
+      _segmentReplicas = segmentReplicas;
     }
 
     @Override
@@ -459,6 +632,10 @@ public class BrokerRequestHandler {
       r.setEnableTrace(_brokerRequest.isEnableTrace());
       r.setQuery(_brokerRequest);
       r.setSearchSegments(querySegments.getSegmentsNameList());
+      if (_requestTimeoutMs > 0) {
+        // Lets the server stop working on the query once the broker no longer waits for it.
+        r.setTimeoutMs(_requestTimeoutMs);
+      }
 
       // _serde is not threadsafe.
       return getSerde().serialize(r);
@@ -485,6 +662,16 @@ public class BrokerRequestHandler {
       return _numSpeculativeRequests;
     }
 
+    @Override
+    public long getSpeculativeRequestDelayMS() {
+      return _speculativeRequestDelayMs;
+    }
+
+    @Override
+    public Map<SegmentId, List<ServerInstance>> getSegmentReplicasMap() {
+      return _segmentReplicas;
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return _bucketingSelection;
@@ -15,9 +15,11 @@
  */
 package com.linkedin.pinot.routing;
 
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 import com.linkedin.pinot.transport.config.PerTableRoutingConfig;
 import com.linkedin.pinot.transport.config.RoutingTableConfig;
@@ -50,6 +52,12 @@ public class CfgBasedRouting implements RoutingTable {
     return cfg.buildRequestRoutingMap();
   }
 
+  @Override
+  public Map<SegmentId, List<ServerInstance>> findSegmentReplicas(RoutingTableLookupRequest request) {
+    // Each segment-set is configured with a single server
+    return null;
+  }
+
   @Override
   public void start() {
     // Nothing to be done here
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.routing;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -36,6 +37,7 @@ import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
 import com.linkedin.pinot.routing.builder.BalancedRandomRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.KafkaHighLevelConsumerBasedRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.RoutingTableBuilder;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 
 
@@ -54,6 +56,8 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
 
   private final Map<String, List<ServerToSegmentSetMap>> _brokerRoutingTable =
       new ConcurrentHashMap<String, List<ServerToSegmentSetMap>>();
+  private final Map<String, Map<SegmentId, List<ServerInstance>>> _segmentReplicasMap =
+      new ConcurrentHashMap<String, Map<SegmentId, List<ServerInstance>>>();
   private final Map<String, Long> _routingTableModifiedTimeStampMap = new HashMap<String, Long>();
   private final Random _random = new Random(System.currentTimeMillis());
   private final HelixExternalViewBasedTimeBoundaryService _timeBoundaryService;
@@ -90,6 +94,35 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     return serverToSegmentSetMaps.get(_random.nextInt(serverToSegmentSetMaps.size())).getRouting();
   }
 
+  @Override
+  public Map<SegmentId, List<ServerInstance>> findSegmentReplicas(RoutingTableLookupRequest request) {
+    return _segmentReplicasMap.get(request.getTableName());
+  }
+
+  /**
+   * Collects, for every segment, the servers it is routed to in any of the routing tables. These are the replicas
+   * that passed the routing table builder's checks, so any of them can serve the segment.
+   */
+  private static Map<SegmentId, List<ServerInstance>> computeSegmentReplicas(
+      List<ServerToSegmentSetMap> serverToSegmentSetMaps) {
+    Map<SegmentId, List<ServerInstance>> segmentReplicas = new HashMap<SegmentId, List<ServerInstance>>();
+    for (ServerToSegmentSetMap serverToSegmentSetMap : serverToSegmentSetMaps) {
+      for (Map.Entry<ServerInstance, SegmentIdSet> entry : serverToSegmentSetMap.getRouting().entrySet()) {
+        for (SegmentId segmentId : entry.getValue().getSegments()) {
+          List<ServerInstance> replicas = segmentReplicas.get(segmentId);
+          if (replicas == null) {
+            replicas = new ArrayList<ServerInstance>();
+            segmentReplicas.put(segmentId, replicas);
+          }
+          if (!replicas.contains(entry.getKey())) {
+            replicas.add(entry.getKey());
+          }
+        }
+      }
+    }
+    return segmentReplicas;
+  }
+
   @Override
   public void start() {
     LOGGER.info("Start HelixExternalViewBasedRouting!");
@@ -147,6 +180,7 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
           routingTableBuilder.computeRoutingTableFromExternalView(tableName, externalView, instanceConfigList);
 
       _brokerRoutingTable.put(tableName, serverToSegmentSetMap);
+      _segmentReplicasMap.put(tableName, computeSegmentReplicas(serverToSegmentSetMap));
     } catch (Exception e) {
       LOGGER.error("Failed to compute/update the routing table" + e.getCause(), e);
     }
@@ -164,6 +198,7 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     if (_dataTableSet.contains(tableName)) {
       _dataTableSet.remove(tableName);
       _brokerRoutingTable.remove(tableName);
+      _segmentReplicasMap.remove(tableName);
       _routingTableModifiedTimeStampMap.remove(tableName);
       _timeBoundaryService.remove(tableName);
     }
@@ -15,9 +15,11 @@
  */
 package com.linkedin.pinot.routing;
 
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 
 
@@ -32,6 +34,14 @@ public interface RoutingTable {
    */
   public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request);
 
+  /**
+   * Return all the servers that can serve each segment of the table, so that a request for a segment-set can be
+   * re-sent to another replica. Returns null if the replicas are not known.
+   *
+   * @return Segment to Servers map.
+   */
+  public Map<SegmentId, List<ServerInstance>> findSegmentReplicas(RoutingTableLookupRequest request);
+
   /**
    * Initialize and start the Routing table population
    */
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.common;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+
+
+/**
+ * Replica selection that adapts to the current state of the servers. For every server it tracks an exponentially
+ * weighted moving average (EWMA) of the response latency and the number of in-flight requests, from the
+ * notifications of the scatter-gather layer. A server is picked with the power of two choices: two candidates are
+ * drawn at random and the one with the lower expected response time, EWMA latency * (in-flight requests + 1), wins.
+ * This keeps a slow or overloaded server from receiving a fair share of the requests, while still sending it some
+ * load so that its recovery is noticed.
+ *
+ * Failed requests count as a latency of at least the error penalty.
+ */
+@ThreadSafe
+public class AdaptiveReplicaSelection extends ReplicaSelection {
+  public static final double DEFAULT_EWMA_ALPHA = 0.3;
+  public static final long DEFAULT_ERROR_PENALTY_MS = 1000L;
+
+  // Weight of the newest latency sample in the moving average
+  private final double _alpha;
+  private final long _errorPenaltyMs;
+  private final ConcurrentMap<ServerInstance, ServerStats> _serverStatsMap;
+  private final Random _random;
+
+  public AdaptiveReplicaSelection() {
+    this(DEFAULT_EWMA_ALPHA, DEFAULT_ERROR_PENALTY_MS, new Random());
+  }
+
+  public AdaptiveReplicaSelection(double alpha, long errorPenaltyMs, Random random) {
+    _alpha = alpha;
+    _errorPenaltyMs = errorPenaltyMs;
+    _serverStatsMap = new ConcurrentHashMap<ServerInstance, ServerStats>();
+    _random = random;
+  }
+
+  @Override
+  public void reset(SegmentId p) {
+    // Nothing to be done here, the state is per server
+  }
+
+  @Override
+  public void reset(SegmentIdSet p) {
+    // Nothing to be done here, the state is per server
+  }
+
+  @Override
+  public ServerInstance selectServer(SegmentId p, List<ServerInstance> orderedServers, Object hashKey) {
+    int size = orderedServers.size();
+    if (size <= 0) {
+      return null;
+    }
+    if (size == 1) {
+      return orderedServers.get(0);
+    }
+
+    // Power of two choices
+    int first = _random.nextInt(size);
+    int second = _random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+    ServerInstance firstServer = orderedServers.get(first);
+    ServerInstance secondServer = orderedServers.get(second);
+    return (getExpectedLatencyMs(firstServer) <= getExpectedLatencyMs(secondServer)) ? firstServer : secondServer;
+  }
+
+  @Override
+  public void onRequestSent(ServerInstance server) {
+    getServerStats(server)._numInFlightRequests.incrementAndGet();
+  }
+
+  @Override
+  public void onRequestCompleted(ServerInstance server, long latencyMs, boolean success) {
+    ServerStats stats = getServerStats(server);
+    stats._numInFlightRequests.decrementAndGet();
+    if (latencyMs < 0) {
+      return;
+    }
+    stats.addLatency(success ? latencyMs : Math.max(latencyMs, _errorPenaltyMs), _alpha);
+  }
+
+  /**
+   * Return the expected response time of a new request to the server. Servers without any latency sample count as
+   * 1 ms per request, so that they are tried but still not flooded.
+   */
+  public double getExpectedLatencyMs(ServerInstance server) {
+    ServerStats stats = _serverStatsMap.get(server);
+    if (stats == null) {
+      return 1;
+    }
+    double ewmaLatencyMs = Math.max(stats._ewmaLatencyMs, 1);
+    return ewmaLatencyMs * (Math.max(stats._numInFlightRequests.get(), 0) + 1);
+  }
+
+  private ServerStats getServerStats(ServerInstance server) {
+    ServerStats stats = _serverStatsMap.get(server);
+    if (stats == null) {
+      ServerStats newStats = new ServerStats();
+      stats = _serverStatsMap.putIfAbsent(server, newStats);
+      if (stats == null) {
+        stats = newStats;
+      }
+    }
+    return stats;
+  }
+
+  private static class ServerStats {
+    private final AtomicInteger _numInFlightRequests = new AtomicInteger(0);
+    // Negative until the first sample
+    private volatile double _ewmaLatencyMs = -1;
+
+    private synchronized void addLatency(long latencyMs, double alpha) {
+      if (_ewmaLatencyMs < 0) {
+        _ewmaLatencyMs = latencyMs;
+      } else {
+        _ewmaLatencyMs = alpha * latencyMs + (1 - alpha) * _ewmaLatencyMs;
+      }
+    }
+  }
+}
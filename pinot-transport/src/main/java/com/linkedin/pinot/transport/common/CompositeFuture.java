@@ -17,6 +17,8 @@ package com.linkedin.pinot.transport.common;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -56,6 +58,15 @@ public class CompositeFuture<K, V> extends AbstractCompositeListenableFuture<K,
     AND,
   };
 
+  /**
+   * Listener notified of every response as soon as its underlying future completes, before the composite future
+   * itself completes. It is called from the thread completing the underlying future, without holding any lock of
+   * the composite future, so it may be called concurrently for different responses and should not block.
+   */
+  public static interface ResponseListener<K, V> {
+    public void onResponse(K key, V response);
+  }
+
   private final Collection<KeyedFuture<K, V>> _futures;
 
   // Composite Response
@@ -69,12 +80,40 @@ public class CompositeFuture<K, V> extends AbstractCompositeListenableFuture<K,
   // Descriptive name of the future
   private final String _name;
 
+  // Listeners for responses, guarded by itself. Updates of the response map are done under the same lock, so that
+  // every listener is notified exactly once of every response.
+  private final List<ResponseListener<K, V>> _responseListeners;
+
   public CompositeFuture(String name, GatherModeOnError mode) {
     _name = name;
     _futures = new ArrayList<KeyedFuture<K, V>>();
     _delayedResponseMap = new ConcurrentHashMap<K, V>();
     _errorMap = new ConcurrentHashMap<K, Throwable>();
     _gatherMode = mode;
+    _responseListeners = new ArrayList<ResponseListener<K, V>>();
+  }
+
+  /**
+   * Add a listener for the individual responses. Responses received before the listener is added are passed to it
+   * right away, so every response is seen exactly once irrespective of when the listener is added.
+   */
+  public void addResponseListener(ResponseListener<K, V> listener) {
+    Map<K, V> receivedResponses;
+    synchronized (_responseListeners) {
+      _responseListeners.add(listener);
+      receivedResponses = new HashMap<K, V>(_delayedResponseMap);
+    }
+    for (Map.Entry<K, V> entry : receivedResponses.entrySet()) {
+      notifyResponseListener(listener, entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void notifyResponseListener(ResponseListener<K, V> listener, K key, V response) {
+    try {
+      listener.onResponse(key, response);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception in response listener for {}", key, e);
+    }
   }
 
   /**
@@ -163,7 +202,17 @@ public class CompositeFuture<K, V> extends AbstractCompositeListenableFuture<K,
     boolean ret = false;
     if (null != response) {
       LOGGER.debug("Response from {} is {}", name, response);
-      _delayedResponseMap.putAll(response);
+      List<ResponseListener<K, V>> listeners;
+      synchronized (_responseListeners) {
+        _delayedResponseMap.putAll(response);
+        listeners = new ArrayList<ResponseListener<K, V>>(_responseListeners);
+      }
+      // Listeners deserialize and reduce the response, keep that out of the lock
+      for (ResponseListener<K, V> listener : listeners) {
+        for (Map.Entry<K, V> entry : response.entrySet()) {
+          notifyResponseListener(listener, entry.getKey(), entry.getValue());
+        }
+      }
     } else if (null != error) {
       LOGGER.debug("Error from {} is : {}", name, error);
       _errorMap.putAll(error);
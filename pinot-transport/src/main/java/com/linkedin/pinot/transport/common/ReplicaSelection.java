@@ -85,4 +85,24 @@ public abstract class ReplicaSelection {
    */
   public abstract ServerInstance selectServer(SegmentId p, List<ServerInstance> orderedServers, Object hashKey);
 
+  /**
+   * Notification that a request is being sent to the server. Policies adapting to the load of the servers
+   * can use it to track in-flight requests. Does nothing by default.
+   *
+   * @param server Server the request is sent to
+   */
+  public void onRequestSent(ServerInstance server) {
+  }
+
+  /**
+   * Notification that a request to the server completed. Every {@link #onRequestSent(ServerInstance)} is followed
+   * by exactly one such notification. Does nothing by default.
+   *
+   * @param server Server the request was sent to
+   * @param latencyMs Time taken for the response or error, negative if the request was cancelled
+   * @param success true if a response was received
+   */
+  public void onRequestCompleted(ServerInstance server, long latencyMs, boolean success) {
+  }
+
 }
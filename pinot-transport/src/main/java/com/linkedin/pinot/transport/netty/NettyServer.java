@@ -26,8 +26,16 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,6 +82,28 @@ public abstract class NettyServer implements Runnable {
     public byte[] processRequest(ByteBuf request);
   }
 
+  /**
+   * A request handler that processes requests off the Netty worker thread. The Netty server calls
+   * {@link #processRequestAsync(ByteBuf)} instead of {@link #processRequest(ByteBuf)} and writes the
+   * response to the channel once the returned future completes, so the event loop is free to serve
+   * other channels while the request is being processed.
+   */
+  public static interface AsyncRequestHandler extends RequestHandler {
+    /**
+     * Callback for Servers to hand the request off for processing.
+     * As with {@link RequestHandler#processRequest(ByteBuf)}, the caller owns the request bytebuf and
+     * releases it as soon as this method returns, so the implementation must read everything it needs
+     * from it before returning.
+     *
+     * The returned future is expected to always succeed with a serialized response (which may be an
+     * error response). If it fails, the underlying connection will be terminated.
+     *
+     * @param request Serialized request
+     * @return Future for the serialized response
+     */
+    public ListenableFuture<byte[]> processRequestAsync(ByteBuf request);
+  }
+
   public static interface RequestHandlerFactory {
 
     /**
@@ -174,6 +204,9 @@ public abstract class NettyServer implements Runnable {
     private final long _defaultLargeQueryLatencyMs;
     private final RequestHandler _handler;
     private final NettyServerMetrics _metric;
+    // Responses of the AsyncRequestHandler still being computed, cancelled if the broker goes away
+    private final Set<ListenableFuture<byte[]>> _pendingResponses =
+        Collections.newSetFromMap(new ConcurrentHashMap<ListenableFuture<byte[]>, Boolean>());
 
     //Metrics Related
     private long _lastRequsetSizeInBytes;
@@ -215,16 +248,78 @@ public abstract class NettyServer implements Runnable {
 
       //Call processing handler
       _lastProcessingLatency = MetricsHelper.startTimer();
+      if (_handler instanceof AsyncRequestHandler) {
+        ListenableFuture<byte[]> responseFuture;
+        try {
+          responseFuture = ((AsyncRequestHandler) _handler).processRequestAsync(request);
+        } finally {
+          request.release();
+        }
+        _pendingResponses.add(responseFuture);
+        Futures.addCallback(responseFuture, new ResponseWriter(ctx, responseFuture));
+        return;
+      }
       byte[] response = _handler.processRequest(request);
       _lastProcessingLatency.stop();
 
-      // Send Response
+      sendResponse(ctx, response);
+      request.release();
+    }
+
+    private void sendResponse(ChannelHandlerContext ctx, byte[] response) {
+      _lastResponseSizeInBytes = response.length;
       ByteBuf responseBuf = Unpooled.wrappedBuffer(response);
       _lastSendResponseLatency = MetricsHelper.startTimer();
       ChannelFuture f = ctx.writeAndFlush(responseBuf);
       _state = State.RESPONSE_WRITTEN;
       f.addListener(this);
-      request.release();
+    }
+
+    /**
+     * Writes the response of an {@link AsyncRequestHandler} once it is available. Runs on the thread
+     * completing the future; Netty hands the write over to the channel's event loop.
+     */
+    private class ResponseWriter implements FutureCallback<byte[]> {
+      private final ChannelHandlerContext _ctx;
+      private final ListenableFuture<byte[]> _responseFuture;
+
+      public ResponseWriter(ChannelHandlerContext ctx, ListenableFuture<byte[]> responseFuture) {
+        _ctx = ctx;
+        _responseFuture = responseFuture;
+      }
+
+      @Override
+      public void onSuccess(byte[] response) {
+        _pendingResponses.remove(_responseFuture);
+        _lastProcessingLatency.stop();
+        sendResponse(_ctx, response);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        _pendingResponses.remove(_responseFuture);
+        _lastProcessingLatency.stop();
+        if (t instanceof CancellationException) {
+          LOGGER.info("Query processing got cancelled, not sending any response");
+          return;
+        }
+        exceptionCaught(_ctx, t);
+      }
+    }
+
+    /**
+     * The broker closed the connection, e.g. after giving up on the query. Cancel the queries still queued or
+     * running for it, which interrupts their threads, so that they stop scanning segments nobody waits for.
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      for (ListenableFuture<byte[]> responseFuture : _pendingResponses) {
+        if (responseFuture.cancel(true)) {
+          LOGGER.info("Cancelled query processing after the connection closed");
+        }
+      }
+      _pendingResponses.clear();
+      super.channelInactive(ctx);
     }
 
     @Override
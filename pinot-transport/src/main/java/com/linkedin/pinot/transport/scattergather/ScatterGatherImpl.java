@@ -20,12 +20,17 @@ import io.netty.buffer.Unpooled;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -34,10 +39,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.util.concurrent.MoreExecutors;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.metrics.MetricsHelper;
 import com.linkedin.pinot.common.metrics.MetricsHelper.TimerContext;
 import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.AsyncResponseFuture;
 import com.linkedin.pinot.transport.common.BucketingSelection;
+import com.linkedin.pinot.transport.common.Cancellable;
 import com.linkedin.pinot.transport.common.CompositeFuture;
 import com.linkedin.pinot.transport.common.CompositeFuture.GatherModeOnError;
 import com.linkedin.pinot.transport.common.KeyedFuture;
@@ -50,6 +59,8 @@ import com.linkedin.pinot.transport.netty.NettyClientConnection.ResponseFuture;
 import com.linkedin.pinot.transport.pool.KeyedPool;
 import com.yammer.metrics.core.Histogram;
 import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.stats.ExponentiallyDecayingSample;
+import com.yammer.metrics.stats.Sample;
 
 
 /**
@@ -71,9 +82,37 @@ public class ScatterGatherImpl implements ScatterGather {
    */
   private final KeyedPool<ServerInstance, NettyClientConnection> _connPool;
 
+  /**
+   * Executor to trigger speculative requests. Speculative requests are disabled if null.
+   */
+  private final ScheduledExecutorService _speculativeRequestExecutor;
+
+  private final BrokerMetrics _brokerMetrics;
+
+  /**
+   * Recent response latencies of each server, used to derive the speculative request delay when the request does
+   * not specify one. The samples are local to this instance and not registered as metrics, so that nothing is left
+   * behind in the metrics registry for servers which leave the cluster.
+   */
+  private final ConcurrentMap<ServerInstance, Sample> _serverLatencies = new ConcurrentHashMap<ServerInstance, Sample>();
+
+  private static final double SPECULATIVE_REQUEST_LATENCY_QUANTILE = 0.95;
+  private static final long MIN_LATENCY_SAMPLES_FOR_SPECULATIVE_REQUEST = 100;
+  private static final long MIN_SPECULATIVE_REQUEST_DELAY_MS = 5;
+  // Same reservoir as a biased yammer histogram
+  private static final int LATENCY_SAMPLE_RESERVOIR_SIZE = 1028;
+  private static final double LATENCY_SAMPLE_ALPHA = 0.015;
+
   public ScatterGatherImpl(KeyedPool<ServerInstance, NettyClientConnection> pool, ExecutorService service) {
+    this(pool, service, null, null);
+  }
+
+  public ScatterGatherImpl(KeyedPool<ServerInstance, NettyClientConnection> pool, ExecutorService service,
+      ScheduledExecutorService speculativeRequestExecutor, BrokerMetrics brokerMetrics) {
     _connPool = pool;
     _executorService = service;
+    _speculativeRequestExecutor = speculativeRequestExecutor;
+    _brokerMetrics = brokerMetrics;
   }
 
   @Override
@@ -115,7 +154,7 @@ public class ScatterGatherImpl implements ScatterGather {
     // async checkout of connections and then dispatch of request
     List<SingleRequestHandler> handlers = new ArrayList<SingleRequestHandler>(mp.size());
 
-    int i = 0;
+    long dispatchStartNs = System.nanoTime();
     for (Entry<ServerInstance, SegmentIdSet> e : mp.entrySet()) {
       SingleRequestHandler handler =
           new SingleRequestHandler(_connPool, e.getKey(), ctxt.getRequest(), e.getValue(), ctxt.getTimeRemaining(),
@@ -137,7 +176,18 @@ public class ScatterGatherImpl implements ScatterGather {
       List<KeyedFuture<ServerInstance, ByteBuf>> responseFutures =
           new ArrayList<KeyedFuture<ServerInstance, ByteBuf>>();
       for (SingleRequestHandler h : handlers) {
-        responseFutures.add(h.getResponseFuture());
+        List<ServerInstance> replicas = getSpeculativeRequestCandidates(ctxt, h.getServer(), mp.get(h.getServer()));
+        if (replicas.isEmpty()) {
+          if (_speculativeRequestExecutor != null) {
+            recordLatency(h.getServer(), h.getResponseFuture(), dispatchStartNs);
+          }
+          responseFutures.add(h.getResponseFuture());
+        } else {
+          HedgedResponseFuture hedgedFuture =
+              new HedgedResponseFuture(ctxt, h.getServer(), mp.get(h.getServer()), replicas);
+          hedgedFuture.start(h, dispatchStartNs);
+          responseFutures.add(hedgedFuture);
+        }
       }
       response.start(responseFutures);
     } else {
@@ -156,6 +206,78 @@ public class ScatterGatherImpl implements ScatterGather {
     return response;
   }
 
+  /**
+   * Return the servers, other than the selected one, which host every segment of the segment-set and can be sent
+   * a speculative request. Empty if speculative requests are disabled or no such server is known.
+   */
+  private List<ServerInstance> getSpeculativeRequestCandidates(ScatterGatherRequestContext ctxt,
+      ServerInstance server, SegmentIdSet segmentIds) {
+    ScatterGatherRequest request = ctxt.getRequest();
+    Map<SegmentId, List<ServerInstance>> segmentReplicas = request.getSegmentReplicasMap();
+    if (_speculativeRequestExecutor == null || request.getNumSpeculativeRequests() <= 0 || segmentReplicas == null
+        || segmentIds == null) {
+      return Collections.emptyList();
+    }
+    List<ServerInstance> candidates = null;
+    for (SegmentId segmentId : segmentIds.getSegments()) {
+      List<ServerInstance> replicas = segmentReplicas.get(segmentId);
+      if (replicas == null) {
+        return Collections.emptyList();
+      }
+      if (candidates == null) {
+        candidates = new ArrayList<ServerInstance>(replicas);
+        candidates.remove(server);
+      } else {
+        candidates.retainAll(replicas);
+      }
+      if (candidates.isEmpty()) {
+        return candidates;
+      }
+    }
+    return (candidates == null) ? Collections.<ServerInstance> emptyList() : candidates;
+  }
+
+  /**
+   * Return the delay after which a speculative request is sent for a request to the given server, or -1 if it cannot
+   * be determined yet.
+   */
+  private long getSpeculativeRequestDelayMs(ScatterGatherRequest request, ServerInstance server) {
+    long delayMs = request.getSpeculativeRequestDelayMS();
+    if (delayMs > 0) {
+      return delayMs;
+    }
+    Sample latency = _serverLatencies.get(server);
+    if (latency == null || latency.size() < MIN_LATENCY_SAMPLES_FOR_SPECULATIVE_REQUEST) {
+      return -1;
+    }
+    return Math.max(MIN_SPECULATIVE_REQUEST_DELAY_MS,
+        (long) latency.getSnapshot().getValue(SPECULATIVE_REQUEST_LATENCY_QUANTILE));
+  }
+
+  private void recordLatency(final ServerInstance server, final ResponseFuture responseFuture,
+      final long dispatchStartNs) {
+    if (responseFuture == null) {
+      return;
+    }
+    responseFuture.addListener(new Runnable() {
+      @Override
+      public void run() {
+        if (responseFuture.isCancelled() || responseFuture.getError() != null) {
+          return;
+        }
+        Sample latency = _serverLatencies.get(server);
+        if (latency == null) {
+          latency = new ExponentiallyDecayingSample(LATENCY_SAMPLE_RESERVOIR_SIZE, LATENCY_SAMPLE_ALPHA);
+          Sample existing = _serverLatencies.putIfAbsent(server, latency);
+          if (existing != null) {
+            latency = existing;
+          }
+        }
+        latency.update(TimeUnit.MILLISECONDS.convert(System.nanoTime() - dispatchStartNs, TimeUnit.NANOSECONDS));
+      }
+    }, null);
+  }
+
   /**
    * Merge segment-sets which have the same set of servers. If 2 segmentIds have overlapping
    * set of servers, they are not merged. If there is predefined-selection for a segmentId,
@@ -170,12 +292,47 @@ public class ScatterGatherImpl implements ScatterGather {
 
     BucketingSelection sel = request.getPredefinedSelection();
 
+    Map<SegmentId, List<ServerInstance>> segmentReplicas = request.getSegmentReplicasMap();
     for (ServerInstance serverInstance : segmentIdToInstanceMap.keySet()) {
-      instanceToSegmentMap.put(Arrays.asList(serverInstance), segmentIdToInstanceMap.get(serverInstance));
+      SegmentIdSet segmentIds = segmentIdToInstanceMap.get(serverInstance);
+      if (segmentReplicas == null) {
+        instanceToSegmentMap.put(Arrays.asList(serverInstance), segmentIds);
+      } else {
+        // Let the replica selection choose among all the servers hosting the segment-set
+        SegmentIdSet copy = new SegmentIdSet();
+        copy.addSegments(segmentIds.getSegments());
+        mergePartitionGroup(instanceToSegmentMap, getReplicas(segmentReplicas, serverInstance, segmentIds), copy);
+      }
     }
     requestContext.setInvertedMap(instanceToSegmentMap);
   }
 
+  /**
+   * Return the routed server followed by the other servers hosting every segment of the segment-set.
+   */
+  private List<ServerInstance> getReplicas(Map<SegmentId, List<ServerInstance>> segmentReplicas,
+      ServerInstance server, SegmentIdSet segmentIds) {
+    List<ServerInstance> others = null;
+    for (SegmentId segmentId : segmentIds.getSegments()) {
+      List<ServerInstance> replicas = segmentReplicas.get(segmentId);
+      if (replicas == null) {
+        return Arrays.asList(server);
+      }
+      if (others == null) {
+        others = new ArrayList<ServerInstance>(replicas);
+        others.remove(server);
+      } else {
+        others.retainAll(replicas);
+      }
+    }
+    List<ServerInstance> servers = new ArrayList<ServerInstance>();
+    servers.add(server);
+    if (others != null) {
+      servers.addAll(others);
+    }
+    return servers;
+  }
+
   private <T> void mergePartitionGroup(Map<T, SegmentIdSet> instanceToSegmentMap, T instances, SegmentIdSet pg) {
 
     SegmentIdSet pg2 = instanceToSegmentMap.get(instances);
@@ -208,7 +365,8 @@ public class ScatterGatherImpl implements ScatterGather {
   }
 
   /**
-   * For each segment-set in the instanceToSegmentMap, we select one (or more speculative) servers
+   * For each segment-set in the instanceToSegmentMap, we select one server. Speculative requests to other replicas
+   * are sent lazily by {@link HedgedResponseFuture}.
    *
    * @param requestContext
    */
@@ -216,35 +374,10 @@ public class ScatterGatherImpl implements ScatterGather {
     Map<ServerInstance, SegmentIdSet> selectedServers = new HashMap<ServerInstance, SegmentIdSet>();
     ScatterGatherRequest request = requestContext.getRequest();
     Map<List<ServerInstance>, SegmentIdSet> instanceToSegmentMap = requestContext.getInvertedMap();
-    //int numDuplicateRequests = request.getNumSpeculativeRequests();
     ReplicaSelection selection = request.getReplicaSelection();
     for (Entry<List<ServerInstance>, SegmentIdSet> e : instanceToSegmentMap.entrySet()) {
       ServerInstance s = selection.selectServer(e.getValue().getOneSegment(), e.getKey(), request.getHashKey());
       mergePartitionGroup(selectedServers, s, e.getValue());
-
-      /**
-       * TODO:
-       * We can easily add speculative execution here. The below code will pick a distinct server
-       * for the segmentId, This entry needs to be maintained in a separate container in ScatterGatherRequestContext
-       * Then in sndRequest, we need to construct SelectingFuture for the pairs of Future corresponding to original
-       * and speculative(duplicate) request.
-       *
-       int numServers = e.getKey().size();
-
-      // Pick Unique servers for speculative request
-      int numIterations = Math.min(numServers - 1, numDuplicateRequests);
-      for (int i = 0, c = 0; i < numIterations; i++, c++)
-      {
-        ServerInstance s1 = e.getKey().get(c);
-        if ( s.equals(s1))
-        {
-          c++;
-          s1 = e.getKey().get(c);
-        }
-        mergePartitionGroup(selectedServers, s1, e.getValue());
-        //TODO: speculative servers need to be maintained in a separate entry in ScatterGatherRequestContext
-      }
-       **/
     }
     requestContext.setSelectedServers(selectedServers);
   }
@@ -383,6 +516,11 @@ public class ScatterGatherImpl implements ScatterGather {
         return;
       }
 
+      ReplicaSelection selection = _request.getReplicaSelection();
+      if (null != selection) {
+        selection.onRequestSent(_server);
+      }
+      long dispatchStartNs = System.nanoTime();
       NettyClientConnection conn = null;
       try {
         KeyedFuture<ServerInstance, NettyClientConnection> c = _connPool.checkoutObject(_server);
@@ -407,10 +545,37 @@ public class ScatterGatherImpl implements ScatterGather {
         LOGGER.error("Got exception sending request (" + _request.getRequestId() + "). Setting error future", e);
         _responseFuture = new ResponseFuture(_server, e, "Error Future for request " + _request.getRequestId());
       } finally {
+        if (null != selection) {
+          notifyCompletion(selection, dispatchStartNs);
+        }
         _requestDispatchLatch.countDown();
       }
     }
 
+    /**
+     * Report the latency and outcome of the request to the replica selection once the response future completes.
+     */
+    private void notifyCompletion(final ReplicaSelection selection, final long dispatchStartNs) {
+      final ResponseFuture responseFuture = _responseFuture;
+      if (null == responseFuture) {
+        selection.onRequestCompleted(_server, -1, false);
+        return;
+      }
+      responseFuture.addListener(new Runnable() {
+        @Override
+        public void run() {
+          if (responseFuture.isCancelled()) {
+            selection.onRequestCompleted(_server, -1, false);
+            return;
+          }
+          Map<ServerInstance, Throwable> errors = responseFuture.getError();
+          boolean success = (errors == null || errors.isEmpty());
+          selection.onRequestCompleted(_server,
+              TimeUnit.MILLISECONDS.convert(System.nanoTime() - dispatchStartNs, TimeUnit.NANOSECONDS), success);
+        }
+      }, null);
+    }
+
     /**
      * Cancel checking-out request if possible. If in unsafe state (request already sent),
      * discard the connection from the pool.
@@ -441,6 +606,213 @@ public class ScatterGatherImpl implements ScatterGather {
     }
   }
 
+  /**
+   * Response future for a segment-set that may be sent to more than one replica (hedged request). A speculative
+   * request is sent to another replica if the pending ones have not answered within the speculative request delay,
+   * or right away if they failed. The future completes with the first successful response and the other requests
+   * are cancelled. It fails only once every request failed and no other replica can be tried.
+   *
+   * The future is keyed by the first selected server, so the gathered response map has one entry per segment-set
+   * irrespective of which replica answered.
+   */
+  private class HedgedResponseFuture extends AsyncResponseFuture<ServerInstance, ByteBuf> {
+    private final ScatterGatherRequestContext _ctxt;
+    private final ServerInstance _server;
+    private final SegmentIdSet _segmentIds;
+    // Replicas not queried yet
+    private final List<ServerInstance> _candidates;
+    private final List<SingleRequestHandler> _attempts = new ArrayList<SingleRequestHandler>();
+    private int _numSpeculativeRequestsLeft;
+    private int _numPendingAttempts = 0;
+    private boolean _completed = false;
+    private ScheduledFuture<?> _scheduledSpeculativeRequest = null;
+
+    public HedgedResponseFuture(ScatterGatherRequestContext ctxt, ServerInstance server, SegmentIdSet segmentIds,
+        List<ServerInstance> candidates) {
+      super(server, "Hedged request " + ctxt.getRequest().getRequestId() + " to " + server);
+      _ctxt = ctxt;
+      _server = server;
+      _segmentIds = segmentIds;
+      _candidates = candidates;
+      _numSpeculativeRequestsLeft = ctxt.getRequest().getNumSpeculativeRequests();
+      setCancellable(new Cancellable() {
+        @Override
+        public boolean cancel() {
+          synchronized (HedgedResponseFuture.this) {
+            _completed = true;
+          }
+          cancelAttempts(null);
+          return true;
+        }
+      });
+    }
+
+    /**
+     * Start tracking the first request, which has already been dispatched.
+     */
+    public void start(SingleRequestHandler handler, long dispatchStartNs) {
+      synchronized (this) {
+        _attempts.add(handler);
+        _numPendingAttempts++;
+      }
+      attemptDispatched(handler, false, dispatchStartNs);
+    }
+
+    private boolean canSendSpeculativeRequest() {
+      return !_completed && _numSpeculativeRequestsLeft > 0 && !_candidates.isEmpty() && _ctxt.getTimeRemaining() > 0;
+    }
+
+    private void attemptDispatched(final SingleRequestHandler handler, final boolean isSpeculative,
+        final long dispatchStartNs) {
+      final ResponseFuture responseFuture = handler.getResponseFuture();
+      if (responseFuture == null) {
+        // Cancelled before being sent
+        attemptDone(handler, isSpeculative, null);
+        return;
+      }
+      responseFuture.addListener(new Runnable() {
+        @Override
+        public void run() {
+          recordLatency(handler.getServer(), responseFuture, dispatchStartNs);
+          attemptDone(handler, isSpeculative, responseFuture);
+        }
+      }, null);
+
+      long delayMs = getSpeculativeRequestDelayMs(_ctxt.getRequest(), _server);
+      if (delayMs > 0) {
+        synchronized (this) {
+          if (canSendSpeculativeRequest()) {
+            _scheduledSpeculativeRequest = _speculativeRequestExecutor.schedule(new Runnable() {
+              @Override
+              public void run() {
+                sendSpeculativeRequest();
+              }
+            }, delayMs, TimeUnit.MILLISECONDS);
+          }
+        }
+      }
+    }
+
+    private void attemptDone(SingleRequestHandler handler, boolean isSpeculative, ResponseFuture responseFuture) {
+      ByteBuf response = null;
+      Throwable error = null;
+      if (responseFuture != null && !responseFuture.isCancelled()) {
+        try {
+          response = responseFuture.getOne();
+        } catch (Exception e) {
+          error = e;
+        }
+        Map<ServerInstance, Throwable> errors = responseFuture.getError();
+        if (response == null && errors != null && !errors.isEmpty()) {
+          error = errors.values().iterator().next();
+        }
+      }
+
+      boolean succeeded = false;
+      boolean failed = false;
+      boolean retry = false;
+      synchronized (this) {
+        _numPendingAttempts--;
+        if (_completed) {
+          return;
+        }
+        if (response != null) {
+          _completed = true;
+          succeeded = true;
+        } else if (canSendSpeculativeRequest()) {
+          retry = true;
+        } else if (_numPendingAttempts == 0) {
+          _completed = true;
+          failed = true;
+        }
+      }
+
+      if (succeeded) {
+        if (isSpeculative && _brokerMetrics != null) {
+          _brokerMetrics.addMeteredValue(null, BrokerMeter.HEDGED_REQUEST_WINS, 1);
+        }
+        cancelAttempts(handler);
+        onSuccess(response);
+      } else if (retry) {
+        sendSpeculativeRequest();
+      } else if (failed) {
+        if (error == null) {
+          error = new IllegalStateException("No response from any replica for request "
+              + _ctxt.getRequest().getRequestId());
+        }
+        onError(error);
+      }
+    }
+
+    private void sendSpeculativeRequest() {
+      ServerInstance server;
+      long timeRemaining;
+      synchronized (this) {
+        timeRemaining = _ctxt.getTimeRemaining();
+        if (!canSendSpeculativeRequest()) {
+          return;
+        }
+        ScatterGatherRequest request = _ctxt.getRequest();
+        server =
+            request.getReplicaSelection().selectServer(_segmentIds.getOneSegment(), _candidates, request.getHashKey());
+        if (server == null) {
+          server = _candidates.get(0);
+        }
+        _candidates.remove(server);
+        _numSpeculativeRequestsLeft--;
+        _numPendingAttempts++;
+      }
+
+      LOGGER.debug("Sending speculative request {} to {} for {}", _ctxt.getRequest().getRequestId(), server, _server);
+      if (_brokerMetrics != null) {
+        _brokerMetrics.addMeteredValue(null, BrokerMeter.HEDGED_REQUESTS, 1);
+      }
+      final SingleRequestHandler handler =
+          new SingleRequestHandler(_connPool, server, _ctxt.getRequest(), _segmentIds, timeRemaining,
+              new CountDownLatch(1));
+      synchronized (this) {
+        _attempts.add(handler);
+      }
+      _executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          long dispatchStartNs = System.nanoTime();
+          handler.run();
+          attemptDispatched(handler, true, dispatchStartNs);
+        }
+      });
+    }
+
+    /**
+     * Cancel all the requests but the given one. Cancellation may have to wait for a request being dispatched, so it
+     * is done in the executor rather than in the thread completing the response.
+     */
+    private void cancelAttempts(SingleRequestHandler winner) {
+      final List<SingleRequestHandler> toCancel = new ArrayList<SingleRequestHandler>();
+      synchronized (this) {
+        if (_scheduledSpeculativeRequest != null) {
+          _scheduledSpeculativeRequest.cancel(false);
+        }
+        for (SingleRequestHandler attempt : _attempts) {
+          if (attempt != winner) {
+            toCancel.add(attempt);
+          }
+        }
+      }
+      if (toCancel.isEmpty()) {
+        return;
+      }
+      _executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (SingleRequestHandler attempt : toCancel) {
+            attempt.cancel();
+          }
+        }
+      });
+    }
+  }
+
   public Histogram getLatency() {
     return _latency;
   }
@@ -15,12 +15,14 @@
  */
 package com.linkedin.pinot.transport.scattergather;
 
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.transport.common.BucketingSelection;
 import com.linkedin.pinot.transport.common.ReplicaSelection;
 import com.linkedin.pinot.transport.common.ReplicaSelectionGranularity;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 
 
@@ -74,10 +76,24 @@ public interface ScatterGatherRequest {
    * to be sent foe each scattered request. To turn off speculative requests, this method should
    * return 0.
    *
-   * TODO: Currently Not implemented
+   * A speculative request is only sent if the first one has not completed after
+   * {@link #getSpeculativeRequestDelayMS()} (or failed) and another replica of all its segments is known
+   * from {@link #getSegmentReplicasMap()}. The first response to arrive is used and the others are cancelled.
    */
   public int getNumSpeculativeRequests();
 
+  /**
+   * Return the time in MS to wait for a response before sending a speculative request to another replica.
+   * Non-positive values mean the delay is derived from the observed latency of the server.
+   */
+  public long getSpeculativeRequestDelayMS();
+
+  /**
+   * Return all the servers that can serve each segment, used to pick the server for speculative requests.
+   * Can be null if the replicas are not known, in which case no speculative request is sent.
+   */
+  public Map<SegmentId, List<ServerInstance>> getSegmentReplicasMap();
+
   /**
    * Used for diagnostics, A predefined selection of service can be chosen for each segments
    * and sent to the Scatter-Gather. Scatter-Gather will honor such selection and do not override them.
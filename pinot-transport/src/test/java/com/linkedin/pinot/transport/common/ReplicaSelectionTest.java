@@ -18,6 +18,7 @@ package com.linkedin.pinot.transport.common;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -90,6 +91,46 @@ public class ReplicaSelectionTest {
 
   }
 
+  @Test
+  public void testAdaptiveSelection() {
+    AdaptiveReplicaSelection sel = new AdaptiveReplicaSelection(0.5, 1000, new Random(0));
+
+    ServerInstance s1 = new ServerInstance("localhost", 8080);
+    ServerInstance s2 = new ServerInstance("localhost", 8081);
+    SegmentId segment = new SegmentId("0");
+
+    Assert.assertNull(sel.selectServer(segment, new ArrayList<ServerInstance>(), null));
+    Assert.assertEquals(sel.selectServer(segment, Arrays.asList(s1), null), s1);
+
+    // s1 is slow, s2 is fast
+    sel.onRequestSent(s1);
+    sel.onRequestCompleted(s1, 100, true);
+    sel.onRequestSent(s2);
+    sel.onRequestCompleted(s2, 10, true);
+    Assert.assertEquals(sel.getExpectedLatencyMs(s1), 100.0);
+    Assert.assertEquals(sel.getExpectedLatencyMs(s2), 10.0);
+    List<ServerInstance> candidates = Arrays.asList(s1, s2);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(sel.selectServer(segment, candidates, null), s2, "Round :" + i);
+    }
+
+    // s2 has enough requests in flight to be more loaded than s1
+    for (int i = 0; i < 10; i++) {
+      sel.onRequestSent(s2);
+    }
+    Assert.assertEquals(sel.getExpectedLatencyMs(s2), 110.0);
+    Assert.assertEquals(sel.selectServer(segment, candidates, null), s1);
+
+    // Errors count as at least the error penalty, cancelled requests only release the in-flight slot
+    for (int i = 0; i < 10; i++) {
+      sel.onRequestCompleted(s2, -1, false);
+    }
+    sel.onRequestSent(s2);
+    sel.onRequestCompleted(s2, 10, false);
+    Assert.assertEquals(sel.getExpectedLatencyMs(s2), 505.0);
+    Assert.assertEquals(sel.selectServer(segment, candidates, null), s1);
+  }
+
   public static class BucketKey {
     private final int _key;
 
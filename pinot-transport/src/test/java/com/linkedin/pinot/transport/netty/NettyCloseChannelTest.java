@@ -22,21 +22,30 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timer;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
+import com.linkedin.pinot.transport.metrics.NettyServerMetrics;
 import com.linkedin.pinot.transport.netty.NettyClientConnection.ResponseFuture;
+import com.linkedin.pinot.transport.netty.NettyServer.AsyncRequestHandler;
 import com.linkedin.pinot.transport.netty.NettyServer.NettyChannelInboundHandler;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandler;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandlerFactory;
@@ -121,6 +130,30 @@ public class NettyCloseChannelTest {
     System.out.println(metric);
   }
 
+  @Test
+  /**
+   * Client sends a request handled asynchronously, then closes the channel before the response is ready. The server
+   * cancels the query, which interrupts the thread processing it.
+   */
+  public void testCloseClientChannelCancelsAsyncRequest() throws Exception {
+    ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    MyAsyncRequestHandler handler = new MyAsyncRequestHandler(executorService, started, interrupted);
+    try {
+      EmbeddedChannel channel =
+          new EmbeddedChannel(new NettyChannelInboundHandler(handler, new NettyServerMetrics(null, "abc")));
+      channel.writeInbound(Unpooled.wrappedBuffer("dummy request".getBytes()));
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS), "Request processing started");
+      // Closes the channel and runs the pending channelInactive event
+      Assert.assertFalse(channel.finish(), "Response written");
+      Assert.assertTrue(handler.getResponseFuture().isCancelled(), "Is Cancelled");
+      Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS), "Request processing interrupted");
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   /**
    * Sets a Handler which closes the connection on incoming request
    */
@@ -219,6 +252,50 @@ public class NettyCloseChannelTest {
     }
   }
 
+  /**
+   * Processes requests on the given executor until interrupted
+   */
+  private static class MyAsyncRequestHandler implements AsyncRequestHandler {
+    private final ListeningExecutorService _executorService;
+    private final CountDownLatch _started;
+    private final CountDownLatch _interrupted;
+    private volatile ListenableFuture<byte[]> _responseFuture;
+
+    public MyAsyncRequestHandler(ListeningExecutorService executorService, CountDownLatch started,
+        CountDownLatch interrupted) {
+      _executorService = executorService;
+      _started = started;
+      _interrupted = interrupted;
+    }
+
+    @Override
+    public byte[] processRequest(ByteBuf request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ListenableFuture<byte[]> processRequestAsync(ByteBuf request) {
+      _responseFuture = _executorService.submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws Exception {
+          _started.countDown();
+          try {
+            new CountDownLatch(1).await();
+          } catch (InterruptedException e) {
+            _interrupted.countDown();
+            throw e;
+          }
+          return new byte[0];
+        }
+      });
+      return _responseFuture;
+    }
+
+    public ListenableFuture<byte[]> getResponseFuture() {
+      return _responseFuture;
+    }
+  }
+
   private static class MyRequestHandlerFactory implements RequestHandlerFactory {
     private final MyRequestHandler _requestHandler;
 
@@ -473,6 +473,16 @@ public class ScatterGatherPerfClient implements Runnable {
       return 0;
     }
 
+    @Override
+    public long getSpeculativeRequestDelayMS() {
+      return -1;
+    }
+
+    @Override
+    public Map<SegmentId, List<ServerInstance>> getSegmentReplicasMap() {
+      return null;
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return null;
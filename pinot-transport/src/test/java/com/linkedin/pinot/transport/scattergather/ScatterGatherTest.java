@@ -22,6 +22,7 @@ import io.netty.util.HashedWheelTimer;
 import io.netty.util.ResourceLeakDetector;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -599,6 +600,73 @@ public class ScatterGatherTest {
     server4.shutdownGracefully();
   }
 
+  @Test
+  public void testSpeculativeRequest() throws Exception {
+
+    MetricsRegistry registry = new MetricsRegistry();
+
+    // Server start, the first replica is slow
+    int serverPort1 = 7091;
+    int serverPort2 = 7092;
+    NettyTCPServer server1 = new NettyTCPServer(serverPort1, new TestRequestHandlerFactory(0, 1, 5000, false), null);
+    NettyTCPServer server2 = new NettyTCPServer(serverPort2, new TestRequestHandlerFactory(1, 1), null);
+    Thread t1 = new Thread(server1);
+    Thread t2 = new Thread(server2);
+    t1.start();
+    t2.start();
+
+    //Client setup
+    ScheduledExecutorService timedExecutor = new ScheduledThreadPoolExecutor(1);
+    ExecutorService poolExecutor = MoreExecutors.sameThreadExecutor();
+    ExecutorService service = new ThreadPoolExecutor(2, 2, 1, TimeUnit.DAYS, new LinkedBlockingDeque<Runnable>());
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    NettyClientMetrics clientMetrics = new NettyClientMetrics(registry, "client_");
+    PooledNettyClientResourceManager rm =
+        new PooledNettyClientResourceManager(eventLoopGroup, new HashedWheelTimer(), clientMetrics);
+    KeyedPoolImpl<ServerInstance, NettyClientConnection> pool =
+        new KeyedPoolImpl<ServerInstance, NettyClientConnection>(1, 1, 300000, 1, rm, timedExecutor, poolExecutor,
+            registry);
+    rm.setPool(pool);
+
+    SegmentId segment = new SegmentId("0");
+    SegmentIdSet pg = new SegmentIdSet();
+    pg.addSegment(segment);
+    ServerInstance serverInstance1 = new ServerInstance("localhost", serverPort1);
+    ServerInstance serverInstance2 = new ServerInstance("localhost", serverPort2);
+    Map<ServerInstance, SegmentIdSet> pgMap = new HashMap<ServerInstance, SegmentIdSet>();
+    pgMap.put(serverInstance1, pg);
+    Map<SegmentIdSet, String> pgMapStr = new HashMap<SegmentIdSet, String>();
+    pgMapStr.put(pg, "request_0");
+    Map<SegmentId, List<ServerInstance>> replicas = new HashMap<SegmentId, List<ServerInstance>>();
+    replicas.put(segment, Arrays.asList(serverInstance1, serverInstance2));
+
+    TestScatterGatherRequest req =
+        new TestScatterGatherRequest(pgMap, pgMapStr, new MyReplicaSelection(),
+            ReplicaSelectionGranularity.SEGMENT_ID_SET, 1, 10000);
+    req.setSpeculativeRequests(100, replicas);
+
+    ScatterGatherImpl scImpl = new ScatterGatherImpl(pool, service, timedExecutor, null);
+    long startTime = System.currentTimeMillis();
+    CompositeFuture<ServerInstance, ByteBuf> fut = scImpl.scatterGather(req);
+    Map<ServerInstance, ByteBuf> v = fut.get();
+    long timeTaken = System.currentTimeMillis() - startTime;
+
+    // Response of the second replica, keyed by the first selected server
+    Assert.assertEquals(v.size(), 1);
+    ByteBuf b = v.get(serverInstance1);
+    byte[] b2 = new byte[b.readableBytes()];
+    b.readBytes(b2);
+    Assert.assertEquals(new String(b2), "response_1_0");
+    Assert.assertTrue(timeTaken < 5000, "Time taken : " + timeTaken);
+
+    pool.shutdown();
+    service.shutdown();
+    timedExecutor.shutdown();
+    eventLoopGroup.shutdownGracefully();
+    server1.shutdownGracefully();
+    server2.shutdownGracefully();
+  }
+
   public static class TestRequestHandlerFactory implements RequestHandlerFactory {
     public final int _numRequests;
     public final int _id;
@@ -679,6 +747,8 @@ public class ScatterGatherTest {
     private final ReplicaSelectionGranularity _granularity;
     private final int _numSpeculativeRequests;
     private final int _timeoutMS;
+    private long _speculativeRequestDelayMS = -1;
+    private Map<SegmentId, List<ServerInstance>> _segmentReplicasMap = null;
 
     public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
         Map<SegmentIdSet, String> responsesMap) {
@@ -732,6 +802,22 @@ public class ScatterGatherTest {
       return _numSpeculativeRequests;
     }
 
+    public void setSpeculativeRequests(long speculativeRequestDelayMS,
+        Map<SegmentId, List<ServerInstance>> segmentReplicasMap) {
+      _speculativeRequestDelayMS = speculativeRequestDelayMS;
+      _segmentReplicasMap = segmentReplicasMap;
+    }
+
+    @Override
+    public long getSpeculativeRequestDelayMS() {
+      return _speculativeRequestDelayMS;
+    }
+
+    @Override
+    public Map<SegmentId, List<ServerInstance>> getSegmentReplicasMap() {
+      return _segmentReplicasMap;
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return null;